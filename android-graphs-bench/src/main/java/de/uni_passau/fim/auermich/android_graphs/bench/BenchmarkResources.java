@@ -0,0 +1,67 @@
+package de.uni_passau.fim.auermich.android_graphs.bench;
+
+import com.android.tools.smali.dexlib2.iface.DexFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static de.uni_passau.fim.auermich.android_graphs.core.utility.SmaliTestHelper.compileSmali;
+import static de.uni_passau.fim.auermich.android_graphs.core.utility.SmaliTestHelper.createDexFile;
+
+/**
+ * Provides access to the APK and smali files the benchmarks operate on. These are the test resources of the library
+ * module, whose location is passed by the 'jmh' task through a system property.
+ */
+public final class BenchmarkResources {
+
+    private static final String RESOURCES_PROPERTY = "android.graphs.bench.resources";
+
+    // the fallback if the benchmarks are launched from the module directory without the 'jmh' task
+    private static final String DEFAULT_RESOURCES = "../android-graphs-lib/src/test/resources";
+
+    /**
+     * The bundled APK file.
+     */
+    public static final String APK = "com.zola.bmi.apk";
+
+    /**
+     * The bundled smali file describing the main activity of the bundled APK.
+     */
+    public static final String SMALI = "BMIMain.smali";
+
+    private BenchmarkResources() {
+        throw new UnsupportedOperationException("utility class!");
+    }
+
+    /**
+     * Resolves a file contained in the benchmark resources.
+     *
+     * @param name The name of the resource file.
+     * @return Returns the resource file.
+     */
+    public static File getFile(final String name) {
+        File file = new File(System.getProperty(RESOURCES_PROPERTY, DEFAULT_RESOURCES), name);
+        if (!file.isFile()) {
+            throw new IllegalStateException("Benchmark resource not found: " + file.getAbsolutePath());
+        }
+        return file;
+    }
+
+    /**
+     * Compiles the given smali file into a dex file consisting of a single class.
+     *
+     * @param name The name of the smali resource file.
+     * @return Returns a dex file containing the compiled class.
+     */
+    public static DexFile loadSmaliDexFile(final String name) {
+        try {
+            String smaliCode = Files.readString(getFile(name).toPath(), StandardCharsets.UTF_8);
+            return createDexFile(compileSmali(smaliCode));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package de.uni_passau.fim.auermich.android_graphs.bench;
+
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cdg.CDG;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.BaseCFG;
+import de.uni_passau.fim.auermich.android_graphs.core.utility.GraphUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the construction of the inter-procedural graphs of the bundled APK. A single construction takes long
+ * enough to be measured in single shot mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class InterCFGBenchmark {
+
+    @Param({"false", "true"})
+    public boolean useBasicBlocks;
+
+    private File apkFile;
+
+    @Setup
+    public void setup() {
+        apkFile = BenchmarkResources.getFile(BenchmarkResources.APK);
+    }
+
+    @Benchmark
+    public BaseCFG constructInterCFG() {
+        return GraphUtils.constructInterCFG(apkFile, useBasicBlocks, true, true);
+    }
+
+    @Benchmark
+    public CDG constructInterCDG() {
+        return GraphUtils.constructInterCDG(apkFile, useBasicBlocks, true, true);
+    }
+}
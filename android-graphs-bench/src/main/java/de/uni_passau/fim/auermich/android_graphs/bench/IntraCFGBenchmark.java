@@ -0,0 +1,84 @@
+package de.uni_passau.fim.auermich.android_graphs.bench;
+
+import com.android.tools.smali.dexlib2.iface.ClassDef;
+import com.android.tools.smali.dexlib2.iface.DexFile;
+import com.android.tools.smali.dexlib2.iface.Method;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cdg.CDG;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cdg.PDT;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.IntraCFG;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the construction of intra-procedural graphs for the methods of the bundled smali class.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IntraCFGBenchmark {
+
+    @Param({"false", "true"})
+    public boolean useBasicBlocks;
+
+    private DexFile dexFile;
+
+    // the methods of the smali class that have an implementation
+    private final List<Method> methods = new ArrayList<>();
+
+    // the largest intra CFG serves as input for the PDT and CDG construction
+    private IntraCFG largestCFG;
+
+    @Setup
+    public void setup() {
+
+        dexFile = BenchmarkResources.loadSmaliDexFile(BenchmarkResources.SMALI);
+
+        for (ClassDef classDef : dexFile.getClasses()) {
+            for (Method method : classDef.getMethods()) {
+                if (method.getImplementation() != null) {
+                    methods.add(method);
+                }
+            }
+        }
+
+        largestCFG = methods.stream()
+                .map(method -> new IntraCFG(method, dexFile, useBasicBlocks))
+                .max(Comparator.comparingInt(IntraCFG::size))
+                .orElseThrow(() -> new IllegalStateException("No method with an implementation found!"));
+    }
+
+    @Benchmark
+    public void constructIntraCFGs(Blackhole blackhole) {
+        for (Method method : methods) {
+            blackhole.consume(new IntraCFG(method, dexFile, useBasicBlocks));
+        }
+    }
+
+    @Benchmark
+    public PDT constructPDT() {
+        return new PDT(largestCFG);
+    }
+
+    @Benchmark
+    public CDG constructCDG() {
+        return new CDG(largestCFG);
+    }
+}
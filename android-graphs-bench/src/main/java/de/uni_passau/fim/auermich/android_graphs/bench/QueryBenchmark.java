@@ -0,0 +1,145 @@
+package de.uni_passau.fim.auermich.android_graphs.bench;
+
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.calltree.CallTree;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.calltree.CallTreeEdge;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.calltree.CallTreeVertex;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.BaseCFG;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.BranchDistanceMatrix;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.CFGVertex;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.HierarchicalDistanceOracle;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.LandmarkDistanceOracle;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.ReachabilityIndex;
+import de.uni_passau.fim.auermich.android_graphs.core.utility.GraphUtils;
+import org.jgrapht.GraphPath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Measures the queries a test generator issues against a constructed graph, i.e. the look up of traces, the
+ * distance computation towards branches and the shortest paths in the call tree. Each invocation picks the next
+ * query from a fixed, shuffled set of queries.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark {
+
+    private BaseCFG interCFG;
+
+    private BranchDistanceMatrix branchDistances;
+
+    private LandmarkDistanceOracle landmarks;
+
+    private HierarchicalDistanceOracle hierarchy;
+
+    private ReachabilityIndex reachability;
+
+    private CallTree callTree;
+
+    private List<String> traces;
+
+    private List<CFGVertex> branches;
+
+    private List<String> methods;
+
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+
+        File apkFile = BenchmarkResources.getFile(BenchmarkResources.APK);
+        interCFG = GraphUtils.constructInterCFG(apkFile, true, true, true);
+        callTree = GraphUtils.constructCallTree(apkFile, true, true);
+
+        // a fixed seed keeps the query order identical across runs
+        Random random = new Random(42);
+
+        branches = new ArrayList<>(interCFG.getBranches());
+        Collections.sort(branches, (first, second) -> first.toString().compareTo(second.toString()));
+        Collections.shuffle(branches, random);
+
+        traces = interCFG.getVertices().stream()
+                // traces as they are produced by an instrumented app refer to actual instructions
+                .filter(vertex -> !vertex.isEntryVertex() && !vertex.isExitVertex())
+                .map(CFGVertex::getTrace)
+                .flatMap(Optional::stream)
+                .sorted()
+                .collect(Collectors.toList());
+        Collections.shuffle(traces, random);
+
+        methods = callTree.getVertices().stream()
+                .map(CallTreeVertex::getMethod)
+                .sorted()
+                .collect(Collectors.toList());
+        Collections.shuffle(methods, random);
+
+        if (branches.isEmpty() || traces.isEmpty() || methods.isEmpty()) {
+            throw new IllegalStateException("The bundled APK yields no queries!");
+        }
+
+        branchDistances = new BranchDistanceMatrix(interCFG, BranchDistanceMatrix.Precision.SHORT, null);
+        landmarks = new LandmarkDistanceOracle(interCFG, 16);
+        hierarchy = new HierarchicalDistanceOracle(interCFG);
+        reachability = new ReachabilityIndex(interCFG);
+    }
+
+    private int next(final int bound) {
+        next = (next + 1) % bound;
+        return next;
+    }
+
+    @Benchmark
+    public CFGVertex lookUpVertex() {
+        return interCFG.lookUpVertex(traces.get(next(traces.size())));
+    }
+
+    @Benchmark
+    public int getShortestDistance() {
+        return interCFG.getShortestDistance(interCFG.getEntry(), branches.get(next(branches.size())));
+    }
+
+    @Benchmark
+    public int getBranchDistance() {
+        return branchDistances.getDistance(interCFG.getEntry(), branches.get(next(branches.size())));
+    }
+
+    @Benchmark
+    public int getLandmarkDistance() {
+        return landmarks.getShortestDistance(interCFG.getEntry(), branches.get(next(branches.size())));
+    }
+
+    @Benchmark
+    public int getHierarchicalDistance() {
+        return hierarchy.getShortestDistance(interCFG.getEntry(), branches.get(next(branches.size())));
+    }
+
+    @Benchmark
+    public boolean isReachable() {
+        return reachability.isReachable(interCFG.getEntry(), branches.get(next(branches.size())));
+    }
+
+    @Benchmark
+    public Optional<GraphPath<CallTreeVertex, CallTreeEdge>> getCallTreeShortestPath() {
+        return callTree.getShortestPath(methods.get(next(methods.size())));
+    }
+}
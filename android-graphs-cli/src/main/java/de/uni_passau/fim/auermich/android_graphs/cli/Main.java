@@ -1,17 +1,18 @@
 package de.uni_passau.fim.auermich.android_graphs.cli;
 
-import com.android.tools.smali.dexlib2.DexFileFactory;
-import com.android.tools.smali.dexlib2.Opcodes;
-import com.android.tools.smali.dexlib2.dexbacked.DexBackedDexFile;
 import com.android.tools.smali.dexlib2.iface.DexFile;
 import com.android.tools.smali.dexlib2.iface.Method;
-import com.android.tools.smali.dexlib2.iface.MultiDexContainer;
 import com.beust.jcommander.JCommander;
 import de.uni_passau.fim.auermich.android_graphs.cli.jcommander.*;
+import de.uni_passau.fim.auermich.android_graphs.cli.server.GraphServer;
 import de.uni_passau.fim.auermich.android_graphs.core.graphs.BaseGraph;
 import de.uni_passau.fim.auermich.android_graphs.core.graphs.BaseGraphBuilder;
 import de.uni_passau.fim.auermich.android_graphs.core.graphs.GraphType;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.BaseCFG;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.BranchDistanceMatrix;
 import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.InterCFG;
+import de.uni_passau.fim.auermich.android_graphs.core.utility.BuildMetrics;
+import de.uni_passau.fim.auermich.android_graphs.core.utility.DexLoader;
 import de.uni_passau.fim.auermich.android_graphs.core.utility.MethodUtils;
 import de.uni_passau.fim.auermich.android_graphs.core.utility.Tuple;
 import org.apache.logging.log4j.Level;
@@ -21,7 +22,6 @@ import org.apache.logging.log4j.core.config.Configurator;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -36,9 +36,6 @@ public final class Main {
 
     private static final Logger LOGGER = LogManager.getLogger(Main.class);
 
-    // the dalvik bytecode level (Android API version)
-    public static final Opcodes API_OPCODE = Opcodes.forApi(28);
-
     // the set of possible commands
     private static final MainCommand mainCmd = new MainCommand();
     private static final InterCFGCommand interCFGCmd = new InterCFGCommand();
@@ -47,6 +44,7 @@ public final class Main {
     private static final InterCDGCommand interCDGCmd = new InterCDGCommand();
     private static final IntraCDGCommand intraCDGCmd = new IntraCDGCommand();
     private static final ModularCDGCommand modularCDGCmd = new ModularCDGCommand();
+    private static final ServeCommand serveCmd = new ServeCommand();
 
     // utility class implies private constructor
     private Main() {
@@ -61,6 +59,7 @@ public final class Main {
      *             The switch -d specifies whether debugging mode should be enabled (no argument required).
      *             The switch -draw specifies whether the graph should be drawn.
      *             The switch -l (-lookup) requests a vertex lookup corresponding to the given trace.
+     *             The switch -metrics specifies a file to which the graph construction metrics are written.
      *
      *             After those global options, a sub commando must follow. This can be either
      *             'intra' or 'inter', which specifies which graph should be constructed.
@@ -96,6 +95,15 @@ public final class Main {
      *             The switch -art specifies whether ART classes should be resolved. (optional)
      *             The switch -oaut specifies whether only AUT classes should be resolved. (optional)
      *
+     *             The 'serve' sub commando can handle the following arguments:
+     *             The switch -g (-graph) specifies the graph type that should be served. (optional)
+     *             The switch -p (-port) specifies the localhost TCP port to listen on. (optional)
+     *             The switch -s (-socket) specifies a Unix domain socket to listen on instead. (optional)
+     *             The switch -c (-cache-size) specifies the number of cached distance maps. (optional)
+     *             The switch -b specifies whether basic blocks should be used. (optional)
+     *             The switch -art specifies whether ART classes should be resolved. (optional)
+     *             The switch -oaut specifies whether only AUT classes should be resolved. (optional)
+     *
      * @throws IOException Should never happen.
      */
     public static void main(String[] args) throws IOException {
@@ -119,6 +127,7 @@ public final class Main {
                 .addCommand("intercdg", interCDGCmd)
                 .addCommand("intracdg", intraCDGCmd)
                 .addCommand("modularcdg", modularCDGCmd)
+                .addCommand("serve", serveCmd)
                 .build();
 
         // the program name displayed in the help/usage cmd.
@@ -134,12 +143,21 @@ public final class Main {
             Configurator.setAllLevels(LogManager.getRootLogger().getName(), Level.INFO);
         }
 
+        // metrics are only recorded on demand
+        BuildMetrics.setEnabled(mainCmd.recordMetrics());
+
         // check whether help command is executed
         if (mainCmd.isHelp()) {
             commander.usage();
         } else {
             // process apk and construct desired graph
             run(commander);
+
+            // the 'serve' sub commando writes the metrics itself once the graph is constructed
+            if (mainCmd.recordMetrics() && !"serve".equals(commander.getParsedCommand())) {
+                LOGGER.info("Writing build metrics to: " + mainCmd.getMetricsFile().getAbsolutePath());
+                BuildMetrics.writeJSON(mainCmd.getMetricsFile());
+            }
         }
     }
 
@@ -197,6 +215,84 @@ public final class Main {
         return cmd.getGraphType() == GraphType.CALLTREE;
     }
 
+    /**
+     * Loads the dex files contained in the given APK file (support for multi-dex).
+     *
+     * @return Returns the dex files of the APK file.
+     * @throws IOException If the APK file can't be read.
+     */
+    private static List<DexFile> loadDexFiles() throws IOException {
+        try {
+            return DexLoader.loadDexFiles(mainCmd.getAPKFile());
+        } catch (UncheckedIOException e) {
+            LOGGER.warn("Failure loading dexFile");
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Constructs the graph specified by the 'serve' sub commando once and answers queries over a local socket
+     * until the process is terminated.
+     *
+     * @throws IOException If the APK file can't be read or the socket can't be bound.
+     */
+    private static void serve() throws IOException {
+
+        GraphType graphType = serveCmd.getGraphType();
+
+        if (graphType != GraphType.INTERCFG && graphType != GraphType.INTERCDG
+                && graphType != GraphType.MODULARCDG && graphType != GraphType.CALLTREE) {
+            LOGGER.error("Graph type " + graphType + " can't be served!");
+            return;
+        }
+
+        BaseGraphBuilder builder = new BaseGraphBuilder(graphType, loadDexFiles())
+                .withName("global")
+                .withAPKFile(mainCmd.getAPKFile());
+
+        if (serveCmd.isUseBasicBlocks() || graphType == GraphType.CALLTREE) {
+            builder = builder.withBasicBlocks();
+        }
+
+        if (!serveCmd.resolveARTClasses()) {
+            builder = builder.withExcludeARTClasses();
+        }
+
+        if (serveCmd.resolveOnlyAUTClasses()) {
+            builder = builder.withResolveOnlyAUTClasses();
+        }
+
+        if (serveCmd.storeOffHeap()) {
+            builder = serveCmd.getOffHeapFile() != null
+                    ? builder.withOffHeapStorage(serveCmd.getOffHeapFile().toPath()) : builder.withOffHeapStorage();
+        }
+
+        BaseGraph baseGraph = builder.build();
+        LOGGER.info("Size of graph: " + baseGraph.size());
+
+        if (mainCmd.recordMetrics()) {
+            // the server runs until the process is terminated, thus write the construction metrics upfront
+            LOGGER.info("Writing build metrics to: " + mainCmd.getMetricsFile().getAbsolutePath());
+            BuildMetrics.writeJSON(mainCmd.getMetricsFile());
+        }
+
+        BranchDistanceMatrix branchDistances = null;
+
+        if (serveCmd.precomputeBranchDistances() && baseGraph instanceof BaseCFG) {
+            branchDistances = new BranchDistanceMatrix((BaseCFG) baseGraph, BranchDistanceMatrix.Precision.SHORT,
+                    serveCmd.getBranchMatrixFile() != null ? serveCmd.getBranchMatrixFile().toPath() : null);
+        }
+
+        GraphServer server = new GraphServer(baseGraph, serveCmd.getCacheSize(), branchDistances);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+
+        if (serveCmd.useUnixDomainSocket()) {
+            server.serve(serveCmd.getSocket().toPath());
+        } else {
+            server.serve(serveCmd.getPort());
+        }
+    }
+
     private static void run(JCommander commander) throws IOException {
 
         LOGGER.info("APK: " + mainCmd.getAPKFile().getAbsolutePath());
@@ -208,6 +304,12 @@ public final class Main {
 
         // intra, inter, sgd coincides with defined Graph type enum
         String selectedCommand = commander.getParsedCommand();
+
+        if ("serve".equals(selectedCommand)) {
+            serve();
+            return;
+        }
+
         Optional<GraphType> graphType = GraphType.fromString(selectedCommand);
 
         if (graphType.isEmpty()) {
@@ -215,20 +317,7 @@ public final class Main {
             commander.usage();
         } else {
 
-            // process directly apk file (support for multi-dex)
-            MultiDexContainer<? extends DexBackedDexFile> apk
-                    = DexFileFactory.loadDexContainer(mainCmd.getAPKFile(), API_OPCODE);
-
-            List<DexFile> dexFiles = new ArrayList<>();
-
-            apk.getDexEntryNames().forEach(dexFile -> {
-                try {
-                    dexFiles.add(apk.getEntry(dexFile).getDexFile());
-                } catch (IOException e) {
-                    LOGGER.warn("Failure loading dexFile");
-                    throw new UncheckedIOException(e);
-                }
-            });
+            List<DexFile> dexFiles = loadDexFiles();
 
             // determine which sub-commando was executed
             switch (graphType.get()) {
@@ -19,6 +19,9 @@ public class MainCommand {
     @Parameter(names = { "-l", "-lookup"}, description = "A trace referring to a vertex.")
     private String trace;
 
+    @Parameter(names = {"-metrics"}, description = "File path to which the graph construction metrics are written.")
+    private File metricsFile;
+
     // TODO: use file path instead, fallback to default path is none is specified
     @Parameter(names = {"-draw"}, description = "Whether the graph should be drawn.")
     private boolean draw = false;
@@ -27,6 +30,14 @@ public class MainCommand {
         return draw;
     }
 
+    public File getMetricsFile() {
+        return metricsFile;
+    }
+
+    public boolean recordMetrics() {
+        return metricsFile != null;
+    }
+
     public String getTrace() {
         return trace;
     }
@@ -0,0 +1,97 @@
+package de.uni_passau.fim.auermich.android_graphs.cli.jcommander;
+
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.GraphType;
+
+import java.io.File;
+
+@Parameters(commandDescription = "Constructs a graph once and answers queries over a local socket.")
+public class ServeCommand {
+
+    @Parameter(names = {"-g", "-graph"}, description = "The graph type that should be served.",
+            converter = GraphTypeConverter.class)
+    private GraphType graphType = GraphType.INTERCFG;
+
+    @Parameter(names = {"-p", "-port"}, description = "The localhost TCP port the server listens on.")
+    private int port = 5050;
+
+    @Parameter(names = {"-s", "-socket"}, description = "The path of a Unix domain socket the server listens on "
+            + "instead of a TCP port (requires Java 16+).")
+    private File socket;
+
+    @Parameter(names = {"-c", "-cache-size"}, description = "The number of per-target distance maps kept in memory.")
+    private int cacheSize = 256;
+
+    @Parameter(names = {"-art"}, description = "Whether ART classes should be resolved.")
+    private boolean art = false;
+
+    @Parameter(names = {"-oaut", "-only-aut"}, description = "Whether only AUT classes should be resolved.")
+    private boolean resolveOnlyAUTClasses = false;
+
+    @Parameter(names = { "-b", "-basic-blocks" }, description = "Whether to use basic blocks or not.")
+    private boolean useBasicBlocks = false;
+
+    @Parameter(names = {"-off-heap"}, description = "Whether the adjacency of the InterCFG should be stored off-heap.")
+    private boolean offHeap = false;
+
+    @Parameter(names = {"-off-heap-file"}, description = "The file the off-heap adjacency is mapped to, otherwise "
+            + "direct memory is used.")
+    private File offHeapFile;
+
+    @Parameter(names = {"-bm", "-branch-matrix"}, description = "Whether the distances of all vertices towards all "
+            + "branches should be precomputed.")
+    private boolean branchMatrix = false;
+
+    @Parameter(names = {"-branch-matrix-file"}, description = "The file the branch distance matrix is mapped to, "
+            + "otherwise the matrix is kept on the heap.")
+    private File branchMatrixFile;
+
+    public GraphType getGraphType() {
+        return graphType;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public File getSocket() {
+        return socket;
+    }
+
+    public boolean useUnixDomainSocket() {
+        return socket != null;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public boolean resolveOnlyAUTClasses() {
+        return resolveOnlyAUTClasses;
+    }
+
+    public boolean resolveARTClasses() {
+        return art;
+    }
+
+    public boolean isUseBasicBlocks() {
+        return useBasicBlocks;
+    }
+
+    public boolean storeOffHeap() {
+        return offHeap || offHeapFile != null;
+    }
+
+    public File getOffHeapFile() {
+        return offHeapFile;
+    }
+
+    public boolean precomputeBranchDistances() {
+        return branchMatrix || branchMatrixFile != null;
+    }
+
+    public File getBranchMatrixFile() {
+        return branchMatrixFile;
+    }
+}
@@ -0,0 +1,123 @@
+package de.uni_passau.fim.auermich.android_graphs.cli.server;
+
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.BaseCFG;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.CFGVertex;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Caches the distances of all vertices towards a target vertex. A single backwards BFS from the target answers
+ * any subsequent query 'distance from v to target' by a map lookup, which pays off as soon as a client asks
+ * for the distances of many visited vertices to the same target. The number of cached targets is bounded and
+ * the least recently used target is evicted first.
+ */
+final class DistanceCache {
+
+    private final BaseCFG cfg;
+
+    private final Map<CFGVertex, Map<CFGVertex, Integer>> distances;
+
+    private long hits = 0;
+
+    private long misses = 0;
+
+    /**
+     * Creates a new distance cache over the given CFG.
+     *
+     * @param cfg The CFG on which the distances should be computed.
+     * @param capacity The maximal number of targets for which the distances are kept.
+     */
+    DistanceCache(final BaseCFG cfg, final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The cache capacity must be positive!");
+        }
+        this.cfg = cfg;
+        this.distances = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CFGVertex, Map<CFGVertex, Integer>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Retrieves the shortest distance between the given source and target vertex.
+     *
+     * @param source The given source vertex.
+     * @param target The given target vertex.
+     * @return Returns the shortest distance between the given source and target vertex, or {@code -1} if no path
+     *         exists. This coincides with {@link BaseCFG#getShortestDistance(CFGVertex, CFGVertex)}.
+     */
+    int getShortestDistance(final CFGVertex source, final CFGVertex target) {
+        return getDistancesTo(target).getOrDefault(source, -1);
+    }
+
+    /**
+     * Returns the distances of all vertices that can reach the given target vertex.
+     *
+     * @param target The target vertex.
+     * @return Returns an unmodifiable map of vertices to their distance towards the target.
+     */
+    Map<CFGVertex, Integer> getDistancesTo(final CFGVertex target) {
+
+        synchronized (distances) {
+            Map<CFGVertex, Integer> cached = distances.get(target);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+        }
+
+        // concurrent misses on the same target may compute the map twice, which is cheaper than blocking all clients
+        Map<CFGVertex, Integer> computed = Collections.unmodifiableMap(computeDistancesTo(target));
+
+        synchronized (distances) {
+            distances.put(target, computed);
+        }
+        return computed;
+    }
+
+    /**
+     * Performs a backwards BFS starting at the given target vertex.
+     *
+     * @param target The target vertex.
+     * @return Returns the distance of each vertex that can reach the target vertex.
+     */
+    private Map<CFGVertex, Integer> computeDistancesTo(final CFGVertex target) {
+
+        Map<CFGVertex, Integer> result = new HashMap<>();
+        Queue<CFGVertex> queue = new ArrayDeque<>();
+        result.put(target, 0);
+        queue.add(target);
+
+        while (!queue.isEmpty()) {
+            CFGVertex vertex = queue.poll();
+            int distance = result.get(vertex) + 1;
+            for (CFGVertex predecessor : cfg.getPredecessors(vertex)) {
+                if (!result.containsKey(predecessor)) {
+                    result.put(predecessor, distance);
+                    queue.add(predecessor);
+                }
+            }
+        }
+        return result;
+    }
+
+    long getHits() {
+        synchronized (distances) {
+            return hits;
+        }
+    }
+
+    long getMisses() {
+        synchronized (distances) {
+            return misses;
+        }
+    }
+}
@@ -0,0 +1,463 @@
+package de.uni_passau.fim.auermich.android_graphs.cli.server;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.BaseGraph;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.Vertex;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.calltree.CallTree;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.calltree.CallTreeVertex;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.BaseCFG;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.BranchDistanceMatrix;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.CFGVertex;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.ReachabilityIndex;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps a constructed graph in memory and answers queries of clients over a local socket. The protocol is line-based:
+ * each request is a single JSON object on its own line and is answered by a single JSON object on its own line.
+ * Every request carries an 'op' field and may carry an 'id' field that is echoed in the response. The supported
+ * operations are:
+ *
+ *      {"op": "lookup", "trace": "..."}
+ *      {"op": "distance", "source": "...", "target": "..."}
+ *      {"op": "distance", "source": "...", "targets": ["...", ...]}
+ *      {"op": "reachable", "source": "...", "target": "..."}
+ *      {"op": "branches"}
+ *      {"op": "coverage", "traces": ["...", ...]}
+ *      {"op": "size"}
+ *      {"op": "stats"}
+ *
+ * Traces follow the format of {@link BaseGraph#lookUpVertex(String)}. A response contains the field 'ok', which
+ * is {@code false} if the request could not be answered, in which case the field 'error' describes the failure.
+ * The graph is never modified after construction, thus clients are served concurrently.
+ */
+public class GraphServer implements Closeable {
+
+    private static final Logger LOGGER = LogManager.getLogger(GraphServer.class);
+
+    private static final Gson GSON = new Gson();
+
+    private final BaseGraph graph;
+
+    // only present if the served graph is a CFG (or a CDG)
+    private final DistanceCache distanceCache;
+
+    // only built for a CFG (or a CDG) on the first request, rules out unreachable targets before any traversal
+    private volatile ReachabilityIndex reachability;
+
+    // the precomputed distances towards all branches, if requested
+    private final BranchDistanceMatrix branchDistances;
+
+    // the branches are only computed once on the first request
+    private volatile List<CFGVertex> branches;
+
+    private final ExecutorService clients = Executors.newCachedThreadPool();
+
+    private ServerSocketChannel channel;
+
+    /**
+     * Creates a new server for the given graph.
+     *
+     * @param graph The graph that should be served.
+     * @param cacheSize The number of targets for which the distances are cached.
+     */
+    public GraphServer(final BaseGraph graph, final int cacheSize) {
+        this(graph, cacheSize, null);
+    }
+
+    /**
+     * Creates a new server for the given graph, which answers distance queries towards branches by the given
+     * precomputed distance matrix.
+     *
+     * @param graph The graph that should be served.
+     * @param cacheSize The number of targets for which the distances are cached.
+     * @param branchDistances The distances towards all branches of the graph, may be {@code null}.
+     */
+    public GraphServer(final BaseGraph graph, final int cacheSize, final BranchDistanceMatrix branchDistances) {
+        this.graph = graph;
+        this.distanceCache = graph instanceof BaseCFG ? new DistanceCache((BaseCFG) graph, cacheSize) : null;
+        this.branchDistances = branchDistances;
+        if (branchDistances != null) {
+            this.branches = branchDistances.getTargets();
+        }
+    }
+
+    /**
+     * Listens on the given TCP port of the loopback interface until the server is closed.
+     *
+     * @param port The TCP port, {@code 0} picks an arbitrary free port.
+     * @throws IOException If the port can't be bound.
+     */
+    public void serve(final int port) throws IOException {
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        serve(channel);
+    }
+
+    /**
+     * Listens on the given Unix domain socket until the server is closed. An existing file at the socket path
+     * is replaced. Unix domain socket channels are only available from Java 16 onwards.
+     *
+     * @param socket The path of the Unix domain socket.
+     * @throws IOException If the socket can't be bound.
+     */
+    public void serve(final Path socket) throws IOException {
+
+        final ProtocolFamily family;
+        final SocketAddress address;
+        final ServerSocketChannel channel;
+
+        try {
+            family = StandardProtocolFamily.valueOf("UNIX");
+            address = (SocketAddress) Class.forName("java.net.UnixDomainSocketAddress")
+                    .getMethod("of", Path.class).invoke(null, socket);
+            channel = (ServerSocketChannel) ServerSocketChannel.class
+                    .getMethod("open", ProtocolFamily.class).invoke(null, family);
+        } catch (IllegalArgumentException | ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Unix domain sockets require Java 16 or newer!", e);
+        }
+
+        Files.deleteIfExists(socket);
+        channel.bind(address);
+        socket.toFile().deleteOnExit();
+        serve(channel);
+    }
+
+    /**
+     * Accepts clients on the given bound channel and serves each client on its own thread.
+     *
+     * @param channel The bound server channel.
+     * @throws IOException If accepting a client fails for another reason than closing the server.
+     */
+    private void serve(final ServerSocketChannel channel) throws IOException {
+
+        synchronized (this) {
+            this.channel = channel;
+        }
+
+        LOGGER.info("Serving " + graph.getGraphType() + " on " + channel.getLocalAddress());
+
+        try {
+            while (channel.isOpen()) {
+                SocketChannel client = channel.accept();
+                clients.submit(() -> handle(client));
+            }
+        } catch (AsynchronousCloseException e) {
+            LOGGER.info("Server stopped.");
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Answers the requests of a single client until it closes the connection.
+     *
+     * @param client The client connection.
+     */
+    private void handle(final SocketChannel client) {
+
+        try (client;
+             BufferedReader reader = new BufferedReader(
+                     new InputStreamReader(Channels.newInputStream(client), StandardCharsets.UTF_8));
+             BufferedWriter writer = new BufferedWriter(
+                     new OutputStreamWriter(Channels.newOutputStream(client), StandardCharsets.UTF_8))) {
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                writer.write(GSON.toJson(answer(line)));
+                writer.newLine();
+                writer.flush();
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Lost connection to client: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Answers a single request.
+     *
+     * @param line The request in JSON format.
+     * @return Returns the response.
+     */
+    JsonObject answer(final String line) {
+
+        JsonObject response = new JsonObject();
+
+        try {
+            JsonObject request = JsonParser.parseString(line).getAsJsonObject();
+
+            if (request.has("id")) {
+                response.add("id", request.get("id"));
+            }
+
+            String operation = getString(request, "op");
+
+            switch (operation) {
+                case "lookup":
+                    response.addProperty("vertex", String.valueOf(lookUpVertex(getString(request, "trace"))));
+                    break;
+                case "distance":
+                    if (request.has("targets")) {
+                        JsonArray distances = new JsonArray();
+                        for (JsonElement target : request.getAsJsonArray("targets")) {
+                            distances.add(getShortestDistance(getString(request, "source"), target.getAsString()));
+                        }
+                        response.add("distances", distances);
+                    } else {
+                        response.addProperty("distance",
+                                getShortestDistance(getString(request, "source"), getString(request, "target")));
+                    }
+                    break;
+                case "reachable":
+                    response.addProperty("reachable",
+                            isReachable(getString(request, "source"), getString(request, "target")));
+                    break;
+                case "branches":
+                    JsonArray branchTraces = new JsonArray();
+                    getBranches().forEach(branch -> branchTraces.add(toTrace(branch)));
+                    response.add("branches", branchTraces);
+                    break;
+                case "coverage":
+                    mapCoverage(request.getAsJsonArray("traces"), response);
+                    break;
+                case "size":
+                    response.addProperty("size", graph.size());
+                    break;
+                case "stats":
+                    if (distanceCache != null) {
+                        response.addProperty("distanceCacheHits", distanceCache.getHits());
+                        response.addProperty("distanceCacheMisses", distanceCache.getMisses());
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown operation: " + operation);
+            }
+
+            response.addProperty("ok", true);
+        } catch (RuntimeException e) {
+            LOGGER.debug("Failed to answer request " + line, e);
+            response.addProperty("ok", false);
+            response.addProperty("error", String.valueOf(e.getMessage()));
+        }
+
+        return response;
+    }
+
+    /**
+     * Retrieves the value of a mandatory string field of a request.
+     *
+     * @param request The request.
+     * @param field The name of the field.
+     * @return Returns the value of the field.
+     */
+    private static String getString(final JsonObject request, final String field) {
+        JsonElement value = request.get(field);
+        if (value == null || value.isJsonNull()) {
+            throw new IllegalArgumentException("Missing field: " + field);
+        }
+        return value.getAsString();
+    }
+
+    /**
+     * Looks up the vertex described by the given trace.
+     *
+     * @param trace The given trace.
+     * @return Returns the vertex corresponding to the trace.
+     */
+    private Vertex lookUpVertex(final String trace) {
+        Vertex vertex = graph.lookUpVertex(trace);
+        if (vertex == null) {
+            throw new IllegalArgumentException("No vertex corresponds to trace: " + trace);
+        }
+        return vertex;
+    }
+
+    /**
+     * Computes the shortest distance between the vertices described by the given traces.
+     *
+     * @param source The trace describing the source vertex.
+     * @param target The trace describing the target vertex.
+     * @return Returns the shortest distance or {@code -1} if the target is not reachable.
+     */
+    private int getShortestDistance(final String source, final String target) {
+        if (distanceCache != null) {
+            CFGVertex sourceVertex = (CFGVertex) lookUpVertex(source);
+            CFGVertex targetVertex = (CFGVertex) lookUpVertex(target);
+            if (!getReachability().isReachable(sourceVertex, targetVertex)) {
+                return -1;
+            }
+            if (branchDistances != null && branchDistances.isTarget(targetVertex)) {
+                int distance = branchDistances.getDistance(sourceVertex, targetVertex);
+                // a clamped distance is not exact
+                if (distance < branchDistances.getMaxDistance()) {
+                    return distance;
+                }
+            }
+            return distanceCache.getShortestDistance(sourceVertex, targetVertex);
+        } else if (graph instanceof CallTree) {
+            return ((CallTree) graph).getShortestDistance((CallTreeVertex) lookUpVertex(source),
+                    (CallTreeVertex) lookUpVertex(target));
+        } else {
+            throw new UnsupportedOperationException("Distance queries are not supported for " + graph.getGraphType());
+        }
+    }
+
+    /**
+     * Checks whether the vertex described by the target trace is reachable from the vertex described by the source
+     * trace.
+     *
+     * @param source The trace describing the source vertex.
+     * @param target The trace describing the target vertex.
+     * @return Returns {@code true} if the target is reachable from the source, otherwise {@code false}.
+     */
+    private boolean isReachable(final String source, final String target) {
+        if (graph instanceof BaseCFG) {
+            return getReachability().isReachable((CFGVertex) lookUpVertex(source), (CFGVertex) lookUpVertex(target));
+        } else if (graph instanceof CallTree) {
+            return ((CallTree) graph).getShortestDistance((CallTreeVertex) lookUpVertex(source),
+                    (CallTreeVertex) lookUpVertex(target)) != -1;
+        } else {
+            throw new UnsupportedOperationException("Reachability queries are not supported for "
+                    + graph.getGraphType());
+        }
+    }
+
+    /**
+     * Returns the reachability index of the served CFG. The index is built on the first request, thus serving
+     * other graph types or only other operations doesn't pay for its construction.
+     *
+     * @return Returns the reachability index of the served CFG.
+     */
+    private ReachabilityIndex getReachability() {
+
+        ReachabilityIndex index = reachability;
+
+        if (index == null) {
+            synchronized (this) {
+                index = reachability;
+                if (index == null) {
+                    index = new ReachabilityIndex((BaseCFG) graph);
+                    reachability = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Returns the branches of the served graph.
+     *
+     * @return Returns the branches of the served graph.
+     */
+    private List<CFGVertex> getBranches() {
+
+        if (!(graph instanceof BaseCFG)) {
+            throw new UnsupportedOperationException("Branches are not defined for " + graph.getGraphType());
+        }
+
+        if (branches == null) {
+            branches = ((BaseCFG) graph).getBranches();
+        }
+        return branches;
+    }
+
+    /**
+     * Maps the given traces to vertices and determines which branches are covered by them. The request is rejected
+     * as a whole if any trace doesn't correspond to a vertex.
+     *
+     * @param traces The traces produced by some test execution.
+     * @param response The response that should be filled.
+     */
+    private void mapCoverage(final JsonArray traces, final JsonObject response) {
+
+        if (traces == null) {
+            throw new IllegalArgumentException("Missing field: traces");
+        }
+
+        List<CFGVertex> branches = getBranches();
+        Set<Vertex> visited = new HashSet<>();
+        JsonArray vertices = new JsonArray();
+
+        for (JsonElement trace : traces) {
+            CFGVertex vertex = (CFGVertex) lookUpVertex(trace.getAsString());
+            visited.add(vertex);
+            vertices.add(toTrace(vertex));
+        }
+
+        List<CFGVertex> coveredBranches = branches.stream()
+                .filter(visited::contains)
+                .collect(Collectors.toList());
+
+        JsonArray covered = new JsonArray();
+        coveredBranches.forEach(branch -> covered.add(toTrace(branch)));
+
+        response.add("vertices", vertices);
+        response.add("coveredBranches", covered);
+        response.addProperty("totalBranches", branches.size());
+    }
+
+    /**
+     * Converts a vertex back into a trace that can be passed to {@link BaseGraph#lookUpVertex(String)}.
+     *
+     * @param vertex The given vertex.
+     * @return Returns the canonical trace of the vertex, or its description if it can't be looked up.
+     */
+    private static String toTrace(final CFGVertex vertex) {
+        return vertex.getTrace().orElseGet(vertex::toString);
+    }
+
+    /**
+     * Stops accepting new clients and terminates the open client connections.
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Failed to close server channel: " + e.getMessage());
+        }
+
+        clients.shutdownNow();
+
+        try {
+            clients.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
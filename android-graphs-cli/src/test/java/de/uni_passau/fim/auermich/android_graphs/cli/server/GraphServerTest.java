@@ -0,0 +1,209 @@
+package de.uni_passau.fim.auermich.android_graphs.cli.server;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.BranchDistanceMatrix;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.CFGVertex;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.DummyCFG;
+import de.uni_passau.fim.auermich.android_graphs.core.statements.EntryStatement;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GraphServerTest {
+
+    /**
+     * A dummy CFG whose vertices are looked up by the traces 'method->entry' and 'method->exit'. The dummy vertices
+     * carry no instructions, thus the branches are declared explicitly.
+     */
+    private static final class LookUpCFG extends DummyCFG {
+
+        private List<CFGVertex> branches = List.of();
+
+        private LookUpCFG(String methodName) {
+            super(methodName);
+        }
+
+        @Override
+        public CFGVertex lookUpVertex(String trace) {
+            String method = trace.substring(0, trace.lastIndexOf("->"));
+            boolean exit = trace.endsWith("->exit");
+            return getVertices().stream()
+                    .filter(vertex -> vertex.getMethod().equals(method))
+                    .filter(vertex -> exit ? vertex.isExitVertex() : vertex.isEntryVertex())
+                    .findFirst()
+                    .orElse(null);
+        }
+
+        @Override
+        public List<CFGVertex> getBranches() {
+            return branches;
+        }
+    }
+
+    private LookUpCFG cfg;
+
+    private CFGVertex a;
+
+    private CFGVertex b;
+
+    private CFGVertex c;
+
+    private GraphServer server;
+
+    @BeforeEach
+    void setUp() {
+        // entry -> a -> (b | c) -> exit, while d is unreachable
+        cfg = new LookUpCFG("Test");
+        a = new CFGVertex(new EntryStatement("a"));
+        b = new CFGVertex(new EntryStatement("b"));
+        c = new CFGVertex(new EntryStatement("c"));
+        CFGVertex d = new CFGVertex(new EntryStatement("d"));
+        List.of(a, b, c, d).forEach(cfg::addVertex);
+
+        cfg.addEdge(cfg.getEntry(), a);
+        cfg.addEdge(a, b);
+        cfg.addEdge(a, c);
+        cfg.addEdge(b, cfg.getExit());
+        cfg.addEdge(c, cfg.getExit());
+        cfg.branches = List.of(b, c);
+
+        server = new GraphServer(cfg, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    private static void assertError(JsonObject response, String error) {
+        assertFalse(response.get("ok").getAsBoolean());
+        assertEquals(error, response.get("error").getAsString());
+    }
+
+    @Test
+    public void lookUpTest() {
+        JsonObject response = server.answer("{\"op\": \"lookup\", \"trace\": \"a->entry\", \"id\": 7}");
+        assertTrue(response.get("ok").getAsBoolean());
+        assertEquals(7, response.get("id").getAsInt());
+        assertEquals(String.valueOf(a), response.get("vertex").getAsString());
+
+        assertError(server.answer("{\"op\": \"lookup\", \"trace\": \"x->entry\"}"),
+                "No vertex corresponds to trace: x->entry");
+    }
+
+    @Test
+    public void distanceTest() {
+        JsonObject response = server.answer("{\"op\": \"distance\", \"source\": \"Test->entry\", "
+                + "\"target\": \"Test->exit\"}");
+        assertTrue(response.get("ok").getAsBoolean());
+        assertEquals(3, response.get("distance").getAsInt());
+
+        response = server.answer("{\"op\": \"distance\", \"source\": \"a->entry\", "
+                + "\"targets\": [\"b->entry\", \"a->entry\", \"d->entry\"]}");
+        assertTrue(response.get("ok").getAsBoolean());
+        JsonArray distances = response.getAsJsonArray("distances");
+        assertEquals(3, distances.size());
+        assertEquals(1, distances.get(0).getAsInt());
+        assertEquals(0, distances.get(1).getAsInt());
+        assertEquals(-1, distances.get(2).getAsInt());
+
+        // each target is cached once, while d is ruled out by reachability without a traversal
+        response = server.answer("{\"op\": \"stats\"}");
+        assertEquals(0, response.get("distanceCacheHits").getAsLong());
+        assertEquals(3, response.get("distanceCacheMisses").getAsLong());
+    }
+
+    @Test
+    public void reachableTest() {
+        JsonObject response = server.answer("{\"op\": \"reachable\", \"source\": \"Test->entry\", "
+                + "\"target\": \"Test->exit\"}");
+        assertTrue(response.get("ok").getAsBoolean());
+        assertTrue(response.get("reachable").getAsBoolean());
+
+        response = server.answer("{\"op\": \"reachable\", \"source\": \"b->entry\", \"target\": \"c->entry\"}");
+        assertTrue(response.get("ok").getAsBoolean());
+        assertFalse(response.get("reachable").getAsBoolean());
+
+        assertError(server.answer("{\"op\": \"reachable\", \"source\": \"a->entry\"}"), "Missing field: target");
+    }
+
+    @Test
+    public void branchesTest() {
+        JsonObject response = server.answer("{\"op\": \"branches\"}");
+        assertTrue(response.get("ok").getAsBoolean());
+
+        JsonArray branches = response.getAsJsonArray("branches");
+        assertEquals(2, branches.size());
+        assertEquals("b->entry", branches.get(0).getAsString());
+        assertEquals("c->entry", branches.get(1).getAsString());
+    }
+
+    @Test
+    public void branchDistancesTest() {
+        // the branches are taken from the distance matrix, which only covers b
+        try (GraphServer matrixServer = new GraphServer(cfg, 2,
+                new BranchDistanceMatrix(cfg, List.of(b), BranchDistanceMatrix.Precision.BYTE, null))) {
+
+            JsonArray branches = matrixServer.answer("{\"op\": \"branches\"}").getAsJsonArray("branches");
+            assertEquals(1, branches.size());
+            assertEquals("b->entry", branches.get(0).getAsString());
+
+            // the distance towards b is answered by the matrix, the distance towards c by the distance cache
+            JsonObject response = matrixServer.answer("{\"op\": \"distance\", \"source\": \"Test->entry\", "
+                    + "\"targets\": [\"b->entry\", \"c->entry\"]}");
+            JsonArray distances = response.getAsJsonArray("distances");
+            assertEquals(2, distances.get(0).getAsInt());
+            assertEquals(2, distances.get(1).getAsInt());
+            assertEquals(1, matrixServer.answer("{\"op\": \"stats\"}").get("distanceCacheMisses").getAsLong());
+        }
+    }
+
+    @Test
+    public void coverageTest() {
+        JsonObject response = server.answer("{\"op\": \"coverage\", "
+                + "\"traces\": [\"Test->entry\", \"a->entry\", \"c->entry\"]}");
+        assertTrue(response.get("ok").getAsBoolean());
+        assertEquals(2, response.get("totalBranches").getAsInt());
+
+        JsonArray vertices = response.getAsJsonArray("vertices");
+        assertEquals(3, vertices.size());
+        assertEquals("Test->entry", vertices.get(0).getAsString());
+        assertEquals("c->entry", vertices.get(2).getAsString());
+
+        JsonArray covered = response.getAsJsonArray("coveredBranches");
+        assertEquals(1, covered.size());
+        assertEquals("c->entry", covered.get(0).getAsString());
+
+        // a trace that doesn't correspond to any vertex rejects the request
+        assertError(server.answer("{\"op\": \"coverage\", \"traces\": [\"c->entry\", \"x->entry\"]}"),
+                "No vertex corresponds to trace: x->entry");
+    }
+
+    @Test
+    public void errorTest() {
+        assertError(server.answer("{\"op\": \"unknown\", \"id\": \"x\"}"), "Unknown operation: unknown");
+        assertEquals("x", server.answer("{\"op\": \"unknown\", \"id\": \"x\"}").get("id").getAsString());
+
+        assertError(server.answer("{\"trace\": \"a->entry\"}"), "Missing field: op");
+        assertError(server.answer("{\"op\": \"lookup\"}"), "Missing field: trace");
+        assertError(server.answer("{\"op\": \"distance\", \"target\": \"a->entry\"}"), "Missing field: source");
+        assertError(server.answer("{\"op\": \"coverage\"}"), "Missing field: traces");
+
+        // malformed requests are answered as well
+        JsonObject response = server.answer("{\"op\": ");
+        assertFalse(response.get("ok").getAsBoolean());
+        assertTrue(response.has("error"));
+        response = server.answer("[1, 2]");
+        assertFalse(response.get("ok").getAsBoolean());
+
+        // a valid request is still answered afterwards
+        assertEquals(6, server.answer("{\"op\": \"size\"}").get("size").getAsInt());
+    }
+}
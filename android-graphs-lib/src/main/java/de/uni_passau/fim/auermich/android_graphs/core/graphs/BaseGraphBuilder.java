@@ -11,6 +11,7 @@ import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.InterCFG;
 import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.IntraCFG;
 
 import java.io.File;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Objects;
 
@@ -41,6 +42,15 @@ public class BaseGraphBuilder {
 
     private boolean resolveOnlyAUTClasses = false;
 
+    // the snapshot of a previous build, enables the incremental construction of the InterCFG and ModularCDG
+    private BuildSnapshot snapshot;
+
+    // whether the adjacency of the InterCFG should be moved off-heap once constructed
+    private boolean storeOffHeap = false;
+
+    // the file backing the off-heap adjacency, direct buffers are used if not specified
+    private Path offHeapFile;
+
     /* END OPTIONAL FIELDS */
 
     // used for InterCFG and call tree
@@ -81,7 +91,26 @@ public class BaseGraphBuilder {
         return this;
     }
 
+    public BaseGraphBuilder withSnapshot(BuildSnapshot snapshot) {
+        this.snapshot = snapshot;
+        return this;
+    }
+
+    public BaseGraphBuilder withOffHeapStorage() {
+        this.storeOffHeap = true;
+        return this;
+    }
+
+    public BaseGraphBuilder withOffHeapStorage(Path mappedFile) {
+        this.storeOffHeap = true;
+        this.offHeapFile = mappedFile;
+        return this;
+    }
+
     public BaseGraph build() {
+        if (storeOffHeap && type != GraphType.INTERCFG) {
+            throw new IllegalStateException("Off-heap storage is only supported for the " + GraphType.INTERCFG + "!");
+        }
         switch (type) {
             case INTRACFG: {
                 Objects.requireNonNull(method, "Method is mandatory!");
@@ -91,7 +120,12 @@ public class BaseGraphBuilder {
                 Objects.requireNonNull(name, "CFG name is mandatory!");
                 Objects.requireNonNull(apkFile, "The path to the APK file is mandatory!");
                 APK apk = new APK(apkFile, dexFiles);
-                return new InterCFG(name, apk, useBasicBlocks, excludeARTClasses, resolveOnlyAUTClasses);
+                final InterCFG cfg
+                        = new InterCFG(name, apk, useBasicBlocks, excludeARTClasses, resolveOnlyAUTClasses, snapshot);
+                if (storeOffHeap) {
+                    cfg.storeOffHeap(offHeapFile);
+                }
+                return cfg;
             }
             case INTERCDG: {
                 Objects.requireNonNull(name, "CFG name is mandatory!");
@@ -109,7 +143,8 @@ public class BaseGraphBuilder {
                 Objects.requireNonNull(name, "CFG name is mandatory!");
                 Objects.requireNonNull(apkFile, "The path to the APK file is mandatory!");
                 APK apk = new APK(apkFile, dexFiles);
-                return new ModularCDG(name, apk, useBasicBlocks, excludeARTClasses, resolveOnlyAUTClasses);
+                return new ModularCDG(name, apk, useBasicBlocks, excludeARTClasses, resolveOnlyAUTClasses,
+                        snapshot);
             }
             case CALLTREE: {
                 Objects.requireNonNull(name, "Call tree name is mandatory!");
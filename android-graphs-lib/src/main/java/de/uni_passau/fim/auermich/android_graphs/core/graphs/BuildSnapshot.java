@@ -0,0 +1,354 @@
+package de.uni_passau.fim.auermich.android_graphs.core.graphs;
+
+import com.android.tools.smali.dexlib2.iface.ExceptionHandler;
+import com.android.tools.smali.dexlib2.iface.Method;
+import com.android.tools.smali.dexlib2.iface.MethodImplementation;
+import com.android.tools.smali.dexlib2.iface.TryBlock;
+import com.android.tools.smali.dexlib2.iface.instruction.DualReferenceInstruction;
+import com.android.tools.smali.dexlib2.iface.instruction.FiveRegisterInstruction;
+import com.android.tools.smali.dexlib2.iface.instruction.Instruction;
+import com.android.tools.smali.dexlib2.iface.instruction.OffsetInstruction;
+import com.android.tools.smali.dexlib2.iface.instruction.OneRegisterInstruction;
+import com.android.tools.smali.dexlib2.iface.instruction.ReferenceInstruction;
+import com.android.tools.smali.dexlib2.iface.instruction.RegisterRangeInstruction;
+import com.android.tools.smali.dexlib2.iface.instruction.SwitchElement;
+import com.android.tools.smali.dexlib2.iface.instruction.SwitchPayload;
+import com.android.tools.smali.dexlib2.iface.instruction.ThreeRegisterInstruction;
+import com.android.tools.smali.dexlib2.iface.instruction.TwoRegisterInstruction;
+import com.android.tools.smali.dexlib2.iface.instruction.WideLiteralInstruction;
+import com.android.tools.smali.dexlib2.iface.instruction.formats.ArrayPayload;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.BaseCFG;
+import de.uni_passau.fim.auermich.android_graphs.core.statements.BasicStatement;
+import de.uni_passau.fim.auermich.android_graphs.core.utility.BuildMetrics;
+import de.uni_passau.fim.auermich.android_graphs.core.utility.Properties;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Carries the intra-procedural graphs of a build of an app over to the build of the next version of the same app.
+ * Between two versions usually only a few methods change, hence only the intra graphs of methods whose content hash
+ * changed need to be constructed again, while the intra graphs of all other methods are reused. The global phases,
+ * i.e. the class hierarchy, the components, the callbacks and the linking of the intra graphs, are still performed
+ * on the entire app, such that the result is equal to a full rebuild.
+ *
+ * Note that a snapshot only saves the construction of the intra graphs, not the analysis of the methods. The checks
+ * of the component relations and the look-up of the layouts traverse the analyzed instructions of every method,
+ * hence unchanged methods are still analyzed once per build.
+ *
+ * A snapshot is passed to the construction of the graph, which reuses the matching intra graphs and afterwards
+ * replaces the content of the snapshot with the intra graphs of the new version. Thus, the same snapshot can be
+ * passed to the builds of consecutive versions. A snapshot only applies to builds of the same graph type with the
+ * same properties, otherwise its content is discarded.
+ *
+ * Note that the intra graphs are held entirely by the snapshot and that a snapshot must not be shared between
+ * concurrent builds.
+ */
+public final class BuildSnapshot {
+
+    private static final Logger LOGGER = LogManager.getLogger(BuildSnapshot.class);
+
+    // the name under which the reused and rebuilt intra graphs are recorded
+    private static final String CACHE_NAME = "BuildSnapshot";
+
+    // describes the graph type and properties of the build the entries belong to
+    private String configuration = null;
+
+    // the intra graphs of the last build by method signature
+    private Map<String, Entry> entries = new HashMap<>();
+
+    // the intra graphs of the running build and the content hashes of its methods
+    private Map<String, Entry> nextEntries = null;
+    private final Map<String, HashCode> hashes = new HashMap<>();
+
+    private int reused = 0;
+    private int rebuilt = 0;
+
+    /**
+     * Starts a new build. The entries of the last build are only kept if they were constructed with the same graph
+     * type and properties.
+     *
+     * @param graphType The type of the graph that is built.
+     * @param properties The properties of the build.
+     */
+    public void begin(final GraphType graphType, final Properties properties) {
+
+        final String configuration = graphType + ":" + properties.useBasicBlocks + ":" + properties.excludeARTClasses
+                + ":" + properties.resolveOnlyAUTClasses + ":" + properties.exclusionPattern;
+
+        if (!configuration.equals(this.configuration)) {
+            LOGGER.debug("Discarding snapshot of a different configuration: " + this.configuration);
+            entries = new HashMap<>();
+            this.configuration = configuration;
+        }
+
+        nextEntries = new HashMap<>();
+        hashes.clear();
+        reused = 0;
+        rebuilt = 0;
+    }
+
+    /**
+     * Returns the intra graph of the last build for the given method if the content of the method didn't change and,
+     * if the call sites of the intra graph were resolved during its construction, each call site still resolves to
+     * the same target.
+     *
+     * @param method The method.
+     * @param methodSignature The signature of the method.
+     * @param callSiteResolver The resolver of the call sites of the running build or {@code null} if the
+     *                         construction of the intra graph doesn't depend on resolved call sites.
+     * @return Returns the reusable intra graph or {@code null} if the intra graph needs to be constructed.
+     */
+    public BaseCFG reuse(final Method method, final String methodSignature,
+                         final Function<BasicStatement, String> callSiteResolver) {
+
+        if (nextEntries == null) {
+            throw new IllegalStateException("No build has been started!");
+        }
+
+        final HashCode hash = hash(method);
+        hashes.put(methodSignature, hash);
+
+        final Entry entry = entries.get(methodSignature);
+
+        if (entry == null || !entry.hash.equals(hash) || !entry.resolvesEqually(callSiteResolver)) {
+            rebuilt++;
+            BuildMetrics.recordCacheMiss(CACHE_NAME);
+            return null;
+        }
+
+        reused++;
+        BuildMetrics.recordCacheHit(CACHE_NAME);
+        nextEntries.put(methodSignature, entry);
+        return entry.graph;
+    }
+
+    /**
+     * Records the intra graph that has been constructed for the given method in the running build. Must be preceded
+     * by a call of {@link #reuse(Method, String, Function)} for the same method.
+     *
+     * @param methodSignature The signature of the method.
+     * @param graph The constructed intra graph.
+     * @param callSites The call sites resolved during the construction of the intra graph or {@code null} if the
+     *                  construction didn't depend on resolved call sites.
+     */
+    public void record(final String methodSignature, final BaseCFG graph, final CallSiteRecorder callSites) {
+
+        final HashCode hash = hashes.get(methodSignature);
+
+        if (hash == null) {
+            throw new IllegalStateException("Method has not been looked up before: " + methodSignature);
+        }
+
+        nextEntries.put(methodSignature, callSites == null
+                ? new Entry(hash, graph, Collections.emptyList(), Collections.emptyList())
+                : new Entry(hash, graph, callSites.callSites, callSites.targets));
+    }
+
+    /**
+     * Finishes the running build, i.e. the snapshot only retains the intra graphs of the new version afterwards.
+     */
+    public void finish() {
+
+        if (nextEntries == null) {
+            throw new IllegalStateException("No build has been started!");
+        }
+
+        LOGGER.info("Reused " + reused + " intra graphs, rebuilt " + rebuilt + " intra graphs, dropped "
+                + (entries.size() - reused) + " intra graphs of the last build.");
+
+        entries = nextEntries;
+        nextEntries = null;
+        hashes.clear();
+    }
+
+    /**
+     * Returns the number of intra graphs that have been reused by the last build.
+     *
+     * @return Returns the number of reused intra graphs.
+     */
+    public int getReused() {
+        return reused;
+    }
+
+    /**
+     * Returns the number of intra graphs that have been constructed by the last build.
+     *
+     * @return Returns the number of constructed intra graphs.
+     */
+    public int getRebuilt() {
+        return rebuilt;
+    }
+
+    /**
+     * Computes the content hash of the given method, which covers the access flags and the implementation, i.e. the
+     * register count, the instructions including their operands and the try blocks, but not the debug information.
+     *
+     * @param method The method.
+     * @return Returns the content hash of the method.
+     */
+    static HashCode hash(final Method method) {
+
+        final Hasher hasher = Hashing.murmur3_128().newHasher();
+        hasher.putInt(method.getAccessFlags());
+
+        final MethodImplementation implementation = method.getImplementation();
+
+        if (implementation == null) {
+            return hasher.hash();
+        }
+
+        hasher.putInt(implementation.getRegisterCount());
+
+        for (Instruction instruction : implementation.getInstructions()) {
+            hash(hasher, instruction);
+        }
+
+        for (TryBlock<? extends ExceptionHandler> tryBlock : implementation.getTryBlocks()) {
+            hasher.putInt(tryBlock.getStartCodeAddress()).putInt(tryBlock.getCodeUnitCount());
+            for (ExceptionHandler handler : tryBlock.getExceptionHandlers()) {
+                hasher.putString(String.valueOf(handler.getExceptionType()), StandardCharsets.UTF_8);
+                hasher.putInt(handler.getHandlerCodeAddress());
+            }
+        }
+
+        return hasher.hash();
+    }
+
+    private static void hash(final Hasher hasher, final Instruction instruction) {
+
+        hasher.putInt(instruction.getOpcode().ordinal());
+
+        if (instruction instanceof OneRegisterInstruction) {
+            hasher.putInt(((OneRegisterInstruction) instruction).getRegisterA());
+        }
+
+        if (instruction instanceof TwoRegisterInstruction) {
+            hasher.putInt(((TwoRegisterInstruction) instruction).getRegisterB());
+        }
+
+        if (instruction instanceof ThreeRegisterInstruction) {
+            hasher.putInt(((ThreeRegisterInstruction) instruction).getRegisterC());
+        }
+
+        if (instruction instanceof FiveRegisterInstruction) {
+            final FiveRegisterInstruction fiveRegisterInstruction = (FiveRegisterInstruction) instruction;
+            hasher.putInt(fiveRegisterInstruction.getRegisterCount())
+                    .putInt(fiveRegisterInstruction.getRegisterC())
+                    .putInt(fiveRegisterInstruction.getRegisterD())
+                    .putInt(fiveRegisterInstruction.getRegisterE())
+                    .putInt(fiveRegisterInstruction.getRegisterF())
+                    .putInt(fiveRegisterInstruction.getRegisterG());
+        }
+
+        if (instruction instanceof RegisterRangeInstruction) {
+            hasher.putInt(((RegisterRangeInstruction) instruction).getStartRegister())
+                    .putInt(((RegisterRangeInstruction) instruction).getRegisterCount());
+        }
+
+        if (instruction instanceof WideLiteralInstruction) {
+            hasher.putLong(((WideLiteralInstruction) instruction).getWideLiteral());
+        }
+
+        if (instruction instanceof ReferenceInstruction) {
+            hasher.putString(((ReferenceInstruction) instruction).getReference().toString(), StandardCharsets.UTF_8);
+        }
+
+        if (instruction instanceof DualReferenceInstruction) {
+            hasher.putString(((DualReferenceInstruction) instruction).getReference2().toString(),
+                    StandardCharsets.UTF_8);
+        }
+
+        if (instruction instanceof OffsetInstruction) {
+            hasher.putInt(((OffsetInstruction) instruction).getCodeOffset());
+        }
+
+        if (instruction instanceof SwitchPayload) {
+            for (SwitchElement element : ((SwitchPayload) instruction).getSwitchElements()) {
+                hasher.putInt(element.getKey()).putInt(element.getOffset());
+            }
+        }
+
+        if (instruction instanceof ArrayPayload) {
+            hasher.putInt(((ArrayPayload) instruction).getElementWidth());
+            for (Number element : ((ArrayPayload) instruction).getArrayElements()) {
+                hasher.putLong(element.longValue());
+            }
+        }
+    }
+
+    /**
+     * Records the call sites that are resolved during the construction of an intra graph together with their
+     * targets by wrapping the actual resolver.
+     */
+    public static final class CallSiteRecorder implements Function<BasicStatement, String> {
+
+        private final Function<BasicStatement, String> resolver;
+
+        private final List<BasicStatement> callSites = new ArrayList<>();
+        private final List<String> targets = new ArrayList<>();
+
+        public CallSiteRecorder(final Function<BasicStatement, String> resolver) {
+            this.resolver = resolver;
+        }
+
+        @Override
+        public String apply(final BasicStatement invokeStmt) {
+            final String target = resolver.apply(invokeStmt);
+            callSites.add(invokeStmt);
+            targets.add(target);
+            return target;
+        }
+    }
+
+    /**
+     * The intra graph of a method together with the content hash of the method and the resolved call sites.
+     */
+    private static final class Entry {
+
+        private final HashCode hash;
+        private final BaseCFG graph;
+        private final List<BasicStatement> callSites;
+        private final List<String> targets;
+
+        private Entry(final HashCode hash, final BaseCFG graph, final List<BasicStatement> callSites,
+                      final List<String> targets) {
+            this.hash = hash;
+            this.graph = graph;
+            this.callSites = callSites;
+            this.targets = targets;
+        }
+
+        /**
+         * Checks whether the call sites of the intra graph still resolve to the same targets, which may change due to
+         * a change of the class hierarchy or the components even if the method itself didn't change.
+         *
+         * @param resolver The resolver of the running build, may be {@code null}.
+         * @return Returns {@code true} if all call sites resolve to the same targets, otherwise {@code false}.
+         */
+        private boolean resolvesEqually(final Function<BasicStatement, String> resolver) {
+
+            if (resolver == null) {
+                return callSites.isEmpty();
+            }
+
+            for (int i = 0; i < callSites.size(); i++) {
+                if (!Objects.equals(resolver.apply(callSites.get(i)), targets.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -10,6 +10,7 @@ import de.uni_passau.fim.auermich.android_graphs.core.graphs.GraphType;
 import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.CFGEdge;
 import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.CFGVertex;
 import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.InterCFG;
+import de.uni_passau.fim.auermich.android_graphs.core.utility.BuildMetrics;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jgrapht.Graph;
@@ -36,9 +37,11 @@ import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -87,25 +90,30 @@ public class CallTree implements BaseGraph {
         this.interCFG = interCFG;
         root = new CallTreeVertex(interCFG.getEntry().getMethod());
 
-        final Set<CFGVertex> entryVertices = interCFG.getVertices().stream()
-                .filter(CFGVertex::isEntryVertex)
-                .collect(Collectors.toSet());
+        try (BuildMetrics.Phase phase = BuildMetrics.startPhase("CallTree", "construction")) {
 
-        // TODO: Should we eliminate cycles, i.e., primarily recursive calls?
-        // TODO: Flatten out virtual 'callbacks' graph.
+            final Set<CFGVertex> entryVertices = interCFG.getVertices().stream()
+                    .filter(CFGVertex::isEntryVertex)
+                    .collect(Collectors.toSet());
 
-        for (final CFGVertex entry : entryVertices) {
-            // construct for each method in the CFG a vertex for the call tree
-            final CallTreeVertex callerMethod = new CallTreeVertex(entry.getMethod());
-            graph.addVertex(callerMethod);
+            // TODO: Should we eliminate cycles, i.e., primarily recursive calls?
+            // TODO: Flatten out virtual 'callbacks' graph.
 
-            // add from each callee an edge to the caller (this method)
-            for (final CFGEdge edge : interCFG.getIncomingEdges(entry)) {
-                final CFGVertex callee = edge.getSource();
-                final CallTreeVertex calleeMethod = new CallTreeVertex(callee.getMethod());
-                graph.addVertex(calleeMethod);
-                graph.addEdge(calleeMethod, callerMethod);
+            for (final CFGVertex entry : entryVertices) {
+                // construct for each method in the CFG a vertex for the call tree
+                final CallTreeVertex callerMethod = new CallTreeVertex(entry.getMethod());
+                graph.addVertex(callerMethod);
+
+                // add from each callee an edge to the caller (this method)
+                for (final CFGEdge edge : interCFG.getIncomingEdges(entry)) {
+                    final CFGVertex callee = edge.getSource();
+                    final CallTreeVertex calleeMethod = new CallTreeVertex(callee.getMethod());
+                    graph.addVertex(calleeMethod);
+                    graph.addEdge(calleeMethod, callerMethod);
+                }
             }
+
+            phase.setItems(graph.vertexSet().size());
         }
     }
 
@@ -361,15 +369,28 @@ public class CallTree implements BaseGraph {
                     : v.toString()) + '"';
         };
 
-        String verticesPreamble = graph.vertexSet().stream()
-                .map(toString).distinct().collect(Collectors.joining("\n"));
-        String graphString = graph.edgeSet().stream()
-                .map(e -> String.format("%s -> %s", toString.apply(e.getSource()), toString.apply(e.getTarget())))
-                .distinct()
-                .collect(Collectors.joining("\n"));
-
-        try {
-            Files.writeString(output.toPath(), "digraph D {\n" + verticesPreamble + "\n" + graphString + "\n}");
+        // the labels are class-level, hence many vertices and edges collapse into the same line
+        Map<CallTreeVertex, String> labels = new HashMap<>();
+        Set<String> written = new HashSet<>();
+
+        try (BufferedWriter writer = Files.newBufferedWriter(output.toPath(), StandardCharsets.UTF_8)) {
+            writer.write("digraph D {\n");
+            for (CallTreeVertex vertex : graph.vertexSet()) {
+                String label = labels.computeIfAbsent(vertex, toString);
+                if (written.add(label)) {
+                    writer.write(label);
+                    writer.write('\n');
+                }
+            }
+            written.clear();
+            for (CallTreeEdge edge : graph.edgeSet()) {
+                String line = labels.get(graph.getEdgeSource(edge)) + " -> " + labels.get(graph.getEdgeTarget(edge));
+                if (written.add(line)) {
+                    writer.write(line);
+                    writer.write('\n');
+                }
+            }
+            writer.write('}');
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
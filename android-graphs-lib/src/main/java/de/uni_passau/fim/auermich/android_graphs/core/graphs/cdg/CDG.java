@@ -4,6 +4,8 @@ import com.google.common.collect.Sets;
 import com.google.errorprone.annotations.Var;
 import de.uni_passau.fim.auermich.android_graphs.core.graphs.GraphType;
 import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.*;
+import de.uni_passau.fim.auermich.android_graphs.core.utility.BuildMetrics;
+import de.uni_passau.fim.auermich.android_graphs.core.utility.SymbolTable;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jgrapht.traverse.BreadthFirstIterator;
@@ -18,6 +20,9 @@ public class CDG extends BaseCFG {
 
     private static final Logger LOGGER = LogManager.getLogger(CDG.class);
 
+    // the name under which the construction phases are recorded
+    private static final String METRICS_NAME = "CDG";
+
     /**
      * Maintains a reference to the individual intra CFGs.
      * NOTE: Only a reference to the entry and exit vertex is hold!
@@ -32,10 +37,21 @@ public class CDG extends BaseCFG {
     public CDG(BaseCFG cfg) {
         super(cfg.getMethodName(), cfg.getEntry(), cfg.getExit());
         if (cfg instanceof InterCFG) {
-            addEdgesToCaller(cfg);
+            try (BuildMetrics.Phase phase = BuildMetrics.startPhase(METRICS_NAME, "addEdgesToCaller")) {
+                addEdgesToCaller(cfg);
+            }
+        }
+
+        final PDT pdt;
+        try (BuildMetrics.Phase phase = BuildMetrics.startPhase(METRICS_NAME, "constructPDT")) {
+            pdt = new PDT(cfg);
+            phase.setItems(pdt.size());
+        }
+
+        try (BuildMetrics.Phase phase = BuildMetrics.startPhase(METRICS_NAME, "buildCDG")) {
+            buildCDG(cfg, pdt);
+            phase.setItems(getEdges().size());
         }
-        final PDT pdt = new PDT(cfg);
-        buildCDG(cfg, pdt);
 
         if (cfg instanceof InterCFG) {
             intraCFGs = ((InterCFG) cfg).getIntraCFGs();
@@ -68,6 +84,7 @@ public class CDG extends BaseCFG {
     private void buildCDG(final BaseCFG cfg, final PDT pdt) {
 
         final Set<CFGVertex> vertices = cfg.getVertices();
+        final ReachabilityIndex pdtReachability = new ReachabilityIndex(pdt);
 
         // Add all vertices from CFG.
         for (CFGVertex vertex : vertices) {
@@ -78,7 +95,7 @@ public class CDG extends BaseCFG {
         final Set<Edge> edges = Sets.newHashSet();
         for (CFGVertex vertex : vertices) {
             for (CFGVertex successor : cfg.getSuccessors(vertex)) {
-                if (!pdt.getTransitiveSuccessors(successor).contains(vertex)) {
+                if (!pdtReachability.isTransitiveSuccessor(successor, vertex)) {
                     edges.add(new Edge(vertex, successor));
                 }
             }
@@ -87,7 +104,7 @@ public class CDG extends BaseCFG {
         // Mark vertices in the PDT and construct edges for them.
         for (Edge edge : edges) {
 
-            final CFGVertex lca = pdt.getLeastCommonAncestor(edge.source, edge.target);
+            final CFGVertex lca = pdt.getLeastCommonAncestor(edge.source, edge.target, pdtReachability);
 
             // Starting at target, traverse backwards in the PDT until we arrive at the LCA.
             @Var CFGVertex current = edge.target;
@@ -114,7 +131,8 @@ public class CDG extends BaseCFG {
 
     /**
      * Find disconnected vertices by traversing the CFG starting from the entry in a breadth-first manner. If we find a
-     * vertex that is not connect to the CDG entry, we add it manually to the CDG.
+     * vertex that is not connect to the CDG entry, we add it manually to the CDG. The reachability index of the CDG is
+     * only rebuilt after such a vertex has been added.
      *
      * @param cfg The {@link BaseCFG} from which the CDG is being generated.
      */
@@ -122,14 +140,16 @@ public class CDG extends BaseCFG {
         CFGVertex current = cfg.getEntry();
         Set<CFGVertex> visited = new HashSet<>();
         Queue<CFGVertex> queue = new ArrayDeque<>();
+        ReachabilityIndex reachability = new ReachabilityIndex(this);
         // Iterate over all vertices in a breadth-first manner.
         while (current != null) {
             visited.add(current);
             queue.addAll(cfg.getSuccessors(current).stream().filter(s -> !visited.contains(s)).collect(Collectors.toSet()));
             // Check if the vertex is connected to the CDG entry.
-            if (!current.equals(getEntry()) && !getTransitiveSuccessors(getEntry()).contains(current)) {
+            if (!reachability.isReachable(getEntry(), current)) {
                 LOGGER.warn("Adding disconnected vertex: " + current);
-                addDisconnectedVertex(cfg, current);
+                addDisconnectedVertex(cfg, current, reachability);
+                reachability = new ReachabilityIndex(this);
             }
             current = queue.poll();
         }
@@ -142,13 +162,13 @@ public class CDG extends BaseCFG {
      *
      * @param cfg                The {@link BaseCFG} from which the CDG is being generated.
      * @param disconnectedVertex The vertex to be added to the CDG.
+     * @param reachability       The reachability index of the CDG before adding the vertex.
      */
-    private void addDisconnectedVertex(BaseCFG cfg, CFGVertex disconnectedVertex) {
-        Set<CFGVertex> entryConnected = (Set<CFGVertex>) getTransitiveSuccessors(getEntry());
+    private void addDisconnectedVertex(BaseCFG cfg, CFGVertex disconnectedVertex, ReachabilityIndex reachability) {
         Set<CFGVertex> cfgParents = cfg.getPredecessors(disconnectedVertex);
         for (CFGVertex parent : cfgParents) {
 
-            if (!entryConnected.contains(parent)) {
+            if (!reachability.isTransitiveSuccessor(getEntry(), parent)) {
                 continue;
             }
 
@@ -161,7 +181,7 @@ public class CDG extends BaseCFG {
                 // on all CDG parents of the current parent.
                 Set<CFGVertex> cfgGrandParents = cfg.getPredecessors(parent);
                 for (CFGVertex grandParent : cfgGrandParents) {
-                    if (!entryConnected.contains(parent)) {
+                    if (!reachability.isTransitiveSuccessor(getEntry(), parent)) {
                         continue;
                     }
                     addEdge(grandParent, disconnectedVertex);
@@ -238,11 +258,14 @@ public class CDG extends BaseCFG {
      */
     private CFGVertex lookUpVertex(String method, int instructionIndex, CFGVertex entry) {
 
+        // resolve the method id once instead of comparing the method signature per visited vertex
+        final int methodId = SymbolTable.lookUpMethod(method);
+
         BreadthFirstIterator<CFGVertex, CFGEdge> bfs = new BreadthFirstIterator<>(graph, entry);
 
         while (bfs.hasNext()) {
             CFGVertex vertex = bfs.next();
-            if (vertex.containsInstruction(method, instructionIndex)) {
+            if (vertex.containsInstruction(methodId, instructionIndex)) {
                 return vertex;
             }
         }
@@ -5,16 +5,16 @@ import com.android.tools.smali.dexlib2.analysis.AnalyzedInstruction;
 import com.android.tools.smali.dexlib2.iface.ClassDef;
 import com.android.tools.smali.dexlib2.iface.DexFile;
 import com.android.tools.smali.dexlib2.iface.Method;
-import com.android.tools.smali.dexlib2.iface.MethodImplementation;
 import com.android.tools.smali.dexlib2.iface.instruction.Instruction;
 import com.android.tools.smali.dexlib2.iface.instruction.ReferenceInstruction;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.TreeMultimap;
-import com.rits.cloning.Cloner;
 import de.uni_passau.fim.auermich.android_graphs.core.app.APK;
 import de.uni_passau.fim.auermich.android_graphs.core.app.components.*;
 import de.uni_passau.fim.auermich.android_graphs.core.app.xml.LayoutFile;
 import de.uni_passau.fim.auermich.android_graphs.core.app.xml.Manifest;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.BuildSnapshot;
 import de.uni_passau.fim.auermich.android_graphs.core.graphs.GraphType;
 import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.BaseCFG;
 import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.CFGEdge;
@@ -28,16 +28,14 @@ import de.uni_passau.fim.auermich.android_graphs.core.utility.Properties;
 import de.uni_passau.fim.auermich.android_graphs.core.utility.*;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.jgrapht.Graph;
 import org.jgrapht.GraphPath;
 import org.jgrapht.alg.shortestpath.AllDirectedPaths;
-import org.jgrapht.graph.DefaultEdge;
-import org.jgrapht.graph.builder.GraphTypeBuilder;
 import org.jgrapht.traverse.BreadthFirstIterator;
 import org.jgrapht.traverse.DepthFirstIterator;
 
 import java.io.File;
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -47,6 +45,9 @@ public class ModularCDG extends BaseCFG {
     private static final Logger LOGGER = LogManager.getLogger(ModularCDG.class);
     private static final GraphType GRAPH_TYPE = GraphType.MODULARCDG;
 
+    // the name under which the construction phases are recorded
+    private static final String METRICS_NAME = "ModularCDG";
+
     /**
      * Properties relevant for the construction process, e.g. whether basic blocks should be used.
      */
@@ -77,6 +78,15 @@ public class ModularCDG extends BaseCFG {
      */
     private APK apk = null;
 
+    /*
+     * Maps an activity or fragment to the resource id of its layout in hexadecimal representation. Collected while
+     * traversing the instructions to check the component relations, consumed by lookUpCallbacksXML().
+     */
+    private final Map<String, String> componentResourceIDs = new HashMap<>();
+
+    // provides the intra CDGs of a previous build, only set during an incremental construction
+    private BuildSnapshot snapshot = null;
+
     // necessary for the copy constructor
     public ModularCDG(String graphName) {
         super(graphName);
@@ -84,11 +94,42 @@ public class ModularCDG extends BaseCFG {
 
     public ModularCDG(String graphName, APK apk, boolean useBasicBlocks,
                       boolean excludeARTClasses, boolean resolveOnlyAUTClasses) {
+        this(graphName, apk, useBasicBlocks, excludeARTClasses, resolveOnlyAUTClasses, null);
+    }
+
+    /**
+     * Constructs the modular CDG incrementally, i.e. the intra CDGs of unchanged methods are taken from the given
+     * snapshot of the build of a previous version of the app. Afterwards, the snapshot reflects this build. The
+     * instructions of unchanged methods are still analyzed, since the component relations are derived from them.
+     *
+     * @param graphName The name of the graph.
+     * @param apk The APK file describing the app.
+     * @param useBasicBlocks Whether basic blocks should be used.
+     * @param excludeARTClasses Whether ART classes should be excluded.
+     * @param resolveOnlyAUTClasses Whether only classes of the AUT should be resolved.
+     * @param snapshot The snapshot of a previous build or {@code null} if the graph should be built from scratch.
+     */
+    public ModularCDG(String graphName, APK apk, boolean useBasicBlocks,
+                      boolean excludeARTClasses, boolean resolveOnlyAUTClasses, BuildSnapshot snapshot) {
         super(graphName);
         this.properties = new Properties(useBasicBlocks, excludeARTClasses, resolveOnlyAUTClasses);
         this.apk = apk;
+        this.snapshot = snapshot;
+
+        if (snapshot != null) {
+            snapshot.begin(GRAPH_TYPE, properties);
+        }
+
         addEdge(getEntry(), getExit()); // exit is always control-dependent on entry
         constructCDG(apk);
+
+        // the def-use chains are only needed while resolving the invocations during the construction
+        DefUseChains.clearCache();
+
+        if (snapshot != null) {
+            snapshot.finish();
+            this.snapshot = null;
+        }
     }
 
     /**
@@ -112,25 +153,48 @@ public class ModularCDG extends BaseCFG {
     private void constructCDG(APK apk) {
 
         // decode APK to access manifest and other resource files
-        apk.decodeAPK();
+        try (BuildMetrics.Phase phase = BuildMetrics.startPhase(METRICS_NAME, "decodeAPK")) {
+            apk.decodeAPK();
+        }
 
-        // parse manifest
-        apk.setManifest(Manifest.parse(new File(apk.getDecodingOutputPath(), "AndroidManifest.xml")));
+        try (BuildMetrics.Phase phase = BuildMetrics.startPhase(METRICS_NAME, "parseResources")) {
+            // parse manifest
+            apk.setManifest(Manifest.parse(new File(apk.getDecodingOutputPath(), "AndroidManifest.xml")));
 
-        // parse the resource strings
-        apk.setResourceStrings(ResourceUtils.parseStringsXMLFile(apk.getDecodingOutputPath()));
+            // parse the resource strings
+            apk.setResourceStrings(ResourceUtils.parseStringsXMLFile(apk.getDecodingOutputPath()));
+        }
 
         // create the individual intraCDGs and add them as sub graphs
-        constructIntraCDGs(apk, properties.useBasicBlocks);
+        try (BuildMetrics.Phase phase = BuildMetrics.startPhase(METRICS_NAME, "constructIntraCDGs")) {
+            constructIntraCDGs(apk, properties.useBasicBlocks);
+            phase.setItems(intraCDGs.size());
+        }
 
-        // track relations between components
-        ComponentUtils.checkComponentRelations(apk, components, classHierarchy);
+        /*
+         * Track relations between components. Since the components are only complete after the construction of the
+         * intra CDGs, the layouts of activities and fragments are looked up in the same traversal.
+         */
+        try (BuildMetrics.Phase phase = BuildMetrics.startPhase(METRICS_NAME, "checkComponentRelations")) {
+            final InstructionTraversal traversal = new InstructionTraversal();
+            ComponentUtils.registerComponentRelationChecks(traversal, apk, components, classHierarchy);
+            registerLayoutResourceIDLookUp(traversal);
+            traversal.visitAll(apk.getDexFiles(), classDef -> true);
+            traversal.finish();
+            phase.setItems(components.size());
+        }
 
         // add for each component a callback graph
-        Map<String, BaseCFG> callbackGraphs = addCallbackGraphs();
+        final Map<String, BaseCFG> callbackGraphs;
+        try (BuildMetrics.Phase phase = BuildMetrics.startPhase(METRICS_NAME, "addCallbackGraphs")) {
+            callbackGraphs = addCallbackGraphs();
+            phase.setItems(callbackGraphs.size());
+        }
 
         // Connect component lifecycle methods.
-        connectComponentLifecycle(callbackGraphs);
+        try (BuildMetrics.Phase phase = BuildMetrics.startPhase(METRICS_NAME, "connectComponentLifecycle")) {
+            connectComponentLifecycle(callbackGraphs);
+        }
 
         // Connect callbacks specified either through XML or directly in code
         connectCallbacks(apk, callbackGraphs);
@@ -138,9 +202,15 @@ public class ModularCDG extends BaseCFG {
         LOGGER.debug("Removing decoded APK files: " + Utility.removeFile(apk.getDecodingOutputPath()));
 
         if (properties.useBasicBlocks) {
-            constructCDGWithBasicBlocks(apk);
+            try (BuildMetrics.Phase phase = BuildMetrics.startPhase(METRICS_NAME, "constructCDGWithBasicBlocks")) {
+                phase.setItems(getInvokeVertices().size());
+                constructCDGWithBasicBlocks(apk);
+            }
         } else {
-            constructCDGNoBasicBlocks(apk);
+            try (BuildMetrics.Phase phase = BuildMetrics.startPhase(METRICS_NAME, "constructCDGNoBasicBlocks")) {
+                phase.setItems(getInvokeVertices().size());
+                constructCDGNoBasicBlocks(apk);
+            }
         }
     }
 
@@ -151,10 +221,9 @@ public class ModularCDG extends BaseCFG {
 
         // Track binder classes and attach them to the corresponding service
         Set<String> binderClasses = new HashSet<>();
-        List<ClassDef> classes = apk.getDexFiles().stream()
-                .map(DexFile::getClasses)
-                .flatMap(Collection::stream)
-                .collect(Collectors.toList());
+        // index the classes of all dex files once, the class hierarchy is resolved against the index
+        final ClassIndex classIndex = new ClassIndex(apk.getDexFiles());
+        final List<ClassDef> classes = classIndex.getClasses();
 
         final String packageName = apk.getManifest().getPackageName();
         final String mainActivity = apk.getManifest().getMainActivity();
@@ -182,6 +251,11 @@ public class ModularCDG extends BaseCFG {
 
                     final String methodSignature = MethodUtils.deriveMethodSignature(method);
 
+                    // analyze the method at most once, the analyzed instructions are shared by menus and intra CDGs
+                    final Supplier<List<AnalyzedInstruction>> analyzedInstructions = Suppliers.memoize(
+                            () -> method.getImplementation() != null
+                                    ? MethodUtils.getAnalyzedInstructions(dexFile, method) : Collections.emptyList());
+
                     // track the Android callbacks
                     if (MethodUtils.isCallback(methodSignature)) {
                         callbacks.add(methodSignature);
@@ -189,7 +263,8 @@ public class ModularCDG extends BaseCFG {
 
                     // Add menus to components.
                     if (MenuUtils.isOnCreateMenu(methodSignature)) {
-                        List<MenuItemWithResolvedTitle> menuItems = MenuUtils.getDefinedMenuItems(apk, dexFile, method)
+                        List<MenuItemWithResolvedTitle> menuItems
+                                = MenuUtils.getDefinedMenuItems(apk, method, analyzedInstructions.get())
                                 .collect(Collectors.toList());
                         var component = ComponentUtils.getComponentByName(components, classDef.toString());
 
@@ -217,7 +292,8 @@ public class ModularCDG extends BaseCFG {
                         if (!MethodUtils.isJavaObjectMethod(methodSignature)) {
                             LOGGER.debug("Method: " + methodSignature);
 
-                            final BaseCFG intraCDG = new IntraCDG(new IntraCFG(method, dexFile, useBasicBlocks));
+                            final BaseCFG intraCDG = constructIntraCDG(method, methodSignature,
+                                    analyzedInstructions, useBasicBlocks);
                             addSubGraph(intraCDG);
                             addInvokeVertices(intraCDG.getInvokeVertices());
                             // only hold a reference to the entry and exit vertex
@@ -230,7 +306,7 @@ public class ModularCDG extends BaseCFG {
                 if (exclusionPattern != null && !exclusionPattern.matcher(className).matches()) {
 
                     // re-assemble the class hierarchy
-                    updateClassHierarchy(dexFile, classDef);
+                    updateClassHierarchy(classIndex, classDef);
 
                     if (ComponentUtils.isActivity(classes, classDef)) {
                         components.add(new Activity(classDef, ComponentType.ACTIVITY));
@@ -249,6 +325,9 @@ public class ModularCDG extends BaseCFG {
             }
         }
 
+        // the class hierarchy is complete, precompute the tables used to resolve invocation targets
+        classHierarchy.build();
+
         // Assign binder class to respective service
         for (String binderClass : binderClasses) {
             // Typically binder classes are inner classes of the service
@@ -265,18 +344,46 @@ public class ModularCDG extends BaseCFG {
     }
 
     /**
-     * Updates the class hierarchy map with information of the given class and its super class
-     * and interfaces, respectively.
+     * Constructs the intra CDG of the given method or takes it from the snapshot of a previous build if the method
+     * didn't change.
      *
-     * @param dexFile  The dex file containing the current class.
-     * @param classDef The given class.
+     * @param method The method.
+     * @param methodSignature The signature of the method.
+     * @param analyzedInstructions Provides the analyzed instructions of the method.
+     * @param useBasicBlocks Whether basic blocks should be used.
+     * @return Returns the intra CDG of the method.
      */
-    private void updateClassHierarchy(final DexFile dexFile, final ClassDef classDef) {
+    private BaseCFG constructIntraCDG(final Method method, final String methodSignature,
+                                      final Supplier<List<AnalyzedInstruction>> analyzedInstructions,
+                                      final boolean useBasicBlocks) {
+
+        final BaseCFG cachedCDG = snapshot != null ? snapshot.reuse(method, methodSignature, null) : null;
+
+        if (cachedCDG != null) {
+            return cachedCDG;
+        }
+
+        final BaseCFG intraCDG = new IntraCDG(new IntraCFG(method, analyzedInstructions.get(), useBasicBlocks));
 
-        // TODO: Speed up class hierarchy construction. At least inner classes can be derived iteratively.
-        ClassDef superClass = ClassUtils.getSuperClass(dexFile, classDef);
-        Set<ClassDef> interfaces = ClassUtils.getInterfaces(dexFile, classDef);
-        Set<ClassDef> innerClasses = ClassUtils.getInnerClasses(dexFile, classDef);
+        if (snapshot != null) {
+            snapshot.record(methodSignature, intraCDG, null);
+        }
+
+        return intraCDG;
+    }
+
+    /**
+     * Updates the class hierarchy map with information of the given class and its super class
+     * and interfaces, respectively. The super class, interfaces and inner classes may be contained
+     * in any dex file.
+     *
+     * @param classIndex The index over the classes of all dex files.
+     * @param classDef   The given class.
+     */
+    private void updateClassHierarchy(final ClassIndex classIndex, final ClassDef classDef) {
+        ClassDef superClass = classIndex.getSuperClass(classDef);
+        Set<ClassDef> interfaces = classIndex.getInterfaces(classDef);
+        Set<ClassDef> innerClasses = classIndex.getInnerClasses(classDef);
         classHierarchy.addClass(classDef, superClass, interfaces, innerClasses);
     }
 
@@ -578,8 +685,17 @@ public class ModularCDG extends BaseCFG {
     private void connectCallbacks(APK apk, Map<String, BaseCFG> callbackGraphs) {
 
         // Extract callbacks declared in code and XML
-        Multimap<String, BaseCFG> callbacks = lookUpCallbacks(apk);
-        Multimap<String, BaseCFG> callbacksXML = lookUpCallbacksXML(apk);
+        final Multimap<String, BaseCFG> callbacks;
+        try (BuildMetrics.Phase phase = BuildMetrics.startPhase(METRICS_NAME, "lookUpCallbacks")) {
+            callbacks = lookUpCallbacks(apk);
+            phase.setItems(callbacks.size());
+        }
+
+        final Multimap<String, BaseCFG> callbacksXML;
+        try (BuildMetrics.Phase phase = BuildMetrics.startPhase(METRICS_NAME, "lookUpCallbacksXML")) {
+            callbacksXML = lookUpCallbacksXML(apk);
+            phase.setItems(callbacksXML.size());
+        }
 
         // Add callbacks directly from activity itself and its hosted fragments
         components.stream().filter(c -> c.getComponentType() == ComponentType.ACTIVITY).forEach(activity -> {
@@ -815,63 +931,49 @@ public class ModularCDG extends BaseCFG {
     }
 
     /**
-     * Looks up callbacks declared in XML layout files and associates them to its defining component.
-     * First, the onCreate() and/or onCreateView() methods of activities and fragments are looked up for invocations
-     * of setContentView() or inflate(), respectively. Next, the resource ids are extracted by backtracking the
-     * former invocations. Then, we map the resource ids to layout files and parse the callbacks within those files.
-     * Finally, the declared callbacks are looked up in the graph and mapped to its defining component.
+     * Registers the look up of the layout resource ids of activities and fragments at the given traversal. The
+     * onCreate() and/or onCreateView() methods of activities and fragments are searched for invocations of
+     * setContentView() or inflate(), respectively, and the resource ids are extracted by backtracking the former
+     * invocations.
      *
-     * @return Returns a mapping between a component (its class name) and its callbacks (actually the
-     * corresponding intra CFGs). Each component may define multiple callbacks.
+     * @param traversal The instruction traversal.
      */
-    private Multimap<String, BaseCFG> lookUpCallbacksXML(APK apk) {
-
-        // stores for each component its resource id in hexadecimal representation
-        Map<String, String> componentResourceID = new HashMap<>();
+    private void registerLayoutResourceIDLookUp(InstructionTraversal traversal) {
 
+        // only activities and fragments of the application can define callbacks in XML
         Set<ClassDef> viewComponents = components.stream()
                 .filter(c -> c.getComponentType() == ComponentType.ACTIVITY || c.getComponentType() == ComponentType.FRAGMENT)
                 .map(Component::getClazz)
                 .collect(Collectors.toSet());
 
-        for (DexFile dexFile : apk.getDexFiles()) {
-            for (ClassDef classDef : dexFile.getClasses()) {
-
-                if (viewComponents.contains(classDef)) {
-                    // only activities and fragments of the application can define callbacks in XML
-
-                    for (Method method : classDef.getMethods()) {
-
-                        MethodImplementation methodImplementation = method.getImplementation();
-
-                        if (methodImplementation != null
-                                // we can speed up search for looking only for onCreate(..) and onCreateView(..)
-                                // this assumes that only these two methods declare the layout via setContentView()/inflate()!
-                                && method.getName().contains("onCreate")) {
-
-                            for (AnalyzedInstruction analyzedInstruction : MethodUtils.getAnalyzedInstructions(dexFile, method)) {
-
-                                Instruction instruction = analyzedInstruction.getInstruction();
-
-                                /*
-                                 * We need to search for calls to setContentView(..) and inflate(..).
-                                 * Both of them are of type invoke-virtual.
-                                 */
-                                if (instruction.getOpcode() == Opcode.INVOKE_VIRTUAL) {
-                                    String resourceID = Utility.getLayoutResourceID(classDef, analyzedInstruction);
+        /*
+         * We can speed up search for looking only for onCreate(..) and onCreateView(..). This assumes that only these
+         * two methods declare the layout via setContentView()/inflate(). Both of them are of type invoke-virtual.
+         */
+        traversal.register(context -> viewComponents.contains(context.getClassDef())
+                        && context.getMethod().getName().contains("onCreate"), EnumSet.of(Opcode.INVOKE_VIRTUAL),
+                (context, analyzedInstruction) -> {
+                    String resourceID = Utility.getLayoutResourceID(context.getClassDef(), analyzedInstruction);
 
-                                    if (resourceID != null) {
-                                        componentResourceID.put(classDef.toString(), resourceID);
-                                    }
-                                }
-                            }
-                        }
+                    if (resourceID != null) {
+                        componentResourceIDs.put(context.getClassDef().toString(), resourceID);
                     }
-                }
-            }
-        }
+                });
+    }
+
+    /**
+     * Looks up callbacks declared in XML layout files and associates them to its defining component.
+     * The resource ids of the layouts have been already extracted while checking the component relations, see
+     * {@link #registerLayoutResourceIDLookUp(InstructionTraversal)}. Then, we map the resource ids to layout files
+     * and parse the callbacks within those files.
+     * Finally, the declared callbacks are looked up in the graph and mapped to its defining component.
+     *
+     * @return Returns a mapping between a component (its class name) and its callbacks (actually the
+     * corresponding intra CFGs). Each component may define multiple callbacks.
+     */
+    private Multimap<String, BaseCFG> lookUpCallbacksXML(APK apk) {
 
-        LOGGER.debug("Component-to-Resource-ID-mapping: " + componentResourceID);
+        LOGGER.debug("Component-to-Resource-ID-mapping: " + componentResourceIDs);
 
         /*
          * We now need to find the layout file for a given activity or fragment. Then, we need to
@@ -880,7 +982,7 @@ public class ModularCDG extends BaseCFG {
         Multimap<String, String> componentCallbacks = TreeMultimap.create();
 
         // search layout file + parse callbacks
-        componentResourceID.forEach(
+        componentResourceIDs.forEach(
                 (component, resourceID) -> {
 
                     LayoutFile layoutFile = LayoutFile.findLayoutFile(apk.getDecodingOutputPath(), resourceID);
@@ -1192,11 +1294,14 @@ public class ModularCDG extends BaseCFG {
      */
     private CFGVertex lookUpVertex(String method, int instructionIndex, CFGVertex entry) {
 
+        // resolve the method id once instead of comparing the method signature per visited vertex
+        final int methodId = SymbolTable.lookUpMethod(method);
+
         BreadthFirstIterator<CFGVertex, CFGEdge> bfs = new BreadthFirstIterator<>(graph, entry);
 
         while (bfs.hasNext()) {
             CFGVertex vertex = bfs.next();
-            if (vertex.containsInstruction(method, instructionIndex)) {
+            if (vertex.containsInstruction(methodId, instructionIndex)) {
                 return vertex;
             }
         }
@@ -1209,32 +1314,11 @@ public class ModularCDG extends BaseCFG {
         return GRAPH_TYPE;
     }
 
-    // TODO: check if deep copy of vertices and edges is necessary
     @Override
     @SuppressWarnings("unused")
     public ModularCDG copy() {
         ModularCDG clone = new ModularCDG(getMethodName());
-
-        Graph<CFGVertex, CFGEdge> graphClone = GraphTypeBuilder
-                .<CFGVertex, DefaultEdge>directed().allowingMultipleEdges(true).allowingSelfLoops(true)
-                .edgeClass(CFGEdge.class).buildGraph();
-
-        Set<CFGVertex> vertices = graph.vertexSet();
-        Set<CFGEdge> edges = graph.edgeSet();
-
-        Cloner cloner = new Cloner();
-
-        for (CFGVertex vertex : vertices) {
-            graphClone.addVertex(cloner.deepClone(vertex));
-        }
-
-        for (CFGEdge edge : edges) {
-            CFGVertex src = cloner.deepClone(edge.getSource());
-            CFGVertex dest = cloner.deepClone(edge.getTarget());
-            graphClone.addEdge(src, dest);
-        }
-
-        clone.graph = graphClone;
+        clone.graph = copyGraph(false);
         return clone;
     }
 }
@@ -5,6 +5,7 @@ import com.google.common.collect.Queues;
 import com.google.common.collect.Sets;
 import de.uni_passau.fim.auermich.android_graphs.core.graphs.GraphType;
 import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.*;
+import de.uni_passau.fim.auermich.android_graphs.core.utility.SymbolTable;
 import org.jgrapht.traverse.BreadthFirstIterator;
 
 import java.util.HashMap;
@@ -30,7 +31,7 @@ public class PDT extends BaseCFG {
      */
     public PDT(final BaseCFG cfg) {
         super(cfg.getMethodName(), cfg.getExit(), cfg.getEntry()); // entry and exit are reversed
-        final Map<CFGVertex, Set<CFGVertex>> postDominators = computePostDominators(cfg.reverseGraph());
+        final Map<CFGVertex, Set<CFGVertex>> postDominators = computePostDominators(cfg.reversedView());
         buildDominanceTree(cfg, postDominators);
         if (cfg instanceof InterCFG) {
             intraCFGs = ((InterCFG) cfg).getIntraCFGs();
@@ -48,7 +49,7 @@ public class PDT extends BaseCFG {
      */
     private Map<CFGVertex, Set<CFGVertex>> computePostDominators(final BaseCFG reversedCFG) {
 
-        final CFGVertex entry = reversedCFG.getExit(); // Entry is the exit in the original CFG.
+        final CFGVertex entry = reversedCFG.getEntry(); // Entry is the exit in the original CFG.
         final Set<CFGVertex> vertices = reversedCFG.getVertices();
         final Set<CFGVertex> nodesWithoutEntry = Sets.newHashSet(reversedCFG.getVertices());
         nodesWithoutEntry.remove(entry);
@@ -190,11 +191,14 @@ public class PDT extends BaseCFG {
      */
     private CFGVertex lookUpVertex(String method, int instructionIndex, CFGVertex entry) {
 
+        // resolve the method id once instead of comparing the method signature per visited vertex
+        final int methodId = SymbolTable.lookUpMethod(method);
+
         BreadthFirstIterator<CFGVertex, CFGEdge> bfs = new BreadthFirstIterator<>(graph, entry);
 
         while (bfs.hasNext()) {
             CFGVertex vertex = bfs.next();
-            if (vertex.containsInstruction(method, instructionIndex)) {
+            if (vertex.containsInstruction(methodId, instructionIndex)) {
                 return vertex;
             }
         }
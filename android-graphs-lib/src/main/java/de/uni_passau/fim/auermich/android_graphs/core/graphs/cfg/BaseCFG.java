@@ -9,13 +9,15 @@ import de.uni_passau.fim.auermich.android_graphs.core.graphs.BaseGraph;
 import de.uni_passau.fim.auermich.android_graphs.core.graphs.GraphType;
 import de.uni_passau.fim.auermich.android_graphs.core.statements.EntryStatement;
 import de.uni_passau.fim.auermich.android_graphs.core.statements.ExitStatement;
-import de.uni_passau.fim.auermich.android_graphs.core.utility.DotConverter;
+import de.uni_passau.fim.auermich.android_graphs.core.utility.GraphExporter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jgrapht.Graph;
 import org.jgrapht.GraphPath;
+import org.jgrapht.alg.interfaces.AStarAdmissibleHeuristic;
 import org.jgrapht.alg.interfaces.ManyToManyShortestPathsAlgorithm;
 import org.jgrapht.alg.interfaces.ShortestPathAlgorithm;
+import org.jgrapht.alg.shortestpath.AStarShortestPath;
 import org.jgrapht.alg.shortestpath.BFSShortestPath;
 import org.jgrapht.alg.shortestpath.BidirectionalDijkstraShortestPath;
 import org.jgrapht.alg.shortestpath.CHManyToManyShortestPaths;
@@ -23,10 +25,6 @@ import org.jgrapht.alg.shortestpath.DijkstraManyToManyShortestPaths;
 import org.jgrapht.ext.JGraphXAdapter;
 import org.jgrapht.graph.DefaultEdge;
 import org.jgrapht.graph.builder.GraphTypeBuilder;
-import org.jgrapht.nio.Attribute;
-import org.jgrapht.nio.DefaultAttribute;
-import org.jgrapht.nio.dot.DOTExporter;
-import org.jgrapht.nio.json.JSONExporter;
 import org.jgrapht.util.ConcurrencyUtil;
 import org.w3c.dom.Document;
 
@@ -42,6 +40,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.*;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -49,9 +48,19 @@ public abstract class BaseCFG implements BaseGraph, Cloneable, Comparable<BaseCF
 
     private static final Logger LOGGER = LogManager.getLogger(BaseCFG.class);
 
-    protected Graph<CFGVertex, CFGEdge> graph = GraphTypeBuilder
-            .<CFGVertex, DefaultEdge>directed().allowingMultipleEdges(true).allowingSelfLoops(true)
-            .edgeClass(CFGEdge.class).buildGraph();
+    /**
+     * The supported partitionings for drawing large graphs partition-wise.
+     */
+    public enum Partitioning {
+        // one partition per method
+        METHOD,
+        // one partition per class, the callbacks graph of a class belongs to the class
+        CLASS,
+        // one partition per top-level class, i.e. a component together with its inner classes and callbacks graph
+        COMPONENT
+    }
+
+    protected Graph<CFGVertex, CFGEdge> graph;
 
     private CFGVertex entry;
     private CFGVertex exit;
@@ -75,6 +84,7 @@ public abstract class BaseCFG implements BaseGraph, Cloneable, Comparable<BaseCF
      */
     public BaseCFG(String methodName) {
         this.methodName = methodName;
+        graph = createGraph();
         entry = new CFGVertex(new EntryStatement(methodName));
         exit = new CFGVertex(new ExitStatement(methodName));
         graph.addVertex(entry);
@@ -90,12 +100,28 @@ public abstract class BaseCFG implements BaseGraph, Cloneable, Comparable<BaseCF
      */
     public BaseCFG(String methodName, CFGVertex entry, CFGVertex exit) {
         this.methodName = methodName;
+        graph = createGraph();
         this.entry = entry;
         this.exit = exit;
         graph.addVertex(entry);
         graph.addVertex(exit);
     }
 
+    /**
+     * Used to initialize a CFG that is backed by the given graph, e.g. a view of another CFG.
+     *
+     * @param methodName The name of the graph.
+     * @param graph The backing graph, which is not copied.
+     * @param entry The entry vertex.
+     * @param exit The exit vertex.
+     */
+    protected BaseCFG(String methodName, Graph<CFGVertex, CFGEdge> graph, CFGVertex entry, CFGVertex exit) {
+        this.methodName = methodName;
+        this.graph = graph;
+        this.entry = entry;
+        this.exit = exit;
+    }
+
     public abstract CFGVertex lookUpVertex(String trace);
 
     public void addInvokeVertices(Set<CFGVertex> vertices) {
@@ -146,6 +172,18 @@ public abstract class BaseCFG implements BaseGraph, Cloneable, Comparable<BaseCF
         return new BidirectionalDijkstraShortestPath<>(graph);
     }
 
+    /**
+     * Initialises the A* shortest path algorithm, which is guided towards the target by the given heuristic, e.g. a
+     * {@link LandmarkDistanceOracle}.
+     *
+     * @param heuristic An admissible heuristic estimating the distance between two vertices.
+     * @return Returns the A* shortest path algorithm.
+     */
+    public ShortestPathAlgorithm<CFGVertex, CFGEdge> initAStarAlgorithm(
+            final AStarAdmissibleHeuristic<CFGVertex> heuristic) {
+        return new AStarShortestPath<>(graph, heuristic);
+    }
+
     /**
      * Initialises the CH many-to-many shortest paths algorithm on the underlying graph. This seems to be the fastest
      * option on large graphs.
@@ -279,7 +317,7 @@ public abstract class BaseCFG implements BaseGraph, Cloneable, Comparable<BaseCF
 
         // add all edges
         for (CFGEdge edge : subGraph.getEdges()) {
-            addEdge(edge.getSource(), edge.getTarget());
+            addEdge(subGraph.graph.getEdgeSource(edge), subGraph.graph.getEdgeTarget(edge));
         }
     }
 
@@ -309,6 +347,7 @@ public abstract class BaseCFG implements BaseGraph, Cloneable, Comparable<BaseCF
     /**
      * Reverses the given BaseCFG graph by reversing the direction of all edges.
      * NOTE: Calling getEntry() or getExit() on the resulting graph returns the original entry or exit, respectively.
+     * Use {@link #reversedView()} if the reversed graph is only read.
      *
      * @return Returns the reversed BaseCFG.
      */
@@ -316,16 +355,39 @@ public abstract class BaseCFG implements BaseGraph, Cloneable, Comparable<BaseCF
 
         // TODO: Be careful, although the graph is reversed, getEntry() and getExit() still refer to the entry and exit
         //  of the original graph. May use reflection to overwrite those two fields.
-        BaseCFG reversed = this.clone();
-        reversed.removeEdges(reversed.getEdges());
+        return snapshot(true);
+    }
 
-        for (CFGVertex source : this.getVertices()) {
-            for (CFGVertex target : this.getSuccessors(source)) {
-                reversed.addEdge(target, source);
-            }
-        }
+    /**
+     * Returns a read-only view of this graph with reversed edges, where the entry and exit are swapped. The view is
+     * backed by the adjacency of this graph and doesn't copy any vertex or edge.
+     *
+     * @return Returns the edge-reversed view of this graph.
+     */
+    public BaseCFG reversedView() {
+        return CFGView.reversed(this);
+    }
 
-        return reversed;
+    /**
+     * Returns a read-only view of the subgraph induced by the vertices satisfying the given predicate. The view is
+     * backed by the adjacency of this graph and doesn't copy any vertex or edge.
+     *
+     * @param vertexFilter Decides which vertices belong to the subgraph.
+     * @return Returns the induced subgraph view.
+     */
+    public BaseCFG inducedView(final Predicate<CFGVertex> vertexFilter) {
+        return CFGView.induced(this, vertexFilter);
+    }
+
+    /**
+     * Returns a read-only view of the vertices and edges of a single method, i.e. the intra-procedural part of this
+     * graph belonging to the given method. The entry and exit of the view are the entry and exit of the method.
+     *
+     * @param method The fully-qualified method name.
+     * @return Returns the view of the given method.
+     */
+    public BaseCFG methodView(final String method) {
+        return CFGView.method(this, method);
     }
 
     /**
@@ -335,7 +397,7 @@ public abstract class BaseCFG implements BaseGraph, Cloneable, Comparable<BaseCF
      * @return Returns all direct successors of given source vertex.
      */
     public Set<CFGVertex> getSuccessors(final CFGVertex source) {
-        return this.getOutgoingEdges(source).stream().map(CFGEdge::getTarget).collect(Collectors.toSet());
+        return this.getOutgoingEdges(source).stream().map(graph::getEdgeTarget).collect(Collectors.toSet());
     }
 
     /**
@@ -345,7 +407,60 @@ public abstract class BaseCFG implements BaseGraph, Cloneable, Comparable<BaseCF
      * @return Returns all direct predecessors of given source vertex.
      */
     public Set<CFGVertex> getPredecessors(final CFGVertex source) {
-        return this.getIncomingEdges(source).stream().map(CFGEdge::getSource).collect(Collectors.toSet());
+        return this.getIncomingEdges(source).stream().map(graph::getEdgeSource).collect(Collectors.toSet());
+    }
+
+    /**
+     * Collects the successors or predecessors of the given vertices in compressed sparse row (CSR) format, which is
+     * the adjacency the distance and reachability indices traverse. The adjacent vertices are resolved by
+     * {@link #getSuccessors(CFGVertex)} and {@link #getPredecessors(CFGVertex)} rather than by the endpoints stored
+     * in the edges, since a view shares the edge objects of the viewed graph.
+     *
+     * @param vertices The vertices of this graph indexed by their id.
+     * @param ids The id of each vertex.
+     * @param outgoing Whether the successors or the predecessors should be collected.
+     * @return Returns the adjacency of the given vertices.
+     */
+    public Adjacency getAdjacency(final CFGVertex[] vertices, final Map<CFGVertex, Integer> ids,
+                                  final boolean outgoing) {
+
+        // parallel edges collapse to a single adjacent vertex, thus the number of edges is an upper bound
+        final int[] offsets = new int[vertices.length + 1];
+        final int[] targets = new int[graph.edgeSet().size()];
+
+        int offset = 0;
+        for (int id = 0; id < vertices.length; id++) {
+            offsets[id] = offset;
+            for (CFGVertex adjacent : outgoing ? getSuccessors(vertices[id]) : getPredecessors(vertices[id])) {
+                targets[offset++] = ids.get(adjacent);
+            }
+        }
+        offsets[vertices.length] = offset;
+
+        return new Adjacency(offsets, offset == targets.length ? targets : Arrays.copyOf(targets, offset));
+    }
+
+    /**
+     * The adjacency of a CFG in compressed sparse row format, i.e. the ids of the vertices adjacent to the vertex
+     * with id i are stored in the targets at [offsets[i], offsets[i + 1]). The arrays are shared, not copied.
+     */
+    public static final class Adjacency {
+
+        private final int[] offsets;
+        private final int[] targets;
+
+        private Adjacency(final int[] offsets, final int[] targets) {
+            this.offsets = offsets;
+            this.targets = targets;
+        }
+
+        public int[] getOffsets() {
+            return offsets;
+        }
+
+        public int[] getTargets() {
+            return targets;
+        }
     }
 
     /**
@@ -395,6 +510,26 @@ public abstract class BaseCFG implements BaseGraph, Cloneable, Comparable<BaseCF
         return current;
     }
 
+    /**
+     * Retrieves the least common ancestor for the given pair of vertices, where the ancestors are determined by the
+     * given reachability index of this graph.
+     *
+     * NOTE: This operation presumes that the graph contains no cycles.
+     *
+     * @param firstVertex The first vertex.
+     * @param secondVertex The second vertex.
+     * @param reachability The reachability index of this graph.
+     * @return The vertex that is the least common ancestor of the two given vertices.
+     */
+    public CFGVertex getLeastCommonAncestor(final CFGVertex firstVertex, final CFGVertex secondVertex,
+                                           final ReachabilityIndex reachability) {
+        CFGVertex current = firstVertex;
+        while (!reachability.isReachable(current, firstVertex) || !reachability.isReachable(current, secondVertex)) {
+            current = getPredecessors(current).iterator().next();
+        }
+        return current;
+    }
+
     /**
      * Checks whether the given start vertex represents a common ancestor of the given pair of vertices.
      *
@@ -412,31 +547,32 @@ public abstract class BaseCFG implements BaseGraph, Cloneable, Comparable<BaseCF
     }
 
     /**
-     * Converts a graph into a JSON file.
+     * Exports the graph in the given format by streaming it to the given file. Vertices are referred to by compact
+     * numeric ids, each vertex carries its label as an attribute unless the labels are written into a separate label
+     * table next to the exported graph, e.g. graph.dot and graph.labels.tsv.
      *
-     * @param output The file path of the JSON file.
+     * @param output The file path of the exported graph.
+     * @param format The output format.
+     * @param compress Whether the exported files should be gzip-compressed.
+     * @param labelTable Whether the labels should be written into a separate label table.
      */
-    private void convertGraphToJSON(File output) {
-        JSONExporter<CFGVertex, CFGEdge> exporter = new JSONExporter<>(CFGVertex::toString);
-        exporter.exportGraph(graph, output);
+    public void exportGraph(File output, GraphExporter.Format format, boolean compress, boolean labelTable) {
+        GraphExporter<CFGVertex, CFGEdge> exporter = new GraphExporter<>(graph, CFGVertex::toString);
+        exporter.setLabelTable(labelTable);
+        exporter.export(output.toPath(), format, compress);
     }
 
     /**
-     * Converts a graph into a DOT file.
+     * Exports a graph that is too large for rendering in all supported formats, i.e. DOT, JSON and GraphML.
      *
-     * @param output The file path of the DOT file.
+     * @param outputDir The output directory.
      */
-    private void convertGraphToDOT(File output) {
-
-        DOTExporter<CFGVertex, CFGEdge> exporter = new DOTExporter<>(DotConverter::convertVertexToDOTNode);
-        exporter.setVertexAttributeProvider((vertex) -> {
-            // the label is what we see when we render the graph
-            Map<String, Attribute> map = new LinkedHashMap<>();
-            map.put("label", DefaultAttribute.createAttribute(DotConverter.convertVertexToDOTLabel(vertex)));
-            return map;
-        });
-
-        exporter.exportGraph(graph, output);
+    private void exportLargeGraph(File outputDir) {
+        GraphExporter<CFGVertex, CFGEdge> exporter = new GraphExporter<>(graph, CFGVertex::toString);
+        for (GraphExporter.Format format : GraphExporter.Format.values()) {
+            File output = new File(outputDir, "graph." + format.getExtension());
+            exporter.export(output.toPath(), format, false);
+        }
     }
 
     /**
@@ -444,27 +580,27 @@ public abstract class BaseCFG implements BaseGraph, Cloneable, Comparable<BaseCF
      * This conversion works for medium-sized graphs (<5000 vertices) best, while
      * for larger graphs it takes too long.
      *
+     * @param graph The graph to be converted.
      * @param outputFile The file path of the resulting SVG file.
      * @param visitedVertices The set of visited vertices.
      * @param targetVertices The set of target vertices.
      */
-    private void convertGraphToSVG(File outputFile, Set<CFGVertex> visitedVertices, Set<CFGVertex> targetVertices) {
-
-        JGraphXAdapter<CFGVertex, CFGEdge> graphXAdapter
-                = new JGraphXAdapter<>(graph);
-        graphXAdapter.getStylesheet().getDefaultEdgeStyle().put(mxConstants.STYLE_NOLABEL, "1");
-
-        if (!visitedVertices.isEmpty() || !targetVertices.isEmpty()) {
-            colorVertices(graphXAdapter, visitedVertices, targetVertices);
-        }
-
-        // this layout orders the vertices in a sequence from top to bottom (entry -> v1...vn -> exit)
-        mxIGraphLayout layout = new mxHierarchicalLayout(graphXAdapter);
+    static void convertGraphToSVG(Graph<CFGVertex, CFGEdge> graph, File outputFile, Set<CFGVertex> visitedVertices,
+                                  Set<CFGVertex> targetVertices) {
+        convertGraphToSVG(graph, outputFile, fillColors(visitedVertices, targetVertices));
+    }
 
-        // mxIGraphLayout layout = new mxCircleLayout(graphXAdapter);
-        // ((mxCircleLayout) layout).setRadius(((mxCircleLayout) layout).getRadius()*2.5);
+    /**
+     * Converts the graph into a SVG file, where vertices are filled with the given colors.
+     *
+     * @param graph The graph to be converted.
+     * @param outputFile The file path of the resulting SVG file.
+     * @param fillColors The fill color of the vertices that should be marked.
+     */
+    static void convertGraphToSVG(Graph<CFGVertex, CFGEdge> graph, File outputFile,
+                                  Map<CFGVertex, String> fillColors) {
 
-        layout.execute(graphXAdapter.getDefaultParent());
+        JGraphXAdapter<CFGVertex, CFGEdge> graphXAdapter = layoutGraph(graph, fillColors);
 
         Document svg =
                 mxCellRenderer.createSvgDocument(graphXAdapter, null, 1, Color.WHITE, null);
@@ -484,18 +620,55 @@ public abstract class BaseCFG implements BaseGraph, Cloneable, Comparable<BaseCF
      * Converts the graph into a PNG file using a hierarchical layout.
      * This method should be only used for small graphs, i.e. not more than 1000 (max 2000) vertices.
      *
+     * @param graph The graph to be converted.
      * @param output The file path of the resulting PNG file.
      * @param visitedVertices The set of visited vertices.
      * @param targetVertices The set of target vertices.
      */
-    private void convertGraphToPNG(File output, Set<CFGVertex> visitedVertices, Set<CFGVertex> targetVertices) {
+    static void convertGraphToPNG(Graph<CFGVertex, CFGEdge> graph, File output, Set<CFGVertex> visitedVertices,
+                                  Set<CFGVertex> targetVertices) {
+        convertGraphToPNG(graph, output, fillColors(visitedVertices, targetVertices));
+    }
+
+    /**
+     * Converts the graph into a PNG file, where vertices are filled with the given colors.
+     *
+     * @param graph The graph to be converted.
+     * @param output The file path of the resulting PNG file.
+     * @param fillColors The fill color of the vertices that should be marked.
+     */
+    static void convertGraphToPNG(Graph<CFGVertex, CFGEdge> graph, File output, Map<CFGVertex, String> fillColors) {
+
+        JGraphXAdapter<CFGVertex, CFGEdge> graphXAdapter = layoutGraph(graph, fillColors);
+
+        BufferedImage image =
+                mxCellRenderer.createBufferedImage(graphXAdapter, null, 1, Color.WHITE, true, null);
+
+        try {
+            output.createNewFile();
+            ImageIO.write(image, "PNG", output);
+        } catch (IOException e) {
+            LOGGER.warn(e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Colors the vertices of the given graph and lays it out using a hierarchical layout.
+     *
+     * @param graph The graph to be laid out.
+     * @param fillColors The fill color of the vertices that should be marked.
+     * @return Returns the laid out graph.
+     */
+    private static JGraphXAdapter<CFGVertex, CFGEdge> layoutGraph(Graph<CFGVertex, CFGEdge> graph,
+                                                                  Map<CFGVertex, String> fillColors) {
 
         JGraphXAdapter<CFGVertex, CFGEdge> graphXAdapter
                 = new JGraphXAdapter<>(graph);
         graphXAdapter.getStylesheet().getDefaultEdgeStyle().put(mxConstants.STYLE_NOLABEL, "1");
 
-        if (!visitedVertices.isEmpty() || !targetVertices.isEmpty()) {
-            colorVertices(graphXAdapter, visitedVertices, targetVertices);
+        if (!fillColors.isEmpty()) {
+            colorVertices(graphXAdapter, fillColors);
         }
 
         // this layout orders the vertices in a sequence from top to bottom (entry -> v1...vn -> exit)
@@ -505,55 +678,55 @@ public abstract class BaseCFG implements BaseGraph, Cloneable, Comparable<BaseCF
         // ((mxCircleLayout) layout).setRadius(((mxCircleLayout) layout).getRadius()*2.5);
 
         layout.execute(graphXAdapter.getDefaultParent());
-
-        BufferedImage image =
-                mxCellRenderer.createBufferedImage(graphXAdapter, null, 1, Color.WHITE, true, null);
-
-        try {
-            output.createNewFile();
-            ImageIO.write(image, "PNG", output);
-        } catch (IOException e) {
-            LOGGER.warn(e.getMessage());
-            e.printStackTrace();
-        }
+        return graphXAdapter;
     }
 
     /**
-     * Marks the given set of visited and target vertices in different colors.
+     * Assigns the colors to the given set of visited and target vertices.
      *
-     * @param graphXAdapter The graph adapter.
      * @param visitedVertices The set of visited vertices.
      * @param targetVertices The set of target vertices.
+     * @return Returns the fill color of the visited and target vertices.
      */
-    private void colorVertices(JGraphXAdapter<CFGVertex, CFGEdge> graphXAdapter, Set<CFGVertex> visitedVertices,
-                               Set<CFGVertex> targetVertices) {
+    static Map<CFGVertex, String> fillColors(Set<CFGVertex> visitedVertices, Set<CFGVertex> targetVertices) {
 
-        Map<CFGVertex, mxICell> vertexToCellMap = graphXAdapter.getVertexToCellMap();
+        Map<CFGVertex, String> fillColors = new HashMap<>();
 
         /*
-         * We mark the covered target vertices orange in the graph.
+         * We mark the visited vertices green in the graph.
          */
-        Set<CFGVertex> coveredTargets = new HashSet<>(targetVertices);
-        coveredTargets.retainAll(visitedVertices);
-        List<Object> coveredTargetCells = new ArrayList<>();
-        coveredTargets.forEach(v -> coveredTargetCells.add(vertexToCellMap.get(v)));
-        graphXAdapter.setCellStyles(mxConstants.STYLE_FILLCOLOR, "orange", coveredTargetCells.toArray());
+        visitedVertices.forEach(v -> fillColors.put(v, "green"));
 
         /*
-         * We mark the visited vertices red in the graph.
+         * We mark the yet uncovered target vertices red and the covered target vertices orange in the graph.
          */
-        List<Object> visitedCells = new ArrayList<>();
-        visitedVertices.stream().filter(Predicate.not(coveredTargets::contains))
-                .forEach(v -> visitedCells.add(vertexToCellMap.get(v)));
-        graphXAdapter.setCellStyles(mxConstants.STYLE_FILLCOLOR, "green", visitedCells.toArray());
+        targetVertices.forEach(v -> fillColors.put(v, visitedVertices.contains(v) ? "orange" : "red"));
 
-        /*
-         * We mark the yet uncovered target vertices green in the graph.
-         */
-        List<Object> targetCells = new ArrayList<>();
-        targetVertices.stream().filter(Predicate.not(coveredTargets::contains))
-                .forEach(v -> targetCells.add(vertexToCellMap.get(v)));
-        graphXAdapter.setCellStyles(mxConstants.STYLE_FILLCOLOR, "red", targetCells.toArray());
+        return fillColors;
+    }
+
+    /**
+     * Marks the given vertices in the given colors. Vertices that are not part of the graph are ignored.
+     *
+     * @param graphXAdapter The graph adapter.
+     * @param fillColors The fill color of the vertices that should be marked.
+     */
+    private static void colorVertices(JGraphXAdapter<CFGVertex, CFGEdge> graphXAdapter,
+                                      Map<CFGVertex, String> fillColors) {
+
+        Map<CFGVertex, mxICell> vertexToCellMap = graphXAdapter.getVertexToCellMap();
+
+        // group the cells by color, this requires only a single style update per color
+        Map<String, List<Object>> cellsByColor = new HashMap<>();
+        fillColors.forEach((vertex, color) -> {
+            mxICell cell = vertexToCellMap.get(vertex);
+            if (cell != null) {
+                cellsByColor.computeIfAbsent(color, c -> new ArrayList<>()).add(cell);
+            }
+        });
+
+        cellsByColor.forEach((color, cells) ->
+                graphXAdapter.setCellStyles(mxConstants.STYLE_FILLCOLOR, color, cells.toArray()));
 
         // update layout
         graphXAdapter.refresh();
@@ -570,17 +743,14 @@ public abstract class BaseCFG implements BaseGraph, Cloneable, Comparable<BaseCF
 
         if (size() <= 1000) {
             File output = new File(resourceDirectory.toFile(), "graph.png");
-            convertGraphToPNG(output, Collections.emptySet(), Collections.emptySet());
+            convertGraphToPNG(graph, output, Collections.emptySet(), Collections.emptySet());
         } else if (size() <= 5000) {
             // can theoretically render large graphs to SVG, but this takes quite some time
             File output = new File(resourceDirectory.toFile(), "graph.svg");
-            convertGraphToSVG(output, Collections.emptySet(), Collections.emptySet());
+            convertGraphToSVG(graph, output, Collections.emptySet(), Collections.emptySet());
         } else {
-            // too 'large' graphs can't be handled by the JGraphXAdapter class, export to DOT and JSON
-            File output = new File(resourceDirectory.toFile(), "graph.dot");
-            convertGraphToDOT(output);
-            output = new File(resourceDirectory.toFile(), "graph.json");
-            convertGraphToJSON(output);
+            // too 'large' graphs can't be handled by the JGraphXAdapter class, export to DOT, JSON and GraphML
+            exportLargeGraph(resourceDirectory.toFile());
         }
     }
 
@@ -611,20 +781,45 @@ public abstract class BaseCFG implements BaseGraph, Cloneable, Comparable<BaseCF
 
         if (size() <= 1000) {
             File output = new File(outputDir, "graph.png");
-            convertGraphToPNG(output, visitedVertices, targetVertices);
+            convertGraphToPNG(graph, output, visitedVertices, targetVertices);
         } else if (size() <= 5000) {
             // can theoretically render large graphs to SVG, but this takes quite some time
             File output = new File(outputDir, "graph.svg");
-            convertGraphToSVG(output, visitedVertices, targetVertices);
+            convertGraphToSVG(graph, output, visitedVertices, targetVertices);
         } else {
-            // too 'large' graphs can't be handled by the JGraphXAdapter class, export to DOT and JSON
-            File output = new File(outputDir, "graph.dot");
-            convertGraphToDOT(output);
-            output = new File(outputDir, "graph.json");
-            convertGraphToJSON(output);
+            // too 'large' graphs can't be handled by the JGraphXAdapter class, export to DOT, JSON and GraphML
+            exportLargeGraph(outputDir);
         }
     }
 
+    /**
+     * Draws the graph partition-wise, where each partition is laid out and rendered in parallel to its own file and
+     * both the visited and target vertices are marked in a different color. An index.html file in the output
+     * directory links all partitions. Use this for graphs that are too large to be rendered as a whole.
+     *
+     * @param outputDir The output directory of the partitions.
+     * @param visitedVertices The set of visited vertices.
+     * @param targetVertices The selected target vertices.
+     * @param partitioning How the graph should be partitioned.
+     */
+    public void drawPartitionedGraph(File outputDir, Set<CFGVertex> visitedVertices, Set<CFGVertex> targetVertices,
+                                     Partitioning partitioning) {
+        drawPartitionedGraph(outputDir, visitedVertices, targetVertices, PartitionedRenderer.partitioner(partitioning));
+    }
+
+    /**
+     * Draws the graph partition-wise, where the partition of a vertex is determined by the given function.
+     *
+     * @param outputDir The output directory of the partitions.
+     * @param visitedVertices The set of visited vertices.
+     * @param targetVertices The selected target vertices.
+     * @param partitioner Maps a vertex to the name of its partition.
+     */
+    public void drawPartitionedGraph(File outputDir, Set<CFGVertex> visitedVertices, Set<CFGVertex> targetVertices,
+                                     Function<CFGVertex, String> partitioner) {
+        new PartitionedRenderer(graph, partitioner).render(outputDir, visitedVertices, targetVertices);
+    }
+
     /**
      * Draws the raw graph and saves it at the specified output path.
      *
@@ -651,51 +846,130 @@ public abstract class BaseCFG implements BaseGraph, Cloneable, Comparable<BaseCF
     }
 
     /**
-     * Performs a deep copy of the graph.
+     * Moves the adjacency of the graph into off-heap memory, either into direct buffers or into a memory-mapped file,
+     * such that only the vertices remain on the heap. This is meant for large graphs that are only queried once they
+     * have been constructed, since the graph becomes read-only and any modification raises an
+     * {@link UnsupportedOperationException}. A {@link #clone()} or {@link #copy()} is again a modifiable graph.
      *
-     * @return Returns a deep copy of the graph.
+     * @param mappedFile The file backing the adjacency, or {@code null} if direct buffers should be used.
      */
-    @SuppressWarnings("unused")
-    public abstract BaseCFG copy();
-
-    public BaseCFG clone() {
+    public void storeOffHeap(final Path mappedFile) {
+        if (!isStoredOffHeap()) {
+            graph = OffHeapGraph.copyOf(graph, mappedFile);
+        }
+    }
 
-        LOGGER.debug("Cloning CFG");
+    /**
+     * Checks whether the adjacency of the graph has been moved into off-heap memory.
+     *
+     * @return Returns {@code true} if the graph is stored off-heap, otherwise {@code false}.
+     */
+    public boolean isStoredOffHeap() {
+        return graph instanceof OffHeapGraph;
+    }
 
-        /*
-        Gson gson = new Gson();
-        BaseCFG clone = gson.fromJson(gson.toJson(this), BaseCFG.class);
-        return clone;
-        */
+    /**
+     * Creates an empty graph as used by the CFGs.
+     *
+     * @return Returns an empty directed graph allowing multiple edges and self loops.
+     */
+    protected static Graph<CFGVertex, CFGEdge> createGraph() {
+        return GraphTypeBuilder
+                .<CFGVertex, DefaultEdge>directed().allowingMultipleEdges(true).allowingSelfLoops(true)
+                .edgeClass(CFGEdge.class).buildGraph();
+    }
 
-        try {
-            BaseCFG cloneCFG = (BaseCFG) super.clone();
+    /**
+     * Copies the adjacency of the graph. The vertices and their statements are not modified once the graph has been
+     * constructed and are thus shared with the copy, i.e. only the edges, which may be modified afterwards, are
+     * duplicated.
+     *
+     * @param reversed Whether the direction of the copied edges should be reversed.
+     * @return Returns a graph sharing the vertices but not the edges with this graph.
+     */
+    protected Graph<CFGVertex, CFGEdge> copyGraph(final boolean reversed) {
 
-            Graph<CFGVertex, CFGEdge> graphClone = GraphTypeBuilder
-                    .<CFGVertex, DefaultEdge>directed().allowingMultipleEdges(true).allowingSelfLoops(true)
-                    .edgeClass(CFGEdge.class).buildGraph();
+        final Graph<CFGVertex, CFGEdge> copy = createGraph();
 
-            Set<CFGVertex> vertices = graph.vertexSet();
-            Set<CFGEdge> edges = graph.edgeSet();
+        for (CFGVertex vertex : graph.vertexSet()) {
+            copy.addVertex(vertex);
+        }
 
-            for (CFGVertex vertex : vertices) {
-                graphClone.addVertex(vertex.clone());
+        for (CFGEdge edge : graph.edgeSet()) {
+            final CFGVertex source = graph.getEdgeSource(edge);
+            final CFGVertex target = graph.getEdgeTarget(edge);
+            if (reversed) {
+                copy.addEdge(target, source);
+            } else {
+                copy.addEdge(source, target);
             }
+        }
 
-            for (CFGEdge edge : edges) {
-                graphClone.addEdge(edge.getSource().clone(), edge.getTarget().clone());
-            }
+        return copy;
+    }
 
-            cloneCFG.invokeVertices = new HashSet<>(this.invokeVertices);
-            cloneCFG.entry = this.entry.clone();
-            cloneCFG.exit = this.exit.clone();
-            cloneCFG.graph = graphClone;
-            return cloneCFG;
+    /**
+     * Creates a snapshot of this CFG that shares the vertices, statements and all other fields except the
+     * adjacency and the set of invoke vertices with this CFG.
+     *
+     * @param reversed Whether the direction of the edges should be reversed.
+     * @return Returns the snapshot.
+     */
+    private BaseCFG snapshot(final boolean reversed) {
+        try {
+            BaseCFG snapshot = (BaseCFG) super.clone();
+            snapshot.invokeVertices = new HashSet<>(this.invokeVertices);
+            snapshot.graph = copyGraph(reversed);
+            return snapshot;
         } catch (CloneNotSupportedException e) {
             throw new IllegalStateException("Failed to clone CFG!", e);
         }
     }
 
+    /**
+     * Materializes the given view of this CFG into a modifiable CFG of the same type as this CFG. Like a snapshot,
+     * the CFG shares the vertices and all other fields with this CFG, but its adjacency, entry and exit are those of
+     * the view. The entry and exit are added to the adjacency if the view doesn't contain them.
+     *
+     * @param view The view of this CFG.
+     * @return Returns the materialized view.
+     */
+    BaseCFG materialize(final BaseCFG view) {
+        try {
+            BaseCFG copy = (BaseCFG) super.clone();
+            copy.graph = view.copyGraph(false);
+            copy.entry = view.getEntry();
+            copy.exit = view.getExit();
+            copy.graph.addVertex(copy.entry);
+            copy.graph.addVertex(copy.exit);
+            copy.invokeVertices = invokeVertices.stream()
+                    .filter(copy.graph::containsVertex)
+                    .collect(Collectors.toCollection(HashSet::new));
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("Failed to materialize view of CFG!", e);
+        }
+    }
+
+    /**
+     * Copies the graph. The vertices and statements are shared with the copy, only the edges are duplicated.
+     *
+     * @return Returns a copy of the graph.
+     */
+    @SuppressWarnings("unused")
+    public abstract BaseCFG copy();
+
+    /**
+     * Clones the CFG. The vertices and statements are shared with the clone, only the edges and the set of invoke
+     * vertices are duplicated, thus adding or removing vertices and edges doesn't affect the original CFG.
+     *
+     * @return Returns the cloned CFG.
+     */
+    public BaseCFG clone() {
+        LOGGER.debug("Cloning CFG");
+        return snapshot(false);
+    }
+
     @Override
     public int compareTo(BaseCFG o) {
         return this.methodName.compareTo(o.methodName);
@@ -0,0 +1,362 @@
+package de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Precomputes the distances of all vertices towards many targets, by default all branches of a CFG. Instead of a
+ * backwards BFS per target, the targets are processed in batches of 64, where a single backwards BFS propagates
+ * the reached targets of each vertex as the bits of a {@code long} mask, and the batches are processed in parallel.
+ * The distances are stored quantized in a vertex x target matrix, either on the heap or in a memory-mapped file,
+ * such that any query 'distance from vertex to target' is a single look up and the distances of a vertex towards
+ * all targets are stored consecutively.
+ *
+ * A cell holds the distance plus one, or 0 if the target is not reachable, hence a freshly allocated matrix denotes
+ * that no target is reachable at all. Distances exceeding the precision of the matrix are clamped to
+ * {@link #getMaxDistance()}.
+ */
+public final class BranchDistanceMatrix {
+
+    private static final Logger LOGGER = LogManager.getLogger(BranchDistanceMatrix.class);
+
+    // the number of targets processed by a single BFS
+    private static final int BATCH_SIZE = Long.SIZE;
+
+    // the maximal size of a single buffer holding consecutive rows of the matrix
+    private static final int MAX_CHUNK_SIZE = 1 << 30;
+
+    /**
+     * The precision of the stored distances.
+     */
+    public enum Precision {
+        // one byte per distance, distances up to 254
+        BYTE(Byte.BYTES),
+        // two bytes per distance, distances up to 65534
+        SHORT(Short.BYTES);
+
+        private final int bytes;
+
+        Precision(final int bytes) {
+            this.bytes = bytes;
+        }
+
+        /**
+         * Returns the largest distance that can be stored exactly.
+         *
+         * @return Returns the largest distance that can be stored exactly.
+         */
+        public int getMaxDistance() {
+            return (1 << (Byte.SIZE * bytes)) - 2;
+        }
+    }
+
+    private final List<CFGVertex> targets;
+
+    private final Map<CFGVertex, Integer> targetIds;
+
+    // the vertices indexed by their id
+    private final CFGVertex[] vertices;
+
+    private final Map<CFGVertex, Integer> ids;
+
+    private final Precision precision;
+
+    // the number of rows, i.e. vertices, stored per chunk
+    private final int rowsPerChunk;
+
+    private final ByteBuffer[] chunks;
+
+    /**
+     * Computes the distances of all vertices towards all branches of the given CFG.
+     *
+     * @param cfg The CFG.
+     * @param precision The precision of the stored distances.
+     * @param mappedFile The file backing the matrix, or {@code null} if the matrix should be kept on the heap.
+     */
+    public BranchDistanceMatrix(final BaseCFG cfg, final Precision precision, final Path mappedFile) {
+        this(cfg, cfg.getBranches(), precision, mappedFile);
+    }
+
+    /**
+     * Computes the distances of all vertices towards the given targets.
+     *
+     * @param cfg The CFG.
+     * @param targets The target vertices, e.g. the uncovered branches.
+     * @param precision The precision of the stored distances.
+     * @param mappedFile The file backing the matrix, or {@code null} if the matrix should be kept on the heap.
+     */
+    public BranchDistanceMatrix(final BaseCFG cfg, final List<CFGVertex> targets, final Precision precision,
+                                final Path mappedFile) {
+
+        this.targets = List.copyOf(targets);
+        this.precision = precision;
+        this.vertices = cfg.getVertices().toArray(new CFGVertex[0]);
+        this.ids = new HashMap<>(vertices.length * 4 / 3 + 1);
+        for (int id = 0; id < vertices.length; id++) {
+            ids.put(vertices[id], id);
+        }
+
+        this.targetIds = new HashMap<>(this.targets.size() * 4 / 3 + 1);
+        for (int target = 0; target < this.targets.size(); target++) {
+            if (!ids.containsKey(this.targets.get(target))) {
+                throw new IllegalArgumentException("Target not part of the graph: " + this.targets.get(target));
+            }
+            targetIds.putIfAbsent(this.targets.get(target), target);
+        }
+
+        final long rowSize = Math.max((long) this.targets.size() * precision.bytes, 1);
+        if (rowSize > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Too many targets: " + this.targets.size());
+        }
+        this.rowsPerChunk = (int) (MAX_CHUNK_SIZE / rowSize);
+        this.chunks = allocate(mappedFile, rowSize);
+
+        final long start = System.currentTimeMillis();
+        compute(cfg);
+        LOGGER.info("Computed the distances of " + vertices.length + " vertices towards " + this.targets.size()
+                + " targets in " + (System.currentTimeMillis() - start) + "ms.");
+    }
+
+    private ByteBuffer[] allocate(final Path mappedFile, final long rowSize) {
+
+        final ByteBuffer[] chunks = new ByteBuffer[Math.max((vertices.length + rowsPerChunk - 1) / rowsPerChunk, 1)];
+
+        try (FileChannel channel = mappedFile == null ? null : FileChannel.open(mappedFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            for (int chunk = 0; chunk < chunks.length; chunk++) {
+                final int rows = Math.min(rowsPerChunk, vertices.length - chunk * rowsPerChunk);
+                final int size = (int) (Math.max(rows, 0) * rowSize);
+                chunks[chunk] = channel == null ? ByteBuffer.allocate(size)
+                        : channel.map(FileChannel.MapMode.READ_WRITE, (long) chunk * rowsPerChunk * rowSize, size);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return chunks;
+    }
+
+    /**
+     * Performs the backwards BFS of each batch of targets in parallel.
+     *
+     * @param cfg The CFG.
+     */
+    private void compute(final BaseCFG cfg) {
+
+        // the predecessors of vertex i are stored in predecessors[offsets[i], offsets[i+1])
+        final BaseCFG.Adjacency adjacency = cfg.getAdjacency(vertices, ids, false);
+        final int[] offsets = adjacency.getOffsets();
+        final int[] predecessors = adjacency.getTargets();
+
+        final int batches = (targets.size() + BATCH_SIZE - 1) / BATCH_SIZE;
+        IntStream.range(0, batches).parallel().forEach(batch -> computeBatch(batch * BATCH_SIZE, offsets,
+                predecessors));
+    }
+
+    /**
+     * Performs a single backwards BFS from up to 64 targets at once. Each vertex carries a mask of the targets it
+     * has already reached, and a level of the BFS propagates the newly reached targets of the frontier vertices
+     * to their predecessors.
+     *
+     * @param first The index of the first target of the batch.
+     * @param offsets The offsets of the predecessors of each vertex.
+     * @param predecessors The predecessors of all vertices.
+     */
+    private void computeBatch(final int first, final int[] offsets, final int[] predecessors) {
+
+        final int size = Math.min(BATCH_SIZE, targets.size() - first);
+
+        final long[] reached = new long[vertices.length];
+        long[] frontier = new long[vertices.length];
+        long[] next = new long[vertices.length];
+
+        int[] active = new int[vertices.length];
+        int[] nextActive = new int[vertices.length];
+        int activeCount = 0;
+
+        for (int bit = 0; bit < size; bit++) {
+            final int vertex = ids.get(targets.get(first + bit));
+            if (frontier[vertex] == 0) {
+                active[activeCount++] = vertex;
+            }
+            frontier[vertex] |= 1L << bit;
+            reached[vertex] |= 1L << bit;
+            store(vertex, first + bit, 0);
+        }
+
+        for (int distance = 1; activeCount > 0; distance++) {
+
+            int nextCount = 0;
+
+            for (int i = 0; i < activeCount; i++) {
+                final int vertex = active[i];
+                final long mask = frontier[vertex];
+                frontier[vertex] = 0;
+                for (int p = offsets[vertex]; p < offsets[vertex + 1]; p++) {
+                    final int predecessor = predecessors[p];
+                    final long reachedNow = mask & ~reached[predecessor];
+                    if (reachedNow != 0) {
+                        if (next[predecessor] == 0) {
+                            nextActive[nextCount++] = predecessor;
+                        }
+                        next[predecessor] |= reachedNow;
+                    }
+                }
+            }
+
+            for (int i = 0; i < nextCount; i++) {
+                final int vertex = nextActive[i];
+                long mask = next[vertex];
+                reached[vertex] |= mask;
+                while (mask != 0) {
+                    store(vertex, first + Long.numberOfTrailingZeros(mask), distance);
+                    mask &= mask - 1;
+                }
+            }
+
+            // the vertices reached in this level form the next frontier
+            final long[] swapMasks = frontier;
+            frontier = next;
+            next = swapMasks;
+            final int[] swapActive = active;
+            active = nextActive;
+            nextActive = swapActive;
+            activeCount = nextCount;
+        }
+    }
+
+    private void store(final int vertex, final int target, final int distance) {
+        final ByteBuffer chunk = chunks[vertex / rowsPerChunk];
+        final int index = cellIndex(vertex, target);
+        final int value = Math.min(distance, precision.getMaxDistance()) + 1;
+        if (precision == Precision.BYTE) {
+            chunk.put(index, (byte) value);
+        } else {
+            chunk.putShort(index, (short) value);
+        }
+    }
+
+    private int load(final int vertex, final int target) {
+        final ByteBuffer chunk = chunks[vertex / rowsPerChunk];
+        final int index = cellIndex(vertex, target);
+        final int value = precision == Precision.BYTE
+                ? Byte.toUnsignedInt(chunk.get(index)) : Short.toUnsignedInt(chunk.getShort(index));
+        return value - 1;
+    }
+
+    private int cellIndex(final int vertex, final int target) {
+        return ((vertex % rowsPerChunk) * targets.size() + target) * precision.bytes;
+    }
+
+    private int vertexId(final CFGVertex vertex) {
+        final Integer id = ids.get(vertex);
+        if (id == null) {
+            throw new IllegalArgumentException("Vertex not part of the graph: " + vertex);
+        }
+        return id;
+    }
+
+    private int targetId(final CFGVertex target) {
+        final Integer id = targetIds.get(target);
+        if (id == null) {
+            throw new IllegalArgumentException("Not a target: " + target);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the distance from the given vertex to the given target.
+     *
+     * @param vertex The source vertex.
+     * @param target The target vertex.
+     * @return Returns the shortest distance, which is clamped to {@link #getMaxDistance()}, or {@code -1} if the
+     *         target is not reachable.
+     */
+    public int getDistance(final CFGVertex vertex, final CFGVertex target) {
+        return load(vertexId(vertex), targetId(target));
+    }
+
+    /**
+     * Returns the distances from the given vertex to all targets.
+     *
+     * @param vertex The source vertex.
+     * @return Returns the distance towards each target in the order of {@link #getTargets()}, where {@code -1}
+     *         denotes an unreachable target.
+     */
+    public int[] getDistances(final CFGVertex vertex) {
+        final int id = vertexId(vertex);
+        final int[] distances = new int[targets.size()];
+        for (int target = 0; target < distances.length; target++) {
+            distances[target] = load(id, target);
+        }
+        return distances;
+    }
+
+    /**
+     * Returns the minimal distance from any of the given vertices, e.g. the vertices visited by a test case, to
+     * each target.
+     *
+     * @param sources The source vertices.
+     * @return Returns the minimal distance towards each target in the order of {@link #getTargets()}, where
+     *         {@code -1} denotes a target that is not reachable from any source vertex.
+     */
+    public int[] getMinDistances(final Collection<CFGVertex> sources) {
+
+        final int[] distances = new int[targets.size()];
+        Arrays.fill(distances, -1);
+
+        for (CFGVertex source : sources) {
+            final int id = vertexId(source);
+            for (int target = 0; target < distances.length; target++) {
+                final int distance = load(id, target);
+                if (distance != -1 && (distances[target] == -1 || distance < distances[target])) {
+                    distances[target] = distance;
+                }
+            }
+        }
+
+        return distances;
+    }
+
+    /**
+     * Checks whether the given vertex is a target of the matrix.
+     *
+     * @param vertex The vertex.
+     * @return Returns {@code true} if the given vertex is a target, otherwise {@code false}.
+     */
+    public boolean isTarget(final CFGVertex vertex) {
+        return targetIds.containsKey(vertex);
+    }
+
+    /**
+     * Returns the targets of the matrix.
+     *
+     * @return Returns the unmodifiable list of targets.
+     */
+    public List<CFGVertex> getTargets() {
+        return Collections.unmodifiableList(targets);
+    }
+
+    /**
+     * Returns the largest distance that is stored exactly, larger distances are clamped to this value.
+     *
+     * @return Returns the largest exact distance.
+     */
+    public int getMaxDistance() {
+        return precision.getMaxDistance();
+    }
+}
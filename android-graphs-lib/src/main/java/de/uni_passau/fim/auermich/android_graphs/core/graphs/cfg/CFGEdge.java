@@ -9,14 +9,30 @@ import java.util.Objects;
  */
 public class CFGEdge extends Edge {
 
+    /*
+     * The source and target of an edge that is created on demand by a graph not maintained by JGraphT, see
+     * OffHeapGraph. Otherwise, JGraphT keeps track of the source and target of the edge.
+     */
+    private final CFGVertex source;
+    private final CFGVertex target;
+
+    public CFGEdge() {
+        this(null, null);
+    }
+
+    CFGEdge(CFGVertex source, CFGVertex target) {
+        this.source = source;
+        this.target = target;
+    }
+
     @Override
     public CFGVertex getSource() {
-        return (CFGVertex) super.getSource();
+        return source != null ? source : (CFGVertex) super.getSource();
     }
 
     @Override
     public CFGVertex getTarget() {
-        return (CFGVertex) super.getTarget();
+        return target != null ? target : (CFGVertex) super.getTarget();
     }
 
     @Override
@@ -7,11 +7,12 @@ import de.uni_passau.fim.auermich.android_graphs.core.statements.BlockStatement;
 import de.uni_passau.fim.auermich.android_graphs.core.statements.ReturnStatement;
 import de.uni_passau.fim.auermich.android_graphs.core.statements.Statement;
 import de.uni_passau.fim.auermich.android_graphs.core.utility.InstructionUtils;
+import de.uni_passau.fim.auermich.android_graphs.core.utility.SymbolTable;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.List;
-import java.util.Objects;
+import java.util.Optional;
 import java.util.stream.Stream;
 
 /**
@@ -21,8 +22,27 @@ public class CFGVertex extends Vertex implements Comparable<CFGVertex>, Cloneabl
 
     private static final Logger LOGGER = LogManager.getLogger(CFGVertex.class);
 
+    // the bits of a statement key that encode the vertex type
+    private static final int TYPE_SHIFT = 28;
+
+    // marks the key of a virtual return statement, which shares its index with the preceding invoke statement
+    private static final int RETURN_FLAG = 1 << 27;
+
     private final VertexType type;
 
+    /*
+     * The identity of the vertex, i.e. the method id in the upper 32 bits and the vertex type plus the key of the
+     * (first) statement in the lower 32 bits. Since basic blocks never overlap, a block is identified by its first
+     * statement together with its last statement, which is kept separately. Both are computed once at creation,
+     * hence hashing and comparing a vertex doesn't depend on the size of the underlying basic block.
+     */
+    private final long id;
+
+    // the key of the last statement of a basic block, 0 for any other vertex
+    private final int lastKey;
+
+    private final int hash;
+
     private Statement statement;
 
     private final boolean isBranchVertex;
@@ -37,6 +57,34 @@ public class CFGVertex extends Vertex implements Comparable<CFGVertex>, Cloneabl
         isBranchVertex = computeIsBranchVertex(statement);
         isIfVertex = computeIsIfVertex(statement);
         isSwitchVertex = computeIsSwitchVertex(statement);
+        id = ((long) statement.getMethodId() << 32)
+                | (((long) type.ordinal() << TYPE_SHIFT | computeKey(statement)) & 0xFFFFFFFFL);
+        lastKey = type == VertexType.BLOCK_VERTEX ? computeKey(((BlockStatement) statement).getLastStatement()) : 0;
+        hash = 31 * Long.hashCode(id) + lastKey;
+    }
+
+    /**
+     * Computes the key of a statement, which is unique within the statement's method. A basic statement is keyed
+     * by its instruction index, a virtual return statement by the index of the related invoke instruction and a
+     * basic block by its first statement.
+     *
+     * @param statement The statement.
+     * @return Returns the key of the statement.
+     */
+    private static int computeKey(final Statement statement) {
+        switch (statement.getType()) {
+            case ENTRY_STATEMENT:
+            case EXIT_STATEMENT:
+                return 0;
+            case RETURN_STATEMENT:
+                return RETURN_FLAG | ((ReturnStatement) statement).getId();
+            case BASIC_STATEMENT:
+                return ((BasicStatement) statement).getInstructionIndex();
+            case BLOCK_STATEMENT:
+                return computeKey(((BlockStatement) statement).getFirstStatement());
+            default:
+                throw new UnsupportedOperationException("Statement type not supported yet!");
+        }
     }
 
     @Override
@@ -49,10 +97,18 @@ public class CFGVertex extends Vertex implements Comparable<CFGVertex>, Cloneabl
         }
     }
 
+    /**
+     * Orders vertices by method id, vertex type and position within the method. The order is consistent with
+     * {@link #equals(Object)}.
+     *
+     * @param other The vertex to compare with.
+     * @return Returns a negative integer, zero or a positive integer if this vertex is less than, equal to or
+     *          greater than the given vertex.
+     */
     @Override
     public int compareTo(CFGVertex other) {
-        // TODO: find better comparison, required by MultiMap implementation
-        return Integer.compare(this.hashCode(), other.hashCode());
+        int cmp = Long.compare(id, other.id);
+        return cmp != 0 ? cmp : Integer.compare(lastKey, other.lastKey);
     }
 
     /**
@@ -66,6 +122,22 @@ public class CFGVertex extends Vertex implements Comparable<CFGVertex>, Cloneabl
      *          instruction, otherwise {@code false}.
      */
     public boolean containsInstruction(String method, int instructionID) {
+        final int methodId = SymbolTable.lookUpMethod(method);
+        // a method that has never been interned can't be part of any statement
+        return methodId != -1 && containsInstruction(methodId, instructionID);
+    }
+
+    /**
+     * Checks whether a vertex represents a certain instruction. If the
+     * vertex represents a basic block, each statement inside the block
+     * is inspected.
+     *
+     * @param methodId The id of the method in the symbol table. (matching criteria)
+     * @param instructionID The instruction id. (matching criteria)
+     * @return Returns {@code true} if the vertex represents a certain
+     *          instruction, otherwise {@code false}.
+     */
+    public boolean containsInstruction(int methodId, int instructionID) {
 
         switch (statement.getType()) {
             case ENTRY_STATEMENT:
@@ -83,7 +155,7 @@ public class CFGVertex extends Vertex implements Comparable<CFGVertex>, Cloneabl
                 return false;
             case BASIC_STATEMENT:
                 BasicStatement stmt = (BasicStatement) statement;
-                return statement.getMethod().equals(method)
+                return statement.getMethodId() == methodId
                         && stmt.getInstructionIndex() == instructionID;
             case BLOCK_STATEMENT:
                 // inspect each single statement in the basic block
@@ -93,13 +165,13 @@ public class CFGVertex extends Vertex implements Comparable<CFGVertex>, Cloneabl
                 for (Statement statement : stmts) {
                     if (statement instanceof BasicStatement) {
                         BasicStatement basicStatement = (BasicStatement) statement;
-                        if (basicStatement.getMethod().equals(method)
+                        if (basicStatement.getMethodId() == methodId
                                 && basicStatement.getInstructionIndex() == instructionID) {
                             return true;
                         }
                     } else if (statement instanceof ReturnStatement) {
                         ReturnStatement returnStatement = (ReturnStatement) statement;
-                        if (returnStatement.getMethod().equals(method)
+                        if (returnStatement.getMethodId() == methodId
                                 && returnStatement.getId() == instructionID) {
                             // See the comment for the non-nested return statement.
                             // return true;
@@ -257,6 +329,59 @@ public class CFGVertex extends Vertex implements Comparable<CFGVertex>, Cloneabl
         return statement.getMethod();
     }
 
+    /**
+     * Returns the id of the method the vertex's statement belongs to.
+     *
+     * @return Returns the method id in the symbol table.
+     */
+    public int getMethodId() {
+        return statement.getMethodId();
+    }
+
+    /**
+     * Converts the vertex back into a trace that can be passed to {@link BaseCFG#lookUpVertex(String)}, i.e.
+     * 'method->entry', 'method->exit' or 'method->index' for a vertex referring to an actual instruction.
+     *
+     * @return Returns the trace of the vertex or an empty optional for virtual return vertices, which can't be
+     *         looked up.
+     */
+    public Optional<String> getTrace() {
+
+        if (isEntryVertex()) {
+            return Optional.of(getMethod() + "->entry");
+        } else if (isExitVertex()) {
+            return Optional.of(getMethod() + "->exit");
+        }
+
+        Statement statement = this.statement;
+
+        if (statement instanceof BlockStatement) {
+            // a block is identified by its first actual instruction
+            statement = ((BlockStatement) statement).getStatements().stream()
+                    .filter(stmt -> stmt instanceof BasicStatement)
+                    .findFirst()
+                    .orElse(statement);
+        }
+
+        if (statement instanceof BasicStatement) {
+            return Optional.of(getMethod() + "->" + ((BasicStatement) statement).getInstructionIndex());
+        } else {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Returns the id of the vertex. The id is derived from the method, the vertex type and the position of the
+     * (first) statement within the method, hence equal vertices share the same id. Basic blocks starting at the
+     * same statement, e.g. an original block and the first block after splitting it at an invoke, share the id as
+     * well but are distinguished by their last statement.
+     *
+     * @return Returns the vertex id.
+     */
+    public long getId() {
+        return id;
+    }
+
     public Statement getStatement() {
         return statement;
     }
@@ -285,18 +410,13 @@ public class CFGVertex extends Vertex implements Comparable<CFGVertex>, Cloneabl
 
         CFGVertex other = (CFGVertex) o;
 
-        if (statement.getType() != other.statement.getType()
-            || !this.getMethod().equals(other.getMethod())) {
-            return false;
-        }
-
-        // unique method signature + instruction id
-        return this.statement.equals(other.statement);
+        // unique method + vertex type + first (and last) statement
+        return this.id == other.id && this.lastKey == other.lastKey;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(statement);
+        return hash;
     }
 
     public CFGVertex clone() {
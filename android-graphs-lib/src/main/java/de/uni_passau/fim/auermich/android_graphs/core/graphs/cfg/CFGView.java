@@ -0,0 +1,109 @@
+package de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg;
+
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.GraphType;
+import de.uni_passau.fim.auermich.android_graphs.core.statements.EntryStatement;
+import de.uni_passau.fim.auermich.android_graphs.core.statements.ExitStatement;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.AsUnmodifiableGraph;
+import org.jgrapht.graph.EdgeReversedGraph;
+import org.jgrapht.graph.MaskSubgraph;
+
+import java.util.function.Predicate;
+
+/**
+ * A read-only view of a CFG that is backed by the adjacency of the viewed CFG, i.e. neither vertices nor edges are
+ * copied and any change to the viewed CFG is visible through the view. A view can be an edge-reversed graph, an
+ * induced subgraph or the intra-procedural part of a single method. Modifying a view raises an
+ * {@link UnsupportedOperationException}, {@link #copy()} materializes a view into a modifiable graph.
+ */
+public final class CFGView extends BaseCFG {
+
+    // the viewed CFG
+    private final BaseCFG cfg;
+
+    private CFGView(final BaseCFG cfg, final Graph<CFGVertex, CFGEdge> view, final CFGVertex entry,
+                    final CFGVertex exit) {
+        super(cfg.getMethodName(), new AsUnmodifiableGraph<>(view), entry, exit);
+        this.cfg = cfg;
+    }
+
+    /**
+     * Creates an edge-reversed view of the given CFG, where the entry and exit are swapped.
+     *
+     * @param cfg The CFG to be viewed.
+     * @return Returns the edge-reversed view.
+     */
+    static CFGView reversed(final BaseCFG cfg) {
+        return new CFGView(cfg, new EdgeReversedGraph<>(cfg.graph), cfg.getExit(), cfg.getEntry());
+    }
+
+    /**
+     * Creates a view of the subgraph of the given CFG that is induced by the vertices satisfying the given predicate.
+     * The entry and exit of the view are the entry and exit of the given CFG, which might not be part of the view.
+     *
+     * @param cfg The CFG to be viewed.
+     * @param vertexFilter Decides which vertices belong to the subgraph.
+     * @return Returns the induced subgraph view.
+     */
+    static CFGView induced(final BaseCFG cfg, final Predicate<CFGVertex> vertexFilter) {
+        return new CFGView(cfg, new MaskSubgraph<>(cfg.graph, vertexFilter.negate(), edge -> false),
+                cfg.getEntry(), cfg.getExit());
+    }
+
+    /**
+     * Creates a view of the vertices and edges of the given CFG that belong to the given method.
+     *
+     * @param cfg The CFG to be viewed.
+     * @param method The fully-qualified method name.
+     * @return Returns the view of the given method.
+     */
+    static CFGView method(final BaseCFG cfg, final String method) {
+        return new CFGView(cfg, new MaskSubgraph<>(cfg.graph, vertex -> !method.equals(vertex.getMethod()),
+                edge -> false), new CFGVertex(new EntryStatement(method)), new CFGVertex(new ExitStatement(method)));
+    }
+
+    /**
+     * Looks up the vertex described by the given trace in the viewed CFG.
+     *
+     * @param trace The trace describing the vertex, i.e. className->methodName->(entry|exit|instructionIndex).
+     * @return Returns the vertex corresponding to the given trace, or {@code null} if the vertex is not part of
+     *          the view.
+     */
+    @Override
+    public CFGVertex lookUpVertex(final String trace) {
+        final CFGVertex vertex = cfg.lookUpVertex(trace);
+        return vertex != null && containsVertex(vertex) ? vertex : null;
+    }
+
+    @Override
+    public GraphType getGraphType() {
+        return cfg.getGraphType();
+    }
+
+    /**
+     * Materializes the view into a modifiable CFG of the viewed type, whose edges, entry and exit are those of the
+     * view. The vertices are shared with the viewed CFG.
+     *
+     * @return Returns a modifiable copy of the view.
+     */
+    @Override
+    public BaseCFG copy() {
+        return cfg.materialize(this);
+    }
+
+    /**
+     * Materializes the view, see {@link #copy()}, since a modifiable view wouldn't be backed by the viewed CFG.
+     *
+     * @return Returns a modifiable copy of the view.
+     */
+    @Override
+    public BaseCFG clone() {
+        return copy();
+    }
+
+    @Override
+    BaseCFG materialize(final BaseCFG view) {
+        // a view of a view is materialized into the type of the innermost viewed CFG
+        return cfg.materialize(view);
+    }
+}
@@ -0,0 +1,300 @@
+package de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg;
+
+import de.uni_passau.fim.auermich.android_graphs.core.utility.GraphExporter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Aggregates the coverage of many test runs over a CFG. The traces files of the runs are streamed line by line, each
+ * trace is mapped to its vertex and the hits are accumulated per vertex. Since the traces of different runs largely
+ * overlap, each distinct trace is looked up in the graph only once. The aggregated hits can be summarized per method
+ * or component and drawn as a heatmap, either as a single DOT file or partition-wise.
+ *
+ * Note that this class is not thread-safe.
+ */
+public final class CoverageHeatmap {
+
+    private static final Logger LOGGER = LogManager.getLogger(CoverageHeatmap.class);
+
+    // the color of rarely and frequently hit vertices
+    private static final int[] COLD = {255, 255, 178};
+    private static final int[] HOT = {189, 0, 38};
+
+    private final BaseCFG cfg;
+
+    // the vertices indexed by their id
+    private final CFGVertex[] vertices;
+
+    private final Map<CFGVertex, Integer> ids;
+
+    // the hits per vertex id
+    private final int[] hits;
+
+    // caches the vertex id of each trace, -1 if the trace doesn't map to a vertex
+    private final Map<String, Integer> traceIds = new HashMap<>();
+
+    private int runs = 0;
+
+    private long unmappedTraces = 0;
+
+    /**
+     * Creates an empty heatmap over the given CFG.
+     *
+     * @param cfg The CFG the traces refer to.
+     */
+    public CoverageHeatmap(final BaseCFG cfg) {
+        this.cfg = cfg;
+        this.vertices = cfg.graph.vertexSet().toArray(new CFGVertex[0]);
+        this.ids = new HashMap<>(vertices.length * 4 / 3 + 1);
+        for (int id = 0; id < vertices.length; id++) {
+            ids.put(vertices[id], id);
+        }
+        this.hits = new int[vertices.length];
+    }
+
+    /**
+     * Adds the traces of the given traces files, where each file represents a single run.
+     *
+     * @param traceFiles The traces files, which may be gzip-compressed.
+     */
+    public void addTraceFiles(final Collection<Path> traceFiles) {
+        for (Path traceFile : traceFiles) {
+            addTraceFile(traceFile);
+        }
+        LOGGER.info("Aggregated " + runs + " runs, " + unmappedTraces + " traces could not be mapped.");
+    }
+
+    /**
+     * Adds the traces of a single run. The file contains a trace per line and is considered gzip-compressed if its
+     * name ends with '.gz'.
+     *
+     * @param traceFile The traces file.
+     */
+    public void addTraceFile(final Path traceFile) {
+        try (InputStream stream = traceFile.toString().endsWith(".gz")
+                ? new GZIPInputStream(Files.newInputStream(traceFile)) : Files.newInputStream(traceFile);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            String trace;
+            while ((trace = reader.readLine()) != null) {
+                addTrace(trace.trim());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        runs++;
+    }
+
+    private void addTrace(final String trace) {
+
+        if (trace.isEmpty()) {
+            return;
+        }
+
+        final int id = traceIds.computeIfAbsent(trace, this::lookUpId);
+
+        if (id == -1) {
+            unmappedTraces++;
+        } else {
+            hits[id]++;
+        }
+    }
+
+    private int lookUpId(final String trace) {
+        try {
+            final CFGVertex vertex = cfg.lookUpVertex(trace);
+            final Integer id = vertex != null ? ids.get(vertex) : null;
+            return id != null ? id : -1;
+        } catch (IllegalArgumentException e) {
+            LOGGER.debug("Couldn't map trace: " + trace);
+            return -1;
+        }
+    }
+
+    /**
+     * Returns the accumulated hits of the given vertex.
+     *
+     * @param vertex The vertex.
+     * @return Returns how often the vertex has been hit over all runs.
+     */
+    public int getHits(final CFGVertex vertex) {
+        final Integer id = ids.get(vertex);
+        if (id == null) {
+            throw new IllegalArgumentException("Vertex not part of the graph: " + vertex);
+        }
+        return hits[id];
+    }
+
+    /**
+     * Returns the number of aggregated runs.
+     *
+     * @return Returns the number of aggregated traces files.
+     */
+    public int getRuns() {
+        return runs;
+    }
+
+    /**
+     * Returns the number of traces that couldn't be mapped to a vertex.
+     *
+     * @return Returns the number of unmapped traces.
+     */
+    public long getUnmappedTraces() {
+        return unmappedTraces;
+    }
+
+    /**
+     * Summarizes the coverage per partition, e.g. per method or per component.
+     *
+     * @param partitioning How the vertices should be grouped.
+     * @return Returns the coverage summary of each partition sorted by the partition name.
+     */
+    public SortedMap<String, Summary> summarize(final BaseCFG.Partitioning partitioning) {
+
+        final Function<CFGVertex, String> partitioner = PartitionedRenderer.partitioner(partitioning);
+        final SortedMap<String, Summary> summaries = new TreeMap<>();
+
+        for (int id = 0; id < vertices.length; id++) {
+            summaries.computeIfAbsent(partitioner.apply(vertices[id]), key -> new Summary()).add(hits[id]);
+        }
+
+        return summaries;
+    }
+
+    /**
+     * Writes the coverage summary per partition as CSV file.
+     *
+     * @param output The path of the CSV file.
+     * @param partitioning How the vertices should be grouped.
+     */
+    public void writeSummary(final Path output, final BaseCFG.Partitioning partitioning) {
+        try (BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            writer.write("partition,vertices,covered,coverage,hits\n");
+            for (Map.Entry<String, Summary> entry : summarize(partitioning).entrySet()) {
+                final Summary summary = entry.getValue();
+                writer.write('"' + entry.getKey().replace("\"", "\"\"") + "\"," + summary.getVertices() + ","
+                        + summary.getCoveredVertices() + "," + summary.getCoverage() + "," + summary.getHits() + "\n");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Exports the heatmap as a DOT file, where the vertices are filled according to their hits on a logarithmic
+     * scale. Vertices are referred to by numeric ids and labelled by their string representation.
+     *
+     * @param output The path of the DOT file.
+     * @param compress Whether the exported files should be gzip-compressed.
+     */
+    public void exportDOT(final Path output, final boolean compress) {
+
+        final Map<CFGVertex, String> fillColors = fillColors();
+        final GraphExporter<CFGVertex, CFGEdge> exporter = new GraphExporter<>(cfg.graph, CFGVertex::toString);
+        exporter.setDOTAttributeProvider(vertex -> {
+            final String color = fillColors.get(vertex);
+            return color == null ? "" : "style=filled, fillcolor=\"" + color + "\", tooltip=\""
+                    + hits[ids.get(vertex)] + "\"";
+        });
+        exporter.export(output, GraphExporter.Format.DOT, compress);
+    }
+
+    /**
+     * Draws the heatmap partition-wise, where each partition is rendered in parallel to its own file.
+     *
+     * @param outputDir The output directory of the partitions.
+     * @param partitioning How the graph should be partitioned.
+     */
+    public void drawPartitioned(final File outputDir, final BaseCFG.Partitioning partitioning) {
+        final Map<CFGVertex, String> fillColors = fillColors();
+        new PartitionedRenderer(cfg.graph, PartitionedRenderer.partitioner(partitioning))
+                .render(outputDir, fillColors.keySet(), Collections.emptySet(), fillColors);
+    }
+
+    /**
+     * Assigns each hit vertex a color between yellow (rarely hit) and red (frequently hit) on a logarithmic scale.
+     *
+     * @return Returns the fill color of the hit vertices.
+     */
+    private Map<CFGVertex, String> fillColors() {
+
+        int maxHits = 0;
+        for (int hit : hits) {
+            maxHits = Math.max(maxHits, hit);
+        }
+
+        final double scale = Math.log1p(maxHits);
+        final Map<CFGVertex, String> fillColors = new HashMap<>();
+
+        for (int id = 0; id < vertices.length; id++) {
+            if (hits[id] > 0) {
+                final double heat = Math.log1p(hits[id]) / scale;
+                fillColors.put(vertices[id], String.format("#%02x%02x%02x", interpolate(0, heat),
+                        interpolate(1, heat), interpolate(2, heat)));
+            }
+        }
+
+        return fillColors;
+    }
+
+    private static int interpolate(final int channel, final double heat) {
+        return (int) Math.round(COLD[channel] + (HOT[channel] - COLD[channel]) * heat);
+    }
+
+    /**
+     * The coverage summary of a partition.
+     */
+    public static final class Summary {
+
+        private int vertices = 0;
+        private int coveredVertices = 0;
+        private long hits = 0;
+
+        private void add(final int vertexHits) {
+            vertices++;
+            hits += vertexHits;
+            if (vertexHits > 0) {
+                coveredVertices++;
+            }
+        }
+
+        public int getVertices() {
+            return vertices;
+        }
+
+        public int getCoveredVertices() {
+            return coveredVertices;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * Returns the fraction of covered vertices.
+         *
+         * @return Returns the vertex coverage of the partition in the range [0,1].
+         */
+        public double getCoverage() {
+            return vertices == 0 ? 0.0 : (double) coveredVertices / vertices;
+        }
+    }
+}
@@ -0,0 +1,453 @@
+package de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.stream.IntStream;
+
+/**
+ * Computes exact distances in an inter-procedural graph on two levels. On the lower level, the distances within each
+ * method are precomputed, i.e. from the portals entering a method, typically its entry and the return vertices, to
+ * all vertices of the method and from all vertices to the portals leaving the method, typically the invoke vertices
+ * and its exit. Small methods additionally keep all pairwise distances. On the upper level, the portals of all
+ * methods form an overlay graph, whose edges are the edges between methods, i.e. calls, returns and lifecycle
+ * transitions, plus a weighted shortcut from each entering to each leaving portal of the same method.
+ *
+ * The shortcuts of a method grow with the product of its entering and leaving portals, i.e. quadratically in the
+ * number of its call sites. If a method has more pairs of portals than edges, its vertices and edges are added to the
+ * overlay graph instead of the shortcuts. Hence, the overlay graph never has more edges than the graph itself, at
+ * the expense of more overlay nodes for methods with many call sites.
+ *
+ * Any path between two vertices either stays within a method or leaves the method of the source through a portal,
+ * traverses the overlay graph and enters the method of the target through a portal. Thus, a query combines the
+ * tables of the source and target method with a Dijkstra search on the overlay graph, which is much smaller than the
+ * graph itself, while the memory grows with the sum of the squared method sizes rather than quadratically in the
+ * size of the graph.
+ */
+public final class HierarchicalDistanceOracle {
+
+    private static final Logger LOGGER = LogManager.getLogger(HierarchicalDistanceOracle.class);
+
+    // methods up to this size keep all pairwise distances
+    private static final int ALL_PAIRS_LIMIT = 256;
+
+    // the largest method size whose distances fit into an unsigned short
+    private static final int MAX_METHOD_SIZE = (1 << Short.SIZE) - 2;
+
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    private final Map<CFGVertex, Integer> ids;
+
+    // the successors of vertex i are stored in successors[offsets[i], offsets[i+1]), the predecessors likewise
+    private final int[] offsets;
+    private final int[] successors;
+    private final int[] predecessorOffsets;
+    private final int[] predecessors;
+
+    // the method, the index within the method and the portal rows of each vertex, a row is -1 for no portal
+    private final int[] methodOf;
+    private final int[] localOf;
+    private final int[] inRowOf;
+    private final int[] outRowOf;
+
+    private final MethodTable[] methods;
+
+    // the overlay node of each vertex or -1 if the vertex is no portal, and the vertex of each overlay node
+    private final int[] nodeOf;
+    private final int[] vertexOf;
+
+    // the overlay edges of node i are stored in overlayTargets/overlayWeights[overlayOffsets[i], overlayOffsets[i+1])
+    private final int[] overlayOffsets;
+    private final int[] overlayTargets;
+    private final int[] overlayWeights;
+
+    /**
+     * The intra-procedural distance tables of a single method. A distance is stored plus one, or 0 if unreachable,
+     * and is read as an unsigned short.
+     */
+    private static final class MethodTable {
+
+        // the vertex ids indexed by the local index
+        private final int[] vertices;
+
+        // the local indices of the entering and leaving portals
+        private final int[] inPortals;
+        private final int[] outPortals;
+
+        // the distances from each entering portal to each vertex, one row per portal
+        private short[] fromIn;
+
+        // the distances from each vertex to each leaving portal, one row per portal
+        private short[] toOut;
+
+        // the pairwise distances of small methods, one row per source vertex, otherwise null
+        private short[] allPairs;
+
+        // whether the vertices and edges of the method replace its shortcuts in the overlay graph
+        private final boolean expanded;
+
+        private MethodTable(final int[] vertices, final int[] inPortals, final int[] outPortals,
+                            final boolean expanded) {
+            this.vertices = vertices;
+            this.inPortals = inPortals;
+            this.outPortals = outPortals;
+            this.expanded = expanded;
+        }
+
+        private int size() {
+            return vertices.length;
+        }
+    }
+
+    /**
+     * Precomputes the distance tables of all methods and the overlay graph.
+     *
+     * @param cfg The CFG, typically an InterCFG.
+     */
+    public HierarchicalDistanceOracle(final BaseCFG cfg) {
+
+        final long start = System.currentTimeMillis();
+        final CFGVertex[] vertices = cfg.getVertices().toArray(new CFGVertex[0]);
+        final int size = vertices.length;
+
+        ids = new HashMap<>(size * 4 / 3 + 1);
+        for (int id = 0; id < size; id++) {
+            ids.put(vertices[id], id);
+        }
+
+        // group the vertices by their method
+        final Map<String, List<Integer>> verticesByMethod = new LinkedHashMap<>();
+        for (int id = 0; id < size; id++) {
+            verticesByMethod.computeIfAbsent(vertices[id].getMethod(), method -> new ArrayList<>()).add(id);
+        }
+
+        methodOf = new int[size];
+        localOf = new int[size];
+        final List<List<Integer>> methodVertices = new ArrayList<>(verticesByMethod.values());
+        for (int method = 0; method < methodVertices.size(); method++) {
+            final List<Integer> local = methodVertices.get(method);
+            if (local.size() > MAX_METHOD_SIZE) {
+                throw new IllegalArgumentException("Method too large: " + vertices[local.get(0)].getMethod());
+            }
+            for (int index = 0; index < local.size(); index++) {
+                methodOf[local.get(index)] = method;
+                localOf[local.get(index)] = index;
+            }
+        }
+
+        final BaseCFG.Adjacency outgoing = cfg.getAdjacency(vertices, ids, true);
+        final BaseCFG.Adjacency incoming = cfg.getAdjacency(vertices, ids, false);
+        offsets = outgoing.getOffsets();
+        successors = outgoing.getTargets();
+        predecessorOffsets = incoming.getOffsets();
+        predecessors = incoming.getTargets();
+
+        // an edge between two methods leaves the method of its source and enters the method of its target
+        final boolean[] entering = new boolean[size];
+        final boolean[] leaving = new boolean[size];
+        final int[] intraEdges = new int[methodVertices.size()];
+        for (int id = 0; id < size; id++) {
+            for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+                if (methodOf[successors[i]] != methodOf[id]) {
+                    leaving[id] = true;
+                    entering[successors[i]] = true;
+                } else {
+                    intraEdges[methodOf[id]]++;
+                }
+            }
+        }
+
+        // the entry and exit of a method are always portals, which keeps the tables of isolated methods meaningful
+        for (int id = 0; id < size; id++) {
+            entering[id] |= vertices[id].isEntryVertex();
+            leaving[id] |= vertices[id].isExitVertex();
+        }
+
+        inRowOf = new int[size];
+        outRowOf = new int[size];
+        Arrays.fill(inRowOf, -1);
+        Arrays.fill(outRowOf, -1);
+
+        methods = new MethodTable[methodVertices.size()];
+        int expandedMethods = 0;
+        for (int method = 0; method < methods.length; method++) {
+            final int[] local = methodVertices.get(method).stream().mapToInt(Integer::intValue).toArray();
+            final int[] inPortals = portals(local, entering, inRowOf);
+            final int[] outPortals = portals(local, leaving, outRowOf);
+            final boolean expanded = (long) inPortals.length * outPortals.length > intraEdges[method];
+            methods[method] = new MethodTable(local, inPortals, outPortals, expanded);
+            expandedMethods += expanded ? 1 : 0;
+        }
+
+        IntStream.range(0, methods.length).parallel().forEach(method -> computeTables(methods[method]));
+
+        // the portals and the vertices of the expanded methods form the nodes of the overlay graph
+        nodeOf = new int[size];
+        Arrays.fill(nodeOf, -1);
+        int nodes = 0;
+        for (int id = 0; id < size; id++) {
+            if (entering[id] || leaving[id] || methods[methodOf[id]].expanded) {
+                nodeOf[id] = nodes++;
+            }
+        }
+        vertexOf = new int[nodes];
+        for (int id = 0; id < size; id++) {
+            if (nodeOf[id] != -1) {
+                vertexOf[nodeOf[id]] = id;
+            }
+        }
+
+        // count the overlay edges per node first, then fill them
+        overlayOffsets = new int[nodes + 1];
+        forEachOverlayEdge((source, target, weight) -> overlayOffsets[source + 1]++);
+        for (int node = 0; node < nodes; node++) {
+            overlayOffsets[node + 1] += overlayOffsets[node];
+        }
+        overlayTargets = new int[overlayOffsets[nodes]];
+        overlayWeights = new int[overlayOffsets[nodes]];
+        final int[] fill = Arrays.copyOf(overlayOffsets, nodes);
+        forEachOverlayEdge((source, target, weight) -> {
+            overlayTargets[fill[source]] = target;
+            overlayWeights[fill[source]++] = weight;
+        });
+
+        long tableSize = 0;
+        for (MethodTable table : methods) {
+            tableSize += table.fromIn.length + table.toOut.length;
+            tableSize += table.allPairs != null ? table.allPairs.length : 0;
+        }
+
+        LOGGER.info("Computed the distance tables of " + methods.length + " methods (" + tableSize + " entries) and "
+                + "an overlay graph of " + nodes + " nodes and " + overlayTargets.length + " edges, expanding "
+                + expandedMethods + " methods, in " + (System.currentTimeMillis() - start) + "ms.");
+    }
+
+    /**
+     * Collects the local indices of the portals of a method and assigns each portal its row.
+     *
+     * @param vertices The vertex ids of the method.
+     * @param isPortal Whether a vertex is a portal.
+     * @param rowOf Receives the row of each portal.
+     * @return Returns the local indices of the portals.
+     */
+    private static int[] portals(final int[] vertices, final boolean[] isPortal, final int[] rowOf) {
+        final int[] portals = IntStream.range(0, vertices.length).filter(local -> isPortal[vertices[local]]).toArray();
+        for (int row = 0; row < portals.length; row++) {
+            rowOf[vertices[portals[row]]] = row;
+        }
+        return portals;
+    }
+
+    private void computeTables(final MethodTable table) {
+
+        final int size = table.size();
+
+        table.fromIn = new short[table.inPortals.length * size];
+        for (int row = 0; row < table.inPortals.length; row++) {
+            bfs(table, table.inPortals[row], true, table.fromIn, row * size);
+        }
+
+        table.toOut = new short[table.outPortals.length * size];
+        for (int row = 0; row < table.outPortals.length; row++) {
+            bfs(table, table.outPortals[row], false, table.toOut, row * size);
+        }
+
+        if (size <= ALL_PAIRS_LIMIT) {
+            table.allPairs = new short[size * size];
+            for (int source = 0; source < size; source++) {
+                bfs(table, source, true, table.allPairs, source * size);
+            }
+        }
+    }
+
+    /**
+     * Performs a BFS within a single method and stores the distances plus one into the given row.
+     *
+     * @param table The method.
+     * @param source The local index of the start vertex.
+     * @param forward Whether successors or predecessors should be traversed.
+     * @param distances The table receiving the distances.
+     * @param row The offset of the row within the table.
+     */
+    private void bfs(final MethodTable table, final int source, final boolean forward, final short[] distances,
+                     final int row) {
+
+        final int method = methodOf[table.vertices[source]];
+        final int[] adjacencyOffsets = forward ? offsets : predecessorOffsets;
+        final int[] adjacency = forward ? successors : predecessors;
+        final int[] queue = new int[table.size()];
+        int head = 0;
+        int tail = 0;
+        distances[row + source] = 1;
+        queue[tail++] = source;
+
+        while (head < tail) {
+            final int vertex = table.vertices[queue[head++]];
+            final short distance = (short) (Short.toUnsignedInt(distances[row + localOf[vertex]]) + 1);
+            for (int i = adjacencyOffsets[vertex]; i < adjacencyOffsets[vertex + 1]; i++) {
+                final int adjacent = adjacency[i];
+                if (methodOf[adjacent] == method && distances[row + localOf[adjacent]] == 0) {
+                    distances[row + localOf[adjacent]] = distance;
+                    queue[tail++] = localOf[adjacent];
+                }
+            }
+        }
+    }
+
+    private static int distance(final short[] distances, final int index) {
+        return Short.toUnsignedInt(distances[index]) - 1;
+    }
+
+    @FunctionalInterface
+    private interface OverlayEdgeConsumer {
+        void accept(int source, int target, int weight);
+    }
+
+    /**
+     * Enumerates the edges of the overlay graph, i.e. the edges between methods, the edges within expanded methods
+     * and the shortcuts from each entering to each leaving portal of all other methods.
+     *
+     * @param consumer Receives the source node, the target node and the weight of each edge.
+     */
+    private void forEachOverlayEdge(final OverlayEdgeConsumer consumer) {
+
+        for (int vertex = 0; vertex < methodOf.length; vertex++) {
+            for (int i = offsets[vertex]; i < offsets[vertex + 1]; i++) {
+                if (methodOf[successors[i]] != methodOf[vertex] || methods[methodOf[vertex]].expanded) {
+                    consumer.accept(nodeOf[vertex], nodeOf[successors[i]], 1);
+                }
+            }
+        }
+
+        for (MethodTable table : methods) {
+            if (table.expanded) {
+                continue;
+            }
+            for (int in = 0; in < table.inPortals.length; in++) {
+                for (int out = 0; out < table.outPortals.length; out++) {
+                    final int distance = distance(table.fromIn, in * table.size() + table.outPortals[out]);
+                    if (distance > 0) {
+                        consumer.accept(nodeOf[table.vertices[table.inPortals[in]]],
+                                nodeOf[table.vertices[table.outPortals[out]]], distance);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of edges of the overlay graph, which never exceeds the number of edges of the graph.
+     *
+     * @return Returns the number of overlay edges.
+     */
+    public int getOverlayEdgeCount() {
+        return overlayTargets.length;
+    }
+
+    private int vertexId(final CFGVertex vertex) {
+        final Integer id = ids.get(vertex);
+        if (id == null) {
+            throw new IllegalArgumentException("Vertex not part of the graph: " + vertex);
+        }
+        return id;
+    }
+
+    /**
+     * Computes the distance between two vertices of the same method without leaving the method.
+     *
+     * @param table The method.
+     * @param source The local index of the source vertex.
+     * @param target The local index of the target vertex.
+     * @return Returns the intra-procedural distance or {@link #INFINITY} if there is no such path.
+     */
+    private int intraDistance(final MethodTable table, final int source, final int target) {
+
+        final short[] distances;
+        final int row;
+
+        if (table.allPairs != null) {
+            distances = table.allPairs;
+            row = source * table.size();
+        } else {
+            distances = new short[table.size()];
+            row = 0;
+            bfs(table, source, true, distances, row);
+        }
+
+        final int distance = distance(distances, row + target);
+        return distance == -1 ? INFINITY : distance;
+    }
+
+    /**
+     * Computes the shortest distance between the given source and target vertex.
+     *
+     * @param source The given source vertex.
+     * @param target The given target vertex.
+     * @return Returns the shortest distance between the given source and target vertex, or {@code -1} if no path
+     *         exists. This coincides with {@link BaseCFG#getShortestDistance(CFGVertex, CFGVertex)}.
+     */
+    public int getShortestDistance(final CFGVertex source, final CFGVertex target) {
+
+        final int s = vertexId(source);
+        final int t = vertexId(target);
+        final MethodTable sourceMethod = methods[methodOf[s]];
+        final MethodTable targetMethod = methods[methodOf[t]];
+
+        int best = methodOf[s] == methodOf[t] ? intraDistance(sourceMethod, localOf[s], localOf[t]) : INFINITY;
+
+        // a multi-source dijkstra on the overlay graph starting at the leaving portals of the source method
+        final int[] distances = new int[vertexOf.length];
+        Arrays.fill(distances, INFINITY);
+        final PriorityQueue<Long> queue = new PriorityQueue<>();
+
+        for (int out = 0; out < sourceMethod.outPortals.length; out++) {
+            final int distance = distance(sourceMethod.toOut, out * sourceMethod.size() + localOf[s]);
+            final int node = nodeOf[sourceMethod.vertices[sourceMethod.outPortals[out]]];
+            if (distance >= 0 && distance < distances[node]) {
+                distances[node] = distance;
+                queue.add((long) distance << Integer.SIZE | node);
+            }
+        }
+
+        while (!queue.isEmpty()) {
+
+            final long entry = queue.poll();
+            final int distance = (int) (entry >>> Integer.SIZE);
+            final int node = (int) entry;
+
+            if (distance >= best) {
+                break;
+            } else if (distance > distances[node]) {
+                continue;
+            }
+
+            // enter the target method through this portal
+            final int vertex = vertexOf[node];
+            if (vertex == t) {
+                best = distance;
+            } else if (methodOf[vertex] == methodOf[t] && inRowOf[vertex] != -1) {
+                final int remaining = distance(targetMethod.fromIn, inRowOf[vertex] * targetMethod.size() + localOf[t]);
+                if (remaining >= 0) {
+                    best = Math.min(best, distance + remaining);
+                }
+            }
+
+            for (int i = overlayOffsets[node]; i < overlayOffsets[node + 1]; i++) {
+                final int next = distance + overlayWeights[i];
+                if (next < distances[overlayTargets[i]]) {
+                    distances[overlayTargets[i]] = next;
+                    queue.add((long) next << Integer.SIZE | overlayTargets[i]);
+                }
+            }
+        }
+
+        return best == INFINITY ? -1 : best;
+    }
+}
@@ -5,17 +5,17 @@ import com.android.tools.smali.dexlib2.analysis.AnalyzedInstruction;
 import com.android.tools.smali.dexlib2.iface.ClassDef;
 import com.android.tools.smali.dexlib2.iface.DexFile;
 import com.android.tools.smali.dexlib2.iface.Method;
-import com.android.tools.smali.dexlib2.iface.MethodImplementation;
 import com.android.tools.smali.dexlib2.iface.instruction.Instruction;
 import com.android.tools.smali.dexlib2.iface.instruction.ReferenceInstruction;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.TreeMultimap;
-import com.rits.cloning.Cloner;
 import de.uni_passau.fim.auermich.android_graphs.core.app.APK;
 import de.uni_passau.fim.auermich.android_graphs.core.app.components.*;
 import de.uni_passau.fim.auermich.android_graphs.core.app.xml.LayoutFile;
 import de.uni_passau.fim.auermich.android_graphs.core.app.xml.Manifest;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.BuildSnapshot;
 import de.uni_passau.fim.auermich.android_graphs.core.graphs.GraphType;
 import de.uni_passau.fim.auermich.android_graphs.core.statements.BasicStatement;
 import de.uni_passau.fim.auermich.android_graphs.core.statements.BlockStatement;
@@ -25,16 +25,15 @@ import de.uni_passau.fim.auermich.android_graphs.core.utility.Properties;
 import de.uni_passau.fim.auermich.android_graphs.core.utility.*;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.jgrapht.Graph;
 import org.jgrapht.GraphPath;
 import org.jgrapht.alg.shortestpath.AllDirectedPaths;
-import org.jgrapht.graph.DefaultEdge;
-import org.jgrapht.graph.builder.GraphTypeBuilder;
 import org.jgrapht.traverse.BreadthFirstIterator;
 import org.jgrapht.traverse.DepthFirstIterator;
 
 import java.io.File;
 import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -47,6 +46,9 @@ public class InterCFG extends BaseCFG {
     private static final Logger LOGGER = LogManager.getLogger(InterCFG.class);
     private static final GraphType GRAPH_TYPE = GraphType.INTERCFG;
 
+    // the name under which the construction phases are recorded
+    private static final String METRICS_NAME = "InterCFG";
+
     /**
      * Properties relevant for the construction process, e.g. whether basic blocks should be used.
      */
@@ -77,6 +79,21 @@ public class InterCFG extends BaseCFG {
     // the set of discovered Android callbacks
     private final Set<String> callbacks = new HashSet<>();
 
+    /*
+     * Maps each vertex ending with a resolved invocation to the vertex containing the virtual return statement.
+     * Only used while linking the intra CFGs with basic blocks.
+     */
+    private final Map<CFGVertex, CFGVertex> callSites = new LinkedHashMap<>();
+
+    /*
+     * Maps an activity or fragment to the resource id of its layout in hexadecimal representation. Collected while
+     * traversing the instructions during the construction of the intra CFGs, consumed by lookUpCallbacksXML().
+     */
+    private final Map<String, String> componentResourceIDs = new HashMap<>();
+
+    // provides the intra CFGs of a previous build, only set during an incremental construction
+    private BuildSnapshot snapshot = null;
+
     // necessary for the copy constructor
     public InterCFG(String graphName) {
         super(graphName);
@@ -84,11 +101,47 @@ public class InterCFG extends BaseCFG {
 
     public InterCFG(String graphName, APK apk, boolean useBasicBlocks,
                     boolean excludeARTClasses, boolean resolveOnlyAUTClasses) {
+        this(graphName, apk, useBasicBlocks, excludeARTClasses, resolveOnlyAUTClasses, null);
+    }
+
+    /**
+     * Constructs the inter CFG incrementally, i.e. the intra CFGs of unchanged methods are taken from the given
+     * snapshot of the build of a previous version of the app. Afterwards, the snapshot reflects this build. The
+     * instructions of unchanged methods are still analyzed, since the component relations are derived from them.
+     *
+     * @param graphName The name of the graph.
+     * @param apk The APK file describing the app.
+     * @param useBasicBlocks Whether basic blocks should be used.
+     * @param excludeARTClasses Whether ART classes should be excluded.
+     * @param resolveOnlyAUTClasses Whether only classes of the AUT should be resolved.
+     * @param snapshot The snapshot of a previous build or {@code null} if the graph should be built from scratch.
+     */
+    public InterCFG(String graphName, APK apk, boolean useBasicBlocks,
+                    boolean excludeARTClasses, boolean resolveOnlyAUTClasses, BuildSnapshot snapshot) {
         super(graphName);
         this.properties = new Properties(useBasicBlocks, excludeARTClasses, resolveOnlyAUTClasses);
         this.apk = apk;
+        this.snapshot = snapshot;
+
+        if (snapshot != null) {
+            snapshot.begin(GRAPH_TYPE, properties);
+        }
+
         constructCFG(apk);
-        removeDisconnectedVertices(); // ensures that lookup fails for disconnected vertices
+
+        // the def-use chains are only needed while resolving the invocations during the construction
+        DefUseChains.clearCache();
+
+        // ensures that lookup fails for disconnected vertices
+        try (BuildMetrics.Phase phase = BuildMetrics.startPhase(METRICS_NAME, "removeDisconnectedVertices")) {
+            removeDisconnectedVertices();
+            phase.setItems(size());
+        }
+
+        if (snapshot != null) {
+            snapshot.finish();
+            this.snapshot = null;
+        }
     }
 
     /**
@@ -130,25 +183,35 @@ public class InterCFG extends BaseCFG {
     private void constructCFG(APK apk) {
 
         // decode APK to access manifest and other resource files
-        apk.decodeAPK();
-
-        // parse manifest
-        apk.setManifest(Manifest.parse(new File(apk.getDecodingOutputPath(), "AndroidManifest.xml")));
+        try (BuildMetrics.Phase phase = BuildMetrics.startPhase(METRICS_NAME, "decodeAPK")) {
+            apk.decodeAPK();
+        }
 
-        // parse the resource strings
-        apk.setResourceStrings(ResourceUtils.parseStringsXMLFile(apk.getDecodingOutputPath()));
+        try (BuildMetrics.Phase phase = BuildMetrics.startPhase(METRICS_NAME, "parseResources")) {
+            // parse manifest
+            apk.setManifest(Manifest.parse(new File(apk.getDecodingOutputPath(), "AndroidManifest.xml")));
 
-        // create the individual intraCFGs and add them as sub graphs
-        constructIntraCFGs(apk, properties.useBasicBlocks);
+            // parse the resource strings
+            apk.setResourceStrings(ResourceUtils.parseStringsXMLFile(apk.getDecodingOutputPath()));
+        }
 
-        // track relations between components
-        ComponentUtils.checkComponentRelations(apk, components, classHierarchy);
+        // create the individual intraCFGs and add them as sub graphs, this also tracks relations between components
+        try (BuildMetrics.Phase phase = BuildMetrics.startPhase(METRICS_NAME, "constructIntraCFGs")) {
+            constructIntraCFGs(apk, properties.useBasicBlocks);
+            phase.setItems(intraCFGs.size());
+        }
 
         // add for each component a callback graph
-        Map<String, BaseCFG> callbackGraphs = addCallbackGraphs();
+        final Map<String, BaseCFG> callbackGraphs;
+        try (BuildMetrics.Phase phase = BuildMetrics.startPhase(METRICS_NAME, "addCallbackGraphs")) {
+            callbackGraphs = addCallbackGraphs();
+            phase.setItems(callbackGraphs.size());
+        }
 
         // add lifecycle of components + global entry points
-        addLifecycleAndGlobalEntryPoints(callbackGraphs);
+        try (BuildMetrics.Phase phase = BuildMetrics.startPhase(METRICS_NAME, "addLifecycleAndGlobalEntryPoints")) {
+            addLifecycleAndGlobalEntryPoints(callbackGraphs);
+        }
 
         // add the callbacks specified either through XML or directly in code
         addCallbacks(apk, callbackGraphs);
@@ -156,20 +219,29 @@ public class InterCFG extends BaseCFG {
         LOGGER.debug("Removing decoded APK files: " + Utility.removeFile(apk.getDecodingOutputPath()));
 
         if (properties.useBasicBlocks) {
-            constructCFGWithBasicBlocks(apk);
+            try (BuildMetrics.Phase phase = BuildMetrics.startPhase(METRICS_NAME, "constructCFGWithBasicBlocks")) {
+                phase.setItems(callSites.size());
+                constructCFGWithBasicBlocks(apk);
+            }
         } else {
-            constructCFGNoBasicBlocks(apk);
+            try (BuildMetrics.Phase phase = BuildMetrics.startPhase(METRICS_NAME, "constructCFGNoBasicBlocks")) {
+                phase.setItems(getInvokeVertices().size());
+                constructCFGNoBasicBlocks(apk);
+            }
         }
+
+        LOGGER.debug("Resolved invocation targets: " + classHierarchy.getResolutionCacheMisses()
+                + " (cache hits: " + classHierarchy.getResolutionCacheHits() + ")");
     }
 
     /**
      * Removes all vertices that are not reachable, i.e. that are not connected with the entry node of the CFG.
      */
     private void removeDisconnectedVertices() {
-        final Set<CFGVertex> reachableByEntry = (Set<CFGVertex>) getTransitiveSuccessors(getEntry());
+        final ReachabilityIndex reachability = new ReachabilityIndex(this);
         final Set<CFGVertex> toDelete = getVertices()
                 .stream()
-                .filter(vertex -> !vertex.equals(getEntry()) && !reachableByEntry.contains(vertex))
+                .filter(vertex -> !reachability.isReachable(getEntry(), vertex))
                 .collect(Collectors.toSet());
         // We basically remove here a complete subgraph and thus need to update the intraCFGs reference, otherwise a
         // lookup of a trace will succeed although the actual vertex has been removed.
@@ -181,7 +253,8 @@ public class InterCFG extends BaseCFG {
     }
 
     /**
-     * Constructs the inter CFG using basic blocks for a given app.
+     * Constructs the inter CFG using basic blocks for a given app. The basic blocks of the intra CFGs have been
+     * already split at the resolved call sites, thus only the call and return edges need to be inserted.
      *
      * @param apk The APK file describing the app.
      */
@@ -189,99 +262,27 @@ public class InterCFG extends BaseCFG {
 
         LOGGER.debug("Constructing Inter CFG with basic blocks!");
 
-        final String packageName = apk.getManifest().getPackageName();
-
-        // resolve the invoke vertices and connect the sub graphs with each other
-        for (CFGVertex invokeVertex : getInvokeVertices()) {
-
-            BlockStatement blockStatement = (BlockStatement) invokeVertex.getStatement();
+        // connect the sub graphs with each other
+        for (Map.Entry<CFGVertex, CFGVertex> callSite : callSites.entrySet()) {
 
-            // split vertex into blocks (split after each invoke instruction + insert virtual return statement)
-            List<List<Statement>> blocks = splitBlockStatement(blockStatement, packageName);
-
-            if (blocks.size() == 1) {
-                LOGGER.debug("Unchanged vertex: " + invokeVertex + " [" + invokeVertex.getMethod() + "]");
-                // the vertex is not split, no need to delete and re-insert the vertex
-                continue;
-            }
+            final CFGVertex invokeVertex = callSite.getKey();
+            final CFGVertex returnVertex = callSite.getValue();
 
             LOGGER.debug("Invoke vertex: " + invokeVertex + " [" + invokeVertex.getMethod() + "]");
 
-            // save the predecessors and successors as we remove the vertex
-            Set<CFGVertex> predecessors = getIncomingEdges(invokeVertex).stream().map(CFGEdge::getSource).collect(Collectors.toSet());
-            Set<CFGVertex> successors = getOutgoingEdges(invokeVertex).stream().map(CFGEdge::getTarget).collect(Collectors.toSet());
-
-            // remove original vertex, inherently removes edges
-            removeVertex(invokeVertex);
-
-            List<CFGVertex> blockVertices = new ArrayList<>();
-            List<List<CFGVertex>> exitVertices = new ArrayList<>();
-
-            for (int i = 0; i < blocks.size(); i++) {
-
-                // create a new vertex for each block
-                List<Statement> block = blocks.get(i);
-                Statement blockStmt = new BlockStatement(invokeVertex.getMethod(), block);
-                CFGVertex blockVertex = new CFGVertex(blockStmt);
-                blockVertices.add(blockVertex);
-
-                // add modified block vertex to graph
-                addVertex(blockVertex);
-
-                // first block, add original predecessors to first block
-                if (i == 0) {
-                    for (CFGVertex predecessor : predecessors) {
-                        // handle self-references afterwards
-                        if (!predecessor.equals(invokeVertex)) {
-                            addEdge(predecessor, blockVertex);
-                        }
-                    }
-                }
-
-                // last block, add original successors to the last block
-                if (i == blocks.size() - 1) {
-                    // LOGGER.debug("Number of successors: " + successors.size());
-                    for (CFGVertex successor : successors) {
-                        // handle self-references afterwards
-                        if (!successor.equals(invokeVertex)) {
-                            addEdge(blockVertex, successor);
-                        }
-                    }
-                    // the last block doesn't contain any invoke instruction -> no target CFG
-                    break;
-                }
-
-                // look up the CFGs matching the invocation target (multiple for overridden methods)
-                BasicStatement invokeStmt = (BasicStatement) ((BlockStatement) blockStmt).getLastStatement();
-                Set<BaseCFG> targetCFGs = lookupTargetCFGs(apk, invokeStmt);
-
-                // the invoke vertex defines an edge to each target CFG (invocation target)
-                targetCFGs.forEach(targetCFG -> addEdge(blockVertex, targetCFG.getEntry()));
-
-                // there is an edge from each target CFC's exit vertex to the virtual return statement (next block)
-                exitVertices.add(targetCFGs.stream().map(BaseCFG::getExit).collect(Collectors.toList()));
-            }
+            // look up the CFGs matching the invocation target (multiple for overridden methods)
+            BasicStatement invokeStmt = (BasicStatement) ((BlockStatement) invokeVertex.getStatement()).getLastStatement();
+            Set<BaseCFG> targetCFGs = lookupTargetCFGs(apk, invokeStmt);
 
-            // connect each target CFC's exit with the corresponding virtual return vertex
-            for (int i = 0; i < exitVertices.size(); i++) {
-                for (CFGVertex exitVertex : exitVertices.get(i)) {
-                    addEdge(exitVertex, blockVertices.get(i + 1));
-                }
-            }
+            // the invoke vertex defines an edge to each target CFG (invocation target)
+            targetCFGs.forEach(targetCFG -> addEdge(invokeVertex, targetCFG.getEntry()));
 
-            /*
-             * If an invoke vertex defines a self-reference, it appears as both predecessor and successor.
-             * However, as we split the vertex after each invoke statement, the self-reference gets corrupted.
-             * Thus, we add only those predecessors and successors that don't constitute a self-reference,
-             * and handle self-references afterwards. We only need to add a single edge between the last block
-             * and the first block of the original invoke vertex.
-             */
-            if (predecessors.contains(invokeVertex) || successors.contains(invokeVertex)) {
-                LOGGER.debug("Self-Reference for vertex: " + invokeVertex);
-                // add edge from last block to first block
-                addEdge(blockVertices.get(blockVertices.size() - 1), blockVertices.get(0));
-            }
+            // there is an edge from each target CFG's exit vertex to the virtual return vertex
+            targetCFGs.forEach(targetCFG -> addEdge(targetCFG.getExit(), returnVertex));
         }
+
+        // the call sites are not needed after the construction
+        callSites.clear();
     }
 
     /**
@@ -1481,8 +1482,17 @@ public class InterCFG extends BaseCFG {
         LOGGER.debug("Adding callbacks to activities...");
 
         // retrieve callbacks declared in code and XML
-        Multimap<String, BaseCFG> callbacks = lookUpCallbacks(apk);
-        Multimap<String, BaseCFG> callbacksXML = lookUpCallbacksXML(apk);
+        final Multimap<String, BaseCFG> callbacks;
+        try (BuildMetrics.Phase phase = BuildMetrics.startPhase(METRICS_NAME, "lookUpCallbacks")) {
+            callbacks = lookUpCallbacks(apk);
+            phase.setItems(callbacks.size());
+        }
+
+        final Multimap<String, BaseCFG> callbacksXML;
+        try (BuildMetrics.Phase phase = BuildMetrics.startPhase(METRICS_NAME, "lookUpCallbacksXML")) {
+            callbacksXML = lookUpCallbacksXML(apk);
+            phase.setItems(callbacksXML.size());
+        }
 
         // add callbacks directly from activity itself and its hosted fragments
         components.stream().filter(c -> c.getComponentType() == ComponentType.ACTIVITY).forEach(activity -> {
@@ -1724,63 +1734,49 @@ public class InterCFG extends BaseCFG {
     }
 
     /**
-     * Looks up callbacks declared in XML layout files and associates them to its defining component.
-     * First, the onCreate() and/or onCreateView() methods of activities and fragments are looked up for invocations
-     * of setContentView() or inflate(), respectively. Next, the resource ids are extracted by backtracking the
-     * former invocations. Then, we map the resource ids to layout files and parse the callbacks within those files.
-     * Finally, the declared callbacks are looked up in the graph and mapped to its defining component.
+     * Registers the look up of the layout resource ids of activities and fragments at the given traversal. The
+     * onCreate() and/or onCreateView() methods of activities and fragments are searched for invocations of
+     * setContentView() or inflate(), respectively, and the resource ids are extracted by backtracking the former
+     * invocations.
      *
-     * @return Returns a mapping between a component (its class name) and its callbacks (actually the
-     * corresponding intra CFGs). Each component may define multiple callbacks.
+     * @param traversal The instruction traversal.
      */
-    private Multimap<String, BaseCFG> lookUpCallbacksXML(APK apk) {
-
-        // stores for each component its resource id in hexadecimal representation
-        Map<String, String> componentResourceID = new HashMap<>();
+    private void registerLayoutResourceIDLookUp(InstructionTraversal traversal) {
 
+        // only activities and fragments of the application can define callbacks in XML
         Set<ClassDef> viewComponents = components.stream()
                 .filter(c -> c.getComponentType() == ComponentType.ACTIVITY || c.getComponentType() == ComponentType.FRAGMENT)
                 .map(Component::getClazz)
                 .collect(Collectors.toSet());
 
-        for (DexFile dexFile : apk.getDexFiles()) {
-            for (ClassDef classDef : dexFile.getClasses()) {
-
-                if (viewComponents.contains(classDef)) {
-                    // only activities and fragments of the application can define callbacks in XML
-
-                    for (Method method : classDef.getMethods()) {
-
-                        MethodImplementation methodImplementation = method.getImplementation();
-
-                        if (methodImplementation != null
-                                // we can speed up search for looking only for onCreate(..) and onCreateView(..)
-                                // this assumes that only these two methods declare the layout via setContentView()/inflate()!
-                                && method.getName().contains("onCreate")) {
-
-                            for (AnalyzedInstruction analyzedInstruction : MethodUtils.getAnalyzedInstructions(dexFile, method)) {
-
-                                Instruction instruction = analyzedInstruction.getInstruction();
-
-                                /*
-                                 * We need to search for calls to setContentView(..) and inflate(..).
-                                 * Both of them are of type invoke-virtual.
-                                 */
-                                if (instruction.getOpcode() == Opcode.INVOKE_VIRTUAL) {
-                                    String resourceID = Utility.getLayoutResourceID(classDef, analyzedInstruction);
+        /*
+         * We can speed up search for looking only for onCreate(..) and onCreateView(..). This assumes that only these
+         * two methods declare the layout via setContentView()/inflate(). Both of them are of type invoke-virtual.
+         */
+        traversal.register(context -> viewComponents.contains(context.getClassDef())
+                        && context.getMethod().getName().contains("onCreate"), EnumSet.of(Opcode.INVOKE_VIRTUAL),
+                (context, analyzedInstruction) -> {
+                    String resourceID = Utility.getLayoutResourceID(context.getClassDef(), analyzedInstruction);
 
-                                    if (resourceID != null) {
-                                        componentResourceID.put(classDef.toString(), resourceID);
-                                    }
-                                }
-                            }
-                        }
+                    if (resourceID != null) {
+                        componentResourceIDs.put(context.getClassDef().toString(), resourceID);
                     }
-                }
-            }
-        }
+                });
+    }
+
+    /**
+     * Looks up callbacks declared in XML layout files and associates them to its defining component.
+     * The resource ids of the layouts have been already extracted during the construction of the intra CFGs, see
+     * {@link #registerLayoutResourceIDLookUp(InstructionTraversal)}. Then, we map the resource ids to layout files
+     * and parse the callbacks within those files.
+     * Finally, the declared callbacks are looked up in the graph and mapped to its defining component.
+     *
+     * @return Returns a mapping between a component (its class name) and its callbacks (actually the
+     * corresponding intra CFGs). Each component may define multiple callbacks.
+     */
+    private Multimap<String, BaseCFG> lookUpCallbacksXML(APK apk) {
 
-        LOGGER.debug("Component-to-Resource-ID-mapping: " + componentResourceID);
+        LOGGER.debug("Component-to-Resource-ID-mapping: " + componentResourceIDs);
 
         /*
          * We now need to find the layout file for a given activity or fragment. Then, we need to
@@ -1789,7 +1785,7 @@ public class InterCFG extends BaseCFG {
         Multimap<String, String> componentCallbacks = TreeMultimap.create();
 
         // search layout file + parse callbacks
-        componentResourceID.forEach(
+        componentResourceIDs.forEach(
                 (component, resourceID) -> {
 
                     LayoutFile layoutFile = LayoutFile.findLayoutFile(apk.getDecodingOutputPath(), resourceID);
@@ -1873,149 +1869,116 @@ public class InterCFG extends BaseCFG {
     }
 
     /**
-     * Splits a block statement after each invocation and adds a virtual return statement to
-     * the next block. Ignores certain invocations, e.g. ART methods.
+     * Decides whether an invocation should be resolved, i.e. whether the basic block should be split after the
+     * invocation and linked with the CFGs of the invoked methods. Ignores certain invocations, e.g. ART methods.
      *
-     * @param blockStatement The given block statement.
-     * @param packageName    The package name of the AUT.
-     * @return Returns a list of block statements, where a block statement is described by a list
-     * of single statements.
+     * @param invokeStmt          The invoke statement.
+     * @param packageName         The package name of the AUT.
+     * @param mainActivityPackage The package of the main activity, may be {@code null}.
+     * @return Returns the target method of the virtual return statement or {@code null} if the invocation should
+     *         not be resolved.
      */
-    private List<List<Statement>> splitBlockStatement(BlockStatement blockStatement, String packageName) {
+    private String resolveCallSite(final BasicStatement invokeStmt, final String packageName,
+                                   final String mainActivityPackage) {
 
-        List<List<Statement>> blocks = new ArrayList<>();
-        List<Statement> block = new ArrayList<>();
-        List<Statement> statements = blockStatement.getStatements();
-        final String method = blockStatement.getMethod();
+        final String method = invokeStmt.getMethod();
         final Pattern exclusionPattern = properties.exclusionPattern;
+        final AnalyzedInstruction analyzedInstruction = invokeStmt.getInstruction();
 
-        final String mainActivity = apk.getManifest().getMainActivity();
-        final String mainActivityPackage = mainActivity != null
-                ? mainActivity.substring(0, mainActivity.lastIndexOf('.')) : null;
-
-        for (Statement statement : statements) {
-
-            BasicStatement basicStatement = (BasicStatement) statement;
-            AnalyzedInstruction analyzedInstruction = basicStatement.getInstruction();
-
-            if (!InstructionUtils.isInvokeInstruction(analyzedInstruction)) {
-                // statement belongs to current block
-                block.add(statement);
-            } else {
+        // get the target method of the invocation
+        Instruction instruction = analyzedInstruction.getInstruction();
+        String targetMethod = ((ReferenceInstruction) instruction).getReference().toString();
+        String className = ClassUtils.dottedClassName(MethodUtils.getClassName(targetMethod));
 
-                // invoke instruction belongs to current block
-                block.add(statement);
-
-                // get the target method of the invocation
-                Instruction instruction = analyzedInstruction.getInstruction();
-                String targetMethod = ((ReferenceInstruction) instruction).getReference().toString();
-                String className = ClassUtils.dottedClassName(MethodUtils.getClassName(targetMethod));
-
-                /*
-                 * We don't want to resolve every invocation. In particular, we don't resolve
-                 * most invocations outside of the application package as well as ART methods.
-                 * However, we need to resolve component invocation, reflection calls, and
-                 * overridden methods in any case.
-                 */
-                if (((properties.resolveOnlyAUTClasses && !ClassUtils.isApplicationClass(packageName, className)
-                        && (mainActivityPackage == null || !className.startsWith(mainActivityPackage)))
-                        || ClassUtils.isArrayType(className)
-                        || (MethodUtils.isARTMethod(targetMethod) && properties.excludeARTClasses)
-                        || MethodUtils.isJavaObjectMethod(targetMethod)
-                        || (exclusionPattern != null && exclusionPattern.matcher(className).matches()))
-                        // we have to resolve component invocations in any case, see the code below
-                        && !ComponentUtils.isComponentInvocation(components, targetMethod)
-                        // we need to resolve calls using reflection in any case
-                        && !MethodUtils.isReflectionCall(targetMethod)
-                        // we need to resolve calls of start() or run() in any case
-                        && !resolveThreadMethod(method, targetMethod)
-                        // we need to resolve sendBroadcast() in any case
-                        && !ReceiverUtils.isReceiverInvocation(targetMethod)
-                        // we want to resolve listFiles() in any case
-                        && !FileUtils.isListFilesInvocation(targetMethod)
-                        // we want to resolve animations in any case
-                        && !AnimationUtils.isAnimationInvocation(targetMethod)
-                        // we want to resolve media player invocations in any case
-                        && !MediaPlayerUtils.isMediaPlayerListenerInvocation(targetMethod)
-                        // we want to resolve an audio manager invocation in any case
-                        && !AudioManagerUtils.isAudioManagerInvocation(targetMethod)
-                        // we want to resolve pop menu invocations in any case
-                        && !PopupMenuUtils.isPopupMenuCreation(targetMethod)
-                        // we want to resolve thread invocations in any case
-                        && !ThreadUtils.isPostDelayMethod(targetMethod)
-                        // we want to resolve thread invocations in any case
-                        && !ThreadUtils.isScheduleMethod(targetMethod)
-                        // we want to resolve JobScheduler invocations in any case
-                        && !JobSchedulerUtils.isScheduleMethod(targetMethod)
-                        // we want to resolve JobIntentService invocations in any case
-                        && !ServiceUtils.isJobIntentServiceInvocation(targetMethod)
-                        // we want to resolve google map invocations in any case
-                        && !GoogleMapUtils.isGoogleMapListenerInvocation(targetMethod)
-                        // we want to resolve request location updates in any case
-                        && !GoogleMapUtils.isRequestLocationUpdateInvocation(targetMethod)
-                        // we want to resolve AsyncTask invocations in any case
-                        && !AsyncTaskUtils.isAsyncTaskInvocation(targetMethod)
-                        // we want to resolve Dialog invocations in any case
-                        && !DialogUtils.isDialogInvocation(targetMethod)
-                    // TODO: may use second getOverriddenMethods() that only returns overridden methods not the method itself
-                    // we need to resolve overridden methods in any case (the method itself is always returned, thus < 2)
-                    // && classHierarchy.getOverriddenMethods(targetMethod, packageName, properties).size() < 2) {
-                ) {
-                    continue;
-                }
-
-                // save block
-                blocks.add(block);
-
-                // reset block
-                block = new ArrayList<>();
-
-                /*
-                 * If we deal with a component invocation, the target method should be replaced
-                 * with the constructor of the component. Here, the virtual return statement should also
-                 * reflect this change.
-                 */
-                if (ComponentUtils.isComponentInvocation(components, targetMethod)) {
-                    String componentConstructor = ComponentUtils.isComponentInvocation(components, analyzedInstruction);
-                    if (componentConstructor != null && intraCFGs.containsKey(componentConstructor)) {
-                        targetMethod = componentConstructor;
-                    }
-                } else if (MethodUtils.isReflectionCall(targetMethod)) {
-                    /*
-                     * If we deal with a reflective call, i.e. newInstance(), the target method
-                     * should be replaced with the constructor. Here particular, the virtual return statement
-                     * should also reflect this change.
-                     */
-                    // TODO: Replace target method with corresponding constructor.
-                    LOGGER.debug("Reflection call detected!");
-                } else if (FileUtils.isListFilesInvocation(targetMethod)) {
-                    /*
-                    * If we deal with an invocation of listFiles() the target method should be replaced by the
-                    * accept() method of the respective FileFilter class.
-                     */
-                    // TODO: Replace target method with corresponding accept method of FileFilter class.
-                }
-
-                /*
-                 * TODO: combine virtual return statements for overridden methods
-                 * Since we need to over-approximate method calls, i.e. we add for each
-                 * method that overrides the given method an edge, we would have actually
-                 * multiple virtual return statements, but this would require here a redundant
-                 * lookup of the overridden methods, which we ignore right now.
-                 */
-
-                // add return statement to next block
-                block.add(new ReturnStatement(blockStatement.getMethod(), targetMethod,
-                        analyzedInstruction.getInstructionIndex()));
-            }
+        /*
+         * We don't want to resolve every invocation. In particular, we don't resolve
+         * most invocations outside of the application package as well as ART methods.
+         * However, we need to resolve component invocation, reflection calls, and
+         * overridden methods in any case.
+         */
+        if (((properties.resolveOnlyAUTClasses && !ClassUtils.isApplicationClass(packageName, className)
+                && (mainActivityPackage == null || !className.startsWith(mainActivityPackage)))
+                || ClassUtils.isArrayType(className)
+                || (MethodUtils.isARTMethod(targetMethod) && properties.excludeARTClasses)
+                || MethodUtils.isJavaObjectMethod(targetMethod)
+                || (exclusionPattern != null && exclusionPattern.matcher(className).matches()))
+                // we have to resolve component invocations in any case, see the code below
+                && !ComponentUtils.isComponentInvocation(components, targetMethod)
+                // we need to resolve calls using reflection in any case
+                && !MethodUtils.isReflectionCall(targetMethod)
+                // we need to resolve calls of start() or run() in any case
+                && !resolveThreadMethod(method, targetMethod)
+                // we need to resolve sendBroadcast() in any case
+                && !ReceiverUtils.isReceiverInvocation(targetMethod)
+                // we want to resolve listFiles() in any case
+                && !FileUtils.isListFilesInvocation(targetMethod)
+                // we want to resolve animations in any case
+                && !AnimationUtils.isAnimationInvocation(targetMethod)
+                // we want to resolve media player invocations in any case
+                && !MediaPlayerUtils.isMediaPlayerListenerInvocation(targetMethod)
+                // we want to resolve an audio manager invocation in any case
+                && !AudioManagerUtils.isAudioManagerInvocation(targetMethod)
+                // we want to resolve pop menu invocations in any case
+                && !PopupMenuUtils.isPopupMenuCreation(targetMethod)
+                // we want to resolve thread invocations in any case
+                && !ThreadUtils.isPostDelayMethod(targetMethod)
+                // we want to resolve thread invocations in any case
+                && !ThreadUtils.isScheduleMethod(targetMethod)
+                // we want to resolve JobScheduler invocations in any case
+                && !JobSchedulerUtils.isScheduleMethod(targetMethod)
+                // we want to resolve JobIntentService invocations in any case
+                && !ServiceUtils.isJobIntentServiceInvocation(targetMethod)
+                // we want to resolve google map invocations in any case
+                && !GoogleMapUtils.isGoogleMapListenerInvocation(targetMethod)
+                // we want to resolve request location updates in any case
+                && !GoogleMapUtils.isRequestLocationUpdateInvocation(targetMethod)
+                // we want to resolve AsyncTask invocations in any case
+                && !AsyncTaskUtils.isAsyncTaskInvocation(targetMethod)
+                // we want to resolve Dialog invocations in any case
+                && !DialogUtils.isDialogInvocation(targetMethod)
+            // TODO: may use second getOverriddenMethods() that only returns overridden methods not the method itself
+            // we need to resolve overridden methods in any case (the method itself is always returned, thus < 2)
+            // && classHierarchy.getOverriddenMethods(targetMethod, packageName, properties).size() < 2) {
+        ) {
+            return null;
         }
 
-        // add last block
-        if (!block.isEmpty()) {
-            blocks.add(block);
+        /*
+         * If we deal with a component invocation, the target method should be replaced
+         * with the constructor of the component. Here, the virtual return statement should also
+         * reflect this change.
+         */
+        if (ComponentUtils.isComponentInvocation(components, targetMethod)) {
+            String componentConstructor = ComponentUtils.isComponentInvocation(components, analyzedInstruction);
+            // the intra CFGs of the component constructors may not be constructed yet
+            if (componentConstructor != null && components.stream()
+                    .anyMatch(component -> component.getConstructors().contains(componentConstructor))) {
+                targetMethod = componentConstructor;
+            }
+        } else if (MethodUtils.isReflectionCall(targetMethod)) {
+            /*
+             * If we deal with a reflective call, i.e. newInstance(), the target method
+             * should be replaced with the constructor. Here particular, the virtual return statement
+             * should also reflect this change.
+             */
+            // TODO: Replace target method with corresponding constructor.
+            LOGGER.debug("Reflection call detected!");
+        } else if (FileUtils.isListFilesInvocation(targetMethod)) {
+            /*
+            * If we deal with an invocation of listFiles() the target method should be replaced by the
+            * accept() method of the respective FileFilter class.
+             */
+            // TODO: Replace target method with corresponding accept method of FileFilter class.
         }
 
-        return blocks;
+        /*
+         * TODO: combine virtual return statements for overridden methods
+         * Since we need to over-approximate method calls, i.e. we add for each
+         * method that overrides the given method an edge, we would have actually
+         * multiple virtual return statements, but this would require here a redundant
+         * lookup of the overridden methods, which we ignore right now.
+         */
+        return targetMethod;
     }
 
     /**
@@ -2104,7 +2067,8 @@ public class InterCFG extends BaseCFG {
     /**
      * Constructs the intra CFGs and adds them as sub graphs. In addition,
      * the name of activities and fragments are tracked. Also tracks vertices
-     * containing invocations.
+     * containing invocations. If basic blocks are used, the basic blocks are
+     * split at the resolved call sites right away.
      *
      * @param apk            The APK file describing the app.
      * @param useBasicBlocks Whether to use basic blocks or not when constructing
@@ -2123,16 +2087,18 @@ public class InterCFG extends BaseCFG {
 
         // track binder classes and attach them to the corresponding service
         Set<String> binderClasses = new HashSet<>();
-        List<ClassDef> classes = apk.getDexFiles().stream()
-                .map(DexFile::getClasses)
-                .flatMap(Collection::stream)
-                .collect(Collectors.toList());
+        // index the classes of all dex files once, the class hierarchy is resolved against the index
+        final ClassIndex classIndex = new ClassIndex(apk.getDexFiles());
+        final List<ClassDef> classes = classIndex.getClasses();
 
         final String packageName = apk.getManifest().getPackageName();
         final String mainActivity = apk.getManifest().getMainActivity();
         final String mainActivityPackage = mainActivity != null
                 ? mainActivity.substring(0, mainActivity.lastIndexOf('.')) : null;
 
+        // the classes for which intra CFGs are constructed, grouped by dex file
+        final Map<DexFile, List<ClassDef>> retainedClasses = new HashMap<>();
+
         for (DexFile dexFile : apk.getDexFiles()) {
             for (ClassDef classDef : dexFile.getClasses()) {
 
@@ -2156,7 +2122,7 @@ public class InterCFG extends BaseCFG {
                 }
 
                 // re-assemble the class hierarchy
-                updateClassHierarchy(dexFile, classDef);
+                updateClassHierarchy(classIndex, classDef);
 
                 // as a side effect track whether the given class represents an activity, service or fragment
                 if (ComponentUtils.isActivity(classes, classDef)) {
@@ -2173,10 +2139,38 @@ public class InterCFG extends BaseCFG {
                     components.add(new BroadcastReceiver(classDef, ComponentType.BROADCAST_RECEIVER));
                 }
 
+                retainedClasses.computeIfAbsent(dexFile, d -> new ArrayList<>()).add(classDef);
+            }
+        }
+
+        // the class hierarchy is complete, precompute the tables used to resolve invocation targets
+        classHierarchy.build();
+
+        /*
+        * The class hierarchy and the components need to be complete before the intra CFGs are constructed, since
+        * they determine at which call sites the basic blocks are split.
+         */
+        final Function<BasicStatement, String> callSiteResolver
+                = invokeStmt -> resolveCallSite(invokeStmt, packageName, mainActivityPackage);
+
+        // the analyses that share the traversal of the analyzed instructions with the intra CFG construction
+        final InstructionTraversal traversal = new InstructionTraversal();
+        ComponentUtils.registerComponentRelationChecks(traversal, apk, components, classHierarchy);
+        registerLayoutResourceIDLookUp(traversal);
+
+        for (DexFile dexFile : apk.getDexFiles()) {
+            for (ClassDef classDef : retainedClasses.getOrDefault(dexFile, Collections.emptyList())) {
+
                 for (Method method : classDef.getMethods()) {
 
                     String methodSignature = MethodUtils.deriveMethodSignature(method);
 
+                    // analyze the method at most once and share the analyzed instructions with all analyses
+                    final Supplier<List<AnalyzedInstruction>> analyzedInstructions = Suppliers.memoize(
+                            () -> method.getImplementation() != null
+                                    ? MethodUtils.getAnalyzedInstructions(dexFile, method) : Collections.emptyList());
+                    traversal.visit(dexFile, classDef, method, analyzedInstructions);
+
                     // track the Android callbacks
                     if (MethodUtils.isCallback(methodSignature)) {
                         callbacks.add(methodSignature);
@@ -2184,7 +2178,8 @@ public class InterCFG extends BaseCFG {
 
                     if (MenuUtils.isOnCreateMenu(methodSignature)) {
                         LOGGER.debug("Found menu: " + methodSignature);
-                        List<MenuItemWithResolvedTitle> menuItems = MenuUtils.getDefinedMenuItems(apk, dexFile, method)
+                        List<MenuItemWithResolvedTitle> menuItems
+                                = MenuUtils.getDefinedMenuItems(apk, method, analyzedInstructions.get())
                                 .collect(Collectors.toList());
                         var component = ComponentUtils.getComponentByName(components, classDef.toString());
 
@@ -2212,9 +2207,11 @@ public class InterCFG extends BaseCFG {
                         if (!MethodUtils.isJavaObjectMethod(methodSignature)) {
                             LOGGER.debug("Method: " + methodSignature);
 
-                            BaseCFG intraCFG = new IntraCFG(method, dexFile, useBasicBlocks);
+                            IntraCFG intraCFG = constructIntraCFG(method, methodSignature, analyzedInstructions,
+                                    useBasicBlocks ? callSiteResolver : null);
                             addSubGraph(intraCFG);
                             addInvokeVertices(intraCFG.getInvokeVertices());
+                            callSites.putAll(intraCFG.getReturnVertices());
                             // only hold a reference to the entry and exit vertex
                             intraCFGs.put(methodSignature, new DummyCFG(intraCFG));
 
@@ -2229,6 +2226,19 @@ public class InterCFG extends BaseCFG {
             }
         }
 
+        /*
+         * The component relations are checked in all application classes, including those excluded from the intra
+         * CFG construction, e.g. by the exclusion pattern. The remaining visitors are only interested in components,
+         * which are always retained classes.
+         */
+        final Set<ClassDef> visitedClasses = retainedClasses.values().stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toSet());
+        traversal.visitAll(apk.getDexFiles(), classDef -> !visitedClasses.contains(classDef));
+
+        // derive the relations between components
+        traversal.finish();
+
         LOGGER.debug("Class Hierarchy: ");
         LOGGER.debug(classHierarchy);
 
@@ -2266,18 +2276,53 @@ public class InterCFG extends BaseCFG {
     }
 
     /**
-     * Updates the class hierarchy map with information of the given class and its super class
-     * and interfaces, respectively.
+     * Constructs the intra CFG of the given method or takes it from the snapshot of a previous build if the method
+     * didn't change and all its call sites are resolved equally.
      *
-     * @param dexFile  The dex file containing the current class.
-     * @param classDef The given class.
+     * @param method The method.
+     * @param methodSignature The signature of the method.
+     * @param analyzedInstructions Provides the analyzed instructions of the method.
+     * @param callSiteResolver Decides at which call sites the basic blocks are split or {@code null} if no basic
+     *                         blocks are used.
+     * @return Returns the intra CFG of the method.
      */
-    private void updateClassHierarchy(final DexFile dexFile, final ClassDef classDef) {
+    private IntraCFG constructIntraCFG(final Method method, final String methodSignature,
+                                       final Supplier<List<AnalyzedInstruction>> analyzedInstructions,
+                                       final Function<BasicStatement, String> callSiteResolver) {
+
+        if (snapshot == null) {
+            return callSiteResolver != null
+                    ? new IntraCFG(method, analyzedInstructions.get(), callSiteResolver)
+                    : new IntraCFG(method, analyzedInstructions.get(), false);
+        }
+
+        final IntraCFG cachedCFG = (IntraCFG) snapshot.reuse(method, methodSignature, callSiteResolver);
+
+        if (cachedCFG != null) {
+            return cachedCFG;
+        }
 
-        // TODO: Speed up class hierarchy construction. At least inner classes can be derived iteratively.
-        ClassDef superClass = ClassUtils.getSuperClass(dexFile, classDef);
-        Set<ClassDef> interfaces = ClassUtils.getInterfaces(dexFile, classDef);
-        Set<ClassDef> innerClasses = ClassUtils.getInnerClasses(dexFile, classDef);
+        final BuildSnapshot.CallSiteRecorder recorder = callSiteResolver != null
+                ? new BuildSnapshot.CallSiteRecorder(callSiteResolver) : null;
+        final IntraCFG intraCFG = recorder != null
+                ? new IntraCFG(method, analyzedInstructions.get(), recorder)
+                : new IntraCFG(method, analyzedInstructions.get(), false);
+        snapshot.record(methodSignature, intraCFG, recorder);
+        return intraCFG;
+    }
+
+    /**
+     * Updates the class hierarchy map with information of the given class and its super class
+     * and interfaces, respectively. The super class, interfaces and inner classes may be contained
+     * in any dex file.
+     *
+     * @param classIndex The index over the classes of all dex files.
+     * @param classDef   The given class.
+     */
+    private void updateClassHierarchy(final ClassIndex classIndex, final ClassDef classDef) {
+        ClassDef superClass = classIndex.getSuperClass(classDef);
+        Set<ClassDef> interfaces = classIndex.getInterfaces(classDef);
+        Set<ClassDef> innerClasses = classIndex.getInnerClasses(classDef);
         classHierarchy.addClass(classDef, superClass, interfaces, innerClasses);
     }
 
@@ -2339,32 +2384,11 @@ public class InterCFG extends BaseCFG {
         return GRAPH_TYPE;
     }
 
-    // TODO: check if deep copy of vertices and edges is necessary
     @Override
     @SuppressWarnings("unused")
     public BaseCFG copy() {
         BaseCFG clone = new InterCFG(getMethodName());
-
-        Graph<CFGVertex, CFGEdge> graphClone = GraphTypeBuilder
-                .<CFGVertex, DefaultEdge>directed().allowingMultipleEdges(true).allowingSelfLoops(true)
-                .edgeClass(CFGEdge.class).buildGraph();
-
-        Set<CFGVertex> vertices = graph.vertexSet();
-        Set<CFGEdge> edges = graph.edgeSet();
-
-        Cloner cloner = new Cloner();
-
-        for (CFGVertex vertex : vertices) {
-            graphClone.addVertex(cloner.deepClone(vertex));
-        }
-
-        for (CFGEdge edge : edges) {
-            CFGVertex src = cloner.deepClone(edge.getSource());
-            CFGVertex dest = cloner.deepClone(edge.getTarget());
-            graphClone.addEdge(src, dest);
-        }
-
-        clone.graph = graphClone;
+        clone.graph = copyGraph(false);
         return clone;
     }
 
@@ -2522,11 +2546,14 @@ public class InterCFG extends BaseCFG {
      */
     private CFGVertex lookUpVertex(String method, int instructionIndex, CFGVertex entry) {
 
+        // resolve the method id once instead of comparing the method signature per visited vertex
+        final int methodId = entry.getMethodId();
+
         BreadthFirstIterator<CFGVertex, CFGEdge> bfs = new BreadthFirstIterator<>(graph, entry);
 
         while (bfs.hasNext()) {
             CFGVertex vertex = bfs.next();
-            if (vertex.containsInstruction(method, instructionIndex)) {
+            if (vertex.containsInstruction(methodId, instructionIndex)) {
                 return vertex;
             }
         }
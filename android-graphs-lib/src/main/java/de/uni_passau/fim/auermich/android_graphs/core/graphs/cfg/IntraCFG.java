@@ -2,20 +2,18 @@ package de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg;
 
 import com.android.tools.smali.dexlib2.analysis.AnalyzedInstruction;
 import com.android.tools.smali.dexlib2.iface.*;
-import com.rits.cloning.Cloner;
 import de.uni_passau.fim.auermich.android_graphs.core.graphs.GraphType;
 import de.uni_passau.fim.auermich.android_graphs.core.statements.BasicStatement;
 import de.uni_passau.fim.auermich.android_graphs.core.statements.BlockStatement;
+import de.uni_passau.fim.auermich.android_graphs.core.statements.ReturnStatement;
 import de.uni_passau.fim.auermich.android_graphs.core.statements.Statement;
 import de.uni_passau.fim.auermich.android_graphs.core.utility.InstructionUtils;
 import de.uni_passau.fim.auermich.android_graphs.core.utility.MethodUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.jgrapht.Graph;
-import org.jgrapht.graph.DefaultEdge;
-import org.jgrapht.graph.builder.GraphTypeBuilder;
 
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -26,46 +24,124 @@ public class IntraCFG extends BaseCFG implements Cloneable {
     private static final Logger LOGGER = LogManager.getLogger(IntraCFG.class);
     private static final GraphType GRAPH_TYPE = GraphType.INTRACFG;
 
+    /*
+     * Decides for an invoke statement whether the basic block should be split after the invocation. Returns the
+     * target method of the virtual return statement or null if the invocation is not resolved. If no resolver is
+     * given, basic blocks are never split.
+     */
+    private Function<BasicStatement, String> callSiteResolver;
+
+    // maps a vertex ending with a resolved invocation to the vertex starting with the virtual return statement
+    private final Map<CFGVertex, CFGVertex> returnVertices = new LinkedHashMap<>();
+
     // copy constructor
     public IntraCFG(String methodName) {
         super(methodName);
     }
 
     public IntraCFG(Method method, DexFile dexFile, boolean useBasicBlocks) {
+        this(method, analyzeInstructions(dexFile, method), useBasicBlocks);
+    }
+
+    /**
+     * Constructs the intra CFG from the already analyzed instructions of the given method. This enables to share a
+     * single analysis of the method with other instruction visitors.
+     *
+     * @param method The method for which we want to generate the CFG.
+     * @param analyzedInstructions The analyzed instructions of the method.
+     * @param useBasicBlocks Whether to use basic blocks in the construction of the CFG or not.
+     */
+    public IntraCFG(Method method, List<AnalyzedInstruction> analyzedInstructions, boolean useBasicBlocks) {
         super(MethodUtils.deriveMethodSignature(method));
 
         // TODO: can we parallelize the construction?
-        constructCFG(dexFile, method, useBasicBlocks);
+        constructCFG(analyzedInstructions, method, useBasicBlocks);
+    }
+
+    /**
+     * Constructs the intra CFG using basic blocks, where the basic blocks are additionally split after each
+     * invocation that is resolved by the given call site resolver. The block following such an invocation starts
+     * with a virtual return statement. There is no edge between the invoke vertex and the return vertex, the
+     * inter CFG links them through the CFGs of the invoked methods instead, see {@link #getReturnVertices()}.
+     *
+     * @param method The method for which we want to generate the CFG.
+     * @param dexFile The dex file containing the method.
+     * @param callSiteResolver Returns for an invoke statement the target method of the virtual return statement,
+     *                         or {@code null} if the invocation should not be resolved.
+     */
+    public IntraCFG(Method method, DexFile dexFile, Function<BasicStatement, String> callSiteResolver) {
+        this(method, analyzeInstructions(dexFile, method), callSiteResolver);
+    }
+
+    /**
+     * Constructs the intra CFG with basic blocks split at resolved call sites from the already analyzed instructions
+     * of the given method, see {@link #IntraCFG(Method, DexFile, Function)}.
+     *
+     * @param method The method for which we want to generate the CFG.
+     * @param analyzedInstructions The analyzed instructions of the method.
+     * @param callSiteResolver Returns for an invoke statement the target method of the virtual return statement,
+     *                         or {@code null} if the invocation should not be resolved.
+     */
+    public IntraCFG(Method method, List<AnalyzedInstruction> analyzedInstructions,
+                    Function<BasicStatement, String> callSiteResolver) {
+        super(MethodUtils.deriveMethodSignature(method));
+        this.callSiteResolver = callSiteResolver;
+        constructCFGWithBasicBlocks(analyzedInstructions, method);
+        // the resolver may reference the enclosing inter CFG
+        this.callSiteResolver = null;
+    }
+
+    /**
+     * Analyzes the instructions of the given method.
+     *
+     * @param dexFile The dex file containing the method.
+     * @param method The method to be analyzed.
+     * @return Returns the analyzed instructions or an empty list if the method has no implementation.
+     */
+    private static List<AnalyzedInstruction> analyzeInstructions(DexFile dexFile, Method method) {
+        return method.getImplementation() != null
+                ? MethodUtils.getAnalyzedInstructions(dexFile, method) : Collections.emptyList();
+    }
+
+    /**
+     * Returns the resolved call sites, i.e. a mapping of each vertex ending with a resolved invocation to the
+     * vertex starting with the corresponding virtual return statement. The mapping is only non-empty if the
+     * basic blocks have been split at call sites.
+     *
+     * @return Returns the mapping of invoke vertices to return vertices.
+     */
+    public Map<CFGVertex, CFGVertex> getReturnVertices() {
+        return Collections.unmodifiableMap(returnVertices);
     }
 
     /**
      * Computes the intra-procedural CFG for a given method.
      *
-     * @param dexFile        The dex file containing the target method.
+     * @param analyzedInstructions The analyzed instructions of the target method.
      * @param targetMethod   The method for which we want to generate the CFG.
      * @param useBasicBlocks Whether to use basic blocks in the construction of the CFG or not.
      */
-    private void constructCFG(DexFile dexFile, Method targetMethod, boolean useBasicBlocks) {
+    private void constructCFG(List<AnalyzedInstruction> analyzedInstructions, Method targetMethod,
+                              boolean useBasicBlocks) {
         if (useBasicBlocks) {
-            constructCFGWithBasicBlocks(dexFile, targetMethod);
+            constructCFGWithBasicBlocks(analyzedInstructions, targetMethod);
         } else {
-            constructCFG(dexFile, targetMethod);
+            constructCFG(analyzedInstructions, targetMethod);
         }
     }
 
     /**
      * Computes the intra-procedural CFG for a given method. Doesn't use basic blocks.
      *
-     * @param dexFile      The dex file containing the target method.
+     * @param analyzedInstructions The analyzed instructions of the target method.
      * @param targetMethod The method for which we want to generate the CFG.
      */
-    private void constructCFG(DexFile dexFile, Method targetMethod) {
+    private void constructCFG(List<AnalyzedInstruction> analyzedInstructions, Method targetMethod) {
 
         MethodImplementation methodImplementation = targetMethod.getImplementation();
 
         if (methodImplementation != null) {
 
-            List<AnalyzedInstruction> analyzedInstructions = MethodUtils.getAnalyzedInstructions(dexFile, targetMethod);
             List<CFGVertex> vertices = new ArrayList<>();
 
             // pre-create a vertex for each single instruction
@@ -163,20 +239,20 @@ public class IntraCFG extends BaseCFG implements Cloneable {
      * based on this information statements are grouped in basic blocks and mapped to a vertex.
      * Finally, the edges between the basic blocks are inserted.
      *
-     * @param dexFile      The dex file containing the target method.
+     * @param analyzedInstructions The analyzed instructions of the target method.
      * @param targetMethod The method for which we want to generate the CFG.
      */
-    private void constructCFGWithBasicBlocks(DexFile dexFile, Method targetMethod) {
+    private void constructCFGWithBasicBlocks(List<AnalyzedInstruction> analyzedInstructions, Method targetMethod) {
 
         if (targetMethod.getImplementation() != null) {
 
-            List<AnalyzedInstruction> analyzedInstructions = MethodUtils.getAnalyzedInstructions(dexFile, targetMethod);
             Set<Integer> leaders = computeLeaders(targetMethod, analyzedInstructions);
 
             String method = targetMethod.toString();
 
             // save for each basic block vertex the instruction id of the first and last statement
-            Map<Integer, CFGVertex> basicBlocks = new HashMap<>();
+            Map<Integer, CFGVertex> blockStarts = new HashMap<>();
+            Map<Integer, CFGVertex> blockEnds = new HashMap<>();
 
             BlockStatement basicBlock = new BlockStatement(method);
             basicBlock.addStatement(new BasicStatement(method, analyzedInstructions.get(0)));
@@ -199,7 +275,7 @@ public class IntraCFG extends BaseCFG implements Cloneable {
                     basicBlock.addStatement(new BasicStatement(method, analyzedInstruction));
                 } else {
                     // end of basic block
-                    createBasicBlockVertex(basicBlock, basicBlocks);
+                    createBasicBlockVertex(basicBlock, blockStarts, blockEnds);
 
                     // reset basic block
                     basicBlock = new BlockStatement(method);
@@ -210,7 +286,7 @@ public class IntraCFG extends BaseCFG implements Cloneable {
             }
 
             // add the last basic block separately
-            createBasicBlockVertex(basicBlock, basicBlocks);
+            createBasicBlockVertex(basicBlock, blockStarts, blockEnds);
 
             /*
             * A method may contain an endless loop in which case there is no return statement (even not in the bytecode)
@@ -234,6 +310,11 @@ public class IntraCFG extends BaseCFG implements Cloneable {
                             stack.push(successors);
                         }
                     }
+                    // control flow continues at the return vertex of a resolved invocation
+                    CFGVertex returnVertex = returnVertices.get(current);
+                    if (returnVertex != null && !stack.contains(returnVertex)) {
+                        stack.push(returnVertex);
+                    }
                     current = stack.pop();
                 }
                 addEdge(current, getExit()); // add edge from loop header to virtual exit
@@ -249,49 +330,124 @@ public class IntraCFG extends BaseCFG implements Cloneable {
      * Creates a new vertex in the graph for a given basic block. Also adds edges between the
      * basic block and previously created basic blocks. Likewise, an edge between the
      * entry vertex and the basic block or the basic block and the exit vertex is inserted if necessary.
+     * If the basic block is split at resolved call sites, a vertex is created for each part and the edges
+     * are attached to the first and last part, respectively.
      *
      * @param basicBlock The basic block wrapping the statements.
-     * @param basicBlocks A map storing for each basic block vertex the first and last instruction index.
+     * @param blockStarts A map storing for each basic block vertex the first instruction index.
+     * @param blockEnds A map storing for each basic block vertex the last instruction index.
      */
-    private void createBasicBlockVertex(BlockStatement basicBlock, Map<Integer, CFGVertex> basicBlocks) {
+    private void createBasicBlockVertex(BlockStatement basicBlock, Map<Integer, CFGVertex> blockStarts,
+                                        Map<Integer, CFGVertex> blockEnds) {
 
-        CFGVertex vertex = new CFGVertex(basicBlock);
-        addVertex(vertex);
+        CFGVertex first = null;
+        CFGVertex last = null;
+
+        for (BlockStatement block : splitAtCallSites(basicBlock)) {
+
+            CFGVertex vertex = new CFGVertex(block);
+            addVertex(vertex);
+
+            // keep track of invoke vertices
+            if (containsInvoke(block)) {
+                addInvokeVertex(vertex);
+            }
 
-        // keep track of invoke vertices
-        if (containsInvoke(basicBlock)) {
-            addInvokeVertex(vertex);
+            if (first == null) {
+                first = vertex;
+            } else {
+                // the previous block ends with a resolved invocation
+                returnVertices.put(last, vertex);
+            }
+            last = vertex;
         }
 
         // save basic block by index of first and last statement
         BasicStatement firstStmt = (BasicStatement) basicBlock.getFirstStatement();
         BasicStatement lastStmt = (BasicStatement) basicBlock.getLastStatement();
-        basicBlocks.put(firstStmt.getInstructionIndex(), vertex);
-        basicBlocks.put(lastStmt.getInstructionIndex(), vertex);
+        blockStarts.put(firstStmt.getInstructionIndex(), first);
+        blockEnds.put(lastStmt.getInstructionIndex(), last);
 
         // check if we need an edge between entry node and the basic block
         if (firstStmt.getInstruction().isBeginningInstruction()) {
-            addEdge(getEntry(), vertex);
+            addEdge(getEntry(), first);
         }
 
         // check if we need an edge between the basic block and the exit node
         if (InstructionUtils.isTerminationStatement(lastStmt.getInstruction())) {
-            addEdge(vertex, getExit());
+            addEdge(last, getExit());
         }
 
+        /*
+        * An instruction index may refer to the first or the last statement of a basic block. Both refer to the same
+        * vertex unless the basic block has been split, hence we prefer the matching map and fall back to the other.
+         */
+
         // check for incoming edges of previously created basic blocks
         for (AnalyzedInstruction predecessor : firstStmt.getInstruction().getPredecessors()) {
-            if (basicBlocks.containsKey(predecessor.getInstructionIndex())) {
-                addEdge(basicBlocks.get(predecessor.getInstructionIndex()), vertex);
+            CFGVertex source = blockEnds.getOrDefault(predecessor.getInstructionIndex(),
+                    blockStarts.get(predecessor.getInstructionIndex()));
+            if (source != null) {
+                addEdge(source, first);
             }
         }
 
         // check for outgoing edges to previously created basic blocks
         for (AnalyzedInstruction successor : lastStmt.getInstruction().getSuccessors()) {
-            if (basicBlocks.containsKey(successor.getInstructionIndex())) {
-                addEdge(vertex, basicBlocks.get(successor.getInstructionIndex()));
+            CFGVertex target = blockStarts.getOrDefault(successor.getInstructionIndex(),
+                    blockEnds.get(successor.getInstructionIndex()));
+            if (target != null) {
+                addEdge(last, target);
+            }
+        }
+    }
+
+    /**
+     * Splits a basic block after each invocation that is resolved by the call site resolver and adds a virtual
+     * return statement to the next block.
+     *
+     * @param basicBlock The basic block to be split.
+     * @return Returns the resulting blocks or the given basic block if no split was necessary.
+     */
+    private List<BlockStatement> splitAtCallSites(BlockStatement basicBlock) {
+
+        if (callSiteResolver == null || !containsInvoke(basicBlock)) {
+            return Collections.singletonList(basicBlock);
+        }
+
+        final String method = basicBlock.getMethod();
+        List<BlockStatement> blocks = new ArrayList<>();
+        List<Statement> block = new ArrayList<>();
+
+        for (Statement statement : basicBlock.getStatements()) {
+
+            // statement belongs to current block
+            block.add(statement);
+
+            BasicStatement basicStatement = (BasicStatement) statement;
+
+            if (InstructionUtils.isInvokeInstruction(basicStatement.getInstruction())) {
+
+                String targetMethod = callSiteResolver.apply(basicStatement);
+
+                if (targetMethod != null) {
+                    blocks.add(new BlockStatement(method, block));
+                    block = new ArrayList<>();
+
+                    // add return statement to next block
+                    block.add(new ReturnStatement(method, targetMethod, basicStatement.getInstructionIndex()));
+                }
             }
         }
+
+        if (blocks.isEmpty()) {
+            // no resolved invocation
+            return Collections.singletonList(basicBlock);
+        }
+
+        // add last block
+        blocks.add(new BlockStatement(method, block));
+        return blocks;
     }
 
     /**
@@ -380,32 +536,11 @@ public class IntraCFG extends BaseCFG implements Cloneable {
         return GRAPH_TYPE;
     }
 
-    // TODO: check if deep copy of vertices and edges is necessary
     @Override
     @SuppressWarnings("unused")
     public BaseCFG copy() {
         BaseCFG clone = new IntraCFG(getMethodName());
-
-        Graph<CFGVertex, CFGEdge> graphClone = GraphTypeBuilder
-                .<CFGVertex, DefaultEdge>directed().allowingMultipleEdges(true).allowingSelfLoops(true)
-                .edgeClass(CFGEdge.class).buildGraph();
-
-        Set<CFGVertex> vertices = graph.vertexSet();
-        Set<CFGEdge> edges = graph.edgeSet();
-
-        Cloner cloner = new Cloner();
-
-        for (CFGVertex vertex : vertices) {
-            graphClone.addVertex(cloner.deepClone(vertex));
-        }
-
-        for (CFGEdge edge : edges) {
-            CFGVertex src = cloner.deepClone(edge.getSource());
-            CFGVertex dest = cloner.deepClone(edge.getTarget());
-            graphClone.addEdge(src, dest);
-        }
-
-        clone.graph = graphClone;
+        clone.graph = copyGraph(false);
         return clone;
     }
 
@@ -419,9 +554,9 @@ public class IntraCFG extends BaseCFG implements Cloneable {
      * Searches for the vertex described by the given trace in the graph.
      * Performs a brute force search if an instruction index is given.
      *
-     * Don't use this method when dealing with an interCFG. The intra CFGs
-     * stored by the interCFG are the original, non-connected graphs, i.e.
-     * no virtual return vertices have been introduced.
+     * Don't use this method when dealing with an interCFG, use the lookup of the interCFG instead. The blocks
+     * of an intra CFG that has been split at call sites start with a virtual return statement, which is not
+     * part of the index range of a block. A block consisting only of such a statement matches no trace.
      *
      * @param trace The trace describing the vertex, i.e. className->methodName->(entry|exit|instructionIndex).
      * @return Returns the vertex corresponding to the given trace.
@@ -470,11 +605,20 @@ public class IntraCFG extends BaseCFG implements Cloneable {
                     // basic blocks
                     BlockStatement blockStmt = (BlockStatement) statement;
 
-                    // check if index is in range [firstStmt,lastStmt]
-                    BasicStatement firstStmt = (BasicStatement) blockStmt.getFirstStatement();
-                    BasicStatement lastStmt = (BasicStatement) blockStmt.getLastStatement();
+                    // check if index is in range [firstStmt,lastStmt], where virtual return statements are skipped
+                    BasicStatement firstStmt = null;
+                    BasicStatement lastStmt = null;
+
+                    for (Statement stmt : blockStmt.getStatements()) {
+                        if (stmt instanceof BasicStatement) {
+                            if (firstStmt == null) {
+                                firstStmt = (BasicStatement) stmt;
+                            }
+                            lastStmt = (BasicStatement) stmt;
+                        }
+                    }
 
-                    if (firstStmt.getInstructionIndex() <= instructionIndex &&
+                    if (firstStmt != null && firstStmt.getInstructionIndex() <= instructionIndex &&
                             instructionIndex <= lastStmt.getInstructionIndex()) {
                         return vertex;
                     }
@@ -0,0 +1,313 @@
+package de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jgrapht.GraphPath;
+import org.jgrapht.alg.interfaces.AStarAdmissibleHeuristic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bounds the distance between any two vertices by their distances to and from a small set of landmark vertices
+ * (ALT). For each landmark L, the BFS distances d(L, x) and d(x, L) of all vertices x are stored, which requires
+ * k * V shorts per direction for k landmarks. By the triangle inequality, d(L, v) - d(L, u) and d(u, L) - d(v, L)
+ * are lower bounds and d(u, L) + d(L, v) is an upper bound of d(u, v), thus any query is bounded in O(k). Moreover,
+ * if L reaches u but not v, or v reaches L but u doesn't, then v is not reachable from u at all.
+ *
+ * The lower bound is an admissible and consistent heuristic, which guides an A* search towards the target when the
+ * exact distance is needed.
+ */
+public final class LandmarkDistanceOracle implements AStarAdmissibleHeuristic<CFGVertex> {
+
+    private static final Logger LOGGER = LogManager.getLogger(LandmarkDistanceOracle.class);
+
+    // the largest distance that is stored exactly, larger distances are clamped
+    private static final int MAX_DISTANCE = (1 << Short.SIZE) - 2;
+
+    // the name prefix of the dummy methods representing the callbacks of a component
+    private static final String CALLBACKS = "callbacks ";
+
+    private final BaseCFG cfg;
+
+    private final Map<CFGVertex, Integer> ids;
+
+    private final List<CFGVertex> landmarks;
+
+    /*
+     * The distances from and to each landmark indexed by the vertex id. A value holds the distance plus one, or 0 if
+     * the vertex is not reachable, and is read as an unsigned short.
+     */
+    private final short[][] forward;
+    private final short[][] reverse;
+
+    /**
+     * Selects up to k landmarks and computes their distances. The entry and exit of the graph as well as the entry
+     * points of the callback graphs come first, since most paths of the InterCFG pass through them. The remaining
+     * landmarks are picked one after another as the vertex farthest from all previously selected landmarks.
+     *
+     * @param cfg The CFG.
+     * @param k The number of landmarks.
+     */
+    public LandmarkDistanceOracle(final BaseCFG cfg, final int k) {
+        this(cfg, k, Collections.emptyList());
+    }
+
+    /**
+     * Computes the distances of the given landmarks, where duplicates are only considered once.
+     *
+     * @param cfg The CFG.
+     * @param landmarks The landmarks.
+     */
+    public LandmarkDistanceOracle(final BaseCFG cfg, final List<CFGVertex> landmarks) {
+        this(cfg, landmarks.size(), landmarks);
+    }
+
+    private LandmarkDistanceOracle(final BaseCFG cfg, final int k, final List<CFGVertex> landmarks) {
+
+        if (k < 1) {
+            throw new IllegalArgumentException("At least one landmark is required!");
+        }
+
+        this.cfg = cfg;
+        final CFGVertex[] vertices = cfg.getVertices().toArray(new CFGVertex[0]);
+        this.ids = new HashMap<>(vertices.length * 4 / 3 + 1);
+        for (int id = 0; id < vertices.length; id++) {
+            ids.put(vertices[id], id);
+        }
+
+        final BaseCFG.Adjacency successors = cfg.getAdjacency(vertices, ids, true);
+        final BaseCFG.Adjacency predecessors = cfg.getAdjacency(vertices, ids, false);
+
+        // a duplicate landmark would only repeat the distances of the same vertex
+        final List<CFGVertex> selected = landmarks.isEmpty()
+                ? selectLandmarks(k) : List.copyOf(new LinkedHashSet<>(landmarks));
+        for (CFGVertex landmark : selected) {
+            vertexId(landmark);
+        }
+        final int count = Math.min(landmarks.isEmpty() ? k : selected.size(), vertices.length);
+
+        final List<short[]> forwardDistances = new ArrayList<>(selected.stream()
+                .map(landmark -> bfs(ids.get(landmark), successors))
+                .parallel().collect(Collectors.toList()));
+
+        final List<CFGVertex> chosen = new ArrayList<>(selected);
+        while (chosen.size() < count) {
+            final int farthest = farthestVertex(forwardDistances, vertices.length);
+            if (farthest == -1) {
+                // every vertex is a landmark already
+                break;
+            }
+            chosen.add(vertices[farthest]);
+            forwardDistances.add(bfs(farthest, successors));
+        }
+
+        this.landmarks = Collections.unmodifiableList(chosen);
+        this.forward = forwardDistances.toArray(new short[0][]);
+        this.reverse = chosen.stream()
+                .map(landmark -> bfs(ids.get(landmark), predecessors))
+                .parallel().toArray(short[][]::new);
+
+        LOGGER.debug("Computed the distances of " + chosen.size() + " landmarks: " + chosen);
+    }
+
+    private List<CFGVertex> selectLandmarks(final int k) {
+
+        final Set<CFGVertex> candidates = new LinkedHashSet<>();
+        candidates.add(cfg.getEntry());
+        candidates.add(cfg.getExit());
+        cfg.getVertices().stream()
+                .filter(vertex -> vertex.isEntryVertex() && vertex.getMethod().startsWith(CALLBACKS))
+                .sorted(Comparator.comparing(CFGVertex::getMethod))
+                .forEachOrdered(candidates::add);
+
+        return candidates.stream()
+                .filter(ids::containsKey)
+                .limit(k)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Determines the vertex whose minimal distance from the given landmarks is maximal, where a vertex not reachable
+     * from any landmark is the farthest.
+     *
+     * @param distances The distances from the landmarks.
+     * @param size The number of vertices.
+     * @return Returns the id of the farthest vertex, or {@code -1} if every vertex is a landmark.
+     */
+    private static int farthestVertex(final List<short[]> distances, final int size) {
+
+        int farthest = -1;
+        int maxDistance = -1;
+
+        for (int id = 0; id < size; id++) {
+            int minDistance = Integer.MAX_VALUE;
+            for (short[] landmark : distances) {
+                final int value = Short.toUnsignedInt(landmark[id]);
+                if (value != 0) {
+                    minDistance = Math.min(minDistance, value - 1);
+                }
+            }
+            if (minDistance > maxDistance && minDistance != 0) {
+                farthest = id;
+                maxDistance = minDistance;
+            }
+        }
+
+        return farthest;
+    }
+
+    private static short[] bfs(final int source, final BaseCFG.Adjacency adjacency) {
+
+        final int[] offsets = adjacency.getOffsets();
+        final int[] targets = adjacency.getTargets();
+        final short[] distances = new short[offsets.length - 1];
+        final int[] queue = new int[offsets.length - 1];
+        int head = 0;
+        int tail = 0;
+        distances[source] = 1;
+        queue[tail++] = source;
+
+        while (head < tail) {
+            final int vertex = queue[head++];
+            final int distance = Math.min(Short.toUnsignedInt(distances[vertex]), MAX_DISTANCE) + 1;
+            for (int i = offsets[vertex]; i < offsets[vertex + 1]; i++) {
+                final int adjacent = targets[i];
+                if (distances[adjacent] == 0) {
+                    distances[adjacent] = (short) distance;
+                    queue[tail++] = adjacent;
+                }
+            }
+        }
+
+        return distances;
+    }
+
+    private static int distance(final short[] distances, final int vertex) {
+        return Short.toUnsignedInt(distances[vertex]) - 1;
+    }
+
+    private int vertexId(final CFGVertex vertex) {
+        final Integer id = ids.get(vertex);
+        if (id == null) {
+            throw new IllegalArgumentException("Vertex not part of the graph: " + vertex);
+        }
+        return id;
+    }
+
+    /**
+     * Returns a lower bound of the distance from the source to the target vertex.
+     *
+     * @param source The source vertex.
+     * @param target The target vertex.
+     * @return Returns a lower bound of the shortest distance, or {@code -1} if the target is not reachable from the
+     *         source.
+     */
+    public int getLowerBound(final CFGVertex source, final CFGVertex target) {
+
+        final int u = vertexId(source);
+        final int v = vertexId(target);
+        int lowerBound = 0;
+
+        for (int landmark = 0; landmark < landmarks.size(); landmark++) {
+
+            final int fromU = distance(forward[landmark], u);
+            final int fromV = distance(forward[landmark], v);
+            final int toU = distance(reverse[landmark], u);
+            final int toV = distance(reverse[landmark], v);
+
+            // the landmark reaches the source but not the target, or the target reaches the landmark but the source not
+            if ((fromU != -1 && fromV == -1) || (toV != -1 && toU == -1)) {
+                return -1;
+            }
+
+            // a clamped distance may only be subtracted from
+            if (fromU != -1 && fromU < MAX_DISTANCE) {
+                lowerBound = Math.max(lowerBound, fromV - fromU);
+            }
+            if (toV != -1 && toV < MAX_DISTANCE) {
+                lowerBound = Math.max(lowerBound, toU - toV);
+            }
+        }
+
+        return lowerBound;
+    }
+
+    /**
+     * Returns an upper bound of the distance from the source to the target vertex, i.e. the length of the shortest
+     * path via any landmark.
+     *
+     * @param source The source vertex.
+     * @param target The target vertex.
+     * @return Returns an upper bound of the shortest distance, or {@code -1} if no path via a landmark exists.
+     */
+    public int getUpperBound(final CFGVertex source, final CFGVertex target) {
+
+        final int u = vertexId(source);
+        final int v = vertexId(target);
+        int upperBound = -1;
+
+        for (int landmark = 0; landmark < landmarks.size(); landmark++) {
+            final int toLandmark = distance(reverse[landmark], u);
+            final int fromLandmark = distance(forward[landmark], v);
+            if (toLandmark != -1 && fromLandmark != -1 && toLandmark < MAX_DISTANCE && fromLandmark < MAX_DISTANCE
+                    && (upperBound == -1 || toLandmark + fromLandmark < upperBound)) {
+                upperBound = toLandmark + fromLandmark;
+            }
+        }
+
+        return upperBound;
+    }
+
+    /**
+     * Computes the exact distance from the source to the target vertex. Unreachable targets and tight bounds are
+     * answered by the landmarks alone, otherwise an A* search guided by the landmarks is performed.
+     *
+     * @param source The source vertex.
+     * @param target The target vertex.
+     * @return Returns the shortest distance, or {@code -1} if the target is not reachable from the source. This
+     *         coincides with {@link BaseCFG#getShortestDistance(CFGVertex, CFGVertex)}.
+     */
+    public int getShortestDistance(final CFGVertex source, final CFGVertex target) {
+
+        final int lowerBound = getLowerBound(source, target);
+
+        if (lowerBound == -1) {
+            return -1;
+        } else if (lowerBound == getUpperBound(source, target)) {
+            return lowerBound;
+        }
+
+        final GraphPath<CFGVertex, CFGEdge> path = cfg.initAStarAlgorithm(this).getPath(source, target);
+        return path != null ? path.getLength() : -1;
+    }
+
+    /**
+     * Estimates the distance from the source to the target vertex for an A* search.
+     *
+     * @param source The source vertex.
+     * @param target The target vertex.
+     * @return Returns a lower bound of the shortest distance. An unreachable target is estimated as infinitely far.
+     */
+    @Override
+    public double getCostEstimate(final CFGVertex source, final CFGVertex target) {
+        final int lowerBound = getLowerBound(source, target);
+        return lowerBound == -1 ? Double.POSITIVE_INFINITY : lowerBound;
+    }
+
+    /**
+     * Returns the landmarks in the order of their selection.
+     *
+     * @return Returns the unmodifiable list of landmarks.
+     */
+    public List<CFGVertex> getLandmarks() {
+        return landmarks;
+    }
+}
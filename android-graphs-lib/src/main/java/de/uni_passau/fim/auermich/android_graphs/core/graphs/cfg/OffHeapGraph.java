@@ -0,0 +1,520 @@
+package de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jgrapht.Graph;
+import org.jgrapht.GraphType;
+import org.jgrapht.graph.AbstractGraph;
+import org.jgrapht.graph.DefaultGraphType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * A read-only graph whose adjacency is stored in off-heap memory, either in direct buffers or in a memory-mapped
+ * file. The adjacency is kept in compressed sparse row form, i.e. the successors and predecessors of each vertex are
+ * consecutive ranges of vertex ids, and the vertices are indexed by an open-addressing hash table over their hash
+ * codes. Only the vertices themselves stay on the heap, since they carry the statements, while the edges are
+ * created on demand whenever they are queried. Compared to the adjacency of a JGraphT graph, which keeps an edge
+ * object and two edge sets per vertex, this shrinks the heap of a large graph to its vertices.
+ */
+final class OffHeapGraph extends AbstractGraph<CFGVertex, CFGEdge> {
+
+    private static final Logger LOGGER = LogManager.getLogger(OffHeapGraph.class);
+
+    private static final String UNMODIFIABLE = "this graph is unmodifiable";
+
+    // the number of ints a single buffer can hold
+    private static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE / Integer.BYTES;
+
+    private static final GraphType TYPE = new DefaultGraphType.Builder().directed().allowMultipleEdges(true)
+            .allowSelfLoops(true).weighted(false).modifiable(false).build();
+
+    // the vertices indexed by their id
+    private final CFGVertex[] vertices;
+
+    private final int edges;
+
+    // the successors of vertex i are stored in outTargets[outOffsets[i], outOffsets[i+1])
+    private final IntBuffer outOffsets;
+    private final IntBuffer outTargets;
+
+    // the predecessors of vertex i are stored in inSources[inOffsets[i], inOffsets[i+1])
+    private final IntBuffer inOffsets;
+    private final IntBuffer inSources;
+
+    // the hash code of vertex i
+    private final IntBuffer hashes;
+
+    // the hash table over the vertices, each slot holds the id of a vertex plus one or 0 if the slot is empty
+    private final IntBuffer slots;
+
+    private final Set<CFGVertex> vertexSet = new VertexSet();
+
+    private final Set<CFGEdge> edgeSet = new EdgeSet();
+
+    private OffHeapGraph(final CFGVertex[] vertices, final int edges, final int capacity,
+                         final Allocator allocator) {
+        this.vertices = vertices;
+        this.edges = edges;
+        this.outOffsets = allocator.allocate(vertices.length + 1);
+        this.outTargets = allocator.allocate(edges);
+        this.inOffsets = allocator.allocate(vertices.length + 1);
+        this.inSources = allocator.allocate(edges);
+        this.hashes = allocator.allocate(vertices.length);
+        this.slots = allocator.allocate(capacity);
+    }
+
+    /**
+     * Copies the adjacency of the given graph into off-heap memory. The vertices are shared with the given graph.
+     *
+     * @param graph The graph to be copied.
+     * @param mappedFile The file backing the adjacency, or {@code null} if direct buffers should be used. An existing
+     *         file is overwritten.
+     * @return Returns the off-heap copy of the given graph.
+     */
+    static OffHeapGraph copyOf(final Graph<CFGVertex, CFGEdge> graph, final Path mappedFile) {
+
+        final CFGVertex[] vertices = graph.vertexSet().toArray(new CFGVertex[0]);
+        final long edges = graph.edgeSet().size();
+
+        // a load factor of at most 0.5 keeps the probe sequences short
+        final int capacity = Integer.highestOneBit(Math.max(vertices.length, 1)) << 2;
+
+        if (edges > MAX_BUFFER_SIZE || capacity > MAX_BUFFER_SIZE || capacity <= 0) {
+            throw new IllegalArgumentException("Graph too large for off-heap storage: " + vertices.length
+                    + " vertices, " + edges + " edges");
+        }
+
+        final Allocator allocator = new Allocator(mappedFile,
+                2L * (vertices.length + 1) + 2L * edges + vertices.length + capacity);
+
+        try (allocator) {
+            final OffHeapGraph copy = new OffHeapGraph(vertices, (int) edges, capacity, allocator);
+            copy.index();
+            copy.copyAdjacency(graph);
+            LOGGER.debug("Moved " + vertices.length + " vertices and " + edges + " edges off-heap.");
+            return copy;
+        }
+    }
+
+    private void index() {
+        for (int id = 0; id < vertices.length; id++) {
+            final int hash = vertices[id].hashCode();
+            hashes.put(id, hash);
+            int slot = hash & (slots.capacity() - 1);
+            while (slots.get(slot) != 0) {
+                slot = (slot + 1) & (slots.capacity() - 1);
+            }
+            slots.put(slot, id + 1);
+        }
+    }
+
+    private void copyAdjacency(final Graph<CFGVertex, CFGEdge> graph) {
+
+        int outOffset = 0;
+        int inOffset = 0;
+
+        for (int id = 0; id < vertices.length; id++) {
+
+            outOffsets.put(id, outOffset);
+            for (CFGEdge edge : graph.outgoingEdgesOf(vertices[id])) {
+                outTargets.put(outOffset++, indexOf(graph.getEdgeTarget(edge)));
+            }
+
+            inOffsets.put(id, inOffset);
+            for (CFGEdge edge : graph.incomingEdgesOf(vertices[id])) {
+                inSources.put(inOffset++, indexOf(graph.getEdgeSource(edge)));
+            }
+        }
+
+        outOffsets.put(vertices.length, outOffset);
+        inOffsets.put(vertices.length, inOffset);
+    }
+
+    /**
+     * Returns the id of the given vertex.
+     *
+     * @param vertex The vertex.
+     * @return Returns the id of the vertex or {@code -1} if the vertex is not part of the graph.
+     */
+    int indexOf(final Object vertex) {
+
+        if (!(vertex instanceof CFGVertex)) {
+            return -1;
+        }
+
+        final int hash = vertex.hashCode();
+        int slot = hash & (slots.capacity() - 1);
+        int entry;
+
+        // compare the hashes off-heap before touching the vertices
+        while ((entry = slots.get(slot)) != 0) {
+            final int id = entry - 1;
+            if (hashes.get(id) == hash && vertices[id].equals(vertex)) {
+                return id;
+            }
+            slot = (slot + 1) & (slots.capacity() - 1);
+        }
+
+        return -1;
+    }
+
+    private int indexOfExisting(final CFGVertex vertex) {
+        final int id = indexOf(vertex);
+        if (id == -1) {
+            throw new IllegalArgumentException("no such vertex in graph: " + vertex);
+        }
+        return id;
+    }
+
+    private boolean isAdjacent(final int source, final int target) {
+        for (int i = outOffsets.get(source); i < outOffsets.get(source + 1); i++) {
+            if (outTargets.get(i) == target) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Set<CFGEdge> getAllEdges(final CFGVertex sourceVertex, final CFGVertex targetVertex) {
+        final int source = indexOf(sourceVertex);
+        final int target = indexOf(targetVertex);
+        if (source == -1 || target == -1) {
+            return null;
+        }
+        return isAdjacent(source, target)
+                ? Collections.singleton(new CFGEdge(sourceVertex, targetVertex)) : Collections.emptySet();
+    }
+
+    @Override
+    public CFGEdge getEdge(final CFGVertex sourceVertex, final CFGVertex targetVertex) {
+        final int source = indexOf(sourceVertex);
+        final int target = indexOf(targetVertex);
+        return source != -1 && target != -1 && isAdjacent(source, target)
+                ? new CFGEdge(vertices[source], vertices[target]) : null;
+    }
+
+    @Override
+    public Supplier<CFGVertex> getVertexSupplier() {
+        return null;
+    }
+
+    @Override
+    public Supplier<CFGEdge> getEdgeSupplier() {
+        return null;
+    }
+
+    @Override
+    public CFGEdge addEdge(final CFGVertex sourceVertex, final CFGVertex targetVertex) {
+        throw new UnsupportedOperationException(UNMODIFIABLE);
+    }
+
+    @Override
+    public boolean addEdge(final CFGVertex sourceVertex, final CFGVertex targetVertex, final CFGEdge edge) {
+        throw new UnsupportedOperationException(UNMODIFIABLE);
+    }
+
+    @Override
+    public CFGVertex addVertex() {
+        throw new UnsupportedOperationException(UNMODIFIABLE);
+    }
+
+    @Override
+    public boolean addVertex(final CFGVertex vertex) {
+        throw new UnsupportedOperationException(UNMODIFIABLE);
+    }
+
+    @Override
+    public boolean containsEdge(final CFGEdge edge) {
+        if (edge == null || edge.getSource() == null || edge.getTarget() == null) {
+            return false;
+        }
+        final int source = indexOf(edge.getSource());
+        final int target = indexOf(edge.getTarget());
+        return source != -1 && target != -1 && isAdjacent(source, target);
+    }
+
+    @Override
+    public boolean containsVertex(final CFGVertex vertex) {
+        return indexOf(vertex) != -1;
+    }
+
+    @Override
+    public Set<CFGEdge> edgeSet() {
+        return edgeSet;
+    }
+
+    @Override
+    public int degreeOf(final CFGVertex vertex) {
+        return inDegreeOf(vertex) + outDegreeOf(vertex);
+    }
+
+    @Override
+    public Set<CFGEdge> edgesOf(final CFGVertex vertex) {
+        final Set<CFGEdge> edges = new HashSet<>(incomingEdgesOf(vertex));
+        edges.addAll(outgoingEdgesOf(vertex));
+        return Collections.unmodifiableSet(edges);
+    }
+
+    @Override
+    public int inDegreeOf(final CFGVertex vertex) {
+        final int id = indexOfExisting(vertex);
+        return inOffsets.get(id + 1) - inOffsets.get(id);
+    }
+
+    @Override
+    public Set<CFGEdge> incomingEdgesOf(final CFGVertex vertex) {
+        return new AdjacentEdges(indexOfExisting(vertex), false);
+    }
+
+    @Override
+    public int outDegreeOf(final CFGVertex vertex) {
+        final int id = indexOfExisting(vertex);
+        return outOffsets.get(id + 1) - outOffsets.get(id);
+    }
+
+    @Override
+    public Set<CFGEdge> outgoingEdgesOf(final CFGVertex vertex) {
+        return new AdjacentEdges(indexOfExisting(vertex), true);
+    }
+
+    @Override
+    public CFGEdge removeEdge(final CFGVertex sourceVertex, final CFGVertex targetVertex) {
+        throw new UnsupportedOperationException(UNMODIFIABLE);
+    }
+
+    @Override
+    public boolean removeEdge(final CFGEdge edge) {
+        throw new UnsupportedOperationException(UNMODIFIABLE);
+    }
+
+    @Override
+    public boolean removeVertex(final CFGVertex vertex) {
+        throw new UnsupportedOperationException(UNMODIFIABLE);
+    }
+
+    @Override
+    public Set<CFGVertex> vertexSet() {
+        return vertexSet;
+    }
+
+    @Override
+    public CFGVertex getEdgeSource(final CFGEdge edge) {
+        return edge.getSource();
+    }
+
+    @Override
+    public CFGVertex getEdgeTarget(final CFGEdge edge) {
+        return edge.getTarget();
+    }
+
+    @Override
+    public GraphType getType() {
+        return TYPE;
+    }
+
+    @Override
+    public double getEdgeWeight(final CFGEdge edge) {
+        return Graph.DEFAULT_EDGE_WEIGHT;
+    }
+
+    @Override
+    public void setEdgeWeight(final CFGEdge edge, final double weight) {
+        throw new UnsupportedOperationException(UNMODIFIABLE);
+    }
+
+    /**
+     * The vertices of the graph in the order of their ids.
+     */
+    private final class VertexSet extends AbstractSet<CFGVertex> {
+
+        @Override
+        public Iterator<CFGVertex> iterator() {
+            return new Iterator<>() {
+
+                private int id = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return id < vertices.length;
+                }
+
+                @Override
+                public CFGVertex next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return vertices[id++];
+                }
+            };
+        }
+
+        @Override
+        public boolean contains(final Object vertex) {
+            return indexOf(vertex) != -1;
+        }
+
+        @Override
+        public int size() {
+            return vertices.length;
+        }
+    }
+
+    /**
+     * All edges of the graph, ordered by their source vertex.
+     */
+    private final class EdgeSet extends AbstractSet<CFGEdge> {
+
+        @Override
+        public Iterator<CFGEdge> iterator() {
+            return new Iterator<>() {
+
+                private int source = 0;
+                private int offset = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return offset < edges;
+                }
+
+                @Override
+                public CFGEdge next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    while (outOffsets.get(source + 1) <= offset) {
+                        source++;
+                    }
+                    return new CFGEdge(vertices[source], vertices[outTargets.get(offset++)]);
+                }
+            };
+        }
+
+        @Override
+        public boolean contains(final Object edge) {
+            return edge instanceof CFGEdge && containsEdge((CFGEdge) edge);
+        }
+
+        @Override
+        public int size() {
+            return edges;
+        }
+    }
+
+    /**
+     * The outgoing or incoming edges of a single vertex.
+     */
+    private final class AdjacentEdges extends AbstractSet<CFGEdge> {
+
+        private final int vertex;
+        private final boolean outgoing;
+
+        private AdjacentEdges(final int vertex, final boolean outgoing) {
+            this.vertex = vertex;
+            this.outgoing = outgoing;
+        }
+
+        @Override
+        public Iterator<CFGEdge> iterator() {
+            return new Iterator<>() {
+
+                private final IntBuffer adjacent = outgoing ? outTargets : inSources;
+                private final int end = (outgoing ? outOffsets : inOffsets).get(vertex + 1);
+                private int offset = (outgoing ? outOffsets : inOffsets).get(vertex);
+
+                @Override
+                public boolean hasNext() {
+                    return offset < end;
+                }
+
+                @Override
+                public CFGEdge next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    final CFGVertex other = vertices[adjacent.get(offset++)];
+                    return outgoing ? new CFGEdge(vertices[vertex], other) : new CFGEdge(other, vertices[vertex]);
+                }
+            };
+        }
+
+        @Override
+        public boolean contains(final Object edge) {
+            if (!(edge instanceof CFGEdge)) {
+                return false;
+            }
+            final CFGEdge other = (CFGEdge) edge;
+            return vertices[vertex].equals(outgoing ? other.getSource() : other.getTarget()) && containsEdge(other);
+        }
+
+        @Override
+        public int size() {
+            final IntBuffer offsets = outgoing ? outOffsets : inOffsets;
+            return offsets.get(vertex + 1) - offsets.get(vertex);
+        }
+    }
+
+    /**
+     * Allocates the int buffers of the graph either as direct buffers or as consecutive regions of a memory-mapped
+     * file. A mapping stays valid after the file channel has been closed.
+     */
+    private static final class Allocator implements AutoCloseable {
+
+        private final FileChannel channel;
+
+        private long position = 0;
+
+        private Allocator(final Path mappedFile, final long ints) {
+            try {
+                channel = mappedFile == null ? null : FileChannel.open(mappedFile, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            LOGGER.debug("Allocating " + ints * Integer.BYTES + " bytes off-heap.");
+        }
+
+        private IntBuffer allocate(final int ints) {
+
+            final int bytes = ints * Integer.BYTES;
+
+            if (channel == null) {
+                return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder()).asIntBuffer();
+            }
+
+            try {
+                final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, bytes);
+                position += bytes;
+                return buffer.order(ByteOrder.nativeOrder()).asIntBuffer();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg;
+
+import de.uni_passau.fim.auermich.android_graphs.core.utility.ClassUtils;
+import de.uni_passau.fim.auermich.android_graphs.core.utility.GraphExporter;
+import de.uni_passau.fim.auermich.android_graphs.core.utility.MethodUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.AsSubgraph;
+import org.jgrapht.util.ConcurrencyUtil;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Renders a graph that is too large for a single JGraphX layout by splitting it into partitions, e.g. one per method
+ * or per component, which are laid out and rendered independently in parallel. Edges between partitions are not
+ * drawn. Each partition is written to its own file, where the visited and target vertices of the partition, or
+ * vertices with a custom fill color, are marked, and an index.html file links all partitions together.
+ */
+final class PartitionedRenderer {
+
+    private static final Logger LOGGER = LogManager.getLogger(PartitionedRenderer.class);
+
+    /**
+     * The maximal number of vertices of a partition that is rendered to PNG, larger partitions are rendered to SVG.
+     */
+    private static final int MAX_PNG_SIZE = 1000;
+
+    /**
+     * The maximal number of vertices of a partition that is rendered at all, larger partitions are exported to DOT.
+     */
+    private static final int MAX_SVG_SIZE = 5000;
+
+    private final Graph<CFGVertex, CFGEdge> graph;
+
+    private final Function<CFGVertex, String> partitioner;
+
+    PartitionedRenderer(final Graph<CFGVertex, CFGEdge> graph, final Function<CFGVertex, String> partitioner) {
+        this.graph = graph;
+        this.partitioner = partitioner;
+    }
+
+    /**
+     * Returns the partition function for the given partitioning.
+     *
+     * @param partitioning The partitioning.
+     * @return Returns a function mapping a vertex to the name of its partition.
+     */
+    static Function<CFGVertex, String> partitioner(final BaseCFG.Partitioning partitioning) {
+        switch (partitioning) {
+            case METHOD:
+                return CFGVertex::getMethod;
+            case CLASS:
+                return vertex -> className(vertex.getMethod());
+            case COMPONENT:
+                return vertex -> {
+                    final String className = className(vertex.getMethod());
+                    return ClassUtils.isInnerClass(className) ? ClassUtils.getOuterClass(className) : className;
+                };
+            default:
+                throw new IllegalArgumentException("Unsupported partitioning: " + partitioning);
+        }
+    }
+
+    /**
+     * Returns the class name of the given method. The dummy methods of callback graphs, e.g. 'callbacks Lfoo/Bar;',
+     * belong to the class they are named after.
+     *
+     * @param method The method name.
+     * @return Returns the class name.
+     */
+    private static String className(final String method) {
+        final String callbacks = "callbacks ";
+        return MethodUtils.getClassName(method.startsWith(callbacks) ? method.substring(callbacks.length()) : method);
+    }
+
+    /**
+     * Renders the partitions in parallel into the given output directory and writes the index file.
+     *
+     * @param outputDir The output directory.
+     * @param visitedVertices The set of visited vertices.
+     * @param targetVertices The set of target vertices.
+     */
+    void render(final File outputDir, final Set<CFGVertex> visitedVertices, final Set<CFGVertex> targetVertices) {
+        render(outputDir, visitedVertices, targetVertices, BaseCFG.fillColors(visitedVertices, targetVertices));
+    }
+
+    /**
+     * Renders the partitions in parallel into the given output directory, where vertices are filled with the given
+     * colors, and writes the index file.
+     *
+     * @param outputDir The output directory.
+     * @param visitedVertices The set of visited vertices.
+     * @param targetVertices The set of target vertices.
+     * @param fillColors The fill color of the vertices that should be marked.
+     */
+    void render(final File outputDir, final Set<CFGVertex> visitedVertices, final Set<CFGVertex> targetVertices,
+                final Map<CFGVertex, String> fillColors) {
+
+        // a sorted map keeps the file names and the index stable across runs
+        final Map<String, Set<CFGVertex>> partitions = new TreeMap<>();
+        for (CFGVertex vertex : graph.vertexSet()) {
+            partitions.computeIfAbsent(partitioner.apply(vertex), key -> new HashSet<>()).add(vertex);
+        }
+
+        LOGGER.info("Rendering " + partitions.size() + " partitions of " + graph.vertexSet().size() + " vertices.");
+
+        final List<String> rows = new ArrayList<>(partitions.size());
+        final List<Runnable> tasks = new ArrayList<>(partitions.size());
+
+        for (Map.Entry<String, Set<CFGVertex>> partition : partitions.entrySet()) {
+
+            final Set<CFGVertex> vertices = partition.getValue();
+            final Set<CFGVertex> visited = intersect(vertices, visitedVertices);
+            final Set<CFGVertex> targets = intersect(vertices, targetVertices);
+            final Map<CFGVertex, String> colors = new HashMap<>();
+            for (CFGVertex vertex : vertices) {
+                final String color = fillColors.get(vertex);
+                if (color != null) {
+                    colors.put(vertex, color);
+                }
+            }
+
+            final String fileName = "partition-" + rows.size() + "."
+                    + (vertices.size() <= MAX_PNG_SIZE ? "png" : vertices.size() <= MAX_SVG_SIZE ? "svg" : "dot");
+            final File output = new File(outputDir, fileName);
+
+            rows.add("<tr><td><a href=\"" + fileName + "\">" + escapeHTML(partition.getKey()) + "</a></td><td>"
+                    + vertices.size() + "</td><td>" + visited.size() + "</td><td>" + targets.size() + "</td></tr>");
+
+            tasks.add(() -> {
+                final Graph<CFGVertex, CFGEdge> subgraph = new AsSubgraph<>(graph, vertices);
+                if (vertices.size() <= MAX_PNG_SIZE) {
+                    BaseCFG.convertGraphToPNG(subgraph, output, colors);
+                } else if (vertices.size() <= MAX_SVG_SIZE) {
+                    BaseCFG.convertGraphToSVG(subgraph, output, colors);
+                } else {
+                    new GraphExporter<>(subgraph, CFGVertex::toString)
+                            .export(output.toPath(), GraphExporter.Format.DOT, false);
+                }
+            });
+        }
+
+        runInParallel(tasks);
+        writeIndex(new File(outputDir, "index.html"), rows);
+    }
+
+    private static Set<CFGVertex> intersect(final Set<CFGVertex> partition, final Set<CFGVertex> vertices) {
+        final Set<CFGVertex> intersection = new HashSet<>();
+        for (CFGVertex vertex : partition) {
+            if (vertices.contains(vertex)) {
+                intersection.add(vertex);
+            }
+        }
+        return intersection;
+    }
+
+    private static void runInParallel(final List<Runnable> tasks) {
+
+        final int parallelism = Math.min(Runtime.getRuntime().availableProcessors(), Math.max(tasks.size(), 1));
+        final ExecutorService executor = ConcurrencyUtil.createThreadPoolExecutor(parallelism);
+
+        try {
+            final List<Future<?>> futures = new ArrayList<>(tasks.size());
+            for (Runnable task : tasks) {
+                futures.add(executor.submit(task));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            ConcurrencyUtil.shutdownExecutionService(executor);
+        } catch (final InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Rendering the partitions was interrupted!", e);
+        } catch (final ExecutionException e) {
+            executor.shutdownNow();
+            throw new IllegalStateException("Rendering a partition failed!", e.getCause());
+        }
+    }
+
+    private static void writeIndex(final File output, final List<String> rows) {
+        try (BufferedWriter writer = Files.newBufferedWriter(output.toPath(), StandardCharsets.UTF_8)) {
+            writer.write("<!DOCTYPE html>\n<html>\n<head><meta charset=\"UTF-8\"><title>Partitions</title></head>\n");
+            writer.write("<body>\n<table>\n");
+            writer.write("<tr><th>Partition</th><th>Vertices</th><th>Visited</th><th>Targets</th></tr>\n");
+            for (String row : rows) {
+                writer.write(row);
+                writer.write('\n');
+            }
+            writer.write("</table>\n</body>\n</html>\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String escapeHTML(final String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
@@ -0,0 +1,385 @@
+package de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Answers reachability queries on a CFG by means of its condensation. The strongly connected components (SCCs) are
+ * computed by an iterative variant of Tarjan's algorithm and numbered in topological order, such that an edge between
+ * two components always leads to a higher number. Two vertices of the same component reach each other, while a
+ * component can't reach any component with a lower number.
+ *
+ * On the DAG of components, a few DFS traversals assign each component an interval [low, post] in the spirit of
+ * GRAIL: if u reaches v, then the interval of v is contained in the interval of u for every traversal, thus a single
+ * interval not being contained rules out reachability. Conversely, the intervals of the spanning tree of the first
+ * traversal prove reachability for descendants in the tree. Only the remaining queries fall back to a DFS on the DAG,
+ * which is pruned by the very same labels. Hence, most queries are answered in O(1).
+ */
+public final class ReachabilityIndex {
+
+    private static final Logger LOGGER = LogManager.getLogger(ReachabilityIndex.class);
+
+    // the number of traversals labelling the DAG of components
+    private static final int TRAVERSALS = 2;
+
+    private final Map<CFGVertex, Integer> ids;
+
+    // the component of each vertex in topological order
+    private final int[] componentOf;
+
+    // whether a component contains a cycle, i.e. more than one vertex or a self loop
+    private final boolean[] cyclic;
+
+    // the successors of component i in the DAG are stored in dagSuccessors[dagOffsets[i], dagOffsets[i+1])
+    private final int[] dagOffsets;
+    private final int[] dagSuccessors;
+
+    // the GRAIL intervals of each traversal, the labels of component i are stored at [i * TRAVERSALS + traversal]
+    private final int[] low;
+    private final int[] post;
+
+    // the preorder number within the spanning tree of the first traversal, whose postorder numbers are 'post'
+    private final int[] pre;
+
+    /**
+     * Computes the condensation of the given CFG and labels its components.
+     *
+     * @param cfg The CFG.
+     */
+    public ReachabilityIndex(final BaseCFG cfg) {
+
+        final long start = System.currentTimeMillis();
+        final CFGVertex[] vertices = cfg.getVertices().toArray(new CFGVertex[0]);
+        final int size = vertices.length;
+
+        ids = new HashMap<>(size * 4 / 3 + 1);
+        for (int id = 0; id < size; id++) {
+            ids.put(vertices[id], id);
+        }
+
+        final BaseCFG.Adjacency adjacency = cfg.getAdjacency(vertices, ids, true);
+        final int[] offsets = adjacency.getOffsets();
+        final int[] successors = adjacency.getTargets();
+
+        componentOf = new int[size];
+        final int components = computeComponents(offsets, successors);
+
+        cyclic = new boolean[components];
+        final int[] componentSizes = new int[components];
+        for (int id = 0; id < size; id++) {
+            componentSizes[componentOf[id]]++;
+            for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+                if (successors[i] == id) {
+                    cyclic[componentOf[id]] = true;
+                }
+            }
+        }
+        for (int component = 0; component < components; component++) {
+            cyclic[component] |= componentSizes[component] > 1;
+        }
+
+        // the DAG of components without duplicate edges
+        final int[] members = new int[size];
+        final int[] memberOffsets = new int[components + 1];
+        for (int component = 0; component < components; component++) {
+            memberOffsets[component + 1] = memberOffsets[component] + componentSizes[component];
+        }
+        final int[] fill = Arrays.copyOf(memberOffsets, components);
+        for (int id = 0; id < size; id++) {
+            members[fill[componentOf[id]]++] = id;
+        }
+
+        dagOffsets = new int[components + 1];
+        final int[] dag = new int[successors.length];
+        final int[] seen = new int[components];
+        int edges = 0;
+        for (int component = 0; component < components; component++) {
+            dagOffsets[component] = edges;
+            for (int m = memberOffsets[component]; m < memberOffsets[component + 1]; m++) {
+                final int id = members[m];
+                for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+                    final int successor = componentOf[successors[i]];
+                    if (successor != component && seen[successor] != component + 1) {
+                        seen[successor] = component + 1;
+                        dag[edges++] = successor;
+                    }
+                }
+            }
+        }
+        dagOffsets[components] = edges;
+        dagSuccessors = Arrays.copyOf(dag, edges);
+
+        low = new int[components * TRAVERSALS];
+        post = new int[components * TRAVERSALS];
+        pre = new int[components];
+        for (int traversal = 0; traversal < TRAVERSALS; traversal++) {
+            label(traversal);
+        }
+
+        LOGGER.debug("Condensed " + size + " vertices into " + components + " components with " + edges
+                + " edges in " + (System.currentTimeMillis() - start) + "ms.");
+    }
+
+    /**
+     * Computes the strongly connected components by an iterative variant of Tarjan's algorithm and stores the
+     * component of each vertex in topological order.
+     *
+     * @param offsets The offsets of the successors of each vertex.
+     * @param successors The successors of all vertices.
+     * @return Returns the number of components.
+     */
+    private int computeComponents(final int[] offsets, final int[] successors) {
+
+        final int size = componentOf.length;
+        final int[] index = new int[size];
+        final int[] lowLink = new int[size];
+        final boolean[] onStack = new boolean[size];
+        final int[] stack = new int[size];
+        final int[] callStack = new int[size];
+        final int[] nextEdge = new int[size];
+        Arrays.fill(index, -1);
+
+        int counter = 0;
+        int stackSize = 0;
+        int components = 0;
+
+        for (int root = 0; root < size; root++) {
+
+            if (index[root] != -1) {
+                continue;
+            }
+
+            int depth = 0;
+            callStack[depth++] = root;
+            index[root] = lowLink[root] = counter++;
+            nextEdge[root] = offsets[root];
+            stack[stackSize++] = root;
+            onStack[root] = true;
+
+            while (depth > 0) {
+
+                final int vertex = callStack[depth - 1];
+
+                if (nextEdge[vertex] < offsets[vertex + 1]) {
+                    final int successor = successors[nextEdge[vertex]++];
+                    if (index[successor] == -1) {
+                        callStack[depth++] = successor;
+                        index[successor] = lowLink[successor] = counter++;
+                        nextEdge[successor] = offsets[successor];
+                        stack[stackSize++] = successor;
+                        onStack[successor] = true;
+                    } else if (onStack[successor]) {
+                        lowLink[vertex] = Math.min(lowLink[vertex], index[successor]);
+                    }
+                } else {
+                    depth--;
+                    if (depth > 0) {
+                        final int parent = callStack[depth - 1];
+                        lowLink[parent] = Math.min(lowLink[parent], lowLink[vertex]);
+                    }
+
+                    // the vertex is the root of a component, which is completed after all components it reaches
+                    if (lowLink[vertex] == index[vertex]) {
+                        int member;
+                        do {
+                            member = stack[--stackSize];
+                            onStack[member] = false;
+                            componentOf[member] = components;
+                        } while (member != vertex);
+                        components++;
+                    }
+                }
+            }
+        }
+
+        // Tarjan's algorithm emits the components in reverse topological order
+        for (int id = 0; id < size; id++) {
+            componentOf[id] = components - 1 - componentOf[id];
+        }
+        return components;
+    }
+
+    /**
+     * Performs a DFS traversal on the DAG of components and assigns each component its interval [low, post], where
+     * post is the postorder number and low the minimal postorder number of all reachable components. The traversals
+     * differ in the order in which the successors of a component are visited.
+     *
+     * @param traversal The number of the traversal.
+     */
+    private void label(final int traversal) {
+
+        final int components = cyclic.length;
+        final boolean[] visited = new boolean[components];
+        final int[] callStack = new int[components];
+        final int[] visitedEdges = new int[components];
+        int preorder = 0;
+        int postorder = 0;
+
+        for (int root = 0; root < components; root++) {
+
+            if (visited[root]) {
+                continue;
+            }
+
+            int depth = 0;
+            callStack[depth++] = root;
+            visited[root] = true;
+            low[root * TRAVERSALS + traversal] = Integer.MAX_VALUE;
+            if (traversal == 0) {
+                pre[root] = preorder++;
+            }
+
+            while (depth > 0) {
+
+                final int component = callStack[depth - 1];
+                final int degree = dagOffsets[component + 1] - dagOffsets[component];
+
+                if (visitedEdges[component] < degree) {
+                    // every traversal starts at a different successor
+                    final int edge = (visitedEdges[component]++ + traversal) % degree;
+                    final int successor = dagSuccessors[dagOffsets[component] + edge];
+                    if (!visited[successor]) {
+                        callStack[depth++] = successor;
+                        visited[successor] = true;
+                        low[successor * TRAVERSALS + traversal] = Integer.MAX_VALUE;
+                        if (traversal == 0) {
+                            pre[successor] = preorder++;
+                        }
+                    } else {
+                        low[component * TRAVERSALS + traversal] = Math.min(low[component * TRAVERSALS + traversal],
+                                low[successor * TRAVERSALS + traversal]);
+                    }
+                } else {
+                    depth--;
+                    post[component * TRAVERSALS + traversal] = postorder++;
+                    low[component * TRAVERSALS + traversal] = Math.min(low[component * TRAVERSALS + traversal],
+                            post[component * TRAVERSALS + traversal]);
+                    if (depth > 0) {
+                        final int parent = callStack[depth - 1];
+                        low[parent * TRAVERSALS + traversal] = Math.min(low[parent * TRAVERSALS + traversal],
+                                low[component * TRAVERSALS + traversal]);
+                    }
+                }
+            }
+        }
+    }
+
+    private int vertexId(final CFGVertex vertex) {
+        final Integer id = ids.get(vertex);
+        if (id == null) {
+            throw new IllegalArgumentException("Vertex not part of the graph: " + vertex);
+        }
+        return id;
+    }
+
+    /**
+     * Checks whether the intervals of the first component contain the intervals of the second component.
+     */
+    private boolean contains(final int source, final int target) {
+        for (int traversal = 0; traversal < TRAVERSALS; traversal++) {
+            if (low[target * TRAVERSALS + traversal] < low[source * TRAVERSALS + traversal]
+                    || post[target * TRAVERSALS + traversal] > post[source * TRAVERSALS + traversal]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the second component is a descendant of the first component in the spanning tree of the first
+     * traversal.
+     */
+    private boolean isTreeDescendant(final int source, final int target) {
+        return pre[source] <= pre[target] && post[target * TRAVERSALS] <= post[source * TRAVERSALS];
+    }
+
+    /**
+     * Checks whether the source component reaches the distinct target component.
+     */
+    private boolean reaches(final int source, final int target) {
+
+        if (source > target || !contains(source, target)) {
+            return false;
+        } else if (isTreeDescendant(source, target)) {
+            return true;
+        }
+
+        // a DFS on the DAG that only enters components whose labels admit the target
+        final BitSet visited = new BitSet();
+        final int[] stack = new int[target - source + 1];
+        int depth = 0;
+        stack[depth++] = source;
+        visited.set(source);
+
+        while (depth > 0) {
+            final int component = stack[--depth];
+            for (int i = dagOffsets[component]; i < dagOffsets[component + 1]; i++) {
+                final int successor = dagSuccessors[i];
+                if (successor == target || (successor < target && isTreeDescendant(successor, target))) {
+                    return true;
+                } else if (successor < target && !visited.get(successor) && contains(successor, target)) {
+                    visited.set(successor);
+                    stack[depth++] = successor;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether the target vertex is reachable from the source vertex. Every vertex is reachable from itself.
+     *
+     * @param source The source vertex.
+     * @param target The target vertex.
+     * @return Returns {@code true} if a path from the source to the target vertex exists, otherwise {@code false}.
+     */
+    public boolean isReachable(final CFGVertex source, final CFGVertex target) {
+        final int sourceComponent = componentOf[vertexId(source)];
+        final int targetComponent = componentOf[vertexId(target)];
+        return sourceComponent == targetComponent || reaches(sourceComponent, targetComponent);
+    }
+
+    /**
+     * Checks whether the target vertex is a transitive successor of the source vertex, i.e. whether a non-empty path
+     * from the source to the target vertex exists. In contrast to {@link #isReachable(CFGVertex, CFGVertex)}, a vertex
+     * is only its own transitive successor if it lies on a cycle. This coincides with
+     * {@link BaseCFG#getTransitiveSuccessors(CFGVertex)}.
+     *
+     * @param source The source vertex.
+     * @param target The target vertex.
+     * @return Returns {@code true} if the target vertex is a transitive successor of the source vertex.
+     */
+    public boolean isTransitiveSuccessor(final CFGVertex source, final CFGVertex target) {
+        final int sourceComponent = componentOf[vertexId(source)];
+        final int targetComponent = componentOf[vertexId(target)];
+        if (sourceComponent == targetComponent) {
+            return !source.equals(target) || cyclic[sourceComponent];
+        }
+        return reaches(sourceComponent, targetComponent);
+    }
+
+    /**
+     * Returns the strongly connected component of the given vertex. The components are numbered in topological
+     * order, i.e. a vertex can only reach vertices of the same or a higher component.
+     *
+     * @param vertex The given vertex.
+     * @return Returns the number of the component the vertex belongs to.
+     */
+    public int getComponent(final CFGVertex vertex) {
+        return componentOf[vertexId(vertex)];
+    }
+
+    /**
+     * Returns the number of strongly connected components.
+     *
+     * @return Returns the number of components.
+     */
+    public int getComponentCount() {
+        return cyclic.length;
+    }
+}
@@ -1,9 +1,6 @@
 package de.uni_passau.fim.auermich.android_graphs.core.statements;
 
 import com.android.tools.smali.dexlib2.analysis.AnalyzedInstruction;
-import com.rits.cloning.Cloner;
-
-import java.util.Objects;
 
 public class BasicStatement extends Statement implements Cloneable {
 
@@ -38,7 +35,7 @@ public class BasicStatement extends Statement implements Cloneable {
         BasicStatement other = (BasicStatement) o;
 
         // unique method signature + instruction id
-        return this.method.equals(other.method)
+        return this.methodId == other.methodId
                 && this.instruction.getInstruction().getOpcode().equals(other.instruction.getInstruction().getOpcode())
                 && this.instruction.getInstructionIndex() == other.instruction.getInstructionIndex();
                 /*
@@ -51,16 +48,13 @@ public class BasicStatement extends Statement implements Cloneable {
 
     @Override
     public int hashCode() {
-        return Objects.hash(method, instruction.getInstructionIndex());
+        return 31 * methodId + instruction.getInstructionIndex();
     }
 
     @Override
     public BasicStatement clone() {
-        BasicStatement clone = (BasicStatement) super.clone();
-        Cloner cloner = new Cloner();
-        clone.instruction = cloner.deepClone(this.instruction);
-        // clone.instruction = this.instruction;
-        return clone;
+        // the analyzed instruction is immutable once the method has been analyzed, thus it can be shared
+        return (BasicStatement) super.clone();
     }
 
 }
@@ -65,14 +65,17 @@ public class BlockStatement extends Statement implements Cloneable {
 
         BlockStatement other = (BlockStatement) o;
 
-        // unique method signature + individual statements
-        return this.method.equals(other.method) &&
-                this.statements.equals(other.statements);
+        // unique method signature + individual statements, cheap checks first
+        return this.methodId == other.methodId
+                && this.statements.size() == other.statements.size()
+                && (statements.isEmpty() || getLastStatement().equals(other.getLastStatement()))
+                && this.statements.equals(other.statements);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(method, statements);
+        // basic blocks never overlap, thus the first statement suffices to spread the hash values
+        return Objects.hash(methodId, statements.size(), statements.isEmpty() ? null : getFirstStatement());
     }
 
 
@@ -1,7 +1,5 @@
 package de.uni_passau.fim.auermich.android_graphs.core.statements;
 
-import java.util.Objects;
-
 public class EntryStatement extends Statement implements Cloneable {
 
     public EntryStatement(String method) {
@@ -27,13 +25,13 @@ public class EntryStatement extends Statement implements Cloneable {
         EntryStatement other = (EntryStatement) o;
 
         // unique method signature + instruction id
-        return this.method.equals(other.method)
+        return this.methodId == other.methodId
                 && this.type == other.type;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(method);
+        return methodId;
     }
 
     @Override
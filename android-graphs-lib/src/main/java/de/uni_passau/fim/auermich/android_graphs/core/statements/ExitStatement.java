@@ -1,7 +1,5 @@
 package de.uni_passau.fim.auermich.android_graphs.core.statements;
 
-import java.util.Objects;
-
 public class ExitStatement extends Statement implements Cloneable {
 
     public ExitStatement(String method) {
@@ -26,13 +24,13 @@ public class ExitStatement extends Statement implements Cloneable {
         ExitStatement other = (ExitStatement) o;
 
         // unique method signature + instruction id
-        return this.method.equals(other.method)
+        return this.methodId == other.methodId
                 && this.type == other.type;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(method);
+        return methodId;
     }
 
     @Override
@@ -1,5 +1,7 @@
 package de.uni_passau.fim.auermich.android_graphs.core.statements;
 
+import de.uni_passau.fim.auermich.android_graphs.core.utility.SymbolTable;
+
 import java.util.Objects;
 
 public class ReturnStatement extends Statement implements Cloneable {
@@ -15,9 +17,13 @@ public class ReturnStatement extends Statement implements Cloneable {
     // stores the method name from which control flow returned
     private String targetMethod;
 
+    // the id of the target method in the symbol table
+    private final int targetMethodId;
+
     public ReturnStatement(String method, String targetMethod, int id) {
         super(method);
-        this.targetMethod = targetMethod;
+        this.targetMethodId = SymbolTable.internMethod(targetMethod);
+        this.targetMethod = SymbolTable.getMethod(targetMethodId);
         type = StatementType.RETURN_STATEMENT;
         this.id = id;
     }
@@ -41,21 +47,25 @@ public class ReturnStatement extends Statement implements Cloneable {
         ReturnStatement other = (ReturnStatement) o;
 
         // unique method signature of both source and target
-        return this.method.equals(other.method)
+        return this.methodId == other.methodId
                 && this.id == other.id
-                && this.targetMethod.equals(other.targetMethod);
+                && this.targetMethodId == other.targetMethodId;
 
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(method, targetMethod, id);
+        return Objects.hash(methodId, targetMethodId, id);
     }
 
     public String getTargetMethod() {
         return targetMethod;
     }
 
+    public int getTargetMethodId() {
+        return targetMethodId;
+    }
+
     public int getId() {
         return id;
     }
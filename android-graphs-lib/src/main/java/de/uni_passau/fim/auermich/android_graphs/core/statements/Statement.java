@@ -1,5 +1,6 @@
 package de.uni_passau.fim.auermich.android_graphs.core.statements;
 
+import de.uni_passau.fim.auermich.android_graphs.core.utility.SymbolTable;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -10,17 +11,26 @@ public abstract class Statement implements Cloneable {
     // the method the statement is belonging to
     protected String method;
 
+    // the id of the method in the symbol table, equal methods share the same id
+    protected final int methodId;
+
     // the statement type
     protected StatementType type;
 
     public Statement(String method) {
-        this.method = method;
+        this.methodId = SymbolTable.internMethod(method);
+        // share the canonical string instance among all statements of the same method
+        this.method = SymbolTable.getMethod(methodId);
     }
 
     public String getMethod() {
         return method;
     }
 
+    public int getMethodId() {
+        return methodId;
+    }
+
     public StatementType getType() {
         return type;
     }
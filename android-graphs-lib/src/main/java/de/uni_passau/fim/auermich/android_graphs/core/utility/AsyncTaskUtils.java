@@ -62,29 +62,21 @@ public class AsyncTaskUtils {
             final Instruction35c invoke = (Instruction35c) invokeInstruction.getInstruction();
             final int targetRegister = invoke.getRegisterC();
 
-            AnalyzedInstruction pred = invokeInstruction.getPredecessors().first();
+            // check the instructions that may have written the register (v0 above)
+            for (AnalyzedInstruction definition
+                    : DefUseChains.of(invokeInstruction).getSources(invokeInstruction, targetRegister)) {
 
-            // backtrack until we discover last write to register D (v3 above)
-            while (pred.getInstructionIndex() != -1) {
-
-                final Instruction predecessor = pred.getInstruction();
-
-                if (pred.setsRegister(targetRegister) && predecessor.getOpcode() == Opcode.NEW_INSTANCE) {
+                if (definition.getInstructionIndex() != -1
+                        && definition.getInstruction().getOpcode() == Opcode.NEW_INSTANCE) {
                     // new-instance v0, Lcom/ichi2/anki/stats/AnkiStatsTaskHandler$DeckPreviewStatistics;
-                    final String className = ((ReferenceInstruction) predecessor).getReference().toString();
+                    final String className
+                            = ((ReferenceInstruction) definition.getInstruction()).getReference().toString();
                     final ClassDef classDef = classHierarchy.getClass(className);
                     if (classDef != null && classHierarchy.getSuperClasses(classDef).contains(ASYNC_TASK_CLASS)) {
                         LOGGER.debug("Found AsyncTask class: " + className);
                         return className;
                     }
                 }
-
-                // consider next predecessor if available
-                if (!pred.getPredecessors().isEmpty()) {
-                    pred = pred.getPredecessors().first();
-                } else {
-                    break;
-                }
             }
         }
 
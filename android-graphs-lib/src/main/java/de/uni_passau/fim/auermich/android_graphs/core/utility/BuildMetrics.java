@@ -0,0 +1,290 @@
+package de.uni_passau.fim.auermich.android_graphs.core.utility;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records metrics about the individual phases of the graph construction, i.e. the elapsed wall time, the CPU time,
+ * the allocated bytes and the number of processed items per phase, as well as the hit rates of the caches used
+ * during the construction. The metrics are accumulated over all graphs constructed since the last {@link #reset()}
+ * and can be exported as JSON. Recording is disabled by default, in which case phases and cache accesses are neither
+ * measured nor recorded, see {@link #setEnabled(boolean)}.
+ *
+ * CPU time and allocated bytes are measured for the thread that runs a phase. Work that a phase delegates to other
+ * threads is only reflected in the wall time.
+ */
+public final class BuildMetrics {
+
+    private static final Logger LOGGER = LogManager.getLogger(BuildMetrics.class);
+
+    private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+
+    // keyed by graph and phase name, preserves the order in which the phases have been executed
+    private static final Map<String, PhaseMetrics> PHASES = new LinkedHashMap<>();
+
+    private static final Map<String, CacheMetrics> CACHES = new LinkedHashMap<>();
+
+    private static volatile boolean enabled = false;
+
+    private BuildMetrics() {
+        throw new UnsupportedOperationException("utility class!");
+    }
+
+    /**
+     * Enables or disables the recording of metrics. Metrics that have been recorded so far are kept.
+     *
+     * @param enabled Whether metrics should be recorded.
+     */
+    public static void setEnabled(final boolean enabled) {
+        BuildMetrics.enabled = enabled;
+    }
+
+    /**
+     * Checks whether metrics are recorded.
+     *
+     * @return Returns {@code true} if metrics are recorded, otherwise {@code false}.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts measuring a construction phase. The measurement ends when the returned phase is closed, hence the
+     * phase should be used within a try-with-resources statement. If recording is disabled, the returned phase
+     * measures nothing.
+     *
+     * @param graph The graph under construction, e.g. InterCFG.
+     * @param phase The name of the construction phase, e.g. constructIntraCFGs.
+     * @return Returns the running phase.
+     */
+    public static Phase startPhase(final String graph, final String phase) {
+        return new Phase(graph, phase);
+    }
+
+    /**
+     * Records a hit of the given cache.
+     *
+     * @param cache The name of the cache.
+     */
+    public static void recordCacheHit(final String cache) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (CACHES) {
+            CACHES.computeIfAbsent(cache, c -> new CacheMetrics()).hits++;
+        }
+    }
+
+    /**
+     * Records a miss of the given cache.
+     *
+     * @param cache The name of the cache.
+     */
+    public static void recordCacheMiss(final String cache) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (CACHES) {
+            CACHES.computeIfAbsent(cache, c -> new CacheMetrics()).misses++;
+        }
+    }
+
+    /**
+     * Discards all recorded metrics.
+     */
+    public static void reset() {
+        synchronized (PHASES) {
+            PHASES.clear();
+        }
+        synchronized (CACHES) {
+            CACHES.clear();
+        }
+    }
+
+    /**
+     * Converts the recorded metrics into JSON.
+     *
+     * @return Returns the recorded metrics as JSON object.
+     */
+    public static JsonObject toJSON() {
+
+        JsonArray phases = new JsonArray();
+
+        synchronized (PHASES) {
+            PHASES.forEach((key, metrics) -> {
+                JsonObject phase = new JsonObject();
+                phase.addProperty("graph", metrics.graph);
+                phase.addProperty("phase", metrics.phase);
+                phase.addProperty("invocations", metrics.invocations);
+                phase.addProperty("wallTimeMillis", metrics.wallTimeNanos / 1_000_000.0);
+                phase.addProperty("cpuTimeMillis", metrics.cpuTimeNanos / 1_000_000.0);
+                phase.addProperty("allocatedBytes", metrics.allocatedBytes);
+                phase.addProperty("items", metrics.items);
+                phases.add(phase);
+            });
+        }
+
+        JsonArray caches = new JsonArray();
+
+        synchronized (CACHES) {
+            CACHES.forEach((name, metrics) -> {
+                JsonObject cache = new JsonObject();
+                long requests = metrics.hits + metrics.misses;
+                cache.addProperty("cache", name);
+                cache.addProperty("hits", metrics.hits);
+                cache.addProperty("misses", metrics.misses);
+                cache.addProperty("hitRate", requests == 0 ? 0.0 : (double) metrics.hits / requests);
+                caches.add(cache);
+            });
+        }
+
+        JsonObject report = new JsonObject();
+        report.add("phases", phases);
+        report.add("caches", caches);
+        return report;
+    }
+
+    /**
+     * Writes the recorded metrics in JSON format to the given file.
+     *
+     * @param output The output file.
+     */
+    public static void writeJSON(final File output) {
+        try (Writer writer = Files.newBufferedWriter(output.toPath(), StandardCharsets.UTF_8)) {
+            new GsonBuilder().setPrettyPrinting().create().toJson(toJSON(), writer);
+        } catch (IOException e) {
+            LOGGER.error("Couldn't write build metrics to " + output);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the number of bytes allocated by the current thread so far, or {@code 0} if the JVM can't tell.
+     *
+     * @return Returns the allocated bytes of the current thread.
+     */
+    private static long currentThreadAllocatedBytes() {
+        if (THREAD_BEAN instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) THREAD_BEAN;
+            if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+                return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the CPU time consumed by the current thread so far, or {@code 0} if the JVM can't tell.
+     *
+     * @return Returns the CPU time of the current thread in nanoseconds.
+     */
+    private static long currentThreadCpuTime() {
+        return THREAD_BEAN.isCurrentThreadCpuTimeSupported() ? THREAD_BEAN.getCurrentThreadCpuTime() : 0;
+    }
+
+    /**
+     * A running measurement of a single construction phase.
+     */
+    public static final class Phase implements AutoCloseable {
+
+        private final String graph;
+        private final String phase;
+
+        private final long startWallTime;
+        private final long startCpuTime;
+        private final long startAllocatedBytes;
+
+        private long items = 0;
+
+        // a phase started while recording is disabled is closed right away
+        private boolean closed;
+
+        private Phase(final String graph, final String phase) {
+            this.graph = graph;
+            this.phase = phase;
+            closed = !enabled;
+            startAllocatedBytes = closed ? 0 : currentThreadAllocatedBytes();
+            startCpuTime = closed ? 0 : currentThreadCpuTime();
+            startWallTime = closed ? 0 : System.nanoTime();
+        }
+
+        /**
+         * Records the number of items, e.g. the number of constructed intra CFGs, processed by this phase.
+         *
+         * @param items The number of processed items.
+         */
+        public void setItems(final long items) {
+            this.items = items;
+        }
+
+        /**
+         * Stops the measurement and adds it to the recorded metrics.
+         */
+        @Override
+        public void close() {
+
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            long wallTime = System.nanoTime() - startWallTime;
+            long cpuTime = currentThreadCpuTime() - startCpuTime;
+            long allocatedBytes = currentThreadAllocatedBytes() - startAllocatedBytes;
+
+            LOGGER.debug(graph + "." + phase + " took " + wallTime / 1_000_000 + "ms (" + items + " items)");
+
+            synchronized (PHASES) {
+                PhaseMetrics metrics = PHASES.computeIfAbsent(graph + "." + phase,
+                        key -> new PhaseMetrics(graph, phase));
+                metrics.invocations++;
+                metrics.wallTimeNanos += wallTime;
+                metrics.cpuTimeNanos += cpuTime;
+                metrics.allocatedBytes += allocatedBytes;
+                metrics.items += items;
+            }
+        }
+    }
+
+    /**
+     * The accumulated metrics of a construction phase.
+     */
+    private static final class PhaseMetrics {
+
+        private final String graph;
+        private final String phase;
+
+        private long invocations = 0;
+        private long wallTimeNanos = 0;
+        private long cpuTimeNanos = 0;
+        private long allocatedBytes = 0;
+        private long items = 0;
+
+        private PhaseMetrics(final String graph, final String phase) {
+            this.graph = graph;
+            this.phase = phase;
+        }
+    }
+
+    /**
+     * The accumulated metrics of a cache.
+     */
+    private static final class CacheMetrics {
+        private long hits = 0;
+        private long misses = 0;
+    }
+}
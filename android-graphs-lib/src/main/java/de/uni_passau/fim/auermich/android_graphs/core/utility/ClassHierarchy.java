@@ -7,19 +7,50 @@ import org.apache.logging.log4j.Logger;
 
 import javax.annotation.Nonnull;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Represents the class hierarchy between the application classes.
+ * Represents the class hierarchy between the application classes. The hierarchy is assembled by adding all classes
+ * and is afterwards built once, see {@link #build()}, which precomputes the method tables and the transitive sub
+ * classes of every class. Only a built hierarchy resolves methods, while it can't be changed anymore.
  */
 public class ClassHierarchy {
 
     private static final Logger LOGGER = LogManager.getLogger(ClassHierarchy.class);
 
+    // the name under which the resolution cache is reported in the build metrics
+    private static final String CACHE_NAME = "ClassHierarchy";
+
     /**
      * A mapping of a class name to its class.
      */
     private final Map<String, Class> classHierarchy;
 
+    /**
+     * Caches the resolved invocation targets, see {@link #getOverriddenMethods(String, String, String, String,
+     * Properties)}.
+     */
+    private final Map<ResolutionKey, Set<String>> resolutionCache = new ConcurrentHashMap<>();
+
+    private final LongAdder resolutionCacheHits = new LongAdder();
+    private final LongAdder resolutionCacheMisses = new LongAdder();
+
+    /**
+     * A vtable-like view per class name, i.e. a mapping of each method name to the signature of the method declared
+     * by the class itself or the closest super class. Computed for all classes by {@link #build()}.
+     */
+    private final Map<String, Map<String, String>> methodTables = new HashMap<>();
+
+    /**
+     * The transitive sub classes per class name, including the class itself. Computed for all classes by
+     * {@link #build()}.
+     */
+    private final Map<String, Set<Class>> subClassClosures = new HashMap<>();
+
+    // the precomputed tables are only read once this flag is set, which publishes them to other threads
+    private volatile boolean built = false;
+
     /**
      * The internal representation of a class.
      */
@@ -38,6 +69,9 @@ public class ClassHierarchy {
 
         private final Set<ClassDef> innerClasses;
 
+        // maps the method name, e.g. foo(I)V, to the full method signature, lazily computed
+        private volatile Map<String, String> declaredMethods;
+
         /**
          * Constructs a new class instance.
          *
@@ -95,6 +129,32 @@ public class ClassHierarchy {
             return clazz;
         }
 
+        /**
+         * Returns the methods declared by this class, i.e. a mapping of the method name, e.g. foo(I)V, to the
+         * full method signature. Empty for classes that are not contained in the dex files.
+         *
+         * @return Returns the methods declared by this class.
+         */
+        public Map<String, String> getDeclaredMethods() {
+
+            Map<String, String> methods = declaredMethods;
+
+            if (methods == null) {
+                if (clazz == null) {
+                    methods = Collections.emptyMap();
+                } else {
+                    methods = new HashMap<>();
+                    for (Method method : clazz.getMethods()) {
+                        final String methodSignature = method.toString();
+                        methods.putIfAbsent(MethodUtils.getMethodName(methodSignature), methodSignature);
+                    }
+                }
+                // concurrent initializations compute the same map
+                declaredMethods = methods;
+            }
+            return methods;
+        }
+
         public ClassDef getSuperClass() {
             return superClass;
         }
@@ -196,12 +256,14 @@ public class ClassHierarchy {
     }
 
     public void addClass(ClassDef classDef) {
+        checkNotBuilt();
         Class clazz = new Class(classDef);
         classHierarchy.put(clazz.getName(), clazz);
         update(clazz, null, null);
     }
 
     public void addClass(ClassDef classDef, ClassDef superClass) {
+        checkNotBuilt();
         Class clazz = new Class(classDef);
         clazz.setSuperClass(superClass);
         classHierarchy.put(clazz.getName(), clazz);
@@ -209,6 +271,7 @@ public class ClassHierarchy {
     }
 
     public void addClass(ClassDef classDef, ClassDef superClass, Set<ClassDef> interfaces) {
+        checkNotBuilt();
         Class clazz = new Class(classDef);
         clazz.setSuperClass(superClass);
         clazz.addInterfaces(interfaces);
@@ -217,6 +280,7 @@ public class ClassHierarchy {
     }
 
     public void addClass(ClassDef classDef, ClassDef superClass, Set<ClassDef> interfaces, Set<ClassDef> innerClasses) {
+        checkNotBuilt();
         Class clazz = new Class(classDef);
         clazz.setSuperClass(superClass);
         clazz.addInterfaces(interfaces);
@@ -266,6 +330,53 @@ public class ClassHierarchy {
         }
     }
 
+    /**
+     * Builds the class hierarchy once all classes have been added, i.e. computes the method table and the transitive
+     * sub classes of every class. The tables take memory proportional to the inherited methods and the depth of the
+     * hierarchy, but resolving a method afterwards only requires look ups. Once built, no class can be added anymore.
+     *
+     * @throws IllegalStateException If the class hierarchy has already been built.
+     */
+    public synchronized void build() {
+
+        checkNotBuilt();
+
+        for (Class clazz : classHierarchy.values()) {
+            computeMethodTable(clazz);
+            computeSubClassClosure(clazz);
+        }
+
+        LOGGER.debug("Built class hierarchy of " + classHierarchy.size() + " classes.");
+        built = true;
+    }
+
+    /**
+     * Checks whether the class hierarchy has been built, see {@link #build()}.
+     *
+     * @return Returns {@code true} if the class hierarchy has been built, otherwise {@code false}.
+     */
+    public boolean isBuilt() {
+        return built;
+    }
+
+    /**
+     * Ensures that the class hierarchy can still be changed.
+     */
+    private void checkNotBuilt() {
+        if (built) {
+            throw new IllegalStateException("The class hierarchy has already been built!");
+        }
+    }
+
+    /**
+     * Ensures that the class hierarchy has been built before methods are resolved.
+     */
+    private void checkBuilt() {
+        if (!built) {
+            throw new IllegalStateException("The class hierarchy has not been built yet!");
+        }
+    }
+
     /**
      * Checks each subclass that potentially overwrites the given method. Returns
      * the methods that actually overwrite the given method.
@@ -276,6 +387,8 @@ public class ClassHierarchy {
     @SuppressWarnings("unused")
     public Set<String> getOverriddenMethods(final String method) {
 
+        checkBuilt();
+
         Set<String> overriddenMethods = new HashSet<>();
 
         String methodName = MethodUtils.getMethodName(method);
@@ -309,23 +422,89 @@ public class ClassHierarchy {
      * we also need to check sub classes that could potentially overwrite the method. We return all overridden
      * methods including the method of the current class itself, but only if the current class is available.
      *
+     * The resolved methods are cached, thus repeated invocations of the same method are resolved only once.
+     *
      * @param callingClass The class in which the given method is called.
      * @param method The given method.
      * @param packageName The application package name.
+     * @param mainActivityPackage The package of the main activity, may be {@code null}.
      * @param properties The global properties.
-     * @return Returns the overridden method(s) in the super or sub classes.
+     * @return Returns an unmodifiable set of the overridden method(s) in the super or sub classes.
      */
     public Set<String> getOverriddenMethods(final String callingClass, final String method,
                                             final String packageName, final String mainActivityPackage,
                                             final Properties properties) {
 
+        checkBuilt();
+
+        final boolean isThreadMethod = ThreadUtils.isThreadMethod(this, method);
+
+        // only the resolution of thread methods depends on the calling class
+        final ResolutionKey key = new ResolutionKey(method, isThreadMethod ? callingClass : null, packageName,
+                mainActivityPackage, properties.resolveOnlyAUTClasses);
+
+        Set<String> overriddenMethods = resolutionCache.get(key);
+
+        if (overriddenMethods != null) {
+            resolutionCacheHits.increment();
+            BuildMetrics.recordCacheHit(CACHE_NAME);
+            return overriddenMethods;
+        }
+
+        resolutionCacheMisses.increment();
+        BuildMetrics.recordCacheMiss(CACHE_NAME);
+
+        /*
+        * We don't hold a lock while resolving the method, thus concurrent misses on the same key may resolve the
+        * method twice, but they produce the same result.
+         */
+        overriddenMethods = Collections.unmodifiableSet(resolveOverriddenMethods(callingClass, method, packageName,
+                mainActivityPackage, properties, isThreadMethod));
+        Set<String> previous = resolutionCache.putIfAbsent(key, overriddenMethods);
+        return previous != null ? previous : overriddenMethods;
+    }
+
+    /**
+     * Returns the number of invocation targets that could be served from the resolution cache.
+     *
+     * @return Returns the number of resolution cache hits.
+     */
+    public long getResolutionCacheHits() {
+        return resolutionCacheHits.sum();
+    }
+
+    /**
+     * Returns the number of invocation targets that needed to be resolved.
+     *
+     * @return Returns the number of resolution cache misses.
+     */
+    public long getResolutionCacheMisses() {
+        return resolutionCacheMisses.sum();
+    }
+
+    /**
+     * Resolves the overridden methods of the given method, see {@link #getOverriddenMethods(String, String, String,
+     * String, Properties)}.
+     *
+     * @param callingClass The class in which the given method is called.
+     * @param method The given method.
+     * @param packageName The application package name.
+     * @param mainActivityPackage The package of the main activity, may be {@code null}.
+     * @param properties The global properties.
+     * @param isThreadMethod Whether the given method is a run() or start() method of a Thread/Runnable.
+     * @return Returns the overridden method(s) in the super or sub classes.
+     */
+    private Set<String> resolveOverriddenMethods(final String callingClass, final String method,
+                                                 final String packageName, final String mainActivityPackage,
+                                                 final Properties properties, final boolean isThreadMethod) {
+
         Set<String> overriddenMethods = new HashSet<>();
 
         String methodName = MethodUtils.getMethodName(method);
         String className = MethodUtils.getClassName(method);
         Class clazz = getClassByName(className);
 
-        if (clazz != null && !ThreadUtils.isThreadMethod(this, method)) {
+        if (clazz != null && !isThreadMethod) {
 
             /*
             * First, check whether the current class defines the method, otherwise look up
@@ -333,16 +512,7 @@ public class ClassHierarchy {
             * not the case, we need to look downwards in the class hierarchy for a sub class
             * overriding the method.
              */
-            boolean currentClassDefinesMethod = false;
-
-            if (clazz.getClazz() != null) {
-                for (Method m : clazz.getClazz().getMethods()) {
-                    if (m.toString().equals(method)) {
-                        currentClassDefinesMethod = true;
-                        break;
-                    }
-                }
-            }
+            boolean currentClassDefinesMethod = method.equals(clazz.getDeclaredMethods().get(methodName));
 
             if (!currentClassDefinesMethod && clazz.getClazz() != null) {
                 // check super classes
@@ -398,7 +568,7 @@ public class ClassHierarchy {
             }
         } else {
             // class not defined in class hierarchy or run method of Thread/Runnable class
-            if (ThreadUtils.isThreadMethod(this, method)) {
+            if (isThreadMethod) {
                 /*
                  * Backtracking to the specific run method is rather complex, thus we stick to the following heuristic:
                  * We assume that the class invoking the run method implements itself the run method or any inner class
@@ -453,18 +623,95 @@ public class ClassHierarchy {
      */
     private String invokesSuperMethod(Class superClazz, String methodName) {
 
-        while (superClazz != null && superClazz.getClazz() != null) {
+        if (superClazz == null) {
+            return null;
+        }
+
+        String superMethod = getMethodTable(superClazz).get(methodName);
+
+        if (superMethod != null) {
+            LOGGER.debug("(Super) class " + MethodUtils.getClassName(superMethod) + " defines the method " + methodName);
+        }
+        return superMethod;
+    }
+
+    /**
+     * Returns the method table of the given class, i.e. a mapping of each method name to the signature of the
+     * method declared by the class itself or the closest super class contained in the dex files.
+     *
+     * @param clazz The class for which the method table should be returned.
+     * @return Returns the method table of the given class.
+     */
+    private Map<String, String> getMethodTable(final Class clazz) {
+        return methodTables.get(clazz.className);
+    }
+
+    /**
+     * Computes the method table of the given class and its super classes unless already computed.
+     *
+     * @param clazz The class for which the method table should be computed.
+     * @return Returns the method table of the given class.
+     */
+    private Map<String, String> computeMethodTable(final Class clazz) {
+
+        Map<String, String> methodTable = methodTables.get(clazz.className);
 
-            for (Method method : superClazz.getClazz().getMethods()) {
-                if (MethodUtils.getMethodName(method.toString()).equals(methodName)) {
-                    LOGGER.debug("(Super) class " + superClazz.getClazz() + " defines the method " + methodName);
-                    return method.toString();
+        if (methodTable != null) {
+            return methodTable;
+        }
+
+        if (clazz.getClazz() == null) {
+            // the class and thus its super classes are not contained in the dex files
+            methodTable = Collections.emptyMap();
+        } else {
+            final Class superClazz = getClass(clazz.superClass);
+
+            // the super class table is computed first, the chain of super classes is rather short
+            methodTable = new HashMap<>(superClazz != null ? computeMethodTable(superClazz) : Collections.emptyMap());
+            methodTable.putAll(clazz.getDeclaredMethods());
+            methodTable = Collections.unmodifiableMap(methodTable);
+        }
+
+        methodTables.put(clazz.className, methodTable);
+        return methodTable;
+    }
+
+    /**
+     * Returns the transitive sub classes of the given class including the class itself.
+     *
+     * @param clazz The class for which the sub classes should be returned.
+     * @return Returns the transitive sub classes of the given class.
+     */
+    private Set<Class> getSubClassClosure(final Class clazz) {
+        return subClassClosures.get(clazz.className);
+    }
+
+    /**
+     * Computes the transitive sub classes of the given class including the class itself.
+     *
+     * @param clazz The class for which the sub classes should be computed.
+     */
+    private void computeSubClassClosure(final Class clazz) {
+
+        final Set<Class> closure = new LinkedHashSet<>();
+        final Deque<Class> workList = new ArrayDeque<>();
+        workList.push(clazz);
+
+        while (!workList.isEmpty()) {
+            final Class current = workList.pop();
+            if (closure.add(current)) {
+                for (ClassDef subClass : current.getSubClasses()) {
+                    Class subClazz = getClass(subClass);
+                    if (subClazz != null) {
+                        workList.push(subClazz);
+                    } else {
+                        LOGGER.warn("No entry for sub class: " + subClass);
+                    }
                 }
             }
-
-            superClazz = getClass(superClazz.superClass);
         }
-        return null;
+
+        subClassClosures.put(clazz.className, Collections.unmodifiableSet(closure));
     }
 
     /**
@@ -474,6 +721,7 @@ public class ClassHierarchy {
      * @return Returns the method signature of the defining class or {@code null} if no such class exists.
      */
     public String invokedByCurrentClassOrAnySuperClass(String methodSignature) {
+        checkBuilt();
         String methodName = MethodUtils.getMethodName(methodSignature);
         String className = MethodUtils.getClassName(methodSignature);
         Class clazz = getClassByName(className);
@@ -481,7 +729,7 @@ public class ClassHierarchy {
     }
 
     /**
-     * Recursively check whether in the given class a method overrides the given method.
+     * Checks whether in the given class or any of its transitive sub classes a method overrides the given method.
      *
      * @param clazz The given class.
      * @param methodName The method name of the base method.
@@ -491,22 +739,10 @@ public class ClassHierarchy {
 
         Set<String> subClassMethods = new HashSet<>();
 
-        // check whether the current class overrides the given method
-        if (clazz.getClazz() != null) {
-            for (Method method : clazz.getClazz().getMethods()) {
-                if (MethodUtils.getMethodName(method.toString()).equals(methodName)) {
-                    subClassMethods.add(method.toString());
-                }
-            }
-        }
-
-        // recursively step down in the class hierarchy checking whether any sub class overrides the given method
-        for (ClassDef subClass : clazz.getSubClasses()) {
-            Class subClazz = getClass(subClass);
-            if (subClazz != null) {
-                subClassMethods.addAll(getOverriddenMethodsRecursive(subClazz, methodName));
-            } else {
-                LOGGER.warn("No entry for sub class: " + subClass);
+        for (Class subClazz : getSubClassClosure(clazz)) {
+            String method = subClazz.getDeclaredMethods().get(methodName);
+            if (method != null) {
+                subClassMethods.add(method);
             }
         }
         return subClassMethods;
@@ -551,4 +787,55 @@ public class ClassHierarchy {
     public String toString() {
         return classHierarchy.values().toString();
     }
+
+    /**
+     * The key of the resolution cache. Comprises the invoked method and all inputs the resolution depends on.
+     */
+    private static final class ResolutionKey {
+
+        private final String method;
+
+        // only set for thread methods
+        private final String callingClass;
+
+        private final String packageName;
+        private final String mainActivityPackage;
+        private final boolean resolveOnlyAUTClasses;
+
+        private final int hash;
+
+        private ResolutionKey(final String method, final String callingClass, final String packageName,
+                              final String mainActivityPackage, final boolean resolveOnlyAUTClasses) {
+            this.method = method;
+            this.callingClass = callingClass;
+            this.packageName = packageName;
+            this.mainActivityPackage = mainActivityPackage;
+            this.resolveOnlyAUTClasses = resolveOnlyAUTClasses;
+            hash = Objects.hash(method, callingClass, packageName, mainActivityPackage, resolveOnlyAUTClasses);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+
+            if (o == this) {
+                return true;
+            }
+
+            if (!(o instanceof ResolutionKey)) {
+                return false;
+            }
+
+            ResolutionKey other = (ResolutionKey) o;
+            return resolveOnlyAUTClasses == other.resolveOnlyAUTClasses
+                    && method.equals(other.method)
+                    && Objects.equals(callingClass, other.callingClass)
+                    && Objects.equals(packageName, other.packageName)
+                    && Objects.equals(mainActivityPackage, other.mainActivityPackage);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
 }
@@ -0,0 +1,119 @@
+package de.uni_passau.fim.auermich.android_graphs.core.utility;
+
+import com.android.tools.smali.dexlib2.iface.ClassDef;
+import com.android.tools.smali.dexlib2.iface.DexFile;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.*;
+
+/**
+ * An index over the classes of all dex files of an app, built in a single pass. In contrast to
+ * {@link ClassUtils#getSuperClass(DexFile, ClassDef)} and friends, super classes, interfaces and inner classes are
+ * resolved by a hash look up and may reside in any dex file of a multi-dex APK.
+ */
+public class ClassIndex {
+
+    private static final Logger LOGGER = LogManager.getLogger(ClassIndex.class);
+
+    // all classes in the order of the dex files
+    private final List<ClassDef> classes = new ArrayList<>();
+
+    // maps a class name, e.g. Lcom/example/Foo;, to its class
+    private final Map<String, ClassDef> classesByName = new HashMap<>();
+
+    // maps a class name to its (direct) inner classes
+    private final Map<String, Set<ClassDef>> innerClasses = new HashMap<>();
+
+    /**
+     * Indexes the classes of the given dex files.
+     *
+     * @param dexFiles The dex files.
+     */
+    public ClassIndex(final Collection<? extends DexFile> dexFiles) {
+        for (DexFile dexFile : dexFiles) {
+            for (ClassDef classDef : dexFile.getClasses()) {
+
+                final String className = classDef.toString();
+                classes.add(classDef);
+
+                // the first definition wins in case a class is defined in multiple dex files
+                classesByName.putIfAbsent(className, classDef);
+
+                if (ClassUtils.isInnerClass(className)) {
+                    innerClasses.computeIfAbsent(ClassUtils.getOuterClass(className), c -> new HashSet<>())
+                            .add(classDef);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns all classes contained in the dex files.
+     *
+     * @return Returns an unmodifiable list of all classes.
+     */
+    public List<ClassDef> getClasses() {
+        return Collections.unmodifiableList(classes);
+    }
+
+    /**
+     * Returns the class with the given name.
+     *
+     * @param className The class name, e.g. Lcom/example/Foo;.
+     * @return Returns the class or {@code null} if the class is not contained in any dex file.
+     */
+    public ClassDef getClass(final String className) {
+        return classesByName.get(className);
+    }
+
+    /**
+     * Gets the super class of the given class.
+     *
+     * @param clazz The class for which we look up its super class.
+     * @return Returns the super class of the given class if present or {@code null} otherwise.
+     */
+    public ClassDef getSuperClass(final ClassDef clazz) {
+
+        if (clazz.getSuperclass() == null || clazz.getSuperclass().equals("Ljava/lang/Object;")) {
+            return null;
+        }
+
+        ClassDef superClass = classesByName.get(clazz.getSuperclass());
+
+        if (superClass == null) {
+            LOGGER.warn("Super class for class " + clazz + " not found in given dex files!");
+        }
+        return superClass;
+    }
+
+    /**
+     * Gets the interfaces of the given class.
+     *
+     * @param clazz The class for which we look up its interfaces.
+     * @return Returns the interfaces of the given class if present or an empty set otherwise.
+     */
+    public Set<ClassDef> getInterfaces(final ClassDef clazz) {
+
+        Set<ClassDef> interfaces = new HashSet<>();
+
+        for (String interfaceName : clazz.getInterfaces()) {
+            ClassDef interfaceClass = classesByName.get(interfaceName);
+            if (interfaceClass != null) {
+                interfaces.add(interfaceClass);
+            }
+        }
+
+        return interfaces;
+    }
+
+    /**
+     * Gets the inner classes of the given class.
+     *
+     * @param clazz The class for which we look up its inner classes.
+     * @return Returns the inner classes of the given class if any or an empty set otherwise.
+     */
+    public Set<ClassDef> getInnerClasses(final ClassDef clazz) {
+        return new HashSet<>(innerClasses.getOrDefault(clazz.toString(), Collections.emptySet()));
+    }
+}
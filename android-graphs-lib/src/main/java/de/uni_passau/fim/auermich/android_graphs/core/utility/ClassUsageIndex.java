@@ -0,0 +1,368 @@
+package de.uni_passau.fim.auermich.android_graphs.core.utility;
+
+import com.android.tools.smali.dexlib2.Opcode;
+import com.android.tools.smali.dexlib2.iface.*;
+import com.android.tools.smali.dexlib2.iface.instruction.Instruction;
+import com.android.tools.smali.dexlib2.iface.instruction.ReferenceInstruction;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.SetMultimap;
+import de.uni_passau.fim.auermich.android_graphs.core.app.APK;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An index over the class references of all application classes of an APK, built in a single pass over the dex
+ * files. For every referenced class the index records which application class refers to it, through which kind of
+ * reference and at which location, i.e. the method and the instruction index. The index is immutable once
+ * constructed and can be thus shared between parallel graph builders.
+ */
+public final class ClassUsageIndex {
+
+    private static final Logger LOGGER = LogManager.getLogger(ClassUsageIndex.class);
+
+    // the name under which the construction time is recorded
+    private static final String METRICS_NAME = "ClassUsageIndex";
+
+    // matches class descriptors, e.g. Lcom/example/Foo;, within annotation values like generic signatures
+    private static final Pattern CLASS_DESCRIPTOR = Pattern.compile("L[^;\\s<>\\[\\],\"']+;");
+
+    // the kinds of references that define a usage relation between application classes, see getClassUsages()
+    private static final Set<Kind> CLASS_USAGE_KINDS = EnumSet.of(Kind.INSTANCE_FIELD, Kind.STATIC_FIELD,
+            Kind.PARAMETER, Kind.RETURN_TYPE, Kind.NEW_INSTANCE, Kind.CONST_CLASS, Kind.INVOKE, Kind.INVOKE_RETURN_TYPE);
+
+    // the class usage index per APK, the index is discarded together with the APK
+    private static final Map<APK, ClassUsageIndex> INDICES = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * The kind of reference to another class.
+     */
+    public enum Kind {
+        SUPER_CLASS,
+        ANNOTATION,
+        INTERFACE,
+        INSTANCE_FIELD,
+        STATIC_FIELD,
+        PARAMETER,
+        RETURN_TYPE,
+        NEW_INSTANCE,
+        CONST_CLASS,
+        INVOKE,
+        INVOKE_RETURN_TYPE
+    }
+
+    /**
+     * A reference of an application class to another class.
+     */
+    public static final class Reference {
+
+        private final ClassDef user;
+        private final DexFile dexFile;
+        private final Method method;
+        private final int instructionIndex;
+        private final Kind kind;
+        private final String target;
+
+        private Reference(ClassDef user, DexFile dexFile, Method method, int instructionIndex,
+                          Kind kind, String target) {
+            this.user = user;
+            this.dexFile = dexFile;
+            this.method = method;
+            this.instructionIndex = instructionIndex;
+            this.kind = kind;
+            this.target = target;
+        }
+
+        /**
+         * Returns the class that makes use of the target class.
+         *
+         * @return Returns the using class.
+         */
+        public ClassDef getUser() {
+            return user;
+        }
+
+        /**
+         * Returns the dex file containing the using class.
+         *
+         * @return Returns the dex file of the using class.
+         */
+        public DexFile getDexFile() {
+            return dexFile;
+        }
+
+        /**
+         * Returns the method that makes use of the target class.
+         *
+         * @return Returns the using method or {@code null} for references on class level, e.g. the super class.
+         */
+        public Method getMethod() {
+            return method;
+        }
+
+        /**
+         * Returns the index of the instruction that makes use of the target class.
+         *
+         * @return Returns the instruction index or {@code -1} if the reference is not defined by an instruction.
+         */
+        public int getInstructionIndex() {
+            return instructionIndex;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public String getTarget() {
+            return target;
+        }
+
+        @Override
+        public String toString() {
+            return "Reference{user=" + user + ", kind=" + kind + ", target=" + target
+                    + (method != null ? ", method=" + MethodUtils.getMethodName(method.toString()) : "")
+                    + (instructionIndex >= 0 ? ", instruction=" + instructionIndex : "") + "}";
+        }
+    }
+
+    // the application classes in the order of the dex files
+    private final Map<String, ClassDef> applicationClasses = new LinkedHashMap<>();
+
+    // maps a class name to its references in the order of the application classes
+    private final ImmutableListMultimap<String, Reference> usagesByTarget;
+
+    // maps an application class to the application classes it makes use of
+    private final ImmutableSetMultimap<String, String> classUsages;
+
+    // the method, class and field references of the instructions, collected in the same pass
+    private final ReferenceIndex referenceIndex;
+
+    private final String applicationPackage;
+    private final String mainActivityPackage;
+
+    /**
+     * Indexes the class references of the application classes contained in the given dex files.
+     *
+     * @param dexFiles The dex files.
+     * @param applicationPackage The package name of the app.
+     * @param mainActivityPackage The package of the main activity, may be {@code null}.
+     */
+    public ClassUsageIndex(final Collection<? extends DexFile> dexFiles, final String applicationPackage,
+                           final String mainActivityPackage) {
+
+        this.applicationPackage = applicationPackage;
+        this.mainActivityPackage = mainActivityPackage;
+
+        final Set<String> definedClasses = new HashSet<>();
+        dexFiles.forEach(dexFile -> dexFile.getClasses().forEach(classDef -> definedClasses.add(classDef.toString())));
+
+        final ImmutableListMultimap.Builder<String, Reference> usages = ImmutableListMultimap.builder();
+        final ImmutableSetMultimap.Builder<String, String> forward = ImmutableSetMultimap.builder();
+        final ReferenceIndex.Builder references = new ReferenceIndex.Builder();
+
+        try (BuildMetrics.Phase phase = BuildMetrics.startPhase(METRICS_NAME, "construction")) {
+            for (DexFile dexFile : dexFiles) {
+                for (ClassDef classDef : dexFile.getClasses()) {
+
+                    final String className = classDef.toString();
+
+                    if (!isApplicationClass(className) || applicationClasses.containsKey(className)) {
+                        // don't look at 3rd party classes and the same class defined in multiple dex files
+                        continue;
+                    }
+
+                    applicationClasses.put(className, classDef);
+
+                    // an outer class has a direct relation to its inner class, e.g. ActivityA$FragmentA
+                    if (ClassUtils.isInnerClass(className)) {
+                        forward.put(ClassUtils.getOuterClass(className), className);
+                    }
+
+                    for (Reference reference : collectReferences(dexFile, classDef, definedClasses, references)) {
+                        usages.put(reference.getTarget(), reference);
+                        if (CLASS_USAGE_KINDS.contains(reference.getKind())
+                                && !className.equals(reference.getTarget())
+                                && isApplicationClass(reference.getTarget())) {
+                            forward.put(className, reference.getTarget());
+                        }
+                    }
+                }
+            }
+        }
+
+        usagesByTarget = usages.build();
+        classUsages = forward.build();
+        referenceIndex = references.build();
+        LOGGER.debug("Indexed " + usagesByTarget.size() + " class references of "
+                + applicationClasses.size() + " application classes.");
+    }
+
+    /**
+     * Returns the class usage index of the given APK. The index is built on first access and shared by all
+     * subsequent (concurrent) requests.
+     *
+     * @param apk The APK file.
+     * @return Returns the class usage index of the given APK.
+     */
+    public static ClassUsageIndex of(final APK apk) {
+        return INDICES.computeIfAbsent(apk, a -> {
+            final String mainActivity = a.getManifest().getMainActivity();
+            final String mainActivityPackage = mainActivity != null
+                    ? mainActivity.substring(0, mainActivity.lastIndexOf('.')) : null;
+            return new ClassUsageIndex(a.getDexFiles(), a.getManifest().getPackageName(), mainActivityPackage);
+        });
+    }
+
+    /**
+     * Collects the references of the given class. The references of a class are ordered as follows: super class,
+     * annotations, interfaces, fields and finally per method its parameters, return type and instructions. For each
+     * kind of reference only the first reference to a given class is recorded. In addition, every instruction is
+     * recorded in the given reference index.
+     *
+     * @param dexFile The dex file containing the class.
+     * @param classDef The class whose references should be collected.
+     * @param definedClasses The classes defined in the dex files.
+     * @param referenceIndex The reference index under construction.
+     * @return Returns the references of the given class.
+     */
+    private List<Reference> collectReferences(final DexFile dexFile, final ClassDef classDef,
+                                              final Set<String> definedClasses,
+                                              final ReferenceIndex.Builder referenceIndex) {
+
+        final List<Reference> references = new ArrayList<>();
+        final Map<Kind, Set<String>> seen = new EnumMap<>(Kind.class);
+
+        final ReferenceCollector collector = (method, instructionIndex, kind, target) -> {
+            if (target != null && target.startsWith("L")
+                    && (definedClasses.contains(target) || isApplicationClass(target))
+                    && seen.computeIfAbsent(kind, k -> new HashSet<>()).add(target)) {
+                references.add(new Reference(classDef, dexFile, method, instructionIndex, kind, target));
+            }
+        };
+
+        collector.collect(null, -1, Kind.SUPER_CLASS, classDef.getSuperclass());
+
+        for (Annotation annotation : classDef.getAnnotations()) {
+            for (AnnotationElement annotationElement : annotation.getElements()) {
+                final Matcher matcher = CLASS_DESCRIPTOR.matcher(annotationElement.getValue().toString());
+                while (matcher.find()) {
+                    collector.collect(null, -1, Kind.ANNOTATION, matcher.group());
+                }
+            }
+        }
+
+        classDef.getInterfaces().forEach(interfaceClass -> collector.collect(null, -1, Kind.INTERFACE, interfaceClass));
+        classDef.getInstanceFields().forEach(field -> collector.collect(null, -1, Kind.INSTANCE_FIELD, field.getType()));
+        classDef.getStaticFields().forEach(field -> collector.collect(null, -1, Kind.STATIC_FIELD, field.getType()));
+
+        for (Method method : classDef.getMethods()) {
+
+            for (MethodParameter parameter : method.getParameters()) {
+                collector.collect(method, -1, Kind.PARAMETER, parameter.getType());
+            }
+
+            collector.collect(method, -1, Kind.RETURN_TYPE, method.getReturnType());
+
+            final MethodImplementation implementation = method.getImplementation();
+
+            if (implementation == null) {
+                continue;
+            }
+
+            int instructionIndex = 0;
+
+            for (Instruction instruction : implementation.getInstructions()) {
+                referenceIndex.add(classDef, dexFile, method, instructionIndex, instruction);
+                if (instruction.getOpcode() == Opcode.NEW_INSTANCE) {
+                    collector.collect(method, instructionIndex, Kind.NEW_INSTANCE,
+                            ((ReferenceInstruction) instruction).getReference().toString());
+                } else if (instruction.getOpcode() == Opcode.CONST_CLASS) {
+                    collector.collect(method, instructionIndex, Kind.CONST_CLASS,
+                            ((ReferenceInstruction) instruction).getReference().toString());
+                } else if (InstructionUtils.isInvokeInstruction(instruction)) {
+                    final String invokeCall = ((ReferenceInstruction) instruction).getReference().toString();
+                    collector.collect(method, instructionIndex, Kind.INVOKE, MethodUtils.getClassName(invokeCall));
+                    collector.collect(method, instructionIndex, Kind.INVOKE_RETURN_TYPE,
+                            MethodUtils.getReturnType(invokeCall));
+                }
+                instructionIndex++;
+            }
+        }
+
+        return references;
+    }
+
+    /**
+     * Checks whether the given class belongs to the application.
+     *
+     * @param className The class name, e.g. Lcom/example/Foo;.
+     * @return Returns {@code true} if the class is an application class, otherwise {@code false}.
+     */
+    private boolean isApplicationClass(final String className) {
+        final String dottedClassName = ClassUtils.dottedClassName(className);
+        return ClassUtils.isApplicationClass(applicationPackage, dottedClassName)
+                || (mainActivityPackage != null && dottedClassName.startsWith(mainActivityPackage));
+    }
+
+    /**
+     * Returns the application class with the given name.
+     *
+     * @param className The class name, e.g. Lcom/example/Foo;.
+     * @return Returns the application class or {@code null} if no such application class exists.
+     */
+    public ClassDef getApplicationClass(final String className) {
+        return applicationClasses.get(className);
+    }
+
+    /**
+     * Returns the indexed application classes.
+     *
+     * @return Returns an unmodifiable view of the application classes in the order of the dex files.
+     */
+    public Collection<ClassDef> getApplicationClasses() {
+        return Collections.unmodifiableCollection(applicationClasses.values());
+    }
+
+    /**
+     * Returns the references of the application classes to the given class.
+     *
+     * @param className The referenced class, e.g. Lcom/example/Foo;.
+     * @return Returns the references to the given class, grouped by the using class and ordered as described in
+     *          {@link #collectReferences(DexFile, ClassDef, Set, ReferenceIndex.Builder)}.
+     */
+    public List<Reference> getUsages(final String className) {
+        return usagesByTarget.get(className);
+    }
+
+    /**
+     * Returns which application class makes use of which other application class through fields, method signatures
+     * and instructions. Self references are excluded and an outer class is considered to make use of its inner
+     * classes.
+     *
+     * @return Returns a read-only mapping from a class to the application classes it makes use of.
+     */
+    public SetMultimap<String, String> getClassUsages() {
+        return classUsages;
+    }
+
+    /**
+     * Returns the index of the method, class and field references of the instructions of the application classes.
+     *
+     * @return Returns the reference index.
+     */
+    public ReferenceIndex getReferenceIndex() {
+        return referenceIndex;
+    }
+
+    /**
+     * Records a single reference.
+     */
+    @FunctionalInterface
+    private interface ReferenceCollector {
+        void collect(Method method, int instructionIndex, Kind kind, String target);
+    }
+}
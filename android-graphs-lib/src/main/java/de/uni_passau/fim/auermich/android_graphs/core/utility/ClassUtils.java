@@ -2,7 +2,6 @@ package de.uni_passau.fim.auermich.android_graphs.core.utility;
 
 import com.android.tools.smali.dexlib2.AccessFlags;
 import com.android.tools.smali.dexlib2.iface.ClassDef;
-import com.android.tools.smali.dexlib2.iface.DexFile;
 import com.android.tools.smali.dexlib2.iface.Method;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
@@ -47,78 +46,6 @@ public class ClassUtils {
         throw new UnsupportedOperationException("utility class");
     }
 
-    /**
-     * Gets the super class of the given class.
-     * NOTE: We assume that the super class is contained in the same dex file.
-     *
-     * @param dexFile The dex file potentially containing the super class.
-     * @param clazz The class for which we look up its super class.
-     * @return Returns the super class of the given class if present or {@code null} otherwise.
-     */
-    public static ClassDef getSuperClass(final DexFile dexFile, final ClassDef clazz) {
-
-        if (clazz.getSuperclass() == null || clazz.getSuperclass().equals("Ljava/lang/Object;")) {
-            return null;
-        }
-
-        for (ClassDef classDef : dexFile.getClasses()) {
-            if (clazz.getSuperclass().equals(classDef.toString())) {
-                return classDef;
-            }
-        }
-
-        LOGGER.warn("Super class for class " + clazz + " not found in given dex file!");
-        return null;
-    }
-
-    /**
-     * Gets the interfaces of the given class.
-     * NOTE: We assume that the interfaces are contained in the same dex file.
-     *
-     * @param dexFile The dex file potentially containing the interfaces.
-     * @param clazz The class for which we look up its interfaces.
-     * @return Returns the interfaces of the given class if present or an empty set otherwise.
-     */
-    public static Set<ClassDef> getInterfaces(final DexFile dexFile, final ClassDef clazz) {
-
-        Set<ClassDef> interfaces = new HashSet<>();
-        List<String> interfaceNames = clazz.getInterfaces();
-
-        if (!interfaceNames.isEmpty()) {
-            for (ClassDef classDef : dexFile.getClasses()) {
-                if (interfaceNames.contains(classDef.toString())) {
-                    interfaces.add(classDef);
-                }
-            }
-        }
-
-        return interfaces;
-    }
-
-    /**
-     * Gets the inner classes of the given class.
-     * NOTE: We assume that the inner classes are contained in the same dex file.
-     *
-     * @param dexFile The dex file potentially containing the inner classes.
-     * @param clazz The class for which we look up its inner classes.
-     * @return Returns the inner classes of the given class if any or an empty set otherwise.
-     */
-    public static Set<ClassDef> getInnerClasses(final DexFile dexFile, final ClassDef clazz) {
-
-        Set<ClassDef> innerClasses = new HashSet<>();
-
-        for (ClassDef classDef : dexFile.getClasses()) {
-            String className = classDef.toString();
-            if (ClassUtils.isInnerClass(className)) {
-                if (ClassUtils.getOuterClass(className).equals(clazz.toString())) {
-                    innerClasses.add(classDef);
-                }
-            }
-        }
-
-        return innerClasses;
-    }
-
     /**
      * Returns the method signature of the default constructor for a given class.
      *
@@ -7,7 +7,6 @@ import com.android.tools.smali.dexlib2.iface.*;
 import com.android.tools.smali.dexlib2.iface.instruction.Instruction;
 import com.android.tools.smali.dexlib2.iface.instruction.ReferenceInstruction;
 import com.android.tools.smali.dexlib2.iface.instruction.formats.Instruction21c;
-import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
 import de.uni_passau.fim.auermich.android_graphs.core.app.APK;
 import de.uni_passau.fim.auermich.android_graphs.core.app.components.*;
@@ -459,166 +458,75 @@ public class ComponentUtils {
      */
     public static void checkComponentRelations(final APK apk, final Set<Component> components,
                                                final ClassHierarchy classHierarchy) {
+        final ClassUsageIndex classUsageIndex = ClassUsageIndex.of(apk);
+        final InstructionTraversal traversal = new InstructionTraversal();
+        registerComponentRelationChecks(traversal, apk, components, classHierarchy);
+        traversal.visitAll(apk.getDexFiles(),
+                classDef -> classUsageIndex.getApplicationClass(classDef.toString()) == classDef);
+        traversal.finish();
+    }
+
+    /**
+     * Registers the checks for relations between the given components, see
+     * {@link #checkComponentRelations(APK, Set, ClassHierarchy)}, at the given instruction traversal. The relations
+     * are derived when the traversal is finished.
+     *
+     * @param traversal The instruction traversal over the application classes.
+     * @param apk The APK file.
+     * @param components The set of discovered components.
+     * @param classHierarchy The derived class hierarchy.
+     */
+    public static void registerComponentRelationChecks(final InstructionTraversal traversal, final APK apk,
+                                                       final Set<Component> components,
+                                                       final ClassHierarchy classHierarchy) {
 
         LOGGER.debug("Checking component relations...");
 
         // provides a mapping which class makes use of which other class
-        final Multimap<String, String> classUsages = ArrayListMultimap.create();
-
-        final String applicationPackage = apk.getManifest().getPackageName();
-        final String mainActivity = apk.getManifest().getMainActivity();
-        final String mainActivityPackage = mainActivity != null
-                ? mainActivity.substring(0, mainActivity.lastIndexOf('.')) : null;
+        final ClassUsageIndex classUsageIndex = ClassUsageIndex.of(apk);
+        final Multimap<String, String> classUsages = classUsageIndex.getClassUsages();
 
         // consumes the class usages and checks for view pager fragment usages of activities
         final List<Consumer<Multimap<String, String>>> viewPagerFragmentUsages = new LinkedList<>();
 
-        // TODO: Avoid deriving class usages two times, see 'classUsages' vs UsageSearch.findClassUsages()!
+        // TODO: Track usages defined by interfaces.
+        // TODO: Define a class usage between outer class and nested inner classes, e.g. Activity$FragmentA$FragmentB.
 
-        for (DexFile dexFile : apk.getDexFiles()) {
-            for (ClassDef classDef : dexFile.getClasses()) {
+        // don't look at 3rd party classes
+        traversal.register(context -> classUsageIndex.getApplicationClass(context.getClassDef().toString())
+                        == context.getClassDef(), InstructionUtils.getInvokeOpcodes(),
+                (context, analyzedInstruction) -> {
 
-                // TODO: Track usages defined by interfaces.
+                    final String fullyQualifiedMethodName = context.getMethodSignature();
 
-                final String className = classDef.toString();
-                final String dottedClassName = ClassUtils.dottedClassName(className);
+                    // check for fragment invocation
+                    FragmentUtils.checkForFragmentInvocation(apk, components, context.getClassDef(),
+                            fullyQualifiedMethodName, analyzedInstruction, classHierarchy);
 
-                if (!ClassUtils.isApplicationClass(applicationPackage, dottedClassName)
-                        && (mainActivityPackage == null || !dottedClassName.startsWith(mainActivityPackage))) {
-                    // don't look at 3rd party classes
-                    continue;
-                }
-
-                // TODO: Define a class usage between outer class and nested inner classes, e.g. Activity$FragmentA$FragmentB.
-
-                // an outer class has a direct relation to its inner class, e.g. ActivityA$FragmentA
-                if (ClassUtils.isInnerClass(className)) {
-                    final String outerClass = ClassUtils.getOuterClass(className);
-                    // we detect such relation when we traverse the inner class (className)
-                    classUsages.put(outerClass, className);
-                }
-
-                // check the references to other application classes
-                for (Field field : classDef.getFields()) {
-                    final String dottedFieldName = ClassUtils.dottedClassName(field.getType());
-                    if (ClassUtils.isApplicationClass(applicationPackage, dottedFieldName)
-                            || (mainActivityPackage != null && dottedFieldName.startsWith(mainActivityPackage))) {
-                        if (!className.equals(field.getType())) { // ignore self references
-                            classUsages.put(className, field.getType());
-                        }
-                    }
-                }
+                    // check for fragment view pager usages
+                    viewPagerFragmentUsages.add(FragmentUtils.checkForFragmentViewPager(components,
+                            fullyQualifiedMethodName, analyzedInstruction, classHierarchy));
 
-                for (Method method : classDef.getMethods()) {
+                    // check for service invocation
+                    ServiceUtils.checkForServiceInvocation(components, fullyQualifiedMethodName, analyzedInstruction);
 
-                    final String fullyQualifiedMethodName = MethodUtils.deriveMethodSignature(method);
-
-                    // check the method parameters for references
-                    for (MethodParameter parameter : method.getParameters()) {
-                        final String dottedParameterName = ClassUtils.dottedClassName(parameter.getType());
-                        if (ClassUtils.isApplicationClass(applicationPackage, dottedParameterName)
-                                || (mainActivityPackage != null && dottedParameterName.startsWith(mainActivityPackage))) {
-                            if (!className.equals(parameter.getType())) { // ignore self references
-                                classUsages.put(className, parameter.getType());
-                            }
-                        }
-                    }
+                    // check for dynamic broadcast receiver registration
+                    ReceiverUtils.checkForDynamicReceiverRegistration(components, analyzedInstruction);
+                });
 
-                    // check method return value
-                    final String dottedReturnTypeName = ClassUtils.dottedClassName(method.getReturnType());
-                    if (ClassUtils.isApplicationClass(applicationPackage, dottedReturnTypeName)
-                            || (mainActivityPackage != null && dottedReturnTypeName.startsWith(mainActivityPackage))) {
-                        if (!className.equals(method.getReturnType())) { // ignore self references
-                            classUsages.put(className, method.getReturnType());
-                        }
-                    }
+        traversal.onFinish(() -> deriveComponentRelations(components, classUsages, viewPagerFragmentUsages));
+    }
 
-                    // check instructions for references
-                    if (method.getImplementation() != null) {
-
-                        List<AnalyzedInstruction> analyzedInstructions
-                                = MethodUtils.getAnalyzedInstructions(dexFile, method);
-
-                        for (AnalyzedInstruction analyzedInstruction : analyzedInstructions) {
-
-                            Instruction instruction = analyzedInstruction.getInstruction();
-
-                            if (instruction.getOpcode() == Opcode.NEW_INSTANCE) {
-                                // check constructor call
-                                final Instruction21c newInstance = (Instruction21c) instruction;
-                                final String targetClassName = newInstance.getReference().toString();
-                                final String dottedTargetClassName = ClassUtils.dottedClassName(targetClassName);
-                                if (ClassUtils.isApplicationClass(applicationPackage, dottedTargetClassName)
-                                        || (mainActivityPackage != null && dottedTargetClassName.startsWith(mainActivityPackage))) {
-                                    if (!className.equals(targetClassName)) { // ignore self references
-                                        classUsages.put(className, targetClassName);
-                                    }
-                                }
-                            } else if (instruction.getOpcode() == Opcode.CONST_CLASS) {
-                                final Instruction21c constClass = (Instruction21c) instruction;
-                                final String targetClassName = constClass.getReference().toString();
-                                final String dottedTargetClassName = ClassUtils.dottedClassName(targetClassName);
-                                if (ClassUtils.isApplicationClass(applicationPackage, dottedTargetClassName)
-                                        || (mainActivityPackage != null && dottedTargetClassName.startsWith(mainActivityPackage))) {
-                                    if (!className.equals(targetClassName)) { // ignore self references
-                                        classUsages.put(className, targetClassName);
-                                    }
-                                }
-                            } else if (InstructionUtils.isInvokeInstruction(instruction)) {
-
-                                final String invokeCall = ((ReferenceInstruction) instruction).getReference().toString();
-
-                                // check defining class (called class)
-                                final String definingClassName = MethodUtils.getClassName(invokeCall);
-                                final String dottedDefiningClassName = ClassUtils.dottedClassName(definingClassName);
-                                if (ClassUtils.isApplicationClass(applicationPackage, dottedDefiningClassName)
-                                        || (mainActivityPackage != null && dottedDefiningClassName.startsWith(mainActivityPackage))) {
-                                    if (!className.equals(definingClassName)) { // ignore self references
-                                        classUsages.put(className, definingClassName);
-                                    }
-                                }
-
-                                if (ClassUtils.isInnerClass(definingClassName)) {
-                                    // every inner class has per default a relation to its outer class
-                                    final String outerClassName = ClassUtils.getOuterClass(definingClassName);
-                                    if (ClassUtils.isApplicationClass(applicationPackage, outerClassName)
-                                            || (mainActivityPackage != null && outerClassName.startsWith(mainActivityPackage))) {
-                                        if (!className.equals(outerClassName)) { // ignore self references
-                                            classUsages.put(className, outerClassName);
-                                        }
-                                    }
-                                }
-
-                                // check return type
-                                final String returnType = MethodUtils.getReturnType(invokeCall);
-                                final String dottedReturnType = ClassUtils.dottedClassName(returnType);
-                                if (ClassUtils.isApplicationClass(applicationPackage, dottedReturnType)
-                                        || (mainActivityPackage != null && dottedReturnType.startsWith(mainActivityPackage))) {
-                                    if (!className.equals(returnType)) { // ignore self references
-                                        classUsages.put(className, returnType);
-                                    }
-                                }
-
-                                // check for fragment invocation
-                                FragmentUtils.checkForFragmentInvocation(apk, components, classDef,
-                                        fullyQualifiedMethodName, analyzedInstruction, classHierarchy);
-
-                                // check for fragment view pager usages
-                                viewPagerFragmentUsages.add(FragmentUtils.checkForFragmentViewPager(components,
-                                        fullyQualifiedMethodName, analyzedInstruction, classHierarchy));
-
-                                // check for service invocation
-                                ServiceUtils.checkForServiceInvocation(components, fullyQualifiedMethodName,
-                                        analyzedInstruction);
-
-                                // check for dynamic broadcast receiver registration
-                                ReceiverUtils.checkForDynamicReceiverRegistration(components, analyzedInstruction);
-                            }
-                        }
-                    }
-                }
-            }
-        }
+    /**
+     * Derives the relations between the given components from the class usages.
+     *
+     * @param components The set of discovered components.
+     * @param classUsages Describes which class makes use of which other class.
+     * @param viewPagerFragmentUsages Consume the class usages and check for view pager fragment usages.
+     */
+    private static void deriveComponentRelations(final Set<Component> components,
+                                                 final Multimap<String, String> classUsages,
+                                                 final List<Consumer<Multimap<String, String>>> viewPagerFragmentUsages) {
 
         // derive the view pager fragment usages by consuming the class usages
         viewPagerFragmentUsages.forEach(viewPagerFragmentUsage -> viewPagerFragmentUsage.accept(classUsages));
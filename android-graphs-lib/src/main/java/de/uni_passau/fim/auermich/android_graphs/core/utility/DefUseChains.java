@@ -0,0 +1,495 @@
+package de.uni_passau.fim.auermich.android_graphs.core.utility;
+
+import com.android.tools.smali.dexlib2.Opcode;
+import com.android.tools.smali.dexlib2.analysis.AnalyzedInstruction;
+import com.android.tools.smali.dexlib2.iface.instruction.FiveRegisterInstruction;
+import com.android.tools.smali.dexlib2.iface.instruction.Instruction;
+import com.android.tools.smali.dexlib2.iface.instruction.OneRegisterInstruction;
+import com.android.tools.smali.dexlib2.iface.instruction.ReferenceInstruction;
+import com.android.tools.smali.dexlib2.iface.instruction.RegisterRangeInstruction;
+import com.android.tools.smali.dexlib2.iface.instruction.ThreeRegisterInstruction;
+import com.android.tools.smali.dexlib2.iface.instruction.TwoRegisterInstruction;
+import com.android.tools.smali.dexlib2.iface.instruction.WideLiteralInstruction;
+import com.android.tools.smali.dexlib2.iface.reference.MethodReference;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The def-use chains of the registers of a single method. The registers written by each instruction are computed
+ * once per method, the reaching definitions and uses of a register are derived on demand by a single backward or
+ * forward search over the control flow (each instruction is visited at most once per query) and memoized. On top of
+ * that, a simple copy, constant and type propagation is offered, which is what the backtracking resolvers need to
+ * find out which class, string or literal a register holds at a given invocation.
+ *
+ * The start of the method, i.e. the pseudo instruction with index -1, is treated as definition of every register,
+ * thus a reaching definition with index -1 denotes a value passed in as parameter (or an uninitialized register).
+ *
+ * The chains of the most recently queried methods are cached. The cache is bounded, since the chains reference the
+ * analyzed instructions of their method and thus its analyzer, and is cleared once a graph has been constructed.
+ */
+public final class DefUseChains {
+
+    // the maximal number of methods whose chains are cached
+    private static final int CACHE_SIZE = 32;
+
+    // the chains of the most recently queried methods, the most recent comes first
+    private static final Deque<DefUseChains> CACHE = new ArrayDeque<>(CACHE_SIZE);
+
+    private static final Set<Opcode> MOVE_OPCODES = EnumSet.of(Opcode.MOVE, Opcode.MOVE_FROM16, Opcode.MOVE_16,
+            Opcode.MOVE_WIDE, Opcode.MOVE_WIDE_FROM16, Opcode.MOVE_WIDE_16,
+            Opcode.MOVE_OBJECT, Opcode.MOVE_OBJECT_FROM16, Opcode.MOVE_OBJECT_16);
+
+    private static final Set<Opcode> CONSTANT_OPCODES = EnumSet.of(Opcode.CONST, Opcode.CONST_4, Opcode.CONST_16,
+            Opcode.CONST_HIGH16, Opcode.CONST_WIDE, Opcode.CONST_WIDE_16, Opcode.CONST_WIDE_32,
+            Opcode.CONST_WIDE_HIGH16);
+
+    private static final Set<Opcode> STRING_CONSTANT_OPCODES = EnumSet.of(Opcode.CONST_STRING, Opcode.CONST_STRING_JUMBO);
+
+    // the instructions of the method ordered by their index, the start of the method comes first
+    private final List<AnalyzedInstruction> instructions;
+
+    // maps an instruction to its position in the above list
+    private final Map<AnalyzedInstruction, Integer> positions = new IdentityHashMap<>();
+
+    // the registers written by the instruction at the respective position
+    private final BitSet[] definedRegisters;
+
+    private final int registerCount;
+
+    // the memoized reaching definitions and uses, keyed by position and register
+    private final Map<Long, List<AnalyzedInstruction>> reachingDefinitions = new ConcurrentHashMap<>();
+    private final Map<Long, List<AnalyzedInstruction>> uses = new ConcurrentHashMap<>();
+
+    private DefUseChains(final AnalyzedInstruction analyzedInstruction) {
+
+        instructions = collectInstructions(analyzedInstruction);
+        registerCount = instructions.stream().mapToInt(AnalyzedInstruction::getRegisterCount).max().orElse(0);
+        definedRegisters = new BitSet[instructions.size()];
+
+        for (int position = 0; position < instructions.size(); position++) {
+
+            final AnalyzedInstruction instruction = instructions.get(position);
+            positions.put(instruction, position);
+            final BitSet registers = new BitSet(registerCount);
+
+            if (instruction.getInstructionIndex() == -1) {
+                // the start of the method defines the parameter registers
+                registers.set(0, registerCount);
+            } else {
+                // setsRegister() covers wide registers and the aliases initialized by a constructor call
+                for (int register = 0; register < registerCount; register++) {
+                    if (instruction.setsRegister(register)) {
+                        registers.set(register);
+                    }
+                }
+            }
+
+            definedRegisters[position] = registers;
+        }
+    }
+
+    /**
+     * Returns the def-use chains of the method containing the given instruction. The chains are shared among all
+     * instructions of the method as long as the method is among the most recently queried methods.
+     *
+     * @param analyzedInstruction Any analyzed instruction of the method.
+     * @return Returns the def-use chains of the method containing the given instruction.
+     */
+    public static DefUseChains of(final AnalyzedInstruction analyzedInstruction) {
+
+        synchronized (CACHE) {
+            for (Iterator<DefUseChains> iterator = CACHE.iterator(); iterator.hasNext(); ) {
+                final DefUseChains chains = iterator.next();
+                if (chains.positions.containsKey(analyzedInstruction)) {
+                    iterator.remove();
+                    CACHE.addFirst(chains);
+                    return chains;
+                }
+            }
+        }
+
+        // concurrent queries of the same method may compute the chains twice, which is cheaper than blocking
+        final DefUseChains chains = new DefUseChains(analyzedInstruction);
+
+        synchronized (CACHE) {
+            CACHE.addFirst(chains);
+            if (CACHE.size() > CACHE_SIZE) {
+                CACHE.removeLast();
+            }
+        }
+        return chains;
+    }
+
+    /**
+     * Releases the cached chains, which is done once a graph has been constructed.
+     */
+    public static void clearCache() {
+        synchronized (CACHE) {
+            CACHE.clear();
+        }
+    }
+
+    /**
+     * Collects all instructions of the method containing the given instruction by following the control flow in
+     * both directions.
+     *
+     * @param analyzedInstruction Any analyzed instruction of the method.
+     * @return Returns the instructions of the method ordered by their index.
+     */
+    private static List<AnalyzedInstruction> collectInstructions(final AnalyzedInstruction analyzedInstruction) {
+
+        final Set<AnalyzedInstruction> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        final Deque<AnalyzedInstruction> workList = new ArrayDeque<>();
+        visited.add(analyzedInstruction);
+        workList.add(analyzedInstruction);
+
+        while (!workList.isEmpty()) {
+            final AnalyzedInstruction instruction = workList.poll();
+            for (AnalyzedInstruction predecessor : instruction.getPredecessors()) {
+                if (visited.add(predecessor)) {
+                    workList.add(predecessor);
+                }
+            }
+            for (AnalyzedInstruction successor : instruction.getSuccessors()) {
+                if (visited.add(successor)) {
+                    workList.add(successor);
+                }
+            }
+        }
+
+        final List<AnalyzedInstruction> instructions = new ArrayList<>(visited);
+        instructions.sort(Comparator.comparingInt(AnalyzedInstruction::getInstructionIndex));
+        return instructions;
+    }
+
+    private int getPosition(final AnalyzedInstruction analyzedInstruction) {
+        final Integer position = positions.get(analyzedInstruction);
+        if (position == null) {
+            throw new IllegalArgumentException("Instruction " + analyzedInstruction.getInstructionIndex()
+                    + " doesn't belong to this method!");
+        }
+        return position;
+    }
+
+    private long key(final int position, final int register) {
+        return (long) position * registerCount + register;
+    }
+
+    private boolean defines(final int position, final int register) {
+        return definedRegisters[position].get(register);
+    }
+
+    /**
+     * Returns the definitions of the given register that reach the given instruction, i.e. the instructions that
+     * may have written the value the register holds right before the given instruction is executed.
+     *
+     * @param analyzedInstruction The instruction reading the register.
+     * @param register The register.
+     * @return Returns the reaching definitions ordered by their instruction index, the start of the method (index -1)
+     *          is included if the value may stem from a parameter.
+     */
+    public List<AnalyzedInstruction> getReachingDefinitions(final AnalyzedInstruction analyzedInstruction,
+                                                            final int register) {
+
+        final int position = getPosition(analyzedInstruction);
+
+        if (register < 0 || register >= registerCount) {
+            return Collections.emptyList();
+        }
+
+        return reachingDefinitions.computeIfAbsent(key(position, register), k -> {
+
+            final BitSet visited = new BitSet(instructions.size());
+            final BitSet definitions = new BitSet(instructions.size());
+            final Deque<AnalyzedInstruction> workList = new ArrayDeque<>(analyzedInstruction.getPredecessors());
+
+            while (!workList.isEmpty()) {
+                final int current = getPosition(workList.pop());
+                if (visited.get(current)) {
+                    continue;
+                }
+                visited.set(current);
+
+                if (defines(current, register)) {
+                    definitions.set(current);
+                } else {
+                    workList.addAll(instructions.get(current).getPredecessors());
+                }
+            }
+
+            return toInstructions(definitions);
+        });
+    }
+
+    /**
+     * Returns the single definition of the given register that reaches the given instruction.
+     *
+     * @param analyzedInstruction The instruction reading the register.
+     * @param register The register.
+     * @return Returns the reaching definition if it is unique, otherwise an empty optional.
+     */
+    public Optional<AnalyzedInstruction> getReachingDefinition(final AnalyzedInstruction analyzedInstruction,
+                                                               final int register) {
+        final List<AnalyzedInstruction> definitions = getReachingDefinitions(analyzedInstruction, register);
+        return definitions.size() == 1 ? Optional.of(definitions.get(0)) : Optional.empty();
+    }
+
+    /**
+     * Returns the instructions reading the value the given definition writes to the given register.
+     *
+     * @param definition The instruction writing the register.
+     * @param register The register.
+     * @return Returns the uses of the definition ordered by their instruction index.
+     */
+    public List<AnalyzedInstruction> getUses(final AnalyzedInstruction definition, final int register) {
+
+        final int position = getPosition(definition);
+
+        if (!defines(position, register)) {
+            return Collections.emptyList();
+        }
+
+        return uses.computeIfAbsent(key(position, register), k -> {
+
+            final BitSet visited = new BitSet(instructions.size());
+            final BitSet readers = new BitSet(instructions.size());
+            final Deque<AnalyzedInstruction> workList = new ArrayDeque<>(definition.getSuccessors());
+
+            while (!workList.isEmpty()) {
+                final AnalyzedInstruction instruction = workList.pop();
+                final int current = getPosition(instruction);
+                if (visited.get(current)) {
+                    continue;
+                }
+                visited.set(current);
+
+                if (readsRegister(instruction.getInstruction(), register)) {
+                    readers.set(current);
+                }
+
+                if (!defines(current, register)) {
+                    workList.addAll(instruction.getSuccessors());
+                }
+            }
+
+            return toInstructions(readers);
+        });
+    }
+
+    private List<AnalyzedInstruction> toInstructions(final BitSet positions) {
+        final List<AnalyzedInstruction> result = new ArrayList<>(positions.cardinality());
+        positions.stream().forEach(position -> result.add(instructions.get(position)));
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Checks whether the given instruction reads the given register. Only the first half of a wide register pair is
+     * considered.
+     *
+     * @param instruction The instruction.
+     * @param register The register.
+     * @return Returns {@code true} if the instruction reads the register, otherwise {@code false}.
+     */
+    private static boolean readsRegister(final Instruction instruction, final int register) {
+
+        if (instruction instanceof FiveRegisterInstruction) {
+            final FiveRegisterInstruction invoke = (FiveRegisterInstruction) instruction;
+            final int[] registers = {invoke.getRegisterC(), invoke.getRegisterD(), invoke.getRegisterE(),
+                    invoke.getRegisterF(), invoke.getRegisterG()};
+            for (int i = 0; i < invoke.getRegisterCount(); i++) {
+                if (registers[i] == register) {
+                    return true;
+                }
+            }
+            return false;
+        } else if (instruction instanceof RegisterRangeInstruction) {
+            final RegisterRangeInstruction invoke = (RegisterRangeInstruction) instruction;
+            return register >= invoke.getStartRegister()
+                    && register < invoke.getStartRegister() + invoke.getRegisterCount();
+        }
+
+        if (instruction instanceof ThreeRegisterInstruction
+                && ((ThreeRegisterInstruction) instruction).getRegisterC() == register) {
+            return true;
+        }
+
+        if (instruction instanceof TwoRegisterInstruction
+                && ((TwoRegisterInstruction) instruction).getRegisterB() == register) {
+            return true;
+        }
+
+        // register A is only read if it is not the destination, except for the 2addr instructions
+        return instruction instanceof OneRegisterInstruction
+                && ((OneRegisterInstruction) instruction).getRegisterA() == register
+                && (!instruction.getOpcode().setsRegister() || instruction.getOpcode().name.endsWith("/2addr"));
+    }
+
+    /**
+     * Returns the origins of the value the given register holds at the given instruction. In contrast to
+     * {@link #getReachingDefinitions(AnalyzedInstruction, int)}, move instructions are followed back to the
+     * definition of the moved register and constructor calls, which re-define the initialized register and its
+     * aliases, are followed back to the new-instance instruction.
+     *
+     * @param analyzedInstruction The instruction reading the register.
+     * @param register The register.
+     * @return Returns the defining instructions that are neither move instructions nor constructor calls ordered by
+     *          their instruction index.
+     */
+    public List<AnalyzedInstruction> getSources(final AnalyzedInstruction analyzedInstruction, final int register) {
+
+        final BitSet sources = new BitSet(instructions.size());
+        final Set<Long> visited = new HashSet<>();
+        final Deque<long[]> workList = new ArrayDeque<>();
+        workList.push(new long[]{getPosition(analyzedInstruction), register});
+
+        while (!workList.isEmpty()) {
+
+            final long[] query = workList.pop();
+
+            if (!visited.add(key((int) query[0], (int) query[1]))) {
+                continue;
+            }
+
+            for (AnalyzedInstruction definition
+                    : getReachingDefinitions(instructions.get((int) query[0]), (int) query[1])) {
+                final Instruction instruction = definition.getInstruction();
+                if (definition.getInstructionIndex() == -1) {
+                    sources.set(getPosition(definition));
+                } else if (MOVE_OPCODES.contains(instruction.getOpcode())
+                        && ((TwoRegisterInstruction) instruction).getRegisterA() == query[1]) {
+                    // the moved register holds the same value
+                    workList.push(new long[]{getPosition(definition),
+                            ((TwoRegisterInstruction) instruction).getRegisterB()});
+                } else if (isConstructorCall(instruction)) {
+                    // the constructor initializes the object the register already refers to
+                    workList.push(new long[]{getPosition(definition), query[1]});
+                } else {
+                    sources.set(getPosition(definition));
+                }
+            }
+        }
+
+        return toInstructions(sources);
+    }
+
+    private static boolean isConstructorCall(final Instruction instruction) {
+        return (instruction.getOpcode() == Opcode.INVOKE_DIRECT || instruction.getOpcode() == Opcode.INVOKE_DIRECT_RANGE)
+                && MethodUtils.isConstructorCall(((ReferenceInstruction) instruction).getReference().toString());
+    }
+
+    /**
+     * Returns the literal value the given register holds at the given instruction.
+     *
+     * @param analyzedInstruction The instruction reading the register.
+     * @param register The register.
+     * @return Returns the literal value if all origins of the register agree on it, otherwise an empty optional.
+     */
+    public Optional<Long> getConstant(final AnalyzedInstruction analyzedInstruction, final int register) {
+
+        Long constant = null;
+
+        for (AnalyzedInstruction source : getSources(analyzedInstruction, register)) {
+            final Instruction instruction = source.getInstruction();
+            // the literal of an arithmetic instruction, e.g. add-int/lit8, is an operand and not the register's value
+            if (source.getInstructionIndex() == -1 || !CONSTANT_OPCODES.contains(instruction.getOpcode())) {
+                return Optional.empty();
+            }
+
+            final long value = ((WideLiteralInstruction) instruction).getWideLiteral();
+            if (constant != null && constant != value) {
+                return Optional.empty();
+            }
+            constant = value;
+        }
+
+        return Optional.ofNullable(constant);
+    }
+
+    /**
+     * Returns the string constant the given register holds at the given instruction.
+     *
+     * @param analyzedInstruction The instruction reading the register.
+     * @param register The register.
+     * @return Returns the string constant if all origins of the register agree on it, otherwise an empty optional.
+     */
+    public Optional<String> getStringConstant(final AnalyzedInstruction analyzedInstruction, final int register) {
+
+        String constant = null;
+
+        for (AnalyzedInstruction source : getSources(analyzedInstruction, register)) {
+            final Instruction instruction = source.getInstruction();
+            if (source.getInstructionIndex() == -1 || !STRING_CONSTANT_OPCODES.contains(instruction.getOpcode())) {
+                return Optional.empty();
+            }
+
+            final String value = ((ReferenceInstruction) instruction).getReference().toString();
+            if (constant != null && !constant.equals(value)) {
+                return Optional.empty();
+            }
+            constant = value;
+        }
+
+        return Optional.ofNullable(constant);
+    }
+
+    /**
+     * Returns the types of the objects the given register may hold at the given instruction. The type of an origin
+     * is derived from a new-instance, check-cast, const-string or const-class instruction, the return type of the
+     * invocation whose result is moved into the register or the type of the field the register is read from.
+     * Parameters and other origins contribute no type.
+     *
+     * @param analyzedInstruction The instruction reading the register.
+     * @param register The register.
+     * @return Returns the derivable object types in the order of the instruction index of their origin.
+     */
+    public Set<String> getObjectTypes(final AnalyzedInstruction analyzedInstruction, final int register) {
+        final Set<String> types = new LinkedHashSet<>();
+        for (AnalyzedInstruction source : getSources(analyzedInstruction, register)) {
+            getObjectType(source).ifPresent(types::add);
+        }
+        return types;
+    }
+
+    /**
+     * Derives the type of the object written by the given definition.
+     *
+     * @param definition The defining instruction.
+     * @return Returns the type of the written object if derivable, otherwise an empty optional.
+     */
+    private static Optional<String> getObjectType(final AnalyzedInstruction definition) {
+
+        if (definition.getInstructionIndex() == -1) {
+            return Optional.empty();
+        }
+
+        final Instruction instruction = definition.getInstruction();
+
+        switch (instruction.getOpcode()) {
+            case NEW_INSTANCE:
+            case CHECK_CAST:
+                return Optional.of(((ReferenceInstruction) instruction).getReference().toString());
+            case CONST_STRING:
+            case CONST_STRING_JUMBO:
+                return Optional.of("Ljava/lang/String;");
+            case CONST_CLASS:
+                return Optional.of("Ljava/lang/Class;");
+            case MOVE_RESULT_OBJECT:
+                // the only predecessor is the invocation or filled-new-array instruction producing the result
+                final AnalyzedInstruction producer = definition.getPredecessors().first();
+                if (producer.getInstructionIndex() != -1 && producer.getInstruction() instanceof ReferenceInstruction) {
+                    final Object reference = ((ReferenceInstruction) producer.getInstruction()).getReference();
+                    return Optional.of(reference instanceof MethodReference
+                            ? ((MethodReference) reference).getReturnType() : reference.toString());
+                }
+                return Optional.empty();
+            case IGET_OBJECT:
+            case SGET_OBJECT:
+                // the field type follows the colon, e.g. Lcom/example/Foo;->bar:Lcom/example/Bar;
+                final String field = ((ReferenceInstruction) instruction).getReference().toString();
+                return Optional.of(field.substring(field.lastIndexOf(':') + 1));
+            default:
+                return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package de.uni_passau.fim.auermich.android_graphs.core.utility;
+
+import com.android.tools.smali.dexlib2.dexbacked.DexBackedDexFile;
+import com.android.tools.smali.dexlib2.iface.DexFile;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Loads the dex files of an APK file (multi-dex) or a single dex file. The dex entries of an APK are read in
+ * parallel, each directly into a buffer of the exact size of the entry, which backs the parsed dex file. In contrast
+ * to {@code DexFileFactory.loadDexContainer()}, which loads the entries one after another through growing buffers,
+ * this neither serializes the inflation of the entries nor temporarily requires twice the size of an entry.
+ */
+public final class DexLoader {
+
+    private static final Logger LOGGER = LogManager.getLogger(DexLoader.class);
+
+    // the dex entries of an APK, i.e. classes.dex, classes2.dex, ..., classesN.dex
+    private static final Pattern DEX_ENTRY = Pattern.compile("^classes(\\d*)\\.dex$");
+
+    private DexLoader() {
+        throw new UnsupportedOperationException("utility class!");
+    }
+
+    /**
+     * Loads the dex files contained in the given APK file or the given dex file.
+     *
+     * @param file The APK file or a single dex file.
+     * @return Returns the dex files ordered by their index, i.e. classes.dex comes first.
+     */
+    public static List<DexFile> loadDexFiles(final File file) {
+
+        if (file.getName().endsWith(".dex")) {
+            return List.of(loadDexFile(file));
+        }
+
+        try (ZipFile zipFile = new ZipFile(file)) {
+
+            final List<? extends ZipEntry> dexEntries = zipFile.stream()
+                    .filter(entry -> DEX_ENTRY.matcher(entry.getName()).matches())
+                    .sorted(Comparator.comparingInt(entry -> getDexIndex(entry.getName())))
+                    .collect(Collectors.toList());
+
+            if (dexEntries.isEmpty()) {
+                throw new IllegalArgumentException("No dex file contained in " + file);
+            }
+
+            LOGGER.debug("Loading " + dexEntries.size() + " dex files from " + file);
+
+            // a zip file can be read concurrently, the order of the entries is retained
+            return dexEntries.parallelStream()
+                    .map(entry -> loadDexFile(zipFile, entry))
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the index of the given dex entry, i.e. 1 for classes.dex and N for classesN.dex.
+     *
+     * @param entryName The name of the dex entry.
+     * @return Returns the index of the dex entry.
+     */
+    private static int getDexIndex(final String entryName) {
+        final Matcher matcher = DEX_ENTRY.matcher(entryName);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Not a dex entry: " + entryName);
+        }
+        return matcher.group(1).isEmpty() ? 1 : Integer.parseInt(matcher.group(1));
+    }
+
+    private static DexFile loadDexFile(final ZipFile zipFile, final ZipEntry entry) {
+        try (InputStream stream = zipFile.getInputStream(entry)) {
+            final long size = entry.getSize();
+            final byte[] buffer;
+
+            if (size < 0 || size > Integer.MAX_VALUE) {
+                // the size is not recorded in the central directory
+                buffer = stream.readAllBytes();
+            } else {
+                buffer = new byte[(int) size];
+                if (stream.readNBytes(buffer, 0, buffer.length) != buffer.length) {
+                    throw new EOFException("Truncated dex entry: " + entry.getName());
+                }
+            }
+
+            return new DexBackedDexFile(Utility.API_OPCODE, buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static DexFile loadDexFile(final File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Dex file too large: " + file);
+            }
+
+            final byte[] buffer = new byte[(int) channel.size()];
+            final ByteBuffer target = ByteBuffer.wrap(buffer);
+
+            while (target.hasRemaining()) {
+                if (channel.read(target) < 0) {
+                    throw new EOFException("Truncated dex file: " + file);
+                }
+            }
+
+            return new DexBackedDexFile(Utility.API_OPCODE, buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
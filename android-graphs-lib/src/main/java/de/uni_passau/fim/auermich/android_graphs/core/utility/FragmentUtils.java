@@ -5,8 +5,6 @@ import com.android.tools.smali.dexlib2.analysis.AnalyzedInstruction;
 import com.android.tools.smali.dexlib2.iface.ClassDef;
 import com.android.tools.smali.dexlib2.iface.instruction.Instruction;
 import com.android.tools.smali.dexlib2.iface.instruction.ReferenceInstruction;
-import com.android.tools.smali.dexlib2.iface.instruction.formats.Instruction11x;
-import com.android.tools.smali.dexlib2.iface.instruction.formats.Instruction21c;
 import com.android.tools.smali.dexlib2.iface.instruction.formats.Instruction35c;
 import com.google.common.collect.Multimap;
 import de.uni_passau.fim.auermich.android_graphs.core.app.APK;
@@ -19,6 +17,7 @@ import org.apache.logging.log4j.Logger;
 
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
@@ -77,7 +76,7 @@ public class FragmentUtils {
      */
     public static String isFragmentInvocation(final AnalyzedInstruction analyzedInstruction) {
 
-        Set<String> fragments = new HashSet<>();
+        Set<String> fragments = new LinkedHashSet<>();
 
         Instruction instruction = analyzedInstruction.getInstruction();
         String targetMethod = ((ReferenceInstruction) instruction).getReference().toString();
@@ -106,11 +105,12 @@ public class FragmentUtils {
                 fragmentRegisterID = invokeVirtual.getRegisterD();
             }
 
-            // go over all predecessors
-            Set<AnalyzedInstruction> predecessors = analyzedInstruction.getPredecessors();
-            int finalFragmentRegisterID = fragmentRegisterID;
-            predecessors.forEach(predecessor ->
-                    fragments.addAll(isFragmentInvocationRecursive(predecessor, finalFragmentRegisterID)));
+            /*
+             * The fragment is typically constructed by a new-instance instruction (and the subsequent constructor
+             * call), returned by a factory method, e.g. newInstance(), or read from an instance variable. The
+             * reaching definitions of the register are computed once per method and cover all control flow paths.
+             */
+            fragments.addAll(DefUseChains.of(analyzedInstruction).getObjectTypes(analyzedInstruction, fragmentRegisterID));
         }
 
         if (!fragments.isEmpty()) {
@@ -120,75 +120,6 @@ public class FragmentUtils {
         }
     }
 
-    /**
-     * Recursively looks up every predecessor for holding a reference to a fragment.
-     *
-     * @param predecessor The current predecessor instruction.
-     * @param fragmentRegisterID The register potentially holding a fragment.
-     * @return Returns a set of fragments or an empty set if no fragment was found.
-     */
-    private static Set<String> isFragmentInvocationRecursive(final AnalyzedInstruction predecessor,
-                                                             final int fragmentRegisterID) {
-
-        Set<String> fragments = new HashSet<>();
-
-        // base case
-        if (predecessor.getInstructionIndex() == -1) {
-            return fragments;
-        }
-
-        if (predecessor.getInstruction().getOpcode() == Opcode.NEW_INSTANCE) {
-            // check for new instance declaration of fragment class
-            Instruction21c newInstance = (Instruction21c) predecessor.getInstruction();
-            if (newInstance.getRegisterA() == fragmentRegisterID) {
-                String fragment = newInstance.getReference().toString();
-                fragments.add(fragment);
-                return fragments;
-            }
-        } else if (predecessor.getInstruction().getOpcode() == Opcode.INVOKE_DIRECT) {
-            // check for constructor invocation of fragment class
-            Instruction35c constructor = (Instruction35c) predecessor.getInstruction();
-            if (constructor.getRegisterC() == fragmentRegisterID) {
-                String constructorInvocation = constructor.getReference().toString();
-                String fragment = MethodUtils.getClassName(constructorInvocation);
-                fragments.add(fragment);
-                return fragments;
-            }
-        } else if (predecessor.getInstruction().getOpcode() == Opcode.MOVE_RESULT_OBJECT) {
-            /*
-             * In addition to above possibilities, a fragment can be also created through a
-             * regular method. For instance, consider the following example:
-             *
-             *   invoke-static {p1}, Lde/retujo/bierverkostung/beer/SelectBeerFragment;
-             *       ->newInstance(Landroid/view/View$OnClickListener;)Lde/retujo/bierverkostung/beer/SelectBeerFragment;
-             *   move-result-object p1
-             *
-             * We first check whether the result has been saved in the relevant register. Then we
-             * look at the direct predecessor and check the return type of the invocation.
-             */
-            Instruction11x moveResultObject = (Instruction11x) predecessor.getInstruction();
-            if (moveResultObject.getRegisterA() == fragmentRegisterID) {
-                Instruction35c invokeInstruction = (Instruction35c) predecessor.getPredecessors().first().getInstruction();
-                String fragment = MethodUtils.getReturnType(invokeInstruction.getReference().toString());
-                fragments.add(fragment);
-                return fragments;
-            }
-        } else if (predecessor.setsRegister(fragmentRegisterID) && predecessor.getInstruction().getOpcode() == Opcode.IGET_OBJECT) {
-            // Fragment is stored in (instance) variable:
-            // iget-object v9, p0, Lnet/exclaimindustries/geohashdroid/util/ExpeditionMode;
-            //                    ->mExtraFragment:Lnet/exclaimindustries/geohashdroid/fragments/CentralMapExtraFragment;
-            final String reference = ((ReferenceInstruction) predecessor.getInstruction()).getReference().toString();
-            final String fragment = reference.split(":")[1];
-            fragments.add(fragment);
-            return fragments;
-        }
-
-        // check all predecessors
-        Set<AnalyzedInstruction> predecessors = predecessor.getPredecessors();
-        predecessors.forEach(p -> fragments.addAll(isFragmentInvocationRecursive(p, fragmentRegisterID)));
-        return fragments;
-    }
-
     /**
      * Tracks whether the given instruction refers to a fragment invocation. If this is the case,
      * the activity hosting the fragment is updated with this information.
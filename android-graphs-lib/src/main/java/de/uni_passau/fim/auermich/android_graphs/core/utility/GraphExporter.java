@@ -0,0 +1,333 @@
+package de.uni_passau.fim.auermich.android_graphs.core.utility;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jgrapht.Graph;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports a graph in the DOT, JSON or GraphML format by streaming it through a buffered file channel. Vertices are
+ * identified by compact numeric ids, which are assigned in the iteration order of the vertex set, instead of their
+ * (long) string representation, which would otherwise be repeated for every edge. The label of each vertex is written
+ * once as an attribute of the vertex, or optionally into a separate tab-separated label table, see
+ * {@link #setLabelTable(boolean)}. All files can be optionally gzip-compressed. Apart from the id of each vertex, no
+ * per-vertex or per-edge state is kept, hence even the largest graphs can be exported in bounded memory.
+ *
+ * @param <V> The vertex type.
+ * @param <E> The edge type.
+ */
+public final class GraphExporter<V, E> {
+
+    private static final Logger LOGGER = LogManager.getLogger(GraphExporter.class);
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The supported output formats.
+     */
+    public enum Format {
+        DOT("dot"),
+        JSON("json"),
+        GRAPHML("graphml");
+
+        private final String extension;
+
+        Format(final String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private final Graph<V, E> graph;
+
+    private final Function<V, String> labelProvider;
+
+    // the numeric id of each vertex
+    private final Map<V, Integer> ids;
+
+    // optionally provides the DOT attributes of a vertex, e.g. its fill color
+    private Function<V, String> dotAttributeProvider;
+
+    // whether the labels are written into a separate label table instead of the graph file
+    private boolean labelTable = false;
+
+    /**
+     * Creates an exporter for the given graph.
+     *
+     * @param graph The graph to be exported.
+     * @param labelProvider Provides the label of a vertex.
+     */
+    public GraphExporter(final Graph<V, E> graph, final Function<V, String> labelProvider) {
+        this.graph = graph;
+        this.labelProvider = labelProvider;
+        this.ids = new HashMap<>(graph.vertexSet().size() * 4 / 3 + 1);
+        for (V vertex : graph.vertexSet()) {
+            ids.put(vertex, ids.size());
+        }
+    }
+
+    /**
+     * Sets the provider of the DOT attributes of a vertex, e.g. 'style=filled, fillcolor="red"'. The attributes are
+     * only written in the DOT format and only if the provider returns a non-empty string for a vertex.
+     *
+     * @param dotAttributeProvider Provides the DOT attributes of a vertex.
+     */
+    public void setDOTAttributeProvider(final Function<V, String> dotAttributeProvider) {
+        this.dotAttributeProvider = dotAttributeProvider;
+    }
+
+    /**
+     * Sets whether the labels of the vertices should be written into a separate label table instead of the graph
+     * file. The graph file then only contains the numeric ids, which keeps it small if it is processed by tools that
+     * don't need the labels.
+     *
+     * @param labelTable Whether the labels should be written into a separate label table.
+     */
+    public void setLabelTable(final boolean labelTable) {
+        this.labelTable = labelTable;
+    }
+
+    /**
+     * Exports the graph in the given format. If the labels are written into a separate label table, the label table
+     * is written next to the graph file, e.g. graph.dot and graph.labels.tsv.
+     *
+     * @param output The path of the graph file.
+     * @param format The output format.
+     * @param compress Whether the graph file and the label table should be gzip-compressed. If so, the suffix .gz is
+     *                 appended to the file names.
+     */
+    public void export(final Path output, final Format format, final boolean compress) {
+
+        exportGraph(output, format, compress);
+
+        if (labelTable) {
+            final String fileName = output.getFileName().toString();
+            final int extension = fileName.lastIndexOf('.');
+            final String baseName = extension > 0 ? fileName.substring(0, extension) : fileName;
+            exportLabels(output.resolveSibling(baseName + ".labels.tsv"), compress);
+        }
+    }
+
+    /**
+     * Writes the graph file, where vertices are referred to by their numeric id. The labels are only written if they
+     * are not written into a separate label table.
+     *
+     * @param output The path of the graph file.
+     * @param format The output format.
+     * @param compress Whether the graph file should be gzip-compressed.
+     */
+    private void exportGraph(final Path output, final Format format, final boolean compress) {
+
+        LOGGER.debug("Exporting graph with " + ids.size() + " vertices to " + format + ".");
+
+        try (Writer writer = openWriter(output, compress)) {
+            switch (format) {
+                case DOT:
+                    writeDOT(writer);
+                    break;
+                case JSON:
+                    writeJSON(writer);
+                    break;
+                case GRAPHML:
+                    writeGraphML(writer);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported format: " + format);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the label table, i.e. a line containing the numeric id and the label for each vertex.
+     *
+     * @param output The path of the label table.
+     * @param compress Whether the label table should be gzip-compressed.
+     */
+    private void exportLabels(final Path output, final boolean compress) {
+        try (Writer writer = openWriter(output, compress)) {
+            writer.write("id\tlabel\n");
+            for (V vertex : graph.vertexSet()) {
+                writer.write(Integer.toString(ids.get(vertex)));
+                writer.write('\t');
+                writer.write(escapeTSV(labelProvider.apply(vertex)));
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Writer openWriter(final Path output, final boolean compress) throws IOException {
+
+        final Path target = compress ? output.resolveSibling(output.getFileName() + ".gz") : output;
+        final FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        OutputStream stream = Channels.newOutputStream(channel);
+
+        if (compress) {
+            stream = new GZIPOutputStream(stream, BUFFER_SIZE);
+        }
+
+        return new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    private void writeDOT(final Writer writer) throws IOException {
+        writer.write("digraph G {\n");
+        for (V vertex : graph.vertexSet()) {
+            writer.write("  ");
+            writer.write(Integer.toString(ids.get(vertex)));
+            String attributes = dotAttributeProvider != null ? dotAttributeProvider.apply(vertex) : null;
+            if (!labelTable) {
+                final String label = "label=\"" + escapeDOT(labelProvider.apply(vertex)) + "\"";
+                attributes = attributes != null && !attributes.isEmpty() ? label + ", " + attributes : label;
+            }
+            if (attributes != null && !attributes.isEmpty()) {
+                writer.write(" [");
+                writer.write(attributes);
+                writer.write(']');
+            }
+            writer.write(";\n");
+        }
+        for (E edge : graph.edgeSet()) {
+            writer.write("  ");
+            writer.write(Integer.toString(ids.get(graph.getEdgeSource(edge))));
+            writer.write(" -> ");
+            writer.write(Integer.toString(ids.get(graph.getEdgeTarget(edge))));
+            writer.write(";\n");
+        }
+        writer.write("}\n");
+    }
+
+    private void writeJSON(final Writer writer) throws IOException {
+        writer.write("{\"creator\":\"android-graphs\",\"version\":\"1\",\"nodes\":[");
+        boolean first = true;
+        for (V vertex : graph.vertexSet()) {
+            if (!first) {
+                writer.write(',');
+            }
+            first = false;
+            writer.write("{\"id\":");
+            writer.write(Integer.toString(ids.get(vertex)));
+            if (!labelTable) {
+                writer.write(",\"label\":\"");
+                writer.write(escapeJSON(labelProvider.apply(vertex)));
+                writer.write('"');
+            }
+            writer.write('}');
+        }
+        writer.write("],\"edges\":[");
+        first = true;
+        for (E edge : graph.edgeSet()) {
+            if (!first) {
+                writer.write(',');
+            }
+            first = false;
+            writer.write("{\"source\":");
+            writer.write(Integer.toString(ids.get(graph.getEdgeSource(edge))));
+            writer.write(",\"target\":");
+            writer.write(Integer.toString(ids.get(graph.getEdgeTarget(edge))));
+            writer.write('}');
+        }
+        writer.write("]}\n");
+    }
+
+    private void writeGraphML(final Writer writer) throws IOException {
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        writer.write("<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\">\n");
+        if (!labelTable) {
+            writer.write("  <key id=\"label\" for=\"node\" attr.name=\"label\" attr.type=\"string\"/>\n");
+        }
+        writer.write("  <graph id=\"G\" edgedefault=\"directed\">\n");
+        for (V vertex : graph.vertexSet()) {
+            writer.write("    <node id=\"n");
+            writer.write(Integer.toString(ids.get(vertex)));
+            if (labelTable) {
+                writer.write("\"/>\n");
+            } else {
+                writer.write("\"><data key=\"label\">");
+                writer.write(escapeXML(labelProvider.apply(vertex)));
+                writer.write("</data></node>\n");
+            }
+        }
+        for (E edge : graph.edgeSet()) {
+            writer.write("    <edge source=\"n");
+            writer.write(Integer.toString(ids.get(graph.getEdgeSource(edge))));
+            writer.write("\" target=\"n");
+            writer.write(Integer.toString(ids.get(graph.getEdgeTarget(edge))));
+            writer.write("\"/>\n");
+        }
+        writer.write("  </graph>\n");
+        writer.write("</graphml>\n");
+    }
+
+    /**
+     * Escapes the characters of a label that would break the tab-separated label table.
+     *
+     * @param label The label.
+     * @return Returns the escaped label.
+     */
+    private static String escapeTSV(final String label) {
+        return label.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    /**
+     * Escapes the characters of a label that would break a quoted DOT string.
+     *
+     * @param label The label.
+     * @return Returns the escaped label.
+     */
+    private static String escapeDOT(final String label) {
+        return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n").replace("\r", "");
+    }
+
+    /**
+     * Escapes the characters of a label that would break a JSON string.
+     *
+     * @param label The label.
+     * @return Returns the escaped label.
+     */
+    private static String escapeJSON(final String label) {
+        final StringBuilder builder = new StringBuilder(label.length());
+        for (int i = 0; i < label.length(); i++) {
+            final char c = label.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < 0x20) {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Escapes the characters of a label that would break the character data of an XML element.
+     *
+     * @param label The label.
+     * @return Returns the escaped label.
+     */
+    private static String escapeXML(final String label) {
+        return label.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
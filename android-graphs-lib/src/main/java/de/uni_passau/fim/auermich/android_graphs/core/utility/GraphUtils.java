@@ -1,10 +1,7 @@
 package de.uni_passau.fim.auermich.android_graphs.core.utility;
 
-import com.android.tools.smali.dexlib2.DexFileFactory;
-import com.android.tools.smali.dexlib2.dexbacked.DexBackedDexFile;
 import com.android.tools.smali.dexlib2.iface.DexFile;
 import com.android.tools.smali.dexlib2.iface.Method;
-import com.android.tools.smali.dexlib2.iface.MultiDexContainer;
 import de.uni_passau.fim.auermich.android_graphs.core.graphs.BaseGraph;
 import de.uni_passau.fim.auermich.android_graphs.core.graphs.BaseGraphBuilder;
 import de.uni_passau.fim.auermich.android_graphs.core.graphs.GraphType;
@@ -17,9 +14,6 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.File;
-import java.io.IOException;
-import java.io.UncheckedIOException;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -49,30 +43,7 @@ public class GraphUtils {
         LOGGER.info("APK: " + apkPath);
         LOGGER.info("Constructing INTRA-CFG for method: " + method);
 
-        MultiDexContainer<? extends DexBackedDexFile> apk = null;
-
-        try {
-            apk = DexFileFactory.loadDexContainer(apkPath, Utility.API_OPCODE);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
-
-        List<DexFile> dexFiles = new ArrayList<>();
-        List<String> dexEntries = new ArrayList<>();
-
-        try {
-            dexEntries = apk.getDexEntryNames();
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
-
-        for (String dexEntry : dexEntries) {
-            try {
-                dexFiles.add(apk.getEntry(dexEntry).getDexFile());
-            } catch (IOException e) {
-                throw new UncheckedIOException(e);
-            }
-        }
+        final List<DexFile> dexFiles = DexLoader.loadDexFiles(apkPath);
 
         // check that specified target method is part of some class
         Optional<Tuple<DexFile, Method>> targetDexFileAndMethodTuple
@@ -112,30 +83,7 @@ public class GraphUtils {
 
         long start = System.currentTimeMillis();
 
-        MultiDexContainer<? extends DexBackedDexFile> apk = null;
-
-        try {
-            apk = DexFileFactory.loadDexContainer(apkPath, Utility.API_OPCODE);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
-
-        List<DexFile> dexFiles = new ArrayList<>();
-        List<String> dexEntries = new ArrayList<>();
-
-        try {
-            dexEntries = apk.getDexEntryNames();
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
-
-        for (String dexEntry : dexEntries) {
-            try {
-                dexFiles.add(apk.getEntry(dexEntry).getDexFile());
-            } catch (IOException e) {
-                throw new UncheckedIOException(e);
-            }
-        }
+        final List<DexFile> dexFiles = DexLoader.loadDexFiles(apkPath);
 
         BaseGraphBuilder builder = new BaseGraphBuilder(GraphType.INTERCFG, dexFiles)
                 .withName("global")
@@ -200,30 +148,7 @@ public class GraphUtils {
 
         long start = System.currentTimeMillis();
 
-        MultiDexContainer<? extends DexBackedDexFile> apk = null;
-
-        try {
-            apk = DexFileFactory.loadDexContainer(apkPath, Utility.API_OPCODE);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
-
-        List<DexFile> dexFiles = new ArrayList<>();
-        List<String> dexEntries = new ArrayList<>();
-
-        try {
-            dexEntries = apk.getDexEntryNames();
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
-
-        for (String dexEntry : dexEntries) {
-            try {
-                dexFiles.add(apk.getEntry(dexEntry).getDexFile());
-            } catch (IOException e) {
-                throw new UncheckedIOException(e);
-            }
-        }
+        final List<DexFile> dexFiles = DexLoader.loadDexFiles(apkPath);
 
         BaseGraphBuilder builder = new BaseGraphBuilder(GraphType.MODULARCDG, dexFiles)
                 .withName("global")
@@ -265,30 +190,7 @@ public class GraphUtils {
 
         long start = System.currentTimeMillis();
 
-        MultiDexContainer<? extends DexBackedDexFile> apk = null;
-
-        try {
-            apk = DexFileFactory.loadDexContainer(apkPath, Utility.API_OPCODE);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
-
-        List<DexFile> dexFiles = new ArrayList<>();
-        List<String> dexEntries = new ArrayList<>();
-
-        try {
-            dexEntries = apk.getDexEntryNames();
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
-
-        for (String dexEntry : dexEntries) {
-            try {
-                dexFiles.add(apk.getEntry(dexEntry).getDexFile());
-            } catch (IOException e) {
-                throw new UncheckedIOException(e);
-            }
-        }
+        final List<DexFile> dexFiles = DexLoader.loadDexFiles(apkPath);
 
         BaseGraphBuilder builder = new BaseGraphBuilder(GraphType.CALLTREE, dexFiles)
                 .withName("global")
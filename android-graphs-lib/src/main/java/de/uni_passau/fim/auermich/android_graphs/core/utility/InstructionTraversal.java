@@ -0,0 +1,228 @@
+package de.uni_passau.fim.auermich.android_graphs.core.utility;
+
+import com.android.tools.smali.dexlib2.Opcode;
+import com.android.tools.smali.dexlib2.analysis.AnalyzedInstruction;
+import com.android.tools.smali.dexlib2.iface.ClassDef;
+import com.android.tools.smali.dexlib2.iface.DexFile;
+import com.android.tools.smali.dexlib2.iface.Method;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Drives several instruction analyses by a single traversal over the analyzed instructions of each method. An
+ * analysis registers a visitor for the opcodes and methods it is interested in, the traversal then dispatches each
+ * instruction only to the matching visitors. A method is analyzed at most once, and not at all if no visitor is
+ * interested in it. Analyses that need to consume the results of the entire traversal register a finisher, which
+ * is run by {@link #finish()}.
+ */
+public final class InstructionTraversal {
+
+    private static final Logger LOGGER = LogManager.getLogger(InstructionTraversal.class);
+
+    /**
+     * The method whose instructions are currently traversed.
+     */
+    public static final class MethodContext {
+
+        private final DexFile dexFile;
+        private final ClassDef classDef;
+        private final Method method;
+        private final String methodSignature;
+
+        private MethodContext(DexFile dexFile, ClassDef classDef, Method method) {
+            this.dexFile = dexFile;
+            this.classDef = classDef;
+            this.method = method;
+            this.methodSignature = MethodUtils.deriveMethodSignature(method);
+        }
+
+        public DexFile getDexFile() {
+            return dexFile;
+        }
+
+        public ClassDef getClassDef() {
+            return classDef;
+        }
+
+        public Method getMethod() {
+            return method;
+        }
+
+        public String getMethodSignature() {
+            return methodSignature;
+        }
+    }
+
+    /**
+     * Visits a single instruction.
+     */
+    @FunctionalInterface
+    public interface InstructionVisitor {
+        void visit(MethodContext context, AnalyzedInstruction analyzedInstruction);
+    }
+
+    /**
+     * A visitor together with the methods it is interested in.
+     */
+    private static final class Registration {
+
+        private final Predicate<MethodContext> methodFilter;
+        private final InstructionVisitor visitor;
+
+        private Registration(Predicate<MethodContext> methodFilter, InstructionVisitor visitor) {
+            this.methodFilter = methodFilter;
+            this.visitor = visitor;
+        }
+    }
+
+    // the registrations in the order of registration
+    private final List<Registration> registrations = new ArrayList<>();
+
+    // the registrations per opcode (indexed by the ordinal), null if no visitor is interested in the opcode
+    @SuppressWarnings("unchecked")
+    private final List<Registration>[] registrationsByOpcode = new List[Opcode.values().length];
+
+    // consume the results of the traversal
+    private final List<Runnable> finishers = new ArrayList<>();
+
+    private long visitedMethods = 0;
+    private long visitedInstructions = 0;
+
+    /**
+     * Registers a visitor for the given opcodes.
+     *
+     * @param methodFilter Decides which methods should be visited.
+     * @param opcodes The opcodes of the instructions that should be visited.
+     * @param visitor The visitor.
+     */
+    public void register(final Predicate<MethodContext> methodFilter, final Set<Opcode> opcodes,
+                         final InstructionVisitor visitor) {
+
+        if (opcodes.isEmpty()) {
+            throw new IllegalArgumentException("A visitor needs to be registered for at least one opcode!");
+        }
+
+        final Registration registration = new Registration(methodFilter, visitor);
+        registrations.add(registration);
+
+        for (Opcode opcode : opcodes) {
+            if (registrationsByOpcode[opcode.ordinal()] == null) {
+                registrationsByOpcode[opcode.ordinal()] = new ArrayList<>();
+            }
+            registrationsByOpcode[opcode.ordinal()].add(registration);
+        }
+    }
+
+    /**
+     * Registers a step that consumes the results of the traversal.
+     *
+     * @param finisher The step to be run by {@link #finish()}.
+     */
+    public void onFinish(final Runnable finisher) {
+        finishers.add(finisher);
+    }
+
+    /**
+     * Checks whether any visitor is interested in the given method.
+     *
+     * @param context The method.
+     * @return Returns {@code true} if any visitor is interested in the given method, otherwise {@code false}.
+     */
+    private boolean isVisited(final MethodContext context) {
+        return registrations.stream().anyMatch(registration -> registration.methodFilter.test(context));
+    }
+
+    /**
+     * Traverses the instructions of the given method. The method is only analyzed if any visitor is interested
+     * in it.
+     *
+     * @param dexFile The dex file containing the method.
+     * @param classDef The class defining the method.
+     * @param method The method to be traversed.
+     */
+    public void visit(final DexFile dexFile, final ClassDef classDef, final Method method) {
+        visit(dexFile, classDef, method, () -> MethodUtils.getAnalyzedInstructions(dexFile, method));
+    }
+
+    /**
+     * Traverses the instructions of the given method, where the analyzed instructions are only requested from the
+     * given supplier if any visitor is interested in the method. This enables to share a single (memoized) analysis
+     * of the method with other consumers.
+     *
+     * @param dexFile The dex file containing the method.
+     * @param classDef The class defining the method.
+     * @param method The method to be traversed.
+     * @param analyzedInstructions Supplies the analyzed instructions of the method.
+     */
+    public void visit(final DexFile dexFile, final ClassDef classDef, final Method method,
+                      final Supplier<List<AnalyzedInstruction>> analyzedInstructions) {
+
+        if (method.getImplementation() == null) {
+            return;
+        }
+
+        final MethodContext context = new MethodContext(dexFile, classDef, method);
+
+        if (isVisited(context)) {
+            visit(context, analyzedInstructions.get());
+        }
+    }
+
+    private void visit(final MethodContext context, final List<AnalyzedInstruction> analyzedInstructions) {
+
+        // evaluate the method filters only once per method
+        final Map<Registration, Boolean> accepted = new IdentityHashMap<>();
+        visitedMethods++;
+
+        for (AnalyzedInstruction analyzedInstruction : analyzedInstructions) {
+
+            final List<Registration> candidates
+                    = registrationsByOpcode[analyzedInstruction.getInstruction().getOpcode().ordinal()];
+
+            if (candidates == null) {
+                continue;
+            }
+
+            visitedInstructions++;
+
+            for (Registration registration : candidates) {
+                if (accepted.computeIfAbsent(registration, r -> r.methodFilter.test(context))) {
+                    registration.visitor.visit(context, analyzedInstruction);
+                }
+            }
+        }
+    }
+
+    /**
+     * Traverses the methods of the given classes.
+     *
+     * @param dexFiles The dex files.
+     * @param classFilter Decides which classes should be traversed.
+     */
+    public void visitAll(final Collection<? extends DexFile> dexFiles, final Predicate<ClassDef> classFilter) {
+        for (DexFile dexFile : dexFiles) {
+            for (ClassDef classDef : dexFile.getClasses()) {
+                if (classFilter.test(classDef)) {
+                    for (Method method : classDef.getMethods()) {
+                        visit(dexFile, classDef, method);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the registered finishers in the order of registration. Should be called once after all methods have
+     * been traversed.
+     */
+    public void finish() {
+        LOGGER.debug("Traversed " + visitedMethods + " methods and dispatched " + visitedInstructions
+                + " instructions to " + registrations.size() + " visitors.");
+        finishers.forEach(Runnable::run);
+        finishers.clear();
+    }
+}
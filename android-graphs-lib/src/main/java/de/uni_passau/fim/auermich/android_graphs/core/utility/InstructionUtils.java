@@ -11,6 +11,7 @@ import com.android.tools.smali.dexlib2.iface.instruction.Instruction;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
@@ -178,6 +179,15 @@ public final class InstructionUtils {
         return returnStmts.contains(instruction.getOpcode());
     }
 
+    /**
+     * Returns the opcodes of the invoke instructions.
+     *
+     * @return Returns an unmodifiable set of the invoke opcodes.
+     */
+    public static Set<Opcode> getInvokeOpcodes() {
+        return Collections.unmodifiableSet(INVOKE_OPCODES);
+    }
+
     /**
      * Checks whether the given instruction is any sort of invoke statement.
      *
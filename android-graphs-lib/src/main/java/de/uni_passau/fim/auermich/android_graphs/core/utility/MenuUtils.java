@@ -7,9 +7,7 @@ import com.android.tools.smali.dexlib2.builder.instruction.BuilderSwitchElement;
 import com.android.tools.smali.dexlib2.iface.DexFile;
 import com.android.tools.smali.dexlib2.iface.Method;
 import com.android.tools.smali.dexlib2.iface.instruction.Instruction;
-import com.android.tools.smali.dexlib2.iface.instruction.OneRegisterInstruction;
 import com.android.tools.smali.dexlib2.iface.instruction.SwitchElement;
-import com.android.tools.smali.dexlib2.iface.instruction.WideLiteralInstruction;
 import com.android.tools.smali.dexlib2.iface.instruction.formats.Instruction35c;
 import de.uni_passau.fim.auermich.android_graphs.core.app.APK;
 import de.uni_passau.fim.auermich.android_graphs.core.app.xml.LayoutFile;
@@ -87,7 +85,26 @@ public class MenuUtils {
             return Stream.empty();
         }
 
-        return MethodUtils.getAnalyzedInstructions(dexFile, onCreateMenuMethod).stream()
+        return getDefinedMenuItems(apk, onCreateMenuMethod,
+                MethodUtils.getAnalyzedInstructions(dexFile, onCreateMenuMethod));
+    }
+
+    /**
+     * Retrieves the defined menu items in the given onCreate method from its already analyzed instructions.
+     *
+     * @param apk The APK file.
+     * @param onCreateMenuMethod The menu onCreate method.
+     * @param analyzedInstructions The analyzed instructions of the menu onCreate method.
+     * @return Returns the defined menu items.
+     */
+    public static Stream<MenuItemWithResolvedTitle> getDefinedMenuItems(APK apk, Method onCreateMenuMethod,
+                                                                        List<AnalyzedInstruction> analyzedInstructions) {
+
+        if (onCreateMenuMethod.getImplementation() == null) {
+            return Stream.empty();
+        }
+
+        return analyzedInstructions.stream()
                 .flatMap(analyzedInstruction -> {
                     Instruction instruction = analyzedInstruction.getInstruction();
                     if (instruction instanceof Instruction35c
@@ -220,33 +237,11 @@ public class MenuUtils {
      *
      * @param analyzedInstruction The instruction from which we start searching backwards (exclusive).
      * @param register The target register to look out for.
-     * @return Returns the last long value written to the target register.
+     * @return Returns the last long value written to the target register, or an empty optional if the register
+     *          doesn't hold a unique literal value at the given instruction.
      */
     public static Optional<Long> getLastWriteToRegister(AnalyzedInstruction analyzedInstruction, int register) {
-        return Stream.iterate(analyzedInstruction, a -> a.getPredecessorCount() == 1, a -> a.getPredecessors().first())
-                .skip(1) // start search from first predecessor
-                .map(a -> isWriteToRegister(a.getInstruction(), register))
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .findFirst();
-    }
-
-    /**
-     * Checks whether the given instruction writes to the given register and returns the written value in such a case.
-     *
-     * @param instruction The given instruction.
-     * @param register The given register.
-     * @return Returns the written literal value or an empty optional.
-     */
-    private static Optional<Long> isWriteToRegister(Instruction instruction, int register) {
-
-        if (instruction instanceof WideLiteralInstruction
-                && instruction instanceof OneRegisterInstruction
-                && ((OneRegisterInstruction) instruction).getRegisterA() == register) {
-            return Optional.of(((WideLiteralInstruction) instruction).getWideLiteral());
-        }
-
-        return Optional.empty();
+        return DefUseChains.of(analyzedInstruction).getConstant(analyzedInstruction, register);
     }
 
     /**
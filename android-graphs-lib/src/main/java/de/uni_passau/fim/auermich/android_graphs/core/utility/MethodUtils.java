@@ -380,7 +380,17 @@ public class MethodUtils {
      * @return Returns the method name from the fully qualified method name.
      */
     public static String getMethodName(final String fullyQualifiedMethodName) {
-        return fullyQualifiedMethodName.split("->")[1];
+
+        // avoids the regex based split of the fully qualified method name
+        int separator = fullyQualifiedMethodName.indexOf("->");
+
+        if (separator == -1) {
+            throw new IllegalArgumentException("Not a fully qualified method name: " + fullyQualifiedMethodName);
+        }
+
+        int start = separator + 2;
+        int end = fullyQualifiedMethodName.indexOf("->", start);
+        return end == -1 ? fullyQualifiedMethodName.substring(start) : fullyQualifiedMethodName.substring(start, end);
     }
 
     /**
@@ -390,7 +400,7 @@ public class MethodUtils {
      * @return Returns the method name from the fully qualified method name.
      */
     public static String getMethodName(final Method method) {
-        return method.toString().split("->")[1];
+        return getMethodName(method.toString());
     }
 
     /**
@@ -414,6 +424,13 @@ public class MethodUtils {
      */
     public static String deriveMethodSignature(final Method method) {
 
+        // dexlib2 re-creates method objects on each iteration, thus the signature is memoized per dex file
+        String signature = SymbolTable.lookUpSignature(method);
+
+        if (signature != null) {
+            return signature;
+        }
+
         String className = method.getDefiningClass();
         String methodName = method.getName();
         List<? extends MethodParameter> parameters = method.getParameters();
@@ -431,7 +448,7 @@ public class MethodUtils {
 
         builder.append(")");
         builder.append(returnType);
-        return builder.toString();
+        return SymbolTable.memoizeSignature(method, builder.toString());
     }
 
     /**
@@ -622,7 +639,16 @@ public class MethodUtils {
      * @return Returns the class name.
      */
     public static String getClassName(final String methodSignature) {
-        return methodSignature.split("->")[0];
+
+        // interned signatures know their class name already
+        String className = SymbolTable.lookUpClassName(methodSignature);
+
+        if (className != null) {
+            return className;
+        }
+
+        int separator = methodSignature.indexOf("->");
+        return separator == -1 ? methodSignature : methodSignature.substring(0, separator);
     }
 
     /**
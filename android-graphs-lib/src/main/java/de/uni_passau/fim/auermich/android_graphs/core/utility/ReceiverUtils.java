@@ -130,7 +130,6 @@ public class ReceiverUtils {
         final boolean isLocalBroadcast
                 = sendBroadcast.startsWith("Landroid/support/v4/content/LocalBroadcastManager;->")
                 || sendBroadcast.startsWith("Landroidx/localbroadcastmanager/content/LocalBroadcastManager;->");
-        Integer actionRegister = null;
         final Set<BroadcastReceiver> broadcastReceivers = components.stream()
                 .filter(component -> component instanceof BroadcastReceiver)
                 .map(component -> (BroadcastReceiver) component)
@@ -154,22 +153,20 @@ public class ReceiverUtils {
                             // invoke-virtual {v2, v4}, Landroid/content/Intent;->setAction(Ljava/lang/String;)Landroid/content/Intent;
                             // or
                             // invoke-direct {v0, v1}, Landroid/content/Intent;-><init>(Ljava/lang/String;)V
-                            if (actionRegister == null) {
-                                actionRegister = invocation.getRegisterD();
+                            // The action (v4 or v1) is typically a string constant written before the invocation.
+                            final Optional<String> action
+                                    = DefUseChains.of(pred).getStringConstant(pred, invocation.getRegisterD());
+                            if (action.isPresent()) {
+                                final List<BroadcastReceiver> receivers = broadcastReceivers.stream()
+                                        .filter(BroadcastReceiver::hasAction)
+                                        .filter(broadcastReceiver -> broadcastReceiver.getAction().equals(action.get()))
+                                        .collect(Collectors.toList());
+                                if (!receivers.isEmpty()) {
+                                    return receivers;
+                                }
                             }
                         }
                     }
-                } else if (actionRegister != null && pred.setsRegister(actionRegister)) {
-                    if (predecessor.getOpcode() == Opcode.CONST_STRING || predecessor.getOpcode() == Opcode.CONST_STRING_JUMBO) {
-                        final String action = ((ReferenceInstruction) predecessor).getReference().toString();
-                        final List<BroadcastReceiver> receivers = broadcastReceivers.stream()
-                                .filter(BroadcastReceiver::hasAction)
-                                .filter(broadcastReceiver -> broadcastReceiver.getAction().equals(action))
-                                .collect(Collectors.toList());
-                        if (!receivers.isEmpty()) {
-                            return receivers;
-                        }
-                    }
                 }
 
             } else if (predecessor.getOpcode() == Opcode.CONST_STRING || predecessor.getOpcode() == Opcode.CONST_CLASS) {
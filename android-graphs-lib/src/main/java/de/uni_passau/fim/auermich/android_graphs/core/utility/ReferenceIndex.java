@@ -0,0 +1,163 @@
+package de.uni_passau.fim.auermich.android_graphs.core.utility;
+
+import com.android.tools.smali.dexlib2.Opcode;
+import com.android.tools.smali.dexlib2.ReferenceType;
+import com.android.tools.smali.dexlib2.iface.ClassDef;
+import com.android.tools.smali.dexlib2.iface.DexFile;
+import com.android.tools.smali.dexlib2.iface.Method;
+import com.android.tools.smali.dexlib2.iface.instruction.Instruction;
+import com.android.tools.smali.dexlib2.iface.instruction.ReferenceInstruction;
+import com.google.common.collect.ImmutableListMultimap;
+import de.uni_passau.fim.auermich.android_graphs.core.app.APK;
+
+import java.util.List;
+
+/**
+ * An inverted index over the bytecode references of the application classes of an APK. The index maps an invoked
+ * method, an instantiated or class constant and an accessed field to the instructions (sites) referencing it. The
+ * index is populated during the single pass of the {@link ClassUsageIndex} over the dex files and is immutable
+ * afterwards.
+ */
+public final class ReferenceIndex {
+
+    /**
+     * An instruction referencing a method, class or field.
+     */
+    public static final class Site {
+
+        private final ClassDef clazz;
+        private final DexFile dexFile;
+        private final Method method;
+        private final int instructionIndex;
+        private final Opcode opcode;
+
+        private Site(ClassDef clazz, DexFile dexFile, Method method, int instructionIndex, Opcode opcode) {
+            this.clazz = clazz;
+            this.dexFile = dexFile;
+            this.method = method;
+            this.instructionIndex = instructionIndex;
+            this.opcode = opcode;
+        }
+
+        public ClassDef getClazz() {
+            return clazz;
+        }
+
+        public DexFile getDexFile() {
+            return dexFile;
+        }
+
+        public Method getMethod() {
+            return method;
+        }
+
+        public int getInstructionIndex() {
+            return instructionIndex;
+        }
+
+        public Opcode getOpcode() {
+            return opcode;
+        }
+
+        @Override
+        public String toString() {
+            return "Site{method=" + MethodUtils.deriveMethodSignature(method) + ", opcode=" + opcode
+                    + ", instruction=" + instructionIndex + "}";
+        }
+    }
+
+    // maps a method signature to its call sites
+    private final ImmutableListMultimap<String, Site> methodReferences;
+
+    // maps a class name to the new-instance and const-class instructions referring to it
+    private final ImmutableListMultimap<String, Site> classReferences;
+
+    // maps a field, e.g. Lcom/example/Foo;->bar:I, to the instructions reading or writing it
+    private final ImmutableListMultimap<String, Site> fieldReferences;
+
+    private ReferenceIndex(final Builder builder) {
+        methodReferences = builder.methodReferences.build();
+        classReferences = builder.classReferences.build();
+        fieldReferences = builder.fieldReferences.build();
+    }
+
+    /**
+     * Returns the reference index of the given APK.
+     *
+     * @param apk The APK file.
+     * @return Returns the reference index of the given APK.
+     */
+    public static ReferenceIndex of(final APK apk) {
+        return ClassUsageIndex.of(apk).getReferenceIndex();
+    }
+
+    /**
+     * Returns the call sites of the given method.
+     *
+     * @param methodSignature The fully-qualified method signature of the invoked method.
+     * @return Returns the invoke instructions referring to the given method in the order of the dex files.
+     */
+    public List<Site> getMethodReferences(final String methodSignature) {
+        return methodReferences.get(methodSignature);
+    }
+
+    /**
+     * Returns the new-instance and const-class instructions referring to the given class.
+     *
+     * @param className The class name, e.g. Lcom/example/Foo;.
+     * @return Returns the instructions referring to the given class in the order of the dex files.
+     */
+    public List<Site> getClassReferences(final String className) {
+        return classReferences.get(className);
+    }
+
+    /**
+     * Returns the instructions reading or writing the given field.
+     *
+     * @param field The fully-qualified field, e.g. Lcom/example/Foo;->bar:I.
+     * @return Returns the instructions referring to the given field in the order of the dex files.
+     */
+    public List<Site> getFieldReferences(final String field) {
+        return fieldReferences.get(field);
+    }
+
+    /**
+     * Collects the referencing instructions while the dex files are traversed.
+     */
+    static final class Builder {
+
+        private final ImmutableListMultimap.Builder<String, Site> methodReferences = ImmutableListMultimap.builder();
+        private final ImmutableListMultimap.Builder<String, Site> classReferences = ImmutableListMultimap.builder();
+        private final ImmutableListMultimap.Builder<String, Site> fieldReferences = ImmutableListMultimap.builder();
+
+        /**
+         * Records the given instruction if it references a method, class or field.
+         *
+         * @param clazz The class containing the instruction.
+         * @param dexFile The dex file containing the class.
+         * @param method The method containing the instruction.
+         * @param instructionIndex The index of the instruction within the method.
+         * @param instruction The instruction.
+         */
+        void add(final ClassDef clazz, final DexFile dexFile, final Method method, final int instructionIndex,
+                 final Instruction instruction) {
+
+            final Opcode opcode = instruction.getOpcode();
+
+            if (InstructionUtils.isInvokeInstruction(instruction)) {
+                methodReferences.put(((ReferenceInstruction) instruction).getReference().toString(),
+                        new Site(clazz, dexFile, method, instructionIndex, opcode));
+            } else if (opcode == Opcode.NEW_INSTANCE || opcode == Opcode.CONST_CLASS) {
+                classReferences.put(((ReferenceInstruction) instruction).getReference().toString(),
+                        new Site(clazz, dexFile, method, instructionIndex, opcode));
+            } else if (opcode.referenceType == ReferenceType.FIELD) {
+                fieldReferences.put(((ReferenceInstruction) instruction).getReference().toString(),
+                        new Site(clazz, dexFile, method, instructionIndex, opcode));
+            }
+        }
+
+        ReferenceIndex build() {
+            return new ReferenceIndex(this);
+        }
+    }
+}
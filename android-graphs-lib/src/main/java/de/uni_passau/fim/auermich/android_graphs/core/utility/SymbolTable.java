@@ -0,0 +1,245 @@
+package de.uni_passau.fim.auermich.android_graphs.core.utility;
+
+import com.android.tools.smali.dexlib2.dexbacked.DexBackedDexFile;
+import com.android.tools.smali.dexlib2.dexbacked.DexBackedMethod;
+import com.android.tools.smali.dexlib2.iface.Method;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns method signatures and class descriptors and assigns them compact int ids. Two signatures are equal if and
+ * only if their ids are equal, which allows statements and vertices to compare and hash their methods by id. The
+ * interned strings are canonical instances, i.e. each signature is kept only once on the heap.
+ *
+ * A method signature has the form className->methodName(p0...pN)ReturnType. Virtual methods used for the
+ * construction of the graphs, e.g. 'callbacks' or 'global', are interned as well.
+ *
+ * Interning is synchronized, while the look ups by id are lock-free, since every statement constructor resolves its
+ * method by id. The table is never cleared, hence an id stays valid for the lifetime of the JVM and graphs of
+ * different builds, e.g. the intra CFGs retained by a build snapshot, can be combined safely.
+ */
+public final class SymbolTable {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final Map<String, Integer> METHOD_IDS = new ConcurrentHashMap<>();
+    private static final Map<String, Integer> CLASS_IDS = new ConcurrentHashMap<>();
+
+    /*
+     * The interned signatures and descriptors by id. The arrays are only written while holding the lock and are
+     * replaced by a larger copy once they are full. An id is published through the id maps only after its entries
+     * have been written, such that a reader holding an id always sees its entries.
+     */
+    private static volatile String[] methods = new String[INITIAL_CAPACITY];
+    private static volatile String[] classes = new String[INITIAL_CAPACITY];
+
+    // the class (name) id for each method id, -1 if the method has no class component
+    private static volatile int[] methodClasses = new int[INITIAL_CAPACITY];
+
+    private static volatile int methodCount = 0;
+    private static volatile int classCount = 0;
+
+    // the memoized method signatures per dex file, keyed by the method index within the dex file
+    private static final Map<DexBackedDexFile, Map<Integer, String>> SIGNATURES
+            = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private SymbolTable() {
+        throw new UnsupportedOperationException("utility class!");
+    }
+
+    /**
+     * Interns the given method signature.
+     *
+     * @param method The method signature.
+     * @return Returns the id of the method signature.
+     */
+    public static int internMethod(final String method) {
+
+        Integer id = METHOD_IDS.get(method);
+
+        if (id != null) {
+            return id;
+        }
+
+        synchronized (SymbolTable.class) {
+            // another thread might have interned the method in the meantime
+            id = METHOD_IDS.get(method);
+
+            if (id == null) {
+                int separator = method.indexOf("->");
+                int classId = separator == -1 ? -1 : internClass(method.substring(0, separator));
+
+                id = methodCount;
+
+                if (id == methods.length) {
+                    methods = Arrays.copyOf(methods, id * 2);
+                    methodClasses = Arrays.copyOf(methodClasses, id * 2);
+                }
+
+                methods[id] = method;
+                methodClasses[id] = classId;
+                methodCount = id + 1;
+
+                // publish the id only after the method has been fully registered
+                METHOD_IDS.put(method, id);
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Looks up the id of the given method signature without interning it.
+     *
+     * @param method The method signature.
+     * @return Returns the id of the method signature or {@code -1} if the signature has not been interned.
+     */
+    public static int lookUpMethod(final String method) {
+        Integer id = METHOD_IDS.get(method);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the canonical method signature for the given id.
+     *
+     * @param id The method id.
+     * @return Returns the method signature.
+     */
+    public static String getMethod(final int id) {
+        if (id < 0 || id >= methodCount) {
+            throw new IllegalArgumentException("Unknown method id: " + id);
+        }
+        return methods[id];
+    }
+
+    /**
+     * Returns the id of the class defining the given method.
+     *
+     * @param methodId The method id.
+     * @return Returns the class id or {@code -1} if the method signature contains no class name.
+     */
+    public static int getClassOfMethod(final int methodId) {
+        if (methodId < 0 || methodId >= methodCount) {
+            throw new IllegalArgumentException("Unknown method id: " + methodId);
+        }
+        return methodClasses[methodId];
+    }
+
+    /**
+     * Interns the given class descriptor, e.g. Ljava/lang/Object;.
+     *
+     * @param clazz The class descriptor.
+     * @return Returns the id of the class descriptor.
+     */
+    public static int internClass(final String clazz) {
+
+        Integer id = CLASS_IDS.get(clazz);
+
+        if (id != null) {
+            return id;
+        }
+
+        synchronized (SymbolTable.class) {
+            id = CLASS_IDS.get(clazz);
+
+            if (id == null) {
+                id = classCount;
+
+                if (id == classes.length) {
+                    classes = Arrays.copyOf(classes, id * 2);
+                }
+
+                classes[id] = clazz;
+                classCount = id + 1;
+                CLASS_IDS.put(clazz, id);
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Returns the canonical class descriptor for the given id.
+     *
+     * @param id The class id.
+     * @return Returns the class descriptor.
+     */
+    public static String getClassName(final int id) {
+        if (id < 0 || id >= classCount) {
+            throw new IllegalArgumentException("Unknown class id: " + id);
+        }
+        return classes[id];
+    }
+
+    /**
+     * Returns the canonical class name of the given method signature if the signature has been interned.
+     *
+     * @param method The method signature.
+     * @return Returns the class name or {@code null} if the signature is unknown or contains no class name.
+     */
+    public static String lookUpClassName(final String method) {
+        int methodId = lookUpMethod(method);
+
+        if (methodId == -1) {
+            return null;
+        }
+
+        int classId = getClassOfMethod(methodId);
+        return classId == -1 ? null : getClassName(classId);
+    }
+
+    /**
+     * Returns the memoized signature of the given method. Methods of the same dex file share their signature,
+     * no matter how often the method objects are re-created by dexlib2.
+     *
+     * @param method The method.
+     * @return Returns the method signature or {@code null} if no signature has been memoized yet.
+     */
+    static String lookUpSignature(final Method method) {
+        if (method instanceof DexBackedMethod) {
+            DexBackedMethod dexBackedMethod = (DexBackedMethod) method;
+            Map<Integer, String> dexSignatures = SIGNATURES.get(dexBackedMethod.dexFile);
+            return dexSignatures == null ? null : dexSignatures.get(dexBackedMethod.methodIndex);
+        }
+        return null;
+    }
+
+    /**
+     * Memoizes the signature of the given method and interns it.
+     *
+     * @param method The method.
+     * @param signature The signature of the method.
+     * @return Returns the canonical signature.
+     */
+    static String memoizeSignature(final Method method, final String signature) {
+
+        String canonical = getMethod(internMethod(signature));
+
+        if (method instanceof DexBackedMethod) {
+            DexBackedMethod dexBackedMethod = (DexBackedMethod) method;
+            SIGNATURES.computeIfAbsent(dexBackedMethod.dexFile, dexFile -> new ConcurrentHashMap<>())
+                    .put(dexBackedMethod.methodIndex, canonical);
+        }
+        return canonical;
+    }
+
+    /**
+     * Returns the number of interned method signatures.
+     *
+     * @return Returns the number of interned method signatures.
+     */
+    public static int getMethodCount() {
+        return methodCount;
+    }
+
+    /**
+     * Returns the number of interned class descriptors.
+     *
+     * @return Returns the number of interned class descriptors.
+     */
+    public static int getClassCount() {
+        return classCount;
+    }
+}
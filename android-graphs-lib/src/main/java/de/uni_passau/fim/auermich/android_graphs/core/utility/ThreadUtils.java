@@ -7,14 +7,12 @@ import com.android.tools.smali.dexlib2.iface.Method;
 import com.android.tools.smali.dexlib2.iface.MethodImplementation;
 import com.android.tools.smali.dexlib2.iface.instruction.Instruction;
 import com.android.tools.smali.dexlib2.iface.instruction.ReferenceInstruction;
-import com.android.tools.smali.dexlib2.iface.instruction.TwoRegisterInstruction;
 import com.android.tools.smali.dexlib2.iface.instruction.formats.Instruction21c;
 import com.android.tools.smali.dexlib2.iface.instruction.formats.Instruction22c;
 import com.android.tools.smali.dexlib2.iface.instruction.formats.Instruction35c;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.EnumSet;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
@@ -72,37 +70,21 @@ public final class ThreadUtils {
 
             // The TimerTask class is stored in the second register (v2 above) passed to the invoke instruction.
             final Instruction35c invoke = (Instruction35c) invokeInstruction.getInstruction();
-            int targetRegister = invoke.getRegisterD();
-
-            AnalyzedInstruction pred = invokeInstruction.getPredecessors().first();
-
-            // backtrack until we discover last write to register D (v2 above)
-            while (pred.getInstructionIndex() != -1) {
-
-                final Instruction predecessor = pred.getInstruction();
-
-                final EnumSet<Opcode> moveOpcodes = EnumSet.of(Opcode.MOVE_OBJECT,
-                        Opcode.MOVE_OBJECT_16, Opcode.MOVE_OBJECT_FROM16);
+            final int targetRegister = invoke.getRegisterD();
 
-                if (pred.setsRegister(targetRegister)) {
-                    if (moveOpcodes.contains(predecessor.getOpcode())) { // update the register we need to backtrack
-                        final TwoRegisterInstruction moveInstruction = (TwoRegisterInstruction) predecessor;
-                        targetRegister = moveInstruction.getRegisterB();
-                    } else if (predecessor.getOpcode() == Opcode.NEW_INSTANCE) { // retrieve the callback class
-                        final String className = ((ReferenceInstruction) predecessor).getReference().toString();
-                        if (classHierarchy.getSuperClasses(className).contains("Ljava/util/TimerTask;")) {
-                            LOGGER.debug("Found callback: " + className + "->run()V");
-                            return className + "->run()V";
-                        }
+            // backtrack the last write to register D (v2 above) through the moves to the new-instance instruction
+            for (AnalyzedInstruction definition
+                    : DefUseChains.of(invokeInstruction).getSources(invokeInstruction, targetRegister)) {
+
+                if (definition.getInstructionIndex() != -1
+                        && definition.getInstruction().getOpcode() == Opcode.NEW_INSTANCE) { // retrieve the callback class
+                    final String className
+                            = ((ReferenceInstruction) definition.getInstruction()).getReference().toString();
+                    if (classHierarchy.getSuperClasses(className).contains("Ljava/util/TimerTask;")) {
+                        LOGGER.debug("Found callback: " + className + "->run()V");
+                        return className + "->run()V";
                     }
                 }
-
-                // consider next predecessor if available
-                if (!pred.getPredecessors().isEmpty()) {
-                    pred = pred.getPredecessors().first();
-                } else {
-                    break;
-                }
             }
         }
 
@@ -149,14 +131,13 @@ public final class ThreadUtils {
             final Instruction35c invoke = (Instruction35c) invokeInstruction.getInstruction();
             final int targetRegister = invoke.getRegisterD();
 
-            AnalyzedInstruction pred = invokeInstruction.getPredecessors().first();
-
-            // backtrack until we discover last write to register D (v1 above)
-            while (pred.getInstructionIndex() != -1) {
+            // backtrack the last write to register D (v1 above)
+            for (AnalyzedInstruction definition
+                    : DefUseChains.of(invokeInstruction).getSources(invokeInstruction, targetRegister)) {
 
-                final Instruction predecessor = pred.getInstruction();
+                final Instruction predecessor = definition.getInstruction();
 
-                if (pred.setsRegister(targetRegister) && predecessor.getOpcode() == Opcode.IGET_OBJECT) {
+                if (definition.getInstructionIndex() != -1 && predecessor.getOpcode() == Opcode.IGET_OBJECT) {
 
                     // iget-object v1, p0, Lorg/dmfs/tasks/QuickAddDialogFragment;->mDismiss:Ljava/lang/Runnable;
                     final String reference = ((ReferenceInstruction) predecessor).getReference().toString();
@@ -201,13 +182,6 @@ public final class ThreadUtils {
                         }
                     }
                 }
-
-                // consider next predecessor if available
-                if (!pred.getPredecessors().isEmpty()) {
-                    pred = pred.getPredecessors().first();
-                } else {
-                    break;
-                }
             }
         }
         return null; // couldn't resolve invocation
@@ -2,13 +2,12 @@ package de.uni_passau.fim.auermich.android_graphs.core.utility;
 
 import com.android.tools.smali.dexlib2.analysis.AnalyzedInstruction;
 import com.android.tools.smali.dexlib2.iface.*;
-import com.android.tools.smali.dexlib2.iface.instruction.ReferenceInstruction;
 import de.uni_passau.fim.auermich.android_graphs.core.app.APK;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.*;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Enables to search for usages of a class or method, respectively.
@@ -17,8 +16,11 @@ public final class UsageSearch {
 
     private static final Logger LOGGER = LogManager.getLogger(UsageSearch.class);
 
-    // caches requested class usages
-    private static final Map<String, Set<Usage>> CACHE = new HashMap<>();
+    // caches requested class usages per APK, the cache is discarded together with the APK
+    private static final Map<APK, Map<String, Set<Usage>>> CACHE = Collections.synchronizedMap(new WeakHashMap<>());
+
+    // the name under which the cache statistics are recorded
+    private static final String CACHE_NAME = "UsageSearch";
 
     private UsageSearch() {
         throw new UnsupportedOperationException("utility class!");
@@ -119,7 +121,8 @@ public final class UsageSearch {
     }
 
     /**
-     * Finds the usages of the given method in the application package.
+     * Finds the usages of the given method in the application package. The call sites are looked up in the
+     * {@link ReferenceIndex} of the APK, hence only the methods containing a call site need to be analyzed.
      *
      * @param apk The APK file.
      * @param targetMethod The method whose usages should be found.
@@ -136,29 +139,18 @@ public final class UsageSearch {
         final String mainActivityPackage = mainActivity != null
                 ? mainActivity.substring(0, mainActivity.lastIndexOf('.')) : null;
 
-        for (DexFile dexFile : apk.getDexFiles()) {
-            for (ClassDef classDef : dexFile.getClasses()) {
-                final String dottedClassName = ClassUtils.dottedClassName(classDef.toString());
-                if (dottedClassName.startsWith(applicationPackage)
-                        || (mainActivityPackage != null && dottedClassName.startsWith(mainActivityPackage))) {
-                    // only inspect application classes
-                    for (Method method : classDef.getMethods()) {
-                        MethodImplementation implementation = method.getImplementation();
-                        if (implementation != null) {
-                            List<AnalyzedInstruction> instructions = MethodUtils.getAnalyzedInstructions(dexFile, method);
-                            for (AnalyzedInstruction instruction : instructions) {
-                                if (InstructionUtils.isInvokeInstruction(instruction)) {
-                                    final String invokeTarget = ((ReferenceInstruction) instruction.getInstruction())
-                                            .getReference().toString();
-                                    if (invokeTarget.equals(MethodUtils.deriveMethodSignature(targetMethod))) {
-                                        Usage usage = new Usage(classDef, method, instruction);
-                                        usages.add(usage);
-                                    }
-                                }
-                            }
-                        }
-                    }
-                }
+        // the analyzed instructions of the methods containing a call site
+        final Map<Method, List<AnalyzedInstruction>> analyzedMethods = new HashMap<>();
+
+        for (ReferenceIndex.Site site : ReferenceIndex.of(apk)
+                .getMethodReferences(MethodUtils.deriveMethodSignature(targetMethod))) {
+            final String dottedClassName = ClassUtils.dottedClassName(site.getClazz().toString());
+            if (dottedClassName.startsWith(applicationPackage)
+                    || (mainActivityPackage != null && dottedClassName.startsWith(mainActivityPackage))) {
+                // only inspect application classes
+                final List<AnalyzedInstruction> instructions = analyzedMethods.computeIfAbsent(site.getMethod(),
+                        method -> MethodUtils.getAnalyzedInstructions(site.getDexFile(), method));
+                usages.add(new Usage(site.getClazz(), site.getMethod(), instructions.get(site.getInstructionIndex())));
             }
         }
         usages.forEach(LOGGER::debug);
@@ -179,10 +171,6 @@ public final class UsageSearch {
 
         LOGGER.debug("Find direct and indirect usages of class: " + clazz);
 
-        if (CACHE.containsKey(clazz)) {
-            return CACHE.get(clazz);
-        }
-
         final Set<Usage> totalUsages = new LinkedHashSet<>(); // save them in order
         final Set<String> classes = new HashSet<>();
         classes.add(clazz);
@@ -206,30 +194,6 @@ public final class UsageSearch {
         return totalUsages;
     }
 
-    /**
-     * Checks whether the class annotations describe a usage of the given class.
-     *
-     * @param annotations The class annotations.
-     * @param clazz The usage class.
-     * @return Returns {@code true} if the class annotations describe a usage of the given class,
-     *          otherwise {@code false} is returned.
-     */
-    private static boolean checkAnnotationsForUsage(Set<? extends Annotation> annotations, final String clazz) {
-
-        AtomicBoolean containsUsage = new AtomicBoolean(false);
-
-        annotations.forEach(annotation -> {
-            annotation.getElements().forEach(annotationElement -> {
-                // TODO: check that the match refers to the generic declaration, i.e. is within '<>'
-                if (annotationElement.getValue().toString().contains(clazz)) {
-                    containsUsage.set(true);
-                }
-            });
-        });
-
-        return containsUsage.get();
-    }
-
     /**
      * Finds direct usages of a given class in the application package, where a usage is given when:
      *
@@ -238,6 +202,9 @@ public final class UsageSearch {
      * (3) A method of another class has a method parameter of the given class.
      * (4) A method of another class invokes a method of the given class.
      *
+     * The usages are looked up in the {@link ClassUsageIndex} of the APK and are cached per APK. This method can
+     * be safely called from multiple threads.
+     *
      * @param apk   The APK file containing the dex classes.
      * @param clazz The class for which we should find its usages.
      * @return Returns a set of classes that make use of the given class.
@@ -246,159 +213,125 @@ public final class UsageSearch {
 
         LOGGER.debug("Find direct usages of class: " + clazz);
 
-        if (CACHE.containsKey(clazz)) {
-            return CACHE.get(clazz);
+        final Map<String, Set<Usage>> cache = CACHE.computeIfAbsent(apk, a -> new ConcurrentHashMap<>());
+        final Set<Usage> cachedUsages = cache.get(clazz);
+
+        if (cachedUsages != null) {
+            BuildMetrics.recordCacheHit(CACHE_NAME);
+            return cachedUsages;
         }
 
-        final Set<Usage> usages = new HashSet<>();
+        BuildMetrics.recordCacheMiss(CACHE_NAME);
+
+        final Set<Usage> usages = Collections.unmodifiableSet(lookUpClassUsages(apk, clazz));
+        usages.forEach(LOGGER::debug);
+        final Set<Usage> previousUsages = cache.putIfAbsent(clazz, usages);
+        return previousUsages != null ? previousUsages : usages;
+    }
+
+    /**
+     * Looks up the direct usages of the given class in the class usage index. Per using class only a single usage is
+     * reported, where a usage on class level, i.e. through the outer class, the super class, an annotation, an
+     * interface or an instance field, takes precedence over the first usage through a method parameter or an
+     * invocation.
+     *
+     * @param apk The APK file containing the dex classes.
+     * @param clazz The class for which we should find its usages.
+     * @return Returns a set of classes that make use of the given class.
+     */
+    private static Set<Usage> lookUpClassUsages(final APK apk, final String clazz) {
+
+        final ClassUsageIndex classUsageIndex = ClassUsageIndex.of(apk);
+        final Map<String, Usage> usages = new LinkedHashMap<>();
+
         final String applicationPackage = apk.getManifest().getPackageName();
         final String mainActivity = apk.getManifest().getMainActivity();
         final String mainActivityPackage = mainActivity != null
                 ? mainActivity.substring(0, mainActivity.lastIndexOf('.')) : null;
 
-        for (DexFile dexFile : apk.getDexFiles()) {
-            for (ClassDef classDef : dexFile.getClasses()) {
-
-                boolean foundUsage = false;
-                String className = classDef.toString();
-
-                if (!ClassUtils.dottedClassName(className).startsWith(applicationPackage)
-                        && (mainActivityPackage == null || !ClassUtils.dottedClassName(className).startsWith(mainActivityPackage))) {
-                    // don't consider usages outside the application package
-                    continue;
-                }
-
-                if (ClassUtils.isResourceClass(classDef) || ClassUtils.isBuildConfigClass(classDef)) {
-                    // don't consider resource classes or the build config class
-                    continue;
-                }
-
-                if (className.equals(clazz)) {
-                    // the class itself is not relevant
-                    continue;
-                }
-
-                // TODO: We should probably rethink this. Although it is common that the outer class is using the inner
-                //  class, e.g. as part of a callback specification, there is also sometimes a back reference from the
-                //  inner to the outer class, in particular when we think about the somewhat strange handling of lambda
-                //  callbacks.
-                if (ClassUtils.isInnerClass(className)) {
-                    if (clazz.equals(ClassUtils.getOuterClass(className))) {
-                        // Any inner class of the given class is also not relevant, i.e. the outer class is using the
-                        // inner class but not vice versa!
-                        continue;
-                    }
-                }
-
-                /*
-                * Checks whether a usage is defined through an outer to inner class relation, i.e. class A makes use of
-                * class B if B is an inner class of A.
-                 */
-                if (ClassUtils.isInnerClass(clazz)) {
-                    // TODO: Take in account the following case (nested inner classes): 'outerClass$InnerClass1$InnerClass2'.
-                    if (className.equals(ClassUtils.getOuterClass(clazz))) {
-                        LOGGER.debug("Found inner class usage: " + classDef);
-                        usages.add(new Usage(classDef));
-                        foundUsage = true;
-                    }
-                }
-
-                if (foundUsage) {
-                    continue;
-                }
-
-                /*
-                * Checks whether a 'usage' is defined through the 'extends' clause, i.e. inspecting
-                * the super class and its annotations, e.g. generics. Assume we check for the usages
-                * of class B and we are currently inspecting class A. In the following cases we say that
-                * A is a usage of B or equivalently that the usages of B contain A:
-                *
-                * (1) A extends B
-                * (2) A extends C<B> (Here A is also a usage of C)
-                *
-                 */
-                if ((classDef.getSuperclass() != null && classDef.getSuperclass().equals(clazz))
-                        || checkAnnotationsForUsage(classDef.getAnnotations(), clazz)) {
-                    LOGGER.debug("Found super class / annotation usage: " + classDef);
-                    usages.add(new Usage(classDef));
-                    foundUsage = true;
-                }
-
-                if (foundUsage) {
-                    continue;
-                }
-
-                /*
-                * Checks whether a 'usage' is defined through the 'implements' clause, i.e.
-                * inspecting the interface classes. The same conditions holds as for the 'extends' clause.
-                * NOTE: We only need to inspect the interface names, the annotations have been checked
-                * previously.
-                 */
-                for (String interfaceClass : classDef.getInterfaces()) {
-                    if (interfaceClass.equals(clazz)) {
-                        LOGGER.debug("Found interface class usage: " + classDef);
-                        usages.add(new Usage(classDef));
-                        foundUsage = true;
-                        break;
-                    }
-                }
-
-                if (foundUsage) {
-                    continue;
-                }
-
-                // second check whether the class is hold as an instance variable
-                for (Field instanceField : classDef.getInstanceFields()) {
-                    if (clazz.equals(instanceField.getType())) {
-                        usages.add(new Usage(classDef));
-                        foundUsage = true;
-                        break;
-                    }
-                }
-
-                if (foundUsage) {
-                    continue;
-                }
-
-                for (Method method : classDef.getMethods()) {
-
-                    // third check whether method parameters refer to class
-                    for (MethodParameter parameter : method.getParameters()) {
-                        if (clazz.equals(parameter.getType())) {
-                            usages.add(new Usage(classDef, method));
-                            foundUsage = true;
-                            break;
-                        }
-                    }
-
-                    if (foundUsage) {
-                        break;
-                    }
-
-                    // fourth check whether any method of the class is invoked
-                    MethodImplementation implementation = method.getImplementation();
-                    if (implementation != null) {
-                        List<AnalyzedInstruction> instructions = MethodUtils.getAnalyzedInstructions(dexFile, method);
-                        for (AnalyzedInstruction instruction : instructions) {
-                            if (InstructionUtils.isInvokeInstruction(instruction)) {
-                                String invokeTarget = ((ReferenceInstruction) instruction.getInstruction()).getReference().toString();
-                                if (clazz.equals(MethodUtils.getClassName(invokeTarget))) {
-                                    usages.add(new Usage(classDef, method, instruction));
-                                    foundUsage = true;
-                                    break;
-                                }
-                            }
-                        }
-                    }
-
-                    if (foundUsage) {
-                        break;
-                    }
-                }
+        /*
+         * Checks whether a usage is defined through an outer to inner class relation, i.e. class A makes use of
+         * class B if B is an inner class of A.
+         */
+        if (ClassUtils.isInnerClass(clazz)) {
+            // TODO: Take in account the following case (nested inner classes): 'outerClass$InnerClass1$InnerClass2'.
+            final ClassDef outerClass = classUsageIndex.getApplicationClass(ClassUtils.getOuterClass(clazz));
+            if (outerClass != null && isUsingClass(outerClass, clazz, applicationPackage, mainActivityPackage)) {
+                LOGGER.debug("Found inner class usage: " + outerClass);
+                usages.put(outerClass.toString(), new Usage(outerClass));
             }
         }
-        usages.forEach(LOGGER::debug);
-        CACHE.put(clazz, usages);
-        return usages;
+
+        for (ClassUsageIndex.Reference reference : classUsageIndex.getUsages(clazz)) {
+
+            final ClassDef classDef = reference.getUser();
+
+            if (usages.containsKey(classDef.toString())
+                    || !isUsingClass(classDef, clazz, applicationPackage, mainActivityPackage)) {
+                continue;
+            }
+
+            switch (reference.getKind()) {
+                case SUPER_CLASS:
+                case ANNOTATION:
+                case INTERFACE:
+                case INSTANCE_FIELD:
+                    usages.put(classDef.toString(), new Usage(classDef));
+                    break;
+                case PARAMETER:
+                    usages.put(classDef.toString(), new Usage(classDef, reference.getMethod()));
+                    break;
+                case INVOKE:
+                    final AnalyzedInstruction instruction = MethodUtils.getAnalyzedInstructions(reference.getDexFile(),
+                            reference.getMethod()).get(reference.getInstructionIndex());
+                    usages.put(classDef.toString(), new Usage(classDef, reference.getMethod(), instruction));
+                    break;
+                default:
+                    // other kinds of references don't define a usage
+                    break;
+            }
+        }
+
+        return new HashSet<>(usages.values());
+    }
+
+    /**
+     * Checks whether the given class is considered as a potential user of the given class.
+     *
+     * @param classDef The potentially using class.
+     * @param clazz The class for which we look up its usages.
+     * @param applicationPackage The package name of the app.
+     * @param mainActivityPackage The package of the main activity, may be {@code null}.
+     * @return Returns {@code true} if the given class may use the given class, otherwise {@code false}.
+     */
+    private static boolean isUsingClass(final ClassDef classDef, final String clazz, final String applicationPackage,
+                                        final String mainActivityPackage) {
+
+        final String className = classDef.toString();
+        final String dottedClassName = ClassUtils.dottedClassName(className);
+
+        if (!dottedClassName.startsWith(applicationPackage)
+                && (mainActivityPackage == null || !dottedClassName.startsWith(mainActivityPackage))) {
+            // don't consider usages outside the application package
+            return false;
+        }
+
+        if (ClassUtils.isResourceClass(classDef) || ClassUtils.isBuildConfigClass(classDef)) {
+            // don't consider resource classes or the build config class
+            return false;
+        }
+
+        if (className.equals(clazz)) {
+            // the class itself is not relevant
+            return false;
+        }
+
+        // TODO: We should probably rethink this. Although it is common that the outer class is using the inner
+        //  class, e.g. as part of a callback specification, there is also sometimes a back reference from the
+        //  inner to the outer class, in particular when we think about the somewhat strange handling of lambda
+        //  callbacks.
+        // Any inner class of the given class is also not relevant, i.e. the outer class is using the inner class but
+        // not vice versa!
+        return !ClassUtils.isInnerClass(className) || !clazz.equals(ClassUtils.getOuterClass(className));
     }
 }
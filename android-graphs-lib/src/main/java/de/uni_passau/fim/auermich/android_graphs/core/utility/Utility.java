@@ -6,8 +6,6 @@ import com.android.tools.smali.dexlib2.analysis.AnalyzedInstruction;
 import com.android.tools.smali.dexlib2.iface.ClassDef;
 import com.android.tools.smali.dexlib2.iface.Method;
 import com.android.tools.smali.dexlib2.iface.MethodParameter;
-import com.android.tools.smali.dexlib2.iface.instruction.Instruction;
-import com.android.tools.smali.dexlib2.iface.instruction.NarrowLiteralInstruction;
 import com.android.tools.smali.dexlib2.iface.instruction.ReferenceInstruction;
 import com.android.tools.smali.dexlib2.iface.instruction.formats.Instruction21c;
 import com.android.tools.smali.dexlib2.iface.instruction.formats.Instruction35c;
@@ -72,6 +70,30 @@ public final class Utility {
         return matches;
     }
 
+    /**
+     * Retrieves the layout resource id held by the given register, which is typically written by a preceding
+     * const, const/4, const/16 or const/high16 instruction.
+     *
+     * @param classDef The class defining the invocation.
+     * @param analyzedInstruction The invocation receiving the layout resource id.
+     * @param layoutResIDRegister The register holding the layout resource id.
+     * @return Returns the layout resource id in hex format or {@code null} if it can't be derived.
+     */
+    private static String getLayoutResourceID(final ClassDef classDef, final AnalyzedInstruction analyzedInstruction,
+                                              final int layoutResIDRegister) {
+
+        final Optional<Long> resourceID
+                = DefUseChains.of(analyzedInstruction).getConstant(analyzedInstruction, layoutResIDRegister);
+
+        if (resourceID.isEmpty()) {
+            // couldn't find layout resource id
+            LOGGER.warn("Couldn't derive resource ID for class " + classDef);
+            return null;
+        }
+
+        return "0x" + Integer.toHexString((int) (long) resourceID.get());
+    }
+
     /**
      * Checks for a call to setContentView() or inflate() respectively and retrieves the layout resource id
      * associated with the layout file.
@@ -99,31 +121,7 @@ public final class Utility {
             // the id of the register, which contains the layoutResID
             int layoutResIDRegister = invokeVirtual.getRegisterD();
 
-            boolean foundLayoutResID = false;
-            assert !analyzedInstruction.getPredecessors().isEmpty();
-            AnalyzedInstruction predecessor = analyzedInstruction.getPredecessors().first();
-
-            while (!foundLayoutResID) {
-
-                Instruction pred = predecessor.getInstruction();
-
-                // the predecessor should be either const, const/4 or const/16 and holds the XML ID
-                if (pred instanceof NarrowLiteralInstruction
-                        && (pred.getOpcode() == Opcode.CONST || pred.getOpcode() == Opcode.CONST_4
-                        || pred.getOpcode() == Opcode.CONST_16 || pred.getOpcode() == Opcode.CONST_HIGH16)
-                        && predecessor.setsRegister(layoutResIDRegister)) {
-                    int resourceID = ((NarrowLiteralInstruction) pred).getNarrowLiteral();
-                    return "0x" + Integer.toHexString(resourceID);
-                }
-
-                if (predecessor.getPredecessors().isEmpty()) {
-                    // couldn't find layout resource id
-                    LOGGER.warn("Couldn't derive resource ID for class " + classDef);
-                    return null;
-                } else {
-                    predecessor = predecessor.getPredecessors().first();
-                }
-            }
+            return getLayoutResourceID(classDef, analyzedInstruction, layoutResIDRegister);
         } else if (methodReference.endsWith("setContentView(Landroid/app/Activity;I)Landroidx/databinding/ViewDataBinding;")) {
 
             /*
@@ -139,31 +137,7 @@ public final class Utility {
             // the id of the register, which contains the layoutResID
             int layoutResIDRegister = invokeVirtual.getRegisterD();
 
-            boolean foundLayoutResID = false;
-            assert !analyzedInstruction.getPredecessors().isEmpty();
-            AnalyzedInstruction predecessor = analyzedInstruction.getPredecessors().first();
-
-            while (!foundLayoutResID) {
-
-                Instruction pred = predecessor.getInstruction();
-
-                // the predecessor should be either const, const/4 or const/16 and holds the XML ID
-                if (pred instanceof NarrowLiteralInstruction
-                        && (pred.getOpcode() == Opcode.CONST || pred.getOpcode() == Opcode.CONST_4
-                        || pred.getOpcode() == Opcode.CONST_16 || pred.getOpcode() == Opcode.CONST_HIGH16)
-                        && predecessor.setsRegister(layoutResIDRegister)) {
-                    int resourceID = ((NarrowLiteralInstruction) pred).getNarrowLiteral();
-                    return "0x" + Integer.toHexString(resourceID);
-                }
-
-                if (predecessor.getPredecessors().isEmpty()) {
-                    // couldn't find layout resource id
-                    LOGGER.warn("Couldn't derive resource ID for class " + classDef);
-                    return null;
-                } else {
-                    predecessor = predecessor.getPredecessors().first();
-                }
-            }
+            return getLayoutResourceID(classDef, analyzedInstruction, layoutResIDRegister);
         } else if (methodReference.endsWith("setContentView(Landroid/view/View;)V")) {
 
             /*
@@ -192,31 +166,7 @@ public final class Utility {
             // the id of the register, which contains the layoutResID
             int layoutResIDRegister = invokeVirtual.getRegisterD();
 
-            boolean foundLayoutResID = false;
-            assert !analyzedInstruction.getPredecessors().isEmpty();
-            AnalyzedInstruction predecessor = analyzedInstruction.getPredecessors().first();
-
-            while (!foundLayoutResID) {
-
-                Instruction pred = predecessor.getInstruction();
-
-                // the predecessor should be either const, const/4 or const/16 and holds the XML ID
-                if (pred instanceof NarrowLiteralInstruction
-                        && (pred.getOpcode() == Opcode.CONST || pred.getOpcode() == Opcode.CONST_4
-                        || pred.getOpcode() == Opcode.CONST_16 || pred.getOpcode() == Opcode.CONST_HIGH16)
-                        && predecessor.setsRegister(layoutResIDRegister)) {
-                    int resourceID = ((NarrowLiteralInstruction) pred).getNarrowLiteral();
-                    return "0x" + Integer.toHexString(resourceID);
-                }
-
-                if (predecessor.getPredecessors().isEmpty()) {
-                    // couldn't find layout resource id
-                    LOGGER.warn("Couldn't derive resource ID for class " + classDef);
-                    return null;
-                } else {
-                    predecessor = predecessor.getPredecessors().first();
-                }
-            }
+            return getLayoutResourceID(classDef, analyzedInstruction, layoutResIDRegister);
         } else if (methodReference.equals("Landroid/view/LayoutInflater;->" +
                 "inflate(Lorg/xmlpull/v1/XmlPullParser;Landroid/view/ViewGroup;Z)Landroid/view/View;")
             || methodReference.equals("Landroid/view/LayoutInflater;->" +
@@ -302,22 +252,24 @@ public final class Utility {
          */
         AnalyzedInstruction analyzedInstruction = invokeStmt.getInstruction();
         int registerC = ((Instruction35c) analyzedInstruction.getInstruction()).getRegisterC();
-        AnalyzedInstruction predecessor = analyzedInstruction.getPredecessors().first();
 
-        while (predecessor.getInstructionIndex() != -1) {
+        DefUseChains defUseChains = DefUseChains.of(analyzedInstruction);
+
+        for (AnalyzedInstruction definition : defUseChains.getSources(analyzedInstruction, registerC)) {
+            if (definition.getInstructionIndex() == -1) {
+                // the class is passed as parameter
+                continue;
+            }
             // check for const class instruction
-            if (predecessor.getInstruction().getOpcode() == Opcode.CONST_CLASS && predecessor.setsRegister(registerC)) {
-                Instruction21c constClassInstruction = (Instruction21c) predecessor.getInstruction();
+            if (definition.getInstruction().getOpcode() == Opcode.CONST_CLASS) {
+                Instruction21c constClassInstruction = (Instruction21c) definition.getInstruction();
                 return constClassInstruction.getReference().toString();
-            } else if (predecessor.getInstruction().getOpcode() == Opcode.MOVE_RESULT_OBJECT
-                    && predecessor.setsRegister(registerC)) {
+            } else if (definition.getInstruction().getOpcode() == Opcode.MOVE_RESULT_OBJECT) {
                 // The predecessor must be an invoke instruction that returns an instance of the expected class.
                 ReferenceInstruction invokeInstruction
-                        = (ReferenceInstruction) predecessor.getPredecessors().first().getInstruction();
+                        = (ReferenceInstruction) definition.getPredecessors().first().getInstruction();
                 String reference = invokeInstruction.getReference().toString();
                 return MethodUtils.getReturnType(reference);
-            } else {
-                predecessor = predecessor.getPredecessors().first();
             }
         }
 
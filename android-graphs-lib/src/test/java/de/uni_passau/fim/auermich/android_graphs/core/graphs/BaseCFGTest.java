@@ -4,14 +4,27 @@ import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.BaseCFG;
 import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.CFGVertex;
 import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.DummyCFG;
 import de.uni_passau.fim.auermich.android_graphs.core.statements.EntryStatement;
+import de.uni_passau.fim.auermich.android_graphs.core.utility.GraphExporter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class BaseCFGTest {
     private BaseCFG subject;
@@ -79,4 +92,159 @@ class BaseCFGTest {
         assertEquals(reversed.getOutgoingEdges(reversed.getExit()).size(), subject.getIncomingEdges(subject.getExit()).size());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void cloneTest() {
+        BaseCFG clone = subject.clone();
+        assertEquals(clone.getVertices().size(), subject.getVertices().size());
+        assertEquals(clone.getEdges().size(), subject.getEdges().size());
+
+        // the vertices are shared with the clone while the edges are not
+        CFGVertex successor = subject.getSuccessors(subject.getEntry()).iterator().next();
+        assertSame(successor, clone.getSuccessors(clone.getEntry()).iterator().next());
+
+        clone.removeEdges(new ArrayList<>(clone.getOutgoingEdges(clone.getEntry())));
+        assertTrue(clone.getOutgoingEdges(clone.getEntry()).isEmpty());
+        assertEquals(1, subject.getOutgoingEdges(subject.getEntry()).size());
+    }
+
+    @Test
+    public void reversedViewTest() {
+        BaseCFG reversed = subject.reversedView();
+
+        // entry and exit are swapped
+        assertSame(subject.getExit(), reversed.getEntry());
+        assertSame(subject.getEntry(), reversed.getExit());
+        assertEquals(subject.getEdges().size(), reversed.getEdges().size());
+        assertEquals(subject.getPredecessors(subject.getExit()), reversed.getSuccessors(reversed.getEntry()));
+
+        // the view is backed by the original graph and can't be modified
+        CFGVertex vertex = new CFGVertex(new EntryStatement("17"));
+        subject.addVertex(vertex);
+        subject.addEdge(subject.getEntry(), vertex);
+        assertTrue(reversed.getSuccessors(vertex).contains(subject.getEntry()));
+        assertThrows(UnsupportedOperationException.class, () -> reversed.addEdge(vertex, reversed.getEntry()));
+    }
+
+    @Test
+    public void inducedViewTest() {
+        BaseCFG induced = subject.inducedView(vertex -> !vertex.isEntryVertex() || vertex.equals(subject.getEntry()));
+
+        // only the entry and exit of the graph remain
+        assertEquals(2, induced.getVertices().size());
+        assertTrue(induced.getEdges().isEmpty());
+        assertEquals(subject.getVertices().size(), induced.copy().getVertices().size() + 17);
+    }
+
+    @Test
+    public void copyViewTest() {
+        BaseCFG reversed = subject.reversedView();
+        BaseCFG copy = reversed.copy();
+
+        // the copy is a modifiable graph of the viewed type with the edges, entry and exit of the view
+        assertTrue(copy instanceof DummyCFG);
+        assertSame(reversed.getEntry(), copy.getEntry());
+        assertSame(reversed.getExit(), copy.getExit());
+        assertEquals(reversed.getSuccessors(reversed.getEntry()), copy.getSuccessors(copy.getEntry()));
+
+        copy.removeEdges(new ArrayList<>(copy.getOutgoingEdges(copy.getEntry())));
+        assertTrue(copy.getOutgoingEdges(copy.getEntry()).isEmpty());
+        assertFalse(reversed.getOutgoingEdges(reversed.getEntry()).isEmpty());
+
+        // a view of a view is materialized into the type of the innermost viewed graph
+        assertTrue(reversed.inducedView(vertex -> true).copy() instanceof DummyCFG);
+    }
+
+    @Test
+    public void drawPartitionedGraphTest(@TempDir Path outputDir) {
+        CFGVertex visited = subject.getEntry();
+        subject.drawPartitionedGraph(outputDir.toFile(), Set.of(visited), Set.of(subject.getExit()),
+                BaseCFG.Partitioning.METHOD);
+
+        // one partition for the entry and exit of the graph and one for each of the 17 vertices
+        assertTrue(Files.exists(outputDir.resolve("index.html")));
+        for (int i = 0; i < 18; i++) {
+            assertTrue(Files.exists(outputDir.resolve("partition-" + i + ".png")));
+        }
+        assertFalse(Files.exists(outputDir.resolve("partition-18.png")));
+    }
+
+    @Test
+    public void exportGraphTest(@TempDir Path outputDir) throws IOException {
+        subject.exportGraph(outputDir.resolve("inline.json").toFile(), GraphExporter.Format.JSON, false, false);
+        assertTrue(Files.readString(outputDir.resolve("inline.json")).contains("\"label\":"));
+        assertFalse(Files.exists(outputDir.resolve("inline.labels.tsv")));
+
+        subject.exportGraph(outputDir.resolve("graph.json").toFile(), GraphExporter.Format.JSON, false, true);
+        assertFalse(Files.readString(outputDir.resolve("graph.json")).contains("\"label\":"));
+        // a header line followed by a line per vertex
+        assertEquals(subject.size() + 1, Files.readAllLines(outputDir.resolve("graph.labels.tsv")).size());
+    }
+
+    @Test
+    public void storeOffHeapTest() {
+        BaseCFG heap = subject.clone();
+        subject.storeOffHeap(null);
+
+        assertTrue(subject.isStoredOffHeap());
+        assertEquals(heap.getVertices(), subject.getVertices());
+        assertEquals(heap.getEdges(), subject.getEdges());
+
+        for (CFGVertex vertex : heap.getVertices()) {
+            assertEquals(heap.getSuccessors(vertex), subject.getSuccessors(vertex));
+            assertEquals(heap.getPredecessors(vertex), subject.getPredecessors(vertex));
+            assertEquals(heap.getShortestDistance(heap.getEntry(), vertex),
+                    subject.getShortestDistance(subject.getEntry(), vertex));
+        }
+
+        // the off-heap graph is read-only, while a clone lives on the heap again
+        assertThrows(UnsupportedOperationException.class, () -> subject.addEdge(subject.getExit(), subject.getEntry()));
+        BaseCFG clone = subject.clone();
+        assertFalse(clone.isStoredOffHeap());
+        clone.addEdge(clone.getExit(), clone.getEntry());
+        assertEquals(heap.getEdges().size() + 1, clone.getEdges().size());
+    }
+
+    @Test
+    public void storeOffHeapMappedTest(@TempDir Path directory) {
+        Path mappedFile = directory.resolve("adjacency.bin");
+        BaseCFG heap = subject.clone();
+        subject.storeOffHeap(mappedFile);
+
+        assertTrue(Files.exists(mappedFile));
+        assertEquals(heap.getEdges(), subject.getEdges());
+        assertEquals(heap.getTransitiveSuccessors(heap.getEntry()),
+                subject.getTransitiveSuccessors(subject.getEntry()));
+        assertFalse(subject.containsVertex(new CFGVertex(new EntryStatement("17"))));
+    }
+
+    private static Set<CFGVertex> adjacentVertices(BaseCFG cfg, CFGVertex vertex, boolean outgoing) {
+        CFGVertex[] vertices = cfg.getVertices().toArray(new CFGVertex[0]);
+        Map<CFGVertex, Integer> ids = new HashMap<>();
+        for (int id = 0; id < vertices.length; id++) {
+            ids.put(vertices[id], id);
+        }
+
+        BaseCFG.Adjacency adjacency = cfg.getAdjacency(vertices, ids, outgoing);
+        Set<CFGVertex> adjacent = new HashSet<>();
+        int id = ids.get(vertex);
+        for (int i = adjacency.getOffsets()[id]; i < adjacency.getOffsets()[id + 1]; i++) {
+            adjacent.add(vertices[adjacency.getTargets()[i]]);
+        }
+        return adjacent;
+    }
+
+    @Test
+    public void adjacencyTest() {
+        // a view shares the edges of the viewed graph, whose stored endpoints don't match the view
+        BaseCFG reversed = subject.reversedView();
+        BaseCFG induced = subject.inducedView(vertex -> !vertex.equals(subject.getExit()));
+        assertEquals(subject.getPredecessors(subject.getExit()), adjacentVertices(reversed, reversed.getEntry(), true));
+
+        for (BaseCFG cfg : List.of(subject, reversed, induced)) {
+            for (CFGVertex vertex : cfg.getVertices()) {
+                assertEquals(cfg.getSuccessors(vertex), adjacentVertices(cfg, vertex, true));
+                assertEquals(cfg.getPredecessors(vertex), adjacentVertices(cfg, vertex, false));
+            }
+        }
+    }
+}
@@ -1410,6 +1410,14 @@ public class BaseGraphBuilderTest {
         assertEquals(1, interCFG.getShortestDistance(vertex, successor));
     }
 
+    @Test
+    public void testOffHeapStorageOnlyForInterCFG() {
+        BaseGraphBuilder builder = new BaseGraphBuilder(GraphType.MODULARCDG, Collections.emptyList())
+                .withName("global")
+                .withOffHeapStorage();
+        Assertions.assertThrows(IllegalStateException.class, builder::build);
+    }
+
     private static <E> E getRandomSetElement(Set<E> set) {
         return set.stream().skip(new Random().nextInt(set.size())).findFirst().orElseThrow();
     }
@@ -0,0 +1,94 @@
+package de.uni_passau.fim.auermich.android_graphs.core.graphs;
+
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.BaseCFG;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.BranchDistanceMatrix;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.CFGVertex;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.DummyCFG;
+import de.uni_passau.fim.auermich.android_graphs.core.statements.EntryStatement;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BranchDistanceMatrixTest {
+
+    // a chain from the entry to the exit, where every tenth vertex branches back to the entry
+    private static BaseCFG generateChainCFG(int length, List<CFGVertex> vertices) {
+        BaseCFG cfg = new DummyCFG("Test");
+        CFGVertex previous = cfg.getEntry();
+        for (int i = 0; i < length; i++) {
+            CFGVertex vertex = new CFGVertex(new EntryStatement(String.valueOf(i)));
+            cfg.addVertex(vertex);
+            cfg.addEdge(previous, vertex);
+            if (i % 10 == 9) {
+                cfg.addEdge(vertex, cfg.getEntry());
+            }
+            vertices.add(vertex);
+            previous = vertex;
+        }
+        cfg.addEdge(previous, cfg.getExit());
+        return cfg;
+    }
+
+    @Test
+    public void distancesTest() {
+        List<CFGVertex> vertices = new ArrayList<>();
+        BaseCFG cfg = generateChainCFG(150, vertices);
+
+        // more than two batches of targets
+        List<CFGVertex> targets = new ArrayList<>(cfg.getVertices());
+        BranchDistanceMatrix matrix = new BranchDistanceMatrix(cfg, targets, BranchDistanceMatrix.Precision.SHORT,
+                null);
+
+        for (CFGVertex source : cfg.getVertices()) {
+            for (CFGVertex target : targets) {
+                assertEquals(cfg.getShortestDistance(source, target), matrix.getDistance(source, target));
+            }
+        }
+
+        // the exit can't reach any other vertex
+        int[] distances = matrix.getDistances(cfg.getExit());
+        for (int i = 0; i < distances.length; i++) {
+            assertEquals(targets.get(i).equals(cfg.getExit()) ? 0 : -1, distances[i]);
+        }
+
+        // the minimal distance over several sources
+        int[] minDistances = matrix.getMinDistances(List.of(cfg.getExit(), vertices.get(20), vertices.get(140)));
+        assertEquals(0, minDistances[targets.indexOf(vertices.get(20))]);
+        assertEquals(1, minDistances[targets.indexOf(vertices.get(141))]);
+        assertEquals(1, minDistances[targets.indexOf(vertices.get(21))]);
+        assertEquals(10, minDistances[targets.indexOf(cfg.getEntry())]);
+    }
+
+    @Test
+    public void branchesTest(@TempDir Path directory) {
+        BaseCFG cfg = BaseCFGTest.generateDummyCFG();
+        Path mappedFile = directory.resolve("branches.bin");
+        BranchDistanceMatrix matrix = new BranchDistanceMatrix(cfg, BranchDistanceMatrix.Precision.BYTE, mappedFile);
+
+        assertTrue(Files.exists(mappedFile));
+        assertEquals(cfg.getBranches(), matrix.getTargets());
+        assertArrayEquals(new int[matrix.getTargets().size()], matrix.getMinDistances(matrix.getTargets()));
+        assertThrows(IllegalArgumentException.class, () -> matrix.getDistance(cfg.getEntry(), cfg.getEntry()));
+    }
+
+    @Test
+    public void clampedDistancesTest() {
+        List<CFGVertex> vertices = new ArrayList<>();
+        BaseCFG cfg = generateChainCFG(300, vertices);
+        BranchDistanceMatrix matrix = new BranchDistanceMatrix(cfg, List.of(cfg.getExit()),
+                BranchDistanceMatrix.Precision.BYTE, null);
+
+        assertEquals(254, matrix.getMaxDistance());
+        assertEquals(254, matrix.getDistance(cfg.getEntry(), cfg.getExit()));
+        assertEquals(100, matrix.getDistance(vertices.get(200), cfg.getExit()));
+    }
+}
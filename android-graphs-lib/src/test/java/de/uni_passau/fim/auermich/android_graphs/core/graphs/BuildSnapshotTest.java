@@ -0,0 +1,175 @@
+package de.uni_passau.fim.auermich.android_graphs.core.graphs;
+
+import com.android.tools.smali.dexlib2.DexFileFactory;
+import com.android.tools.smali.dexlib2.dexbacked.DexBackedDexFile;
+import com.android.tools.smali.dexlib2.iface.ClassDef;
+import com.android.tools.smali.dexlib2.iface.DexFile;
+import com.android.tools.smali.dexlib2.iface.Method;
+import com.android.tools.smali.dexlib2.iface.MultiDexContainer;
+import com.android.tools.smali.dexlib2.immutable.ImmutableDexFile;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.BaseCFG;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.IntraCFG;
+import de.uni_passau.fim.auermich.android_graphs.core.utility.MethodUtils;
+import de.uni_passau.fim.auermich.android_graphs.core.utility.Properties;
+import de.uni_passau.fim.auermich.android_graphs.core.utility.Utility;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static de.uni_passau.fim.auermich.android_graphs.core.utility.SmaliTestHelper.compileSmali;
+import static de.uni_passau.fim.auermich.android_graphs.core.utility.SmaliTestHelper.createDexFile;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BuildSnapshotTest {
+
+    private static final String CLASS = ".class public Lcom/example/Foo;\n"
+            + ".super Ljava/lang/Object;\n"
+            + ".method public foo()I\n"
+            + "    .registers 2\n"
+            + "    const/4 v0, %d\n"
+            + "    return v0\n"
+            + ".end method\n"
+            + ".method public bar()V\n"
+            + "    .registers 1\n"
+            + "    return-void\n"
+            + ".end method\n";
+
+    private static final Path RESOURCES = Paths.get("src", "test", "resources");
+
+    private static void build(BuildSnapshot snapshot, Properties properties, ClassDef classDef) {
+        DexFile dexFile = createDexFile(classDef);
+        snapshot.begin(GraphType.INTERCFG, properties);
+        for (Method method : classDef.getMethods()) {
+            String methodSignature = MethodUtils.deriveMethodSignature(method);
+            if (snapshot.reuse(method, methodSignature, null) == null) {
+                snapshot.record(methodSignature, new IntraCFG(method, dexFile, false), null);
+            }
+        }
+        snapshot.finish();
+    }
+
+    private static Method getMethod(ClassDef classDef, String name) {
+        for (Method method : classDef.getMethods()) {
+            if (method.getName().equals(name)) {
+                return method;
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    @Test
+    public void reuseUnchangedMethodsTest() {
+
+        Properties properties = new Properties(false, false, false);
+        BuildSnapshot snapshot = new BuildSnapshot();
+
+        ClassDef firstVersion = compileSmali(String.format(CLASS, 1));
+        build(snapshot, properties, firstVersion);
+        assertEquals(0, snapshot.getReused());
+        assertEquals(2, snapshot.getRebuilt());
+
+        // only the changed method foo() is rebuilt
+        ClassDef secondVersion = compileSmali(String.format(CLASS, 2));
+        build(snapshot, properties, secondVersion);
+        assertEquals(1, snapshot.getReused());
+        assertEquals(1, snapshot.getRebuilt());
+
+        // the snapshot holds the graphs of the second version now
+        snapshot.begin(GraphType.INTERCFG, properties);
+        BaseCFG bar = snapshot.reuse(getMethod(secondVersion, "bar"), "Lcom/example/Foo;->bar()V", null);
+        assertSame(bar, snapshot.reuse(getMethod(firstVersion, "bar"), "Lcom/example/Foo;->bar()V", null));
+        snapshot.finish();
+
+        // a snapshot of a different configuration is discarded
+        snapshot.begin(GraphType.INTERCFG, new Properties(true, false, false));
+        assertNull(snapshot.reuse(getMethod(secondVersion, "bar"), "Lcom/example/Foo;->bar()V", null));
+    }
+
+    /**
+     * Loads the dex files of the bundled APK, which is copied to the given directory since the APK is decoded next
+     * to it.
+     */
+    private static File copyAPK(Path directory, List<DexFile> dexFiles) throws IOException {
+        File apkFile = Files.copy(RESOURCES.resolve("com.zola.bmi.apk"), directory.resolve("com.zola.bmi.apk"))
+                .toFile();
+        MultiDexContainer<? extends DexBackedDexFile> container
+                = DexFileFactory.loadDexContainer(apkFile, Utility.API_OPCODE);
+        for (String entry : container.getDexEntryNames()) {
+            dexFiles.add(container.getEntry(entry).getDexFile());
+        }
+        return apkFile;
+    }
+
+    /**
+     * Derives the next version of the bundled app, in which the main activity no longer distinguishes obese from
+     * severely obese people.
+     */
+    private static List<DexFile> editMainActivity(List<DexFile> dexFiles) throws IOException {
+        String smaliCode = Files.readString(RESOURCES.resolve("BMIMain.smali"), StandardCharsets.UTF_8);
+        String editedCode = smaliCode.replace("    const-string p1, \"You are obese\"\n\n    return-object p1\n\n", "");
+        assertNotEquals(smaliCode, editedCode);
+        ClassDef mainActivity = compileSmali(editedCode);
+
+        List<DexFile> editedDexFiles = new ArrayList<>();
+        for (DexFile dexFile : dexFiles) {
+            editedDexFiles.add(new ImmutableDexFile(dexFile.getOpcodes(), dexFile.getClasses().stream()
+                    .map(classDef -> classDef.getType().equals(mainActivity.getType()) ? mainActivity : classDef)
+                    .collect(Collectors.toList())));
+        }
+        return editedDexFiles;
+    }
+
+    private static BaseCFG build(GraphType type, File apkFile, List<DexFile> dexFiles, BuildSnapshot snapshot) {
+        BaseGraphBuilder builder = new BaseGraphBuilder(type, dexFiles)
+                .withName("global")
+                .withAPKFile(apkFile)
+                .withBasicBlocks();
+        if (snapshot != null) {
+            builder.withSnapshot(snapshot);
+        }
+        return (BaseCFG) builder.build();
+    }
+
+    private static void assertIncrementalBuildEqualsFullBuild(GraphType type, Path directory) throws IOException {
+
+        List<DexFile> dexFiles = new ArrayList<>();
+        File apkFile = copyAPK(directory, dexFiles);
+        List<DexFile> editedDexFiles = editMainActivity(dexFiles);
+
+        BuildSnapshot snapshot = new BuildSnapshot();
+        build(type, apkFile, dexFiles, snapshot);
+        BaseCFG incremental = build(type, apkFile, editedDexFiles, snapshot);
+
+        // only the edited method and the methods whose call sites resolve differently are rebuilt
+        assertTrue(snapshot.getRebuilt() > 0);
+        assertTrue(snapshot.getReused() > snapshot.getRebuilt());
+
+        BaseCFG full = build(type, apkFile, editedDexFiles, null);
+        assertEquals(new HashSet<>(full.getVertices()), new HashSet<>(incremental.getVertices()));
+        assertEquals(new HashSet<>(full.getEdges()), new HashSet<>(incremental.getEdges()));
+    }
+
+    @Test
+    public void incrementalInterCFGTest(@TempDir Path directory) throws IOException {
+        assertIncrementalBuildEqualsFullBuild(GraphType.INTERCFG, directory);
+    }
+
+    @Test
+    public void incrementalModularCDGTest(@TempDir Path directory) throws IOException {
+        assertIncrementalBuildEqualsFullBuild(GraphType.MODULARCDG, directory);
+    }
+}
@@ -0,0 +1,54 @@
+package de.uni_passau.fim.auermich.android_graphs.core.graphs;
+
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.CFGVertex;
+import de.uni_passau.fim.auermich.android_graphs.core.statements.EntryStatement;
+import de.uni_passau.fim.auermich.android_graphs.core.statements.ExitStatement;
+import de.uni_passau.fim.auermich.android_graphs.core.statements.ReturnStatement;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CFGVertexTest {
+
+    private static final String METHOD = "Lcom/example/CFGVertexTest;->foo()V";
+    private static final String TARGET_METHOD = "Lcom/example/CFGVertexTest;->bar()V";
+
+    @DisplayName("Testing that equal vertices share id, hash code and order.")
+    @Test
+    public void testEqualVertices() {
+        CFGVertex first = new CFGVertex(new ReturnStatement(METHOD, TARGET_METHOD, 3));
+        CFGVertex second = new CFGVertex(new ReturnStatement(METHOD, TARGET_METHOD, 3));
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertEquals(first.getId(), second.getId());
+        assertEquals(0, first.compareTo(second));
+    }
+
+    @DisplayName("Testing that distinct vertices are ordered deterministically.")
+    @Test
+    public void testDistinctVertices() {
+        CFGVertex entry = new CFGVertex(new EntryStatement(METHOD));
+        CFGVertex exit = new CFGVertex(new ExitStatement(METHOD));
+        CFGVertex returnVertex = new CFGVertex(new ReturnStatement(METHOD, TARGET_METHOD, 3));
+        CFGVertex otherReturnVertex = new CFGVertex(new ReturnStatement(METHOD, TARGET_METHOD, 5));
+
+        assertNotEquals(entry, exit);
+        assertNotEquals(returnVertex, otherReturnVertex);
+        assertTrue(entry.compareTo(exit) < 0);
+        assertTrue(exit.compareTo(entry) > 0);
+        assertTrue(returnVertex.compareTo(otherReturnVertex) < 0);
+        assertEquals(Integer.signum(entry.compareTo(returnVertex)), -Integer.signum(returnVertex.compareTo(entry)));
+    }
+
+    @DisplayName("Testing that the trace of a vertex refers to its method.")
+    @Test
+    public void testTrace() {
+        assertEquals(Optional.of(METHOD + "->entry"), new CFGVertex(new EntryStatement(METHOD)).getTrace());
+        assertEquals(Optional.of(METHOD + "->exit"), new CFGVertex(new ExitStatement(METHOD)).getTrace());
+        // virtual return vertices can't be looked up
+        assertTrue(new CFGVertex(new ReturnStatement(METHOD, TARGET_METHOD, 3)).getTrace().isEmpty());
+    }
+}
@@ -0,0 +1,67 @@
+package de.uni_passau.fim.auermich.android_graphs.core.graphs;
+
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.BaseCFG;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.CFGVertex;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.CoverageHeatmap;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.DummyCFG;
+import de.uni_passau.fim.auermich.android_graphs.core.statements.EntryStatement;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CoverageHeatmapTest {
+
+    @Test
+    public void aggregateTracesTest(@TempDir Path directory) throws IOException {
+
+        CFGVertex foo = new CFGVertex(new EntryStatement("Lcom/example/Foo;->foo()V"));
+        CFGVertex bar = new CFGVertex(new EntryStatement("Lcom/example/Foo$Bar;->bar()V"));
+        Map<String, CFGVertex> traces = Map.of("foo", foo, "bar", bar);
+
+        BaseCFG cfg = new DummyCFG("Test") {
+            @Override
+            public CFGVertex lookUpVertex(String trace) {
+                if (!traces.containsKey(trace)) {
+                    throw new IllegalArgumentException("Unknown trace: " + trace);
+                }
+                return traces.get(trace);
+            }
+        };
+        cfg.addEdge(cfg.getEntry(), foo);
+        cfg.addEdge(foo, bar);
+        cfg.addEdge(bar, cfg.getExit());
+
+        Path firstRun = Files.writeString(directory.resolve("traces-1.txt"), "foo\nfoo\nbar\n");
+        Path secondRun = Files.writeString(directory.resolve("traces-2.txt"), "foo\nunknown\n\n");
+
+        CoverageHeatmap heatmap = new CoverageHeatmap(cfg);
+        heatmap.addTraceFiles(List.of(firstRun, secondRun));
+
+        assertEquals(2, heatmap.getRuns());
+        assertEquals(1, heatmap.getUnmappedTraces());
+        assertEquals(3, heatmap.getHits(foo));
+        assertEquals(1, heatmap.getHits(bar));
+        assertEquals(0, heatmap.getHits(cfg.getEntry()));
+
+        // the inner class belongs to the component of its outer class
+        SortedMap<String, CoverageHeatmap.Summary> summaries = heatmap.summarize(BaseCFG.Partitioning.COMPONENT);
+        CoverageHeatmap.Summary component = summaries.get("Lcom/example/Foo;");
+        assertEquals(2, component.getVertices());
+        assertEquals(2, component.getCoveredVertices());
+        assertEquals(4, component.getHits());
+        assertEquals(0.0, summaries.get("Test").getCoverage());
+
+        Path dot = directory.resolve("heatmap.dot");
+        heatmap.exportDOT(dot, false);
+        assertTrue(Files.readString(dot).contains("fillcolor=\"#bd0026\""));
+    }
+}
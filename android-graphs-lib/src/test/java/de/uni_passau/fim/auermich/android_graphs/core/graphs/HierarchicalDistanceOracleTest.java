@@ -0,0 +1,133 @@
+package de.uni_passau.fim.auermich.android_graphs.core.graphs;
+
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.BaseCFG;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.CFGVertex;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.DummyCFG;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.HierarchicalDistanceOracle;
+import de.uni_passau.fim.auermich.android_graphs.core.statements.EntryStatement;
+import de.uni_passau.fim.auermich.android_graphs.core.statements.ExitStatement;
+import de.uni_passau.fim.auermich.android_graphs.core.statements.ReturnStatement;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HierarchicalDistanceOracleTest {
+
+    // adds the entry, the given number of inner vertices and the exit of a method
+    private static List<CFGVertex> addMethod(BaseCFG cfg, String method, int size) {
+        List<CFGVertex> vertices = new ArrayList<>();
+        vertices.add(new CFGVertex(new EntryStatement(method)));
+        for (int i = 0; i < size; i++) {
+            vertices.add(new CFGVertex(new ReturnStatement(method, "Lcom/example/Callee;->call()V", i)));
+        }
+        vertices.add(new CFGVertex(new ExitStatement(method)));
+        vertices.forEach(cfg::addVertex);
+        return vertices;
+    }
+
+    @Test
+    public void singleVertexMethodsTest() {
+        BaseCFG cfg = BaseCFGTest.generateDummyCFG();
+        HierarchicalDistanceOracle oracle = new HierarchicalDistanceOracle(cfg);
+
+        // every vertex forms a method of its own, thus every path runs through the overlay graph
+        for (CFGVertex source : cfg.getVertices()) {
+            for (CFGVertex target : cfg.getVertices()) {
+                assertEquals(cfg.getShortestDistance(source, target), oracle.getShortestDistance(source, target));
+            }
+        }
+    }
+
+    @Test
+    public void interProceduralTest() {
+        BaseCFG cfg = new DummyCFG("Test");
+        List<CFGVertex> caller = addMethod(cfg, "Lcom/example/Caller;->run()V", 4);
+        List<CFGVertex> callee = addMethod(cfg, "Lcom/example/Callee;->call()V", 1);
+
+        // exceeds the size up to which all pairwise distances are stored
+        List<CFGVertex> large = addMethod(cfg, "Lcom/example/Large;->loop()V", 300);
+
+        cfg.addEdge(cfg.getEntry(), caller.get(0));
+        cfg.addEdge(caller.get(0), caller.get(1));
+        cfg.addEdge(caller.get(1), callee.get(0));
+        cfg.addEdge(callee.get(2), caller.get(2));
+        cfg.addEdge(caller.get(2), caller.get(3));
+        cfg.addEdge(caller.get(3), caller.get(1));
+        cfg.addEdge(caller.get(2), caller.get(4));
+        cfg.addEdge(caller.get(3), large.get(0));
+        cfg.addEdge(large.get(large.size() - 1), caller.get(4));
+        cfg.addEdge(caller.get(4), caller.get(5));
+        cfg.addEdge(caller.get(5), cfg.getExit());
+
+        cfg.addEdge(callee.get(0), callee.get(1));
+        cfg.addEdge(callee.get(1), callee.get(2));
+
+        for (int i = 1; i < large.size(); i++) {
+            cfg.addEdge(large.get(i - 1), large.get(i));
+        }
+        cfg.addEdge(large.get(150), large.get(10));
+
+        HierarchicalDistanceOracle oracle = new HierarchicalDistanceOracle(cfg);
+
+        List<CFGVertex> sources = new ArrayList<>(caller);
+        sources.addAll(callee);
+        sources.addAll(List.of(cfg.getEntry(), cfg.getExit(), large.get(0), large.get(20), large.get(150)));
+
+        for (CFGVertex source : sources) {
+            for (CFGVertex target : cfg.getVertices()) {
+                assertEquals(cfg.getShortestDistance(source, target), oracle.getShortestDistance(source, target));
+            }
+        }
+
+        // the return vertex is only reachable through the callee
+        assertEquals(4, oracle.getShortestDistance(caller.get(1), caller.get(2)));
+        assertEquals(-1, oracle.getShortestDistance(caller.get(4), caller.get(1)));
+        assertEquals(131, oracle.getShortestDistance(large.get(20), large.get(10)));
+    }
+
+    @Test
+    public void manyCallSitesTest() {
+        BaseCFG cfg = new DummyCFG("Test");
+        int callSites = 20;
+        List<CFGVertex> hub = addMethod(cfg, "Lcom/example/Hub;->run()V", 2 * callSites);
+
+        cfg.addEdge(cfg.getEntry(), hub.get(0));
+        cfg.addEdge(hub.get(0), hub.get(1));
+        for (int i = 0; i < callSites; i++) {
+            // each call site may be skipped, thus every return vertex reaches all later invoke vertices
+            CFGVertex invoke = hub.get(2 * i + 1);
+            CFGVertex returnVertex = hub.get(2 * i + 2);
+            List<CFGVertex> callee = addMethod(cfg, "Lcom/example/Callee" + i + ";->call()V", 0);
+            cfg.addEdge(invoke, callee.get(0));
+            cfg.addEdge(callee.get(0), callee.get(1));
+            cfg.addEdge(callee.get(1), returnVertex);
+            cfg.addEdge(invoke, returnVertex);
+            cfg.addEdge(returnVertex, hub.get(2 * i + 3));
+        }
+        cfg.addEdge(hub.get(hub.size() - 1), cfg.getExit());
+
+        HierarchicalDistanceOracle oracle = new HierarchicalDistanceOracle(cfg);
+
+        // the quadratic shortcuts of the hub are replaced by its edges
+        assertTrue(oracle.getOverlayEdgeCount() <= cfg.getEdges().size());
+
+        for (CFGVertex source : hub) {
+            for (CFGVertex target : cfg.getVertices()) {
+                assertEquals(cfg.getShortestDistance(source, target), oracle.getShortestDistance(source, target));
+            }
+        }
+    }
+
+    @Test
+    public void unknownVertexTest() {
+        BaseCFG cfg = BaseCFGTest.generateDummyCFG();
+        HierarchicalDistanceOracle oracle = new HierarchicalDistanceOracle(cfg);
+        CFGVertex unknown = new CFGVertex(new EntryStatement("unknown"));
+        assertThrows(IllegalArgumentException.class, () -> oracle.getShortestDistance(unknown, cfg.getExit()));
+    }
+}
@@ -0,0 +1,79 @@
+package de.uni_passau.fim.auermich.android_graphs.core.graphs;
+
+import com.android.tools.smali.dexlib2.iface.ClassDef;
+import com.android.tools.smali.dexlib2.iface.Method;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.CFGVertex;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.IntraCFG;
+import de.uni_passau.fim.auermich.android_graphs.core.statements.BasicStatement;
+import de.uni_passau.fim.auermich.android_graphs.core.statements.BlockStatement;
+import de.uni_passau.fim.auermich.android_graphs.core.statements.ReturnStatement;
+import org.junit.jupiter.api.Test;
+
+import static de.uni_passau.fim.auermich.android_graphs.core.utility.SmaliTestHelper.compileSmali;
+import static de.uni_passau.fim.auermich.android_graphs.core.utility.SmaliTestHelper.createDexFile;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntraCFGTest {
+
+    private static final String METHOD = "Lcom/example/Foo;->foo()V";
+
+    private static final String CALLEE = "Lcom/example/Foo;->bar()V";
+
+    // the second invocation ends a basic block, thus the block split off after it only holds the return statement
+    private static final String CLASS = ".class public Lcom/example/Foo;\n"
+            + ".super Ljava/lang/Object;\n"
+            + ".method public foo()V\n"
+            + "    .registers 2\n"
+            + "    const/4 v0, 0x0\n"
+            + "    invoke-virtual {p0}, " + CALLEE + "\n"
+            + "    add-int/lit8 v0, v0, 0x1\n"
+            + "    invoke-virtual {p0}, " + CALLEE + "\n"
+            + "    :target\n"
+            + "    add-int/lit8 v0, v0, 0x1\n"
+            + "    if-eqz v0, :target\n"
+            + "    return-void\n"
+            + ".end method\n";
+
+    private static IntraCFG splitAtCallSites() {
+        ClassDef classDef = compileSmali(CLASS);
+        Method method = classDef.getMethods().iterator().next();
+        return new IntraCFG(method, createDexFile(classDef), statement -> CALLEE);
+    }
+
+    private static boolean containsInstruction(CFGVertex vertex, int instructionIndex) {
+        return ((BlockStatement) vertex.getStatement()).getStatements().stream()
+                .anyMatch(statement -> statement instanceof BasicStatement
+                        && ((BasicStatement) statement).getInstructionIndex() == instructionIndex);
+    }
+
+    @Test
+    public void lookUpAfterCallSiteTest() {
+        IntraCFG cfg = splitAtCallSites();
+        assertEquals(2, cfg.getReturnVertices().size());
+
+        for (CFGVertex returnVertex : cfg.getReturnVertices().values()) {
+            BlockStatement block = (BlockStatement) returnVertex.getStatement();
+            assertTrue(block.getFirstStatement() instanceof ReturnStatement);
+        }
+
+        for (int instructionIndex = 0; instructionIndex <= 6; instructionIndex++) {
+            CFGVertex vertex = cfg.lookUpVertex(METHOD + "->" + instructionIndex);
+            assertTrue(containsInstruction(vertex, instructionIndex));
+        }
+
+        // the instruction following the first invocation shares its block with a virtual return statement
+        CFGVertex vertex = cfg.lookUpVertex(METHOD + "->2");
+        assertTrue(((BlockStatement) vertex.getStatement()).getFirstStatement() instanceof ReturnStatement);
+
+        assertEquals(cfg.getEntry(), cfg.lookUpVertex(METHOD + "->entry"));
+        assertEquals(cfg.getExit(), cfg.lookUpVertex(METHOD + "->exit"));
+    }
+
+    @Test
+    public void unknownInstructionTest() {
+        IntraCFG cfg = splitAtCallSites();
+        assertThrows(IllegalArgumentException.class, () -> cfg.lookUpVertex(METHOD + "->99"));
+    }
+}
@@ -0,0 +1,92 @@
+package de.uni_passau.fim.auermich.android_graphs.core.graphs;
+
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.BaseCFG;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.CFGVertex;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.DummyCFG;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.LandmarkDistanceOracle;
+import de.uni_passau.fim.auermich.android_graphs.core.statements.EntryStatement;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LandmarkDistanceOracleTest {
+
+    @Test
+    public void boundsTest() {
+        BaseCFG cfg = BaseCFGTest.generateDummyCFG();
+        LandmarkDistanceOracle oracle = new LandmarkDistanceOracle(cfg, 4);
+
+        // the entry and exit come first, the remaining landmarks are the farthest vertices
+        assertEquals(4, oracle.getLandmarks().size());
+        assertSame(cfg.getEntry(), oracle.getLandmarks().get(0));
+        assertSame(cfg.getExit(), oracle.getLandmarks().get(1));
+
+        for (CFGVertex source : cfg.getVertices()) {
+            for (CFGVertex target : cfg.getVertices()) {
+                int distance = cfg.getShortestDistance(source, target);
+                int lowerBound = oracle.getLowerBound(source, target);
+                int upperBound = oracle.getUpperBound(source, target);
+
+                if (lowerBound == -1) {
+                    assertEquals(-1, distance);
+                } else {
+                    assertTrue(distance == -1 || lowerBound <= distance);
+                }
+                if (upperBound != -1) {
+                    assertTrue(distance != -1 && distance <= upperBound);
+                }
+                assertEquals(distance, oracle.getShortestDistance(source, target));
+            }
+        }
+    }
+
+    @Test
+    public void callbacksLandmarksTest() {
+        BaseCFG cfg = new DummyCFG("Test");
+        CFGVertex callbacks = new CFGVertex(new EntryStatement("callbacks Lcom/example/MainActivity;"));
+        CFGVertex onCreate = new CFGVertex(new EntryStatement("Lcom/example/MainActivity;->onCreate()V"));
+        cfg.addVertex(callbacks);
+        cfg.addVertex(onCreate);
+        cfg.addEdge(cfg.getEntry(), onCreate);
+        cfg.addEdge(onCreate, callbacks);
+        cfg.addEdge(callbacks, cfg.getExit());
+
+        LandmarkDistanceOracle oracle = new LandmarkDistanceOracle(cfg, 3);
+        assertEquals(List.of(cfg.getEntry(), cfg.getExit(), callbacks), oracle.getLandmarks());
+
+        // the exit reaches no landmark except itself, thus it can't reach the entry
+        assertEquals(-1, oracle.getLowerBound(cfg.getExit(), cfg.getEntry()));
+        assertEquals(3, oracle.getLowerBound(cfg.getEntry(), cfg.getExit()));
+        assertEquals(3, oracle.getUpperBound(cfg.getEntry(), cfg.getExit()));
+        assertEquals(2, oracle.getShortestDistance(cfg.getEntry(), callbacks));
+        assertEquals(Double.POSITIVE_INFINITY, oracle.getCostEstimate(callbacks, onCreate));
+    }
+
+    @Test
+    public void invalidLandmarksTest() {
+        BaseCFG cfg = BaseCFGTest.generateDummyCFG();
+        CFGVertex unknown = new CFGVertex(new EntryStatement("unknown"));
+        assertThrows(IllegalArgumentException.class, () -> new LandmarkDistanceOracle(cfg, List.of(unknown)));
+        assertThrows(IllegalArgumentException.class, () -> new LandmarkDistanceOracle(cfg, 0));
+    }
+
+    @Test
+    public void duplicateLandmarksTest() {
+        BaseCFG cfg = BaseCFGTest.generateDummyCFG();
+        LandmarkDistanceOracle oracle
+                = new LandmarkDistanceOracle(cfg, List.of(cfg.getEntry(), cfg.getExit(), cfg.getEntry()));
+        assertEquals(List.of(cfg.getEntry(), cfg.getExit()), oracle.getLandmarks());
+        assertEquals(cfg.getShortestDistance(cfg.getEntry(), cfg.getExit()),
+                oracle.getShortestDistance(cfg.getEntry(), cfg.getExit()));
+
+        // the selection stops once every vertex is a landmark
+        BaseCFG small = new DummyCFG("Test");
+        small.addEdge(small.getEntry(), small.getExit());
+        assertEquals(List.of(small.getEntry(), small.getExit()), new LandmarkDistanceOracle(small, 5).getLandmarks());
+    }
+}
@@ -0,0 +1,79 @@
+package de.uni_passau.fim.auermich.android_graphs.core.graphs;
+
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.BaseCFG;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.CFGVertex;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.DummyCFG;
+import de.uni_passau.fim.auermich.android_graphs.core.graphs.cfg.ReachabilityIndex;
+import de.uni_passau.fim.auermich.android_graphs.core.statements.EntryStatement;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReachabilityIndexTest {
+
+    @Test
+    public void componentsTest() {
+        BaseCFG cfg = BaseCFGTest.generateDummyCFG();
+        ReachabilityIndex index = new ReachabilityIndex(cfg);
+
+        // the loops through 8 form the component {5, ..., 15}, every other vertex forms a component of its own
+        assertEquals(9, index.getComponentCount());
+        assertTrue(index.getComponent(cfg.getEntry()) < index.getComponent(cfg.getExit()));
+
+        for (CFGVertex source : cfg.getVertices()) {
+            for (CFGVertex target : cfg.getVertices()) {
+                assertEquals(source.equals(target) || cfg.getShortestDistance(source, target) != -1,
+                        index.isReachable(source, target));
+                assertEquals(cfg.getTransitiveSuccessors(source).contains(target),
+                        index.isTransitiveSuccessor(source, target));
+            }
+        }
+    }
+
+    @Test
+    public void randomGraphTest() {
+        BaseCFG cfg = new DummyCFG("Test");
+        List<CFGVertex> vertices = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            CFGVertex vertex = new CFGVertex(new EntryStatement(String.valueOf(i)));
+            cfg.addVertex(vertex);
+            vertices.add(vertex);
+        }
+
+        // mostly forward edges, such that the condensation is a non-trivial DAG
+        Random random = new Random(42);
+        for (int i = 0; i < 120; i++) {
+            int source = random.nextInt(vertices.size());
+            int target = random.nextInt(vertices.size());
+            if (source <= target || random.nextInt(10) == 0) {
+                cfg.addEdge(vertices.get(source), vertices.get(target));
+            }
+        }
+
+        ReachabilityIndex index = new ReachabilityIndex(cfg);
+        for (CFGVertex source : cfg.getVertices()) {
+            for (CFGVertex target : cfg.getVertices()) {
+                assertEquals(cfg.getTransitiveSuccessors(source).contains(target),
+                        index.isTransitiveSuccessor(source, target));
+                if (index.getComponent(source) > index.getComponent(target)) {
+                    assertFalse(index.isReachable(source, target));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void unknownVertexTest() {
+        BaseCFG cfg = BaseCFGTest.generateDummyCFG();
+        ReachabilityIndex index = new ReachabilityIndex(cfg);
+        CFGVertex unknown = new CFGVertex(new EntryStatement("unknown"));
+        assertThrows(IllegalArgumentException.class, () -> index.isReachable(unknown, cfg.getExit()));
+    }
+}
@@ -0,0 +1,145 @@
+package de.uni_passau.fim.auermich.android_graphs.core.utility;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class BuildMetricsTest {
+
+    @BeforeEach
+    public void setUp() {
+        BuildMetrics.reset();
+        BuildMetrics.setEnabled(true);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        BuildMetrics.setEnabled(false);
+        BuildMetrics.reset();
+    }
+
+    private static JsonObject getPhase(final JsonObject report, final int index) {
+        return report.getAsJsonArray("phases").get(index).getAsJsonObject();
+    }
+
+    @DisplayName("Testing that nested phases are recorded separately in the order they end.")
+    @Test
+    public void testNestedPhases() {
+        try (BuildMetrics.Phase outer = BuildMetrics.startPhase("InterCFG", "outer")) {
+            try (BuildMetrics.Phase inner = BuildMetrics.startPhase("InterCFG", "inner")) {
+                inner.setItems(3);
+            }
+            outer.setItems(1);
+        }
+
+        final JsonObject report = BuildMetrics.toJSON();
+        Assertions.assertEquals(2, report.getAsJsonArray("phases").size());
+
+        final JsonObject inner = getPhase(report, 0);
+        final JsonObject outer = getPhase(report, 1);
+        Assertions.assertEquals("InterCFG", inner.get("graph").getAsString());
+        Assertions.assertEquals("inner", inner.get("phase").getAsString());
+        Assertions.assertEquals("outer", outer.get("phase").getAsString());
+        Assertions.assertEquals(3, inner.get("items").getAsLong());
+        Assertions.assertEquals(1, outer.get("items").getAsLong());
+
+        // the outer phase includes the time of the inner phase
+        Assertions.assertTrue(outer.get("wallTimeMillis").getAsDouble() >= inner.get("wallTimeMillis").getAsDouble());
+    }
+
+    @DisplayName("Testing that repeated phases accumulate their invocations and items.")
+    @Test
+    public void testItemCounts() {
+        for (int i = 1; i <= 3; i++) {
+            final BuildMetrics.Phase phase = BuildMetrics.startPhase("CallTree", "build");
+            phase.setItems(i);
+            phase.close();
+            // closing a phase twice doesn't record it again
+            phase.close();
+        }
+
+        // the same phase name of another graph is recorded on its own
+        try (BuildMetrics.Phase phase = BuildMetrics.startPhase("CDG", "build")) {
+            phase.setItems(5);
+        }
+
+        final JsonObject report = BuildMetrics.toJSON();
+        Assertions.assertEquals(2, report.getAsJsonArray("phases").size());
+
+        final JsonObject callTree = getPhase(report, 0);
+        Assertions.assertEquals("CallTree", callTree.get("graph").getAsString());
+        Assertions.assertEquals(3, callTree.get("invocations").getAsLong());
+        Assertions.assertEquals(6, callTree.get("items").getAsLong());
+
+        final JsonObject cdg = getPhase(report, 1);
+        Assertions.assertEquals("CDG", cdg.get("graph").getAsString());
+        Assertions.assertEquals(1, cdg.get("invocations").getAsLong());
+        Assertions.assertEquals(5, cdg.get("items").getAsLong());
+
+        BuildMetrics.reset();
+        Assertions.assertEquals(0, BuildMetrics.toJSON().getAsJsonArray("phases").size());
+    }
+
+    @DisplayName("Testing the JSON file written for the recorded phases and caches.")
+    @Test
+    public void testWriteJSON(@TempDir Path directory) throws IOException {
+        try (BuildMetrics.Phase phase = BuildMetrics.startPhase("InterCFG", "constructIntraCFGs")) {
+            phase.setItems(42);
+        }
+        BuildMetrics.recordCacheHit("classUsages");
+        BuildMetrics.recordCacheHit("classUsages");
+        BuildMetrics.recordCacheHit("classUsages");
+        BuildMetrics.recordCacheMiss("classUsages");
+        BuildMetrics.recordCacheMiss("superClasses");
+
+        final Path output = directory.resolve("metrics.json");
+        BuildMetrics.writeJSON(output.toFile());
+
+        final JsonObject report = JsonParser.parseString(Files.readString(output, StandardCharsets.UTF_8))
+                .getAsJsonObject();
+        Assertions.assertEquals(BuildMetrics.toJSON(), report);
+
+        final JsonObject phase = getPhase(report, 0);
+        Assertions.assertEquals("constructIntraCFGs", phase.get("phase").getAsString());
+        Assertions.assertEquals(1, phase.get("invocations").getAsLong());
+        Assertions.assertEquals(42, phase.get("items").getAsLong());
+        Assertions.assertTrue(phase.get("wallTimeMillis").getAsDouble() >= 0);
+        Assertions.assertTrue(phase.has("cpuTimeMillis"));
+        Assertions.assertTrue(phase.has("allocatedBytes"));
+
+        final JsonArray caches = report.getAsJsonArray("caches");
+        Assertions.assertEquals(2, caches.size());
+        final JsonObject classUsages = caches.get(0).getAsJsonObject();
+        Assertions.assertEquals("classUsages", classUsages.get("cache").getAsString());
+        Assertions.assertEquals(3, classUsages.get("hits").getAsLong());
+        Assertions.assertEquals(1, classUsages.get("misses").getAsLong());
+        Assertions.assertEquals(0.75, classUsages.get("hitRate").getAsDouble());
+        Assertions.assertEquals(0.0, caches.get(1).getAsJsonObject().get("hitRate").getAsDouble());
+    }
+
+    @DisplayName("Testing that nothing is recorded while recording is disabled.")
+    @Test
+    public void testDisabled() {
+        BuildMetrics.setEnabled(false);
+        try (BuildMetrics.Phase phase = BuildMetrics.startPhase("InterCFG", "constructIntraCFGs")) {
+            phase.setItems(42);
+        }
+        BuildMetrics.recordCacheHit("classUsages");
+        BuildMetrics.recordCacheMiss("classUsages");
+
+        final JsonObject report = BuildMetrics.toJSON();
+        Assertions.assertEquals(0, report.getAsJsonArray("phases").size());
+        Assertions.assertEquals(0, report.getAsJsonArray("caches").size());
+    }
+}
@@ -0,0 +1,96 @@
+package de.uni_passau.fim.auermich.android_graphs.core.utility;
+
+import com.android.tools.smali.dexlib2.iface.ClassDef;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Set;
+
+import static de.uni_passau.fim.auermich.android_graphs.core.utility.SmaliTestHelper.compileSmali;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClassHierarchyTest {
+
+    private static final String PACKAGE_NAME = "com.example";
+
+    private static final String BASE_CLASS = ".class public Lcom/example/Base;\n"
+            + ".super Ljava/lang/Object;\n"
+            + ".method public foo()V\n"
+            + "    .registers 1\n"
+            + "    return-void\n"
+            + ".end method\n";
+
+    private static final String SUB_CLASS = ".class public Lcom/example/Sub;\n"
+            + ".super Lcom/example/Base;\n"
+            + ".method public foo()V\n"
+            + "    .registers 1\n"
+            + "    return-void\n"
+            + ".end method\n";
+
+    private static final String LEAF_CLASS = ".class public Lcom/example/Leaf;\n"
+            + ".super Lcom/example/Sub;\n";
+
+    private ClassHierarchy classHierarchy;
+
+    @BeforeEach
+    void setUp() {
+        ClassDef base = compileSmali(BASE_CLASS);
+        ClassDef sub = compileSmali(SUB_CLASS);
+        classHierarchy = new ClassHierarchy();
+        classHierarchy.addClass(base);
+        classHierarchy.addClass(sub, base, Collections.emptySet());
+        classHierarchy.addClass(compileSmali(LEAF_CLASS), sub, Collections.emptySet());
+        classHierarchy.build();
+    }
+
+    @DisplayName("Testing the look up of an inherited method.")
+    @Test
+    public void testInheritedMethod() {
+        assertEquals("Lcom/example/Sub;->foo()V",
+                classHierarchy.invokedByCurrentClassOrAnySuperClass("Lcom/example/Leaf;->foo()V"));
+        assertNull(classHierarchy.invokedByCurrentClassOrAnySuperClass("Lcom/example/Leaf;->bar()V"));
+    }
+
+    @DisplayName("Testing the resolution of an overridden method.")
+    @Test
+    public void testOverriddenMethods() {
+        Properties properties = new Properties(true, true, true);
+        Set<String> overriddenMethods = classHierarchy.getOverriddenMethods("Lcom/example/Base;",
+                "Lcom/example/Base;->foo()V", PACKAGE_NAME, null, properties);
+        assertEquals(Set.of("Lcom/example/Base;->foo()V", "Lcom/example/Sub;->foo()V"), overriddenMethods);
+    }
+
+    @DisplayName("Testing that repeated resolutions are served from the cache.")
+    @Test
+    public void testResolutionCache() {
+        Properties properties = new Properties(true, true, true);
+        Set<String> first = classHierarchy.getOverriddenMethods("Lcom/example/Base;",
+                "Lcom/example/Base;->foo()V", PACKAGE_NAME, null, properties);
+        Set<String> second = classHierarchy.getOverriddenMethods("Lcom/example/Sub;",
+                "Lcom/example/Base;->foo()V", PACKAGE_NAME, null, properties);
+        assertSame(first, second);
+        assertEquals(1, classHierarchy.getResolutionCacheMisses());
+        assertEquals(1, classHierarchy.getResolutionCacheHits());
+    }
+
+    @DisplayName("Testing that methods are only resolved by a built class hierarchy, which can't be changed anymore.")
+    @Test
+    public void testBuild() {
+        assertTrue(classHierarchy.isBuilt());
+        assertThrows(IllegalStateException.class, () -> classHierarchy.addClass(
+                compileSmali(".class public Lcom/example/Other;\n.super Ljava/lang/Object;\n")));
+        assertThrows(IllegalStateException.class, () -> classHierarchy.build());
+
+        ClassHierarchy incomplete = new ClassHierarchy();
+        incomplete.addClass(compileSmali(BASE_CLASS));
+        assertFalse(incomplete.isBuilt());
+        assertThrows(IllegalStateException.class,
+                () -> incomplete.invokedByCurrentClassOrAnySuperClass("Lcom/example/Base;->foo()V"));
+
+        incomplete.build();
+        assertEquals("Lcom/example/Base;->foo()V",
+                incomplete.invokedByCurrentClassOrAnySuperClass("Lcom/example/Base;->foo()V"));
+    }
+}
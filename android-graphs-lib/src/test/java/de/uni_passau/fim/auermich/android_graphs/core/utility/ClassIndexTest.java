@@ -0,0 +1,39 @@
+package de.uni_passau.fim.auermich.android_graphs.core.utility;
+
+import com.android.tools.smali.dexlib2.iface.ClassDef;
+import com.android.tools.smali.dexlib2.iface.DexFile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static de.uni_passau.fim.auermich.android_graphs.core.utility.SmaliTestHelper.compileSmali;
+import static de.uni_passau.fim.auermich.android_graphs.core.utility.SmaliTestHelper.createDexFile;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClassIndexTest {
+
+    @DisplayName("Testing the look up of super classes, interfaces and inner classes across dex files.")
+    @Test
+    public void testMultiDex() {
+
+        ClassDef base = compileSmali(".class public Lcom/example/Base;\n.super Ljava/lang/Object;\n");
+        ClassDef listener = compileSmali(".class public interface abstract Lcom/example/Listener;\n"
+                + ".super Ljava/lang/Object;\n");
+        ClassDef sub = compileSmali(".class public Lcom/example/Sub;\n.super Lcom/example/Base;\n"
+                + ".implements Lcom/example/Listener;\n");
+        ClassDef inner = compileSmali(".class Lcom/example/Base$1;\n.super Ljava/lang/Object;\n");
+
+        DexFile first = createDexFile(base, listener);
+        DexFile second = createDexFile(sub, inner);
+        ClassIndex classIndex = new ClassIndex(List.of(first, second));
+
+        assertEquals(4, classIndex.getClasses().size());
+        assertEquals("Lcom/example/Base;", classIndex.getSuperClass(sub).toString());
+        assertNull(classIndex.getSuperClass(base));
+        assertEquals(Set.of(listener), classIndex.getInterfaces(sub));
+        assertEquals(Set.of(inner), classIndex.getInnerClasses(base));
+        assertTrue(classIndex.getInnerClasses(sub).isEmpty());
+    }
+}
@@ -0,0 +1,110 @@
+package de.uni_passau.fim.auermich.android_graphs.core.utility;
+
+import com.android.tools.smali.dexlib2.Opcode;
+import com.android.tools.smali.dexlib2.iface.ClassDef;
+import com.android.tools.smali.dexlib2.iface.DexFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static de.uni_passau.fim.auermich.android_graphs.core.utility.SmaliTestHelper.compileSmali;
+import static de.uni_passau.fim.auermich.android_graphs.core.utility.SmaliTestHelper.createDexFile;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClassUsageIndexTest {
+
+    private static final String BASE_CLASS = ".class public Lcom/example/Base;\n"
+            + ".super Ljava/lang/Object;\n"
+            + ".method public foo()V\n"
+            + "    .registers 1\n"
+            + "    return-void\n"
+            + ".end method\n";
+
+    private static final String SUB_CLASS = ".class public Lcom/example/Sub;\n"
+            + ".super Lcom/example/Base;\n"
+            + ".field private other:Lcom/example/Other;\n";
+
+    private static final String OTHER_CLASS = ".class public Lcom/example/Other;\n"
+            + ".super Ljava/lang/Object;\n"
+            + ".method public bar(Lcom/example/Base;)V\n"
+            + "    .registers 2\n"
+            + "    invoke-virtual {p1}, Lcom/example/Base;->foo()V\n"
+            + "    invoke-virtual {p1}, Lcom/example/Base;->foo()V\n"
+            + "    new-instance v0, Lcom/example/Sub;\n"
+            + "    sget-object v0, Lcom/example/Other;->INSTANCE:Lcom/example/Other;\n"
+            + "    const-class v0, Lcom/example/Sub;\n"
+            + "    return-void\n"
+            + ".end method\n";
+
+    private static final String LIBRARY_CLASS = ".class public Lorg/library/Library;\n"
+            + ".super Lcom/example/Base;\n";
+
+    private ClassUsageIndex classUsageIndex;
+
+    @BeforeEach
+    void setUp() {
+        DexFile first = createDexFile(compileSmali(BASE_CLASS), compileSmali(SUB_CLASS));
+        DexFile second = createDexFile(compileSmali(OTHER_CLASS), compileSmali(LIBRARY_CLASS));
+        classUsageIndex = new ClassUsageIndex(List.of(first, second), "com.example", null);
+    }
+
+    @DisplayName("Testing the kinds and locations of the references to a class.")
+    @Test
+    public void testUsages() {
+        List<ClassUsageIndex.Reference> usages = classUsageIndex.getUsages("Lcom/example/Base;");
+
+        // the library class is not indexed and the duplicate invocation is only recorded once
+        assertEquals(List.of(ClassUsageIndex.Kind.SUPER_CLASS, ClassUsageIndex.Kind.PARAMETER,
+                        ClassUsageIndex.Kind.INVOKE),
+                usages.stream().map(ClassUsageIndex.Reference::getKind).collect(Collectors.toList()));
+        assertEquals("Lcom/example/Sub;", usages.get(0).getUser().toString());
+        assertNull(usages.get(0).getMethod());
+
+        ClassUsageIndex.Reference invoke = usages.get(2);
+        assertEquals("Lcom/example/Other;", invoke.getUser().toString());
+        assertEquals("bar", invoke.getMethod().getName());
+        assertEquals(0, invoke.getInstructionIndex());
+        assertNull(classUsageIndex.getApplicationClass("Lorg/library/Library;"));
+    }
+
+    @DisplayName("Testing the look up of the instructions referencing a method, class or field.")
+    @Test
+    public void testReferenceIndex() {
+        ReferenceIndex referenceIndex = classUsageIndex.getReferenceIndex();
+
+        List<ReferenceIndex.Site> callSites = referenceIndex.getMethodReferences("Lcom/example/Base;->foo()V");
+        assertEquals(2, callSites.size());
+        assertEquals(List.of(0, 1), callSites.stream()
+                .map(ReferenceIndex.Site::getInstructionIndex).collect(Collectors.toList()));
+        assertEquals(Opcode.INVOKE_VIRTUAL, callSites.get(0).getOpcode());
+
+        List<ReferenceIndex.Site> classReferences = referenceIndex.getClassReferences("Lcom/example/Sub;");
+        assertEquals(List.of(2, 4), classReferences.stream()
+                .map(ReferenceIndex.Site::getInstructionIndex).collect(Collectors.toList()));
+        assertEquals(List.of(Opcode.NEW_INSTANCE, Opcode.CONST_CLASS), classReferences.stream()
+                .map(ReferenceIndex.Site::getOpcode).collect(Collectors.toList()));
+        assertTrue(referenceIndex.getClassReferences("Lcom/example/Base;").isEmpty());
+
+        List<ReferenceIndex.Site> fieldAccesses
+                = referenceIndex.getFieldReferences("Lcom/example/Other;->INSTANCE:Lcom/example/Other;");
+        assertEquals(1, fieldAccesses.size());
+        assertEquals(3, fieldAccesses.get(0).getInstructionIndex());
+        assertEquals(Opcode.SGET_OBJECT, fieldAccesses.get(0).getOpcode());
+        assertTrue(referenceIndex.getFieldReferences("Lcom/example/Sub;->other:Lcom/example/Other;").isEmpty());
+        assertTrue(referenceIndex.getMethodReferences("Lcom/example/Base;->bar()V").isEmpty());
+    }
+
+    @DisplayName("Testing the usage relation between application classes.")
+    @Test
+    public void testClassUsages() {
+        assertEquals(Set.of("Lcom/example/Base;", "Lcom/example/Sub;"),
+                classUsageIndex.getClassUsages().get("Lcom/example/Other;"));
+        // the super class doesn't define a usage relation
+        assertEquals(Set.of("Lcom/example/Other;"), classUsageIndex.getClassUsages().get("Lcom/example/Sub;"));
+        assertTrue(classUsageIndex.getClassUsages().get("Lcom/example/Base;").isEmpty());
+    }
+}
@@ -0,0 +1,143 @@
+package de.uni_passau.fim.auermich.android_graphs.core.utility;
+
+import com.android.tools.smali.dexlib2.analysis.AnalyzedInstruction;
+import com.android.tools.smali.dexlib2.iface.ClassDef;
+import com.android.tools.smali.dexlib2.iface.DexFile;
+import com.android.tools.smali.dexlib2.iface.Method;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static de.uni_passau.fim.auermich.android_graphs.core.utility.SmaliTestHelper.compileSmali;
+import static de.uni_passau.fim.auermich.android_graphs.core.utility.SmaliTestHelper.createDexFile;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DefUseChainsTest {
+
+    private static final String CLASS = ".class public Lcom/example/Foo;\n"
+            + ".super Ljava/lang/Object;\n"
+            + ".method public foo(Z)V\n"
+            + "    .registers 5\n"
+            + "    const v0, 0x7f0b001c\n"
+            + "    if-eqz p1, :else\n"
+            + "    new-instance v1, Lcom/example/Foo;\n"
+            + "    invoke-direct {v1}, Lcom/example/Foo;-><init>()V\n"
+            + "    goto :end\n"
+            + "    :else\n"
+            + "    new-instance v1, Lcom/example/Bar;\n"
+            + "    invoke-direct {v1}, Lcom/example/Bar;-><init>()V\n"
+            + "    :end\n"
+            + "    move-object v2, v1\n"
+            + "    invoke-virtual {p0, v0}, Lcom/example/Foo;->setContentView(I)V\n"
+            + "    invoke-virtual {p0, v2}, Lcom/example/Foo;->use(Ljava/lang/Object;)V\n"
+            + "    return-void\n"
+            + ".end method\n"
+            + ".method public lit()V\n"
+            + "    .registers 3\n"
+            + "    const/4 v0, 0x1\n"
+            + "    add-int/lit8 v1, v0, 0x5\n"
+            + "    invoke-virtual {p0, v1}, Lcom/example/Foo;->setContentView(I)V\n"
+            + "    invoke-virtual {p0, v0}, Lcom/example/Foo;->setContentView(I)V\n"
+            + "    return-void\n"
+            + ".end method\n"
+            + ".method public setContentView(I)V\n"
+            + "    .registers 2\n"
+            + "    return-void\n"
+            + ".end method\n"
+            + ".method public use(Ljava/lang/Object;)V\n"
+            + "    .registers 2\n"
+            + "    return-void\n"
+            + ".end method\n";
+
+    private DexFile dexFile;
+
+    private ClassDef classDef;
+
+    private List<AnalyzedInstruction> analyzedInstructions;
+
+    private static List<Integer> indices(List<AnalyzedInstruction> analyzedInstructions) {
+        return analyzedInstructions.stream()
+                .map(AnalyzedInstruction::getInstructionIndex)
+                .collect(Collectors.toList());
+    }
+
+    private List<AnalyzedInstruction> analyze(String methodName) {
+        Method method = StreamSupport.stream(classDef.getMethods().spliterator(), false)
+                .filter(m -> m.getName().equals(methodName))
+                .findFirst()
+                .orElseThrow();
+        return MethodUtils.getAnalyzedInstructions(dexFile, method);
+    }
+
+    @BeforeEach
+    void setUp() {
+        classDef = compileSmali(CLASS);
+        dexFile = createDexFile(classDef);
+        analyzedInstructions = analyze("foo");
+    }
+
+    @DisplayName("Testing the reaching definitions and uses of a register.")
+    @Test
+    public void testReachingDefinitions() {
+
+        AnalyzedInstruction setContentView = analyzedInstructions.get(8);
+        AnalyzedInstruction use = analyzedInstructions.get(9);
+        DefUseChains chains = DefUseChains.of(use);
+
+        // the chains are shared among the instructions of the method
+        assertSame(chains, DefUseChains.of(analyzedInstructions.get(0)));
+
+        assertEquals(List.of(7), indices(chains.getReachingDefinitions(use, 2)));
+        assertEquals(Optional.of(analyzedInstructions.get(7)), chains.getReachingDefinition(use, 2));
+
+        // p0 is defined by the start of the method
+        assertEquals(List.of(-1), indices(chains.getReachingDefinitions(setContentView, 3)));
+        assertEquals(List.of(8), indices(chains.getUses(analyzedInstructions.get(0), 0)));
+    }
+
+    @DisplayName("Testing the copy, constant and type propagation across both branches.")
+    @Test
+    public void testPropagation() {
+
+        AnalyzedInstruction setContentView = analyzedInstructions.get(8);
+        AnalyzedInstruction use = analyzedInstructions.get(9);
+        DefUseChains chains = DefUseChains.of(use);
+
+        assertEquals(Optional.of(0x7f0b001cL), chains.getConstant(setContentView, 0));
+        assertTrue(chains.getConstant(use, 2).isEmpty());
+
+        // the move and the constructor calls are followed back to the new-instance instructions
+        assertEquals(List.of(2, 5), indices(chains.getSources(use, 2)));
+        assertEquals(Set.of("Lcom/example/Foo;", "Lcom/example/Bar;"), chains.getObjectTypes(use, 2));
+    }
+
+    @DisplayName("Testing that the literal operand of an arithmetic instruction is no constant.")
+    @Test
+    public void testLiteralArithmetic() {
+
+        List<AnalyzedInstruction> instructions = analyze("lit");
+        DefUseChains chains = DefUseChains.of(instructions.get(2));
+
+        // v1 is defined by add-int/lit8, whose literal 0x5 is not the value of v1
+        assertEquals(List.of(1), indices(chains.getSources(instructions.get(2), 1)));
+        assertTrue(chains.getConstant(instructions.get(2), 1).isEmpty());
+        assertEquals(Optional.of(1L), chains.getConstant(instructions.get(3), 0));
+    }
+
+    @DisplayName("Testing that the cached chains are released.")
+    @Test
+    public void testClearCache() {
+
+        DefUseChains chains = DefUseChains.of(analyzedInstructions.get(0));
+        assertSame(chains, DefUseChains.of(analyzedInstructions.get(9)));
+
+        DefUseChains.clearCache();
+        assertNotSame(chains, DefUseChains.of(analyzedInstructions.get(0)));
+    }
+}
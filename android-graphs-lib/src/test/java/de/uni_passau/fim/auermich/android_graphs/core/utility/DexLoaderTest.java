@@ -0,0 +1,92 @@
+package de.uni_passau.fim.auermich.android_graphs.core.utility;
+
+import com.android.tools.smali.dexlib2.Opcodes;
+import com.android.tools.smali.dexlib2.iface.ClassDef;
+import com.android.tools.smali.dexlib2.iface.DexFile;
+import com.android.tools.smali.dexlib2.writer.io.FileDataStore;
+import com.android.tools.smali.dexlib2.writer.pool.DexPool;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static de.uni_passau.fim.auermich.android_graphs.core.utility.SmaliTestHelper.OPCODE_API;
+import static de.uni_passau.fim.auermich.android_graphs.core.utility.SmaliTestHelper.compileSmali;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DexLoaderTest {
+
+    private static Path writeDexFile(Path directory, String className) throws IOException {
+        ClassDef classDef = compileSmali(".class public " + className + "\n"
+                + ".super Ljava/lang/Object;\n");
+        DexPool dexPool = new DexPool(Opcodes.forApi(OPCODE_API));
+        dexPool.internClass(classDef);
+        String simpleName = className.substring(className.lastIndexOf('/') + 1, className.length() - 1);
+        Path dexFile = directory.resolve(simpleName + ".dex");
+        dexPool.writeTo(new FileDataStore(dexFile.toFile()));
+        return dexFile;
+    }
+
+    private static String getClassName(DexFile dexFile) {
+        return dexFile.getClasses().iterator().next().getType();
+    }
+
+    @DisplayName("Testing that the dex entries of an APK are loaded in the order of their index.")
+    @Test
+    public void testLoadMultiDex(@TempDir Path directory) throws IOException {
+
+        Path apk = directory.resolve("app.apk");
+        // the entries are written out of order, the nested dex file isn't part of the APK's code
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("classes10.dex", "Lcom/example/Baz;");
+        entries.put("classes2.dex", "Lcom/example/Bar;");
+        entries.put("classes.dex", "Lcom/example/Foo;");
+        entries.put("assets/classes3.dex", "Lcom/example/Asset;");
+
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(apk))) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(Files.readAllBytes(writeDexFile(directory, entry.getValue())));
+                zip.closeEntry();
+            }
+        }
+
+        List<DexFile> dexFiles = DexLoader.loadDexFiles(apk.toFile());
+
+        assertEquals(3, dexFiles.size());
+        assertEquals("Lcom/example/Foo;", getClassName(dexFiles.get(0)));
+        assertEquals("Lcom/example/Bar;", getClassName(dexFiles.get(1)));
+        assertEquals("Lcom/example/Baz;", getClassName(dexFiles.get(2)));
+    }
+
+    @DisplayName("Testing that a single dex file can be loaded directly.")
+    @Test
+    public void testLoadDexFile(@TempDir Path directory) throws IOException {
+
+        List<DexFile> dexFiles = DexLoader.loadDexFiles(writeDexFile(directory, "Lcom/example/Foo;").toFile());
+
+        assertEquals(1, dexFiles.size());
+        assertEquals("Lcom/example/Foo;", getClassName(dexFiles.get(0)));
+    }
+
+    @DisplayName("Testing that an APK without dex entries is rejected.")
+    @Test
+    public void testLoadNoDexFile(@TempDir Path directory) throws IOException {
+
+        Path apk = directory.resolve("empty.apk");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(apk))) {
+            zip.putNextEntry(new ZipEntry("AndroidManifest.xml"));
+            zip.closeEntry();
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> DexLoader.loadDexFiles(apk.toFile()));
+    }
+}
@@ -0,0 +1,85 @@
+package de.uni_passau.fim.auermich.android_graphs.core.utility;
+
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultDirectedGraph;
+import org.jgrapht.graph.DefaultEdge;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphExporterTest {
+
+    private static Graph<String, DefaultEdge> createGraph() {
+        Graph<String, DefaultEdge> graph = new DefaultDirectedGraph<>(DefaultEdge.class);
+        graph.addVertex("Lcom/example/Foo;->foo()V->entry");
+        graph.addVertex("Lcom/example/Foo;->foo()V->0\tinvoke");
+        graph.addVertex("Lcom/example/Foo;->foo()V->exit");
+        graph.addEdge("Lcom/example/Foo;->foo()V->entry", "Lcom/example/Foo;->foo()V->0\tinvoke");
+        graph.addEdge("Lcom/example/Foo;->foo()V->0\tinvoke", "Lcom/example/Foo;->foo()V->exit");
+        return graph;
+    }
+
+    @DisplayName("Testing that vertices are exported by their numeric id together with their label.")
+    @Test
+    public void testExportDOT(@TempDir Path directory) throws IOException {
+
+        Path output = directory.resolve("graph.dot");
+        new GraphExporter<>(createGraph(), String::valueOf).export(output, GraphExporter.Format.DOT, false);
+
+        assertEquals("digraph G {\n  0 [label=\"Lcom/example/Foo;->foo()V->entry\"];\n"
+                + "  1 [label=\"Lcom/example/Foo;->foo()V->0\tinvoke\"];\n"
+                + "  2 [label=\"Lcom/example/Foo;->foo()V->exit\"];\n  0 -> 1;\n  1 -> 2;\n}\n",
+                Files.readString(output));
+        assertFalse(Files.exists(directory.resolve("graph.labels.tsv")));
+    }
+
+    @DisplayName("Testing that the labels are optionally exported into a separate label table.")
+    @Test
+    public void testExportLabelTable(@TempDir Path directory) throws IOException {
+
+        Path output = directory.resolve("graph.dot");
+        GraphExporter<String, DefaultEdge> exporter = new GraphExporter<>(createGraph(), String::valueOf);
+        exporter.setLabelTable(true);
+        exporter.export(output, GraphExporter.Format.DOT, false);
+
+        assertEquals("digraph G {\n  0;\n  1;\n  2;\n  0 -> 1;\n  1 -> 2;\n}\n", Files.readString(output));
+        assertEquals(List.of("id\tlabel", "0\tLcom/example/Foo;->foo()V->entry",
+                "1\tLcom/example/Foo;->foo()V->0\\tinvoke", "2\tLcom/example/Foo;->foo()V->exit"),
+                Files.readAllLines(directory.resolve("graph.labels.tsv")));
+    }
+
+    @DisplayName("Testing the gzip-compressed JSON and GraphML export.")
+    @Test
+    public void testExportCompressed(@TempDir Path directory) throws IOException {
+
+        GraphExporter<String, DefaultEdge> exporter = new GraphExporter<>(createGraph(), String::valueOf);
+        exporter.export(directory.resolve("graph.json"), GraphExporter.Format.JSON, true);
+        exporter.export(directory.resolve("graph.graphml"), GraphExporter.Format.GRAPHML, true);
+
+        try (InputStream json = new GZIPInputStream(Files.newInputStream(directory.resolve("graph.json.gz")))) {
+            assertEquals("{\"creator\":\"android-graphs\",\"version\":\"1\",\"nodes\":["
+                    + "{\"id\":0,\"label\":\"Lcom/example/Foo;->foo()V->entry\"},"
+                    + "{\"id\":1,\"label\":\"Lcom/example/Foo;->foo()V->0\\u0009invoke\"},"
+                    + "{\"id\":2,\"label\":\"Lcom/example/Foo;->foo()V->exit\"}],"
+                    + "\"edges\":[{\"source\":0,\"target\":1},{\"source\":1,\"target\":2}]}\n",
+                    new String(json.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+        try (InputStream graphML = new GZIPInputStream(Files.newInputStream(directory.resolve("graph.graphml.gz")))) {
+            String content = new String(graphML.readAllBytes(), StandardCharsets.UTF_8);
+            assertTrue(content.contains("<node id=\"n2\"><data key=\"label\">Lcom/example/Foo;-&gt;foo()V-&gt;exit"
+                    + "</data></node>"));
+            assertTrue(content.contains("<edge source=\"n1\" target=\"n2\"/>"));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package de.uni_passau.fim.auermich.android_graphs.core.utility;
+
+import com.android.tools.smali.dexlib2.Opcode;
+import com.android.tools.smali.dexlib2.iface.ClassDef;
+import com.android.tools.smali.dexlib2.iface.DexFile;
+import com.android.tools.smali.dexlib2.iface.Method;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import static de.uni_passau.fim.auermich.android_graphs.core.utility.SmaliTestHelper.compileSmali;
+import static de.uni_passau.fim.auermich.android_graphs.core.utility.SmaliTestHelper.createDexFile;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InstructionTraversalTest {
+
+    private static final String CLASS = ".class public Lcom/example/Foo;\n"
+            + ".super Ljava/lang/Object;\n"
+            + ".method public foo()V\n"
+            + "    .registers 1\n"
+            + "    invoke-virtual {p0}, Lcom/example/Foo;->bar()V\n"
+            + "    invoke-virtual {p0}, Lcom/example/Foo;->bar()V\n"
+            + "    return-void\n"
+            + ".end method\n"
+            + ".method public bar()V\n"
+            + "    .registers 1\n"
+            + "    return-void\n"
+            + ".end method\n";
+
+    @DisplayName("Testing that each instruction is only dispatched to the interested visitors.")
+    @Test
+    public void testDispatch() {
+
+        ClassDef classDef = compileSmali(CLASS);
+        DexFile dexFile = createDexFile(classDef);
+
+        List<String> invokes = new ArrayList<>();
+        List<String> returns = new ArrayList<>();
+        List<String> finished = new ArrayList<>();
+
+        InstructionTraversal traversal = new InstructionTraversal();
+        traversal.register(context -> true, EnumSet.of(Opcode.INVOKE_VIRTUAL),
+                (context, analyzedInstruction) -> invokes.add(context.getMethodSignature()));
+        traversal.register(context -> context.getMethod().getName().equals("bar"), EnumSet.of(Opcode.RETURN_VOID),
+                (context, analyzedInstruction) -> returns.add(context.getMethodSignature()));
+        traversal.onFinish(() -> finished.add("finished"));
+
+        traversal.visitAll(List.of(dexFile), c -> true);
+        traversal.finish();
+
+        assertEquals(List.of("Lcom/example/Foo;->foo()V", "Lcom/example/Foo;->foo()V"), invokes);
+        assertEquals(List.of("Lcom/example/Foo;->bar()V"), returns);
+        assertEquals(List.of("finished"), finished);
+    }
+
+    @DisplayName("Testing that a method is not analyzed if no visitor is interested in it.")
+    @Test
+    public void testSkipMethod() {
+
+        ClassDef classDef = compileSmali(CLASS);
+        DexFile dexFile = createDexFile(classDef);
+
+        InstructionTraversal traversal = new InstructionTraversal();
+        traversal.register(context -> false, EnumSet.of(Opcode.INVOKE_VIRTUAL),
+                (context, analyzedInstruction) -> fail("Unexpected visit!"));
+
+        for (Method method : classDef.getMethods()) {
+            traversal.visit(dexFile, classDef, method, () -> fail("Unexpected analysis!"));
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> traversal.register(context -> true,
+                EnumSet.noneOf(Opcode.class), (context, analyzedInstruction) -> { }));
+    }
+}
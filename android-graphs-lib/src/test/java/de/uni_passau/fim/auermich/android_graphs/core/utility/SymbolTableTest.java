@@ -0,0 +1,35 @@
+package de.uni_passau.fim.auermich.android_graphs.core.utility;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class SymbolTableTest {
+
+    @DisplayName("Testing that equal method signatures share the same id.")
+    @Test
+    public void testInternMethod() {
+        final String method = "Lcom/example/SymbolTableTest;->foo(ILjava/lang/String;)V";
+        final int id = SymbolTable.internMethod(method);
+        Assertions.assertEquals(id, SymbolTable.internMethod(new String(method)));
+        Assertions.assertEquals(id, SymbolTable.lookUpMethod(method));
+        Assertions.assertSame(SymbolTable.getMethod(id), SymbolTable.getMethod(SymbolTable.internMethod(method)));
+        Assertions.assertNotEquals(id, SymbolTable.internMethod("Lcom/example/SymbolTableTest;->bar()V"));
+    }
+
+    @DisplayName("Testing the class name of an interned method signature.")
+    @Test
+    public void testClassOfMethod() {
+        final int id = SymbolTable.internMethod("Lcom/example/SymbolTableTest$Inner;->baz()V");
+        Assertions.assertEquals("Lcom/example/SymbolTableTest$Inner;",
+                SymbolTable.getClassName(SymbolTable.getClassOfMethod(id)));
+        Assertions.assertEquals(-1, SymbolTable.getClassOfMethod(SymbolTable.internMethod("global")));
+    }
+
+    @DisplayName("Testing the look up of unknown method signatures.")
+    @Test
+    public void testLookUpUnknownMethod() {
+        Assertions.assertEquals(-1, SymbolTable.lookUpMethod("Lcom/example/Unknown;->unknown()V"));
+        Assertions.assertNull(SymbolTable.lookUpClassName("Lcom/example/Unknown;->unknown()V"));
+    }
+}
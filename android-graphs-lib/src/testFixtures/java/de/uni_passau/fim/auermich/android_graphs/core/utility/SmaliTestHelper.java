@@ -0,0 +1,53 @@
+package de.uni_passau.fim.auermich.android_graphs.core.utility;
+
+import com.android.tools.smali.dexlib2.Opcodes;
+import com.android.tools.smali.dexlib2.iface.ClassDef;
+import com.android.tools.smali.dexlib2.iface.DexFile;
+import com.android.tools.smali.dexlib2.immutable.ImmutableDexFile;
+import com.android.tools.smali.smali.SmaliTestUtils;
+import org.antlr.runtime.RecognitionException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Compiles smali code into classes and dex files for the tests and benchmarks, see {@link SmaliTestUtils}.
+ */
+public final class SmaliTestHelper {
+
+    /**
+     * The API level the smali code is compiled for.
+     */
+    public static final int OPCODE_API = 28;
+
+    private SmaliTestHelper() {
+        throw new UnsupportedOperationException("utility class!");
+    }
+
+    /**
+     * Compiles the given smali code describing a single class.
+     *
+     * @param smaliCode The smali code.
+     * @return Returns the compiled class.
+     */
+    public static ClassDef compileSmali(final String smaliCode) {
+        try {
+            return SmaliTestUtils.compileSmali(smaliCode, OPCODE_API);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (RecognitionException e) {
+            throw new IllegalStateException("Couldn't compile smali code!", e);
+        }
+    }
+
+    /**
+     * Creates an in-memory dex file containing the given classes.
+     *
+     * @param classDefs The classes of the dex file.
+     * @return Returns the dex file.
+     */
+    public static DexFile createDexFile(final ClassDef... classDefs) {
+        return new ImmutableDexFile(Opcodes.forApi(OPCODE_API), List.of(classDefs));
+    }
+}